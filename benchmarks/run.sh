@@ -0,0 +1,12 @@
+#!/bin/sh
+# Builds the application and the benchmark module, then runs the benchmarks against an embedded H2 database.
+# Any arguments are passed to JMH, for example:
+#   ./benchmarks/run.sh                                   (everything, default dataset sizes)
+#   ./benchmarks/run.sh GraphFetch -p projects=10000      (one benchmark class, a bigger dataset)
+#   ./benchmarks/run.sh -jvmArgs -Dbench.jdbc.url=jdbc:mysql://localhost:3306/bench?user=...   (a scratch MySQL schema)
+# Results are also written to benchmarks/target/results.json.
+set -e
+cd "$(dirname "$0")/.."
+mvn -B -q install -DskipTests
+mvn -B -q -f benchmarks/pom.xml package
+java -jar benchmarks/target/benchmarks.jar -rf json -rff benchmarks/target/results.json "$@"
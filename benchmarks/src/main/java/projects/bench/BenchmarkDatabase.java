@@ -0,0 +1,210 @@
+package projects.bench;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+
+import projects.dao.ConnectionPool;
+import projects.dao.DbConnection;
+import projects.dao.MigrationRunner;
+import projects.dao.PoolConfig;
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * Sets up the database the benchmarks run against.  By default that is an in-memory H2 database in MySQL mode, so the
+ * benchmarks need nothing installed.  -Dbench.jdbc.url=... points them at another database instead; it must be a scratch
+ * schema because the tables are dropped and re-created.
+ *
+ * Datasets are generated from a fixed seed, so the same sizes always produce the same rows.  The tables are freshly created,
+ * so the auto-increment IDs run 1..n in insert order, which is what load() relies on to link the child rows.
+ */
+public final class BenchmarkDatabase {
+	public static final String URL_PROPERTY = "bench.jdbc.url";
+	public static final int CATEGORY_COUNT = 10;
+	private static final String DEFAULT_URL = "jdbc:h2:mem:diyprojects;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	private static final long SEED = 42L;
+	private static final String[] WORDS = {"sand", "paint", "glue", "measure", "cut", "drill", "stain", "clamp", "sand", "level",
+			"shelf", "deck", "fence", "bench", "table", "frame", "board", "screw", "hinge", "trim"};
+
+	private BenchmarkDatabase() {
+	}
+
+	public static String url() {
+		return System.getProperty(URL_PROPERTY, DEFAULT_URL);
+	}
+
+	/*
+	 * Points DbConnection at the benchmark database through a pool of the given size.
+	 */
+	public static void install(int poolSize) {
+		String url = url();
+		PoolConfig config = new PoolConfig();
+		config.setMinSize(1);
+		config.setMaxSize(poolSize);
+		DbConnection.usePool(new ConnectionPool(() -> DriverManager.getConnection(url), config));
+	} // install
+
+	/*
+	 * Re-creates the schema from projects-schema.sql, migrates it to the current version (so the benchmarks see the same indexes
+	 * as the application) and fills it with a generated dataset.
+	 */
+	public static void reset(int projects, int materialsPerProject, int stepsPerProject) {
+		try(Connection conn = DbConnection.getConnection(); Statement stmt = conn.createStatement()) {
+			for(String sql : schemaStatements()) {
+				stmt.execute(sql);
+			} // for
+		} catch(SQLException | IOException e) {
+			throw new IllegalStateException("Unable to set up the benchmark database at " + url(), e);
+		} // try-catch
+		new MigrationRunner().migrate(); // Borrows its own connection, so the one above must be back in the pool first.
+		try(Connection conn = DbConnection.getConnection()) {
+			conn.setAutoCommit(false);
+			load(conn, projects, materialsPerProject, stepsPerProject);
+			conn.commit();
+		} catch(SQLException e) {
+			throw new IllegalStateException("Unable to set up the benchmark database at " + url(), e);
+		} // try-catch
+	} // reset
+
+	/*
+	 * Builds unsaved project graphs (for the insert benchmarks).  The categories refer to the ones reset() created.
+	 */
+	public static List<Project> newProjects(int count, int materialsPerProject, int stepsPerProject, long seed) {
+		Random random = new Random(seed);
+		List<Project> projects = new ArrayList<>(count);
+		for(int i = 0; i < count; i++) {
+			Project project = newProject(random, "Generated " + seed + "-" + i);
+			for(int m = 0; m < materialsPerProject; m++) {
+				project.getMaterials().add(newMaterial(random));
+			} // for
+			for(int s = 0; s < stepsPerProject; s++) {
+				project.getSteps().add(newStep(random, s + 1));
+			} // for
+			Category category = new Category();
+			category.setCategoryId(1 + random.nextInt(CATEGORY_COUNT));
+			project.getCategories().add(category);
+			projects.add(project);
+		} // for
+		return projects;
+	} // newProjects
+
+	private static void load(Connection conn, int projects, int materialsPerProject, int stepsPerProject) throws SQLException {
+		Random random = new Random(SEED);
+		int batch = 0;
+		try(PreparedStatement categoryStmt = conn.prepareStatement("INSERT INTO category (category_name) VALUES (?)");
+				PreparedStatement projectStmt = conn.prepareStatement(""
+						+ "INSERT INTO project (project_name, estimated_hours, actual_hours, difficulty, notes) "
+						+ "VALUES (?, ?, ?, ?, ?)");
+				PreparedStatement materialStmt = conn.prepareStatement(""
+						+ "INSERT INTO material (project_id, material_name, num_required, cost) VALUES (?, ?, ?, ?)");
+				PreparedStatement stepStmt = conn.prepareStatement(""
+						+ "INSERT INTO step (project_id, step_text, step_order) VALUES (?, ?, ?)");
+				PreparedStatement linkStmt = conn.prepareStatement(""
+						+ "INSERT INTO project_category (project_id, category_id) VALUES (?, ?)")) {
+			for(int c = 1; c <= CATEGORY_COUNT; c++) {
+				categoryStmt.setString(1, "Category " + c);
+				categoryStmt.addBatch();
+			} // for
+			categoryStmt.executeBatch();
+
+			for(int projectId = 1; projectId <= projects; projectId++) {
+				Project project = newProject(random, "Project " + projectId);
+				projectStmt.setString(1, project.getProjectName());
+				projectStmt.setBigDecimal(2, project.getEstimatedHours());
+				projectStmt.setBigDecimal(3, project.getActualHours());
+				projectStmt.setInt(4, project.getDifficulty());
+				projectStmt.setString(5, project.getNotes());
+				projectStmt.addBatch();
+
+				for(int m = 0; m < materialsPerProject; m++) {
+					Material material = newMaterial(random);
+					materialStmt.setInt(1, projectId);
+					materialStmt.setString(2, material.getMaterialName());
+					materialStmt.setInt(3, material.getNumRequired());
+					materialStmt.setBigDecimal(4, material.getCost());
+					materialStmt.addBatch();
+				} // for
+				for(int s = 1; s <= stepsPerProject; s++) {
+					Step step = newStep(random, s);
+					stepStmt.setInt(1, projectId);
+					stepStmt.setString(2, step.getStepText());
+					stepStmt.setInt(3, step.getStepOrder());
+					stepStmt.addBatch();
+				} // for
+				linkStmt.setInt(1, projectId);
+				linkStmt.setInt(2, 1 + random.nextInt(CATEGORY_COUNT));
+				linkStmt.addBatch();
+
+				if(++batch == 500 || projectId == projects) { // Parents first, so the foreign keys are satisfied.
+					projectStmt.executeBatch();
+					materialStmt.executeBatch();
+					stepStmt.executeBatch();
+					linkStmt.executeBatch();
+					batch = 0;
+				} // if
+			} // for
+		} // try
+	} // load
+
+	private static Project newProject(Random random, String name) {
+		Project project = new Project();
+		project.setProjectName(name);
+		project.setEstimatedHours(BigDecimal.valueOf(100 + random.nextInt(5_000), 2));
+		project.setActualHours(BigDecimal.valueOf(100 + random.nextInt(5_000), 2));
+		project.setDifficulty(1 + random.nextInt(5));
+		project.setNotes(words(random, 30));
+		return project;
+	} // newProject
+
+	private static Material newMaterial(Random random) {
+		Material material = new Material();
+		material.setMaterialName(words(random, 3));
+		material.setNumRequired(1 + random.nextInt(20));
+		material.setCost(BigDecimal.valueOf(random.nextInt(10_000), 2));
+		return material;
+	} // newMaterial
+
+	private static Step newStep(Random random, int order) {
+		Step step = new Step();
+		step.setStepText(words(random, 12));
+		step.setStepOrder(order);
+		return step;
+	} // newStep
+
+	private static String words(Random random, int count) {
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < count; i++) {
+			builder.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+		} // for
+		return builder.toString();
+	} // words
+
+	private static List<String> schemaStatements() throws IOException {
+		try(InputStream in = BenchmarkDatabase.class.getResourceAsStream("/projects-schema.sql")) {
+			if(Objects.isNull(in)) {
+				throw new IOException("projects-schema.sql is not on the classpath");
+			} // if
+			List<String> statements = new ArrayList<>();
+			for(String sql : new String(in.readAllBytes(), StandardCharsets.UTF_8).split(";")) {
+				if(!sql.isBlank()) {
+					statements.add(sql.trim());
+				} // if
+			} // for
+			return statements;
+		} // try
+	} // schemaStatements
+
+} // class
@@ -0,0 +1,108 @@
+package projects.bench;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import projects.dao.ProjectDao;
+import projects.dao.ProjectPage;
+import projects.dao.ProjectRowPage;
+import projects.dao.ProjectSort;
+import projects.entity.Project;
+import projects.entity.ProjectRow;
+
+/*
+ * Allocation per listed project: a Project entity against a ProjectRow, both built in memory (no database noise) and read
+ * through the DAO's page queries.  Every benchmark is normalised to one project, so run it with the GC profiler and read
+ * gc.alloc.rate.norm as bytes per listed project:
+ *
+ *   ./benchmarks/run.sh EntityAllocation -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-XX:-DoEscapeAnalysis") // Otherwise the in-memory objects may never be allocated at all.
+public class EntityAllocationBenchmark {
+	private static final int PAGE_SIZE = 100;
+	private static final BigDecimal ESTIMATED_HOURS = new BigDecimal("12.50");
+	private static final BigDecimal ACTUAL_HOURS = new BigDecimal("14.25");
+
+	@Param({"1000"})
+	public int projects;
+
+	private ProjectDao projectDao;
+	private int nextId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkDatabase.install(2);
+		BenchmarkDatabase.reset(projects, 0, 0);
+		projectDao = new ProjectDao();
+	} // setUp
+
+	/*
+	 * A Project filled in the way the row mapper fills it.
+	 */
+	@Benchmark
+	public Project newProject() {
+		Project project = new Project();
+		project.setProjectId(++nextId);
+		project.setProjectName("Bookshelf");
+		project.setEstimatedHours(ESTIMATED_HOURS);
+		project.setActualHours(ACTUAL_HOURS);
+		project.setDifficulty(3);
+		project.setNotes("Use pine");
+		project.setVersion(0);
+		return project;
+	} // newProject
+
+	@Benchmark
+	public ProjectRow newProjectRow() {
+		return new ProjectRow(++nextId, "Bookshelf", 1250, 1425, 3, 0);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PAGE_SIZE)
+	public void listPageOfProjects(Blackhole blackhole) {
+		ProjectPage page = projectDao.fetchProjectPage(ProjectSort.ID, null, PAGE_SIZE);
+		page.projects().forEach(blackhole::consume);
+	} // listPageOfProjects
+
+	@Benchmark
+	@OperationsPerInvocation(PAGE_SIZE)
+	public void listPageOfProjectRows(Blackhole blackhole) {
+		ProjectRowPage page = projectDao.fetchProjectRowPage(ProjectSort.ID, null, PAGE_SIZE);
+		page.rows().forEach(blackhole::consume);
+	} // listPageOfProjectRows
+
+	/*
+	 * Not normalised (the page count depends on the dataset): divide by the projects parameter.
+	 */
+	@Benchmark
+	public void listAllProjectRowsByPage(Blackhole blackhole) {
+		String pageToken = null;
+		do {
+			ProjectRowPage page = projectDao.fetchProjectRowPage(ProjectSort.NAME, pageToken, PAGE_SIZE);
+			page.rows().forEach(blackhole::consume);
+			pageToken = page.nextPageToken();
+		} while(Objects.nonNull(pageToken));
+	} // listAllProjectRowsByPage
+
+} // class
@@ -0,0 +1,63 @@
+package projects.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.dao.GraphFetchMode;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+
+/*
+ * Full-graph fetch of one project (ProjectDao.fetchProjectById) in each GraphFetchMode that loads the children up front.  Kept
+ * apart from ProjectDaoBenchmark so that only this benchmark runs once per mode.
+ *
+ * On the embedded H2 database SINGLE_ROUND_TRIP falls back to PER_TABLE, because H2 can't return several result sets from one
+ * statement; compare the two modes against MySQL (see run.sh).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphFetchBenchmark {
+
+	@Param({"1000"})
+	public int projects;
+
+	@Param({"5"})
+	public int childrenPerProject;
+
+	@Param({"SINGLE_ROUND_TRIP", "PER_TABLE"})
+	public GraphFetchMode graphFetchMode;
+
+	private ProjectDao projectDao;
+	private int nextId;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkDatabase.install(4);
+		BenchmarkDatabase.reset(projects, childrenPerProject, childrenPerProject);
+		projectDao = new ProjectDao();
+		projectDao.setGraphFetchMode(graphFetchMode);
+	} // setUp
+
+	@Benchmark
+	public Project fetchProjectGraph() {
+		nextId = nextId % projects + 1; // Walks every ID in turn, so runs are repeatable.
+		return projectDao.fetchProjectById(nextId).orElseThrow();
+	} // fetchProjectGraph
+
+} // class
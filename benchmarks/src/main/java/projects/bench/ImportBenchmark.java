@@ -0,0 +1,103 @@
+package projects.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import projects.importer.ImportConfig;
+import projects.importer.ImportFormat;
+import projects.importer.ImportReport;
+import projects.importer.ProjectImporter;
+import projects.service.ProjectService;
+
+/*
+ * Imports a generated file of projects, each with materials, steps and a category, into an empty database.  One import per
+ * measurement, so the score is the time for the whole file; divide the records parameter by it for records per second.
+ * Compare parserThreads to see how far parallel parsing helps before the single writer becomes the limit.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ImportBenchmark {
+
+	@Param({"10000"})
+	public int records;
+
+	@Param({"CSV", "JSONL"})
+	public ImportFormat format;
+
+	@Param({"1", "4"})
+	public int parserThreads;
+
+	private Path file;
+	private ProjectImporter importer;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		BenchmarkDatabase.install(2);
+		file = Files.createTempFile("projects-import", format == ImportFormat.CSV ? ".csv" : ".jsonl");
+		try(BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+			for(int i = 1; i <= records; i++) {
+				writer.write(format == ImportFormat.CSV ? csvRecord(i) : jsonRecord(i));
+			} // for
+		} // try
+		ImportConfig config = new ImportConfig();
+		config.setParserThreads(parserThreads);
+		importer = new ProjectImporter(new ProjectService(), config);
+	} // setUp
+
+	@Setup(Level.Iteration)
+	public void emptyDatabase() {
+		BenchmarkDatabase.reset(0, 0, 0); // Keeps the categories the records refer to.
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public ImportReport importFile() {
+		return importer.importFile(file, format);
+	}
+
+	private static String csvRecord(int i) {
+		return "project,Project " + i + ",12.50,14.25,3,\"Notes for project " + i + ", with a comma\"\n"
+				+ "material,Pine board,4,8.99\n"
+				+ "material,Wood glue,1,4.50\n"
+				+ "step,Cut the boards to length\n"
+				+ "step,Glue and clamp\n"
+				+ "step,Sand and finish\n"
+				+ "category,Category " + (1 + i % BenchmarkDatabase.CATEGORY_COUNT) + "\n";
+	} // csvRecord
+
+	private static String jsonRecord(int i) {
+		return "{\"projectName\": \"Project " + i + "\", \"estimatedHours\": 12.50, \"actualHours\": 14.25, \"difficulty\": 3,"
+				+ " \"notes\": \"Notes for project " + i + ", with a comma\","
+				+ " \"materials\": [{\"materialName\": \"Pine board\", \"numRequired\": 4, \"cost\": 8.99},"
+				+ " {\"materialName\": \"Wood glue\", \"numRequired\": 1, \"cost\": 4.50}],"
+				+ " \"steps\": [\"Cut the boards to length\", \"Glue and clamp\", \"Sand and finish\"],"
+				+ " \"categories\": [\"Category " + (1 + i % BenchmarkDatabase.CATEGORY_COUNT) + "\"]}\n";
+	} // jsonRecord
+
+} // class
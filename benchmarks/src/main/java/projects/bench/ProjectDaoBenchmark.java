@@ -0,0 +1,101 @@
+package projects.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import projects.dao.ProjectDao;
+import projects.dao.ProjectPage;
+import projects.dao.ProjectSort;
+import projects.entity.Project;
+
+/*
+ * End-to-end benchmarks of ProjectDao: bulk graph fetch, batched insert and the three ways of listing projects.  Dataset size
+ * is a JMH parameter, e.g. -p projects=100000.  Single-project graph fetch, compared across GraphFetchModes, is in
+ * GraphFetchBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProjectDaoBenchmark {
+
+	@Param({"1000"})
+	public int projects;
+
+	@Param({"5"})
+	public int childrenPerProject;
+
+	@Param({"100"})
+	public int batchSize;
+
+	private ProjectDao projectDao;
+	private List<Integer> bulkIds;
+	private long insertSeed;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkDatabase.install(4);
+		BenchmarkDatabase.reset(projects, childrenPerProject, childrenPerProject);
+		projectDao = new ProjectDao();
+		bulkIds = new ArrayList<>();
+		for(int id = 1; id <= Math.min(projects, 100); id++) {
+			bulkIds.add(id * Math.max(1, projects / 100)); // 100 IDs spread across the table.
+		} // for
+	} // setUp
+
+	@Benchmark
+	public List<Project> fetchHundredProjectGraphs() {
+		return projectDao.fetchProjectGraphs(bulkIds);
+	} // fetchHundredProjectGraphs
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@Warmup(iterations = 3, batchSize = 1)
+	@Measurement(iterations = 10, batchSize = 1)
+	public List<Project> insertProjectGraphs() {
+		List<Project> graphs = BenchmarkDatabase.newProjects(batchSize, childrenPerProject, childrenPerProject, ++insertSeed);
+		return projectDao.insertProjects(graphs, batchSize);
+	} // insertProjectGraphs
+
+	@Benchmark
+	public List<Project> listAllProjects() {
+		return projectDao.fetchAllProjects();
+	} // listAllProjects
+
+	@Benchmark
+	public void streamAllProjects(Blackhole blackhole) {
+		try(Stream<Project> stream = projectDao.streamAllProjects()) {
+			stream.forEach(blackhole::consume);
+		} // try
+	} // streamAllProjects
+
+	@Benchmark
+	public void pageAllProjects(Blackhole blackhole) {
+		String pageToken = null;
+		do {
+			ProjectPage page = projectDao.fetchProjectPage(ProjectSort.NAME, pageToken, 100);
+			page.projects().forEach(blackhole::consume);
+			pageToken = page.nextPageToken();
+		} while(Objects.nonNull(pageToken));
+	} // pageAllProjects
+
+} // class
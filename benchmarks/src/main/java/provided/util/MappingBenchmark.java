@@ -0,0 +1,143 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import projects.bench.BenchmarkDatabase;
+import projects.dao.DbConnection;
+import projects.entity.Project;
+
+/**
+ * Benchmarks for the {@link DaoBase} helpers that run once per row or once per parameter. It lives
+ * in the provided.util package so it can reach the package-private
+ * {@link DaoBase#camelCaseToSnakeCase(String)}.
+ *
+ * @author Promineo
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappingBenchmark extends DaoBase {
+  private static final String[] FIELD_NAMES =
+      {"projectId", "projectName", "estimatedHours", "actualHours", "difficulty", "notes"};
+
+  /**
+   * The number of project rows mapped per invocation.
+   */
+  @Param({"100", "10000"})
+  public int projects;
+
+  private Connection conn;
+  private PreparedStatement selectStmt;
+  private PreparedStatement insertStmt;
+
+  /**
+   * Loads the dataset and prepares the statements once per trial.
+   *
+   * @throws SQLException Thrown if the database cannot be set up
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws SQLException {
+    BenchmarkDatabase.install(2);
+    BenchmarkDatabase.reset(projects, 0, 0);
+    conn = DbConnection.getConnection();
+    selectStmt = conn.prepareStatement("SELECT * FROM project");
+    insertStmt = conn.prepareStatement("INSERT INTO project "
+        + "(project_name, estimated_hours, actual_hours, difficulty, notes) VALUES (?, ?, ?, ?, ?)");
+  }
+
+  /**
+   * @throws SQLException Thrown if the connection cannot be closed
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() throws SQLException {
+    insertStmt.close();
+    selectStmt.close();
+    conn.close();
+  }
+
+  /**
+   * Converts every field name of Project.
+   *
+   * @param blackhole Consumes the results
+   */
+  @Benchmark
+  public void camelCaseToSnakeCase(Blackhole blackhole) {
+    for(String name : FIELD_NAMES) {
+      blackhole.consume(camelCaseToSnakeCase(name));
+    }
+  }
+
+  /**
+   * Maps the whole result set with one {@link RowMapper}, the way the DAO does.
+   *
+   * @param blackhole Consumes the results
+   * @throws SQLException Thrown if the query fails
+   */
+  @Benchmark
+  public void mapRowsWithMapper(Blackhole blackhole) throws SQLException {
+    try(ResultSet rs = selectStmt.executeQuery()) {
+      RowMapper<Project> projectMapper = mapper(rs, Project.class);
+
+      while(rs.next()) {
+        blackhole.consume(projectMapper.map(rs));
+      }
+    }
+  }
+
+  /**
+   * Maps the whole result set with {@link #extract(ResultSet, Class)}, which resolves the columns
+   * again on every row.
+   *
+   * @param blackhole Consumes the results
+   * @throws SQLException Thrown if the query fails
+   */
+  @Benchmark
+  public void mapRowsWithExtract(Blackhole blackhole) throws SQLException {
+    try(ResultSet rs = selectStmt.executeQuery()) {
+      while(rs.next()) {
+        blackhole.consume(extract(rs, Project.class));
+      }
+    }
+  }
+
+  /**
+   * Binds the five parameters of a project insert without executing it.
+   *
+   * @throws SQLException Thrown if a parameter cannot be set
+   */
+  @Benchmark
+  public void setParameters() throws SQLException {
+    setParameter(insertStmt, 1, "Bookshelf", String.class);
+    setParameter(insertStmt, 2, BigDecimal.TEN, BigDecimal.class);
+    setParameter(insertStmt, 3, null, BigDecimal.class);
+    setParameter(insertStmt, 4, 3, Integer.class);
+    setParameter(insertStmt, 5, "Use pine", String.class);
+  }
+}
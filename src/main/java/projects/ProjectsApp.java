@@ -1,13 +1,35 @@
 package projects;
 
 import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Scanner;
 
+import projects.analytics.CategorySpend;
+import projects.analytics.EstimateAccuracy;
+import projects.analytics.ProjectCost;
+import projects.dao.GraphFetchMode;
+import projects.dao.MigrationRunner;
+import projects.dao.ProjectRowPage;
+import projects.dao.ProjectSort;
+import projects.dao.ProjectUpdate;
+import projects.dao.QueryPlanVerifier;
+import projects.entity.Category;
 import projects.entity.Project;
 import projects.exception.DbException;
+import projects.exporter.ExportReport;
+import projects.exporter.ProjectExporter;
+import projects.importer.ImportConfig;
+import projects.importer.ImportReport;
+import projects.importer.ProjectImporter;
+import projects.search.SearchHit;
+import projects.service.CategoryService;
 import projects.service.ProjectService;
+import projects.service.ReportService;
+import projects.service.SearchService;
 
 //import projects.dao.DbConnection;
 
@@ -15,7 +37,13 @@ public class ProjectsApp {
 
 	private Scanner scanner = new Scanner(System.in); // scanner setup
 	private ProjectService projectService = new ProjectService();
+	private ReportService reportService = new ReportService();
+	private SearchService searchService = new SearchService();
+	private CategoryService categoryService = new CategoryService();
 	private Project curProject = new Project();
+	private static final int LIST_PAGE_SIZE = 25;
+	private static final int SEARCH_RESULT_LIMIT = 10;
+	private static final Duration STEP_RENUMBER_INTERVAL = Duration.ofMinutes(1);
 	
 	// @formatter:off
 	private List<String> operations = List.of( // This is the menu.
@@ -23,49 +51,97 @@ public class ProjectsApp {
 		"2) List Projects",
 		"3) Display a Project",
 		"4) Update project details",
-		"5) Delete a project"
+		"5) Delete a project",
+		"6) Show cost and hours reports",
+		"7) Search projects",
+		"8) Import projects from a file",
+		"9) Export projects to a file",
+		"10) Assign or remove a category"
 			);
 	// @formatter:on
 	
 	public static void main(String[] args) { // main method
 		//DbConnection.getConnection();
+		migrateSchema();
+		if(List.of(args).contains("--check-query-plans")) {
+			checkQueryPlans();
+			return;
+		} // if
 		new ProjectsApp().processUserSelections();
 	
 	} // main
+
+	private static void migrateSchema() { // Brings the tables up to date before anything uses them.
+		try {
+			List<MigrationRunner.Migration> applied = new MigrationRunner().migrate();
+			applied.forEach(migration -> System.out.println("Applied schema migration " + migration.script()));
+		} catch(DbException e) {
+			System.out.println("\nUnable to update the database schema:  " + e); // The menu still runs; each operation reports its own error.
+		} // try-catch
+	} // migrateSchema
+
+	private static void checkQueryPlans() { // Run with --check-query-plans to see whether the DAO queries use their indexes.
+		List<QueryPlanVerifier.PlanCheckResult> results = new QueryPlanVerifier().verify();
+		results.forEach(System.out::println);
+		long failed = results.stream().filter(result -> !result.passed()).count();
+		System.out.println(failed == 0 ? "\nAll query plans use their indexes." : "\n" + failed + " query plan check(s) failed.");
+	} // checkQueryPlans
 	
 	private void processUserSelections() {
 		boolean done = false;
 		curProject = null; // Adding this got rid of the initial project readout, where there wasn't any project selected, but curProject still wasn't null. Week 11, 3/22/25
-		while(!done) {						// This operates the menu.
-			try {
-				int selection = getUserSelection(); // method to grab user's selection.
-				switch(selection) {
-				case -1:
-					done = exitMenu();
-					break;
-				case 1:
-					createProject();
-					break;
-				case 2:
-					listProjects();
-					break;
-				case 3:
-					selectProject();
-					break;
-				case 4:
-					updateProjectDetails();
-					break;
-				case 5:
-					deleteProject();
-					break;
-				default:
-					System.out.println("\n" + selection + " is not a valid selection.  Try again.");
-					break;
-				} // switch
-			} catch (Exception e) {
-				System.out.println("\nError:  " + e + " - Try again."); // If the user inputs something not on the menu...
-			} // try-catch
-		} // while
+		projectService.setGraphFetchMode(GraphFetchMode.LAZY); // Update and delete only need the project row; children are read when shown.
+		projectService.startStepRenumbering(STEP_RENUMBER_INTERVAL); // Keeps room between step keys for insert-between.
+		try {
+			while(!done) {						// This operates the menu.
+				try {
+					int selection = getUserSelection(); // method to grab user's selection.
+					projectService.startLoadSession(); // Each menu action batches its own child loads.
+					switch(selection) {
+					case -1:
+						done = exitMenu();
+						break;
+					case 1:
+						createProject();
+						break;
+					case 2:
+						listProjects();
+						break;
+					case 3:
+						selectProject();
+						break;
+					case 4:
+						updateProjectDetails();
+						break;
+					case 5:
+						deleteProject();
+						break;
+					case 6:
+						showReports();
+						break;
+					case 7:
+						searchProjects();
+						break;
+					case 8:
+						importProjects();
+						break;
+					case 9:
+						exportProjects();
+						break;
+					case 10:
+						manageCategory();
+						break;
+					default:
+						System.out.println("\n" + selection + " is not a valid selection.  Try again.");
+						break;
+					} // switch
+				} catch (Exception e) {
+					System.out.println("\nError:  " + e + " - Try again."); // If the user inputs something not on the menu...
+				} // try-catch
+			} // while
+		} finally {
+			projectService.stopStepRenumbering();
+		} // try-finally
 
 	} // processUserSelections method
 
@@ -83,6 +159,7 @@ public class ProjectsApp {
 		System.out.println(verifyDelete);
 		if(verifyDelete.equals("Yes")) {
 			projectService.deleteProject(project);
+			System.out.println("\nProject " + project.getProjectId() + " was deleted.");
 			listProjects();
 		} else {
 			System.out.println("\nAborting...\n");
@@ -107,20 +184,120 @@ public class ProjectsApp {
 		Integer difficulty = getIntInput("Update the project difficulty (1-5), or hit ENTER to keep the current difficulty:  [" + curProject.getDifficulty() + "]");
 		String notes = getStringInput("Update the project notes, or hit ENTER to keep the current notes:  [" + curProject.getNotes() + "]");
 		
-		Project project = new Project(); // Based on the answers, above, this part saves the responses to the respective fields.
-		project.setProjectName(Objects.isNull(projectName) ? curProject.getProjectName() : projectName);
-		project.setEstimatedHours(Objects.isNull(estimatedHours) ? curProject.getEstimatedHours() : estimatedHours);
-		project.setActualHours(Objects.isNull(actualHours) ? curProject.getActualHours() : actualHours);
-		project.setDifficulty(Objects.isNull(difficulty) ? curProject.getDifficulty() : difficulty);
-		project.setNotes(Objects.isNull(notes) ? curProject.getNotes() : notes);
+		Project project = new Project(); // Based on the answers, above, only the fields that were answered are set, and only those are written.
 		project.setProjectId(curProject.getProjectId());
+		project.setVersion(curProject.getVersion()); // The update is refused if someone else changed the project since it was read.
+		if(Objects.nonNull(projectName)) {
+			project.setProjectName(projectName);
+		} // if
+		if(Objects.nonNull(estimatedHours)) {
+			project.setEstimatedHours(estimatedHours);
+		} // if
+		if(Objects.nonNull(actualHours)) {
+			project.setActualHours(actualHours);
+		} // if
+		if(Objects.nonNull(difficulty)) {
+			project.setDifficulty(difficulty);
+		} // if
+		if(Objects.nonNull(notes)) {
+			project.setNotes(notes);
+		} // if
 		
 		// In a real project, this is where I would print out the changes that were just requested, and then ask the user to verify if that's what they really wanted to do, or not, before executing the transaction.
 		
+		ProjectUpdate changes = ProjectUpdate.changesOf(project);
 		projectService.modifyProjectDetails(project);
-		curProject = projectService.fetchProjectById(curProject.getProjectId());
+		System.out.println("\nProject " + project.getProjectId() + " was updated.");
+		changes.applyTo(curProject); // The new values are known, so the project isn't read back.
+		curProject.setVersion(project.getVersion());
+		curProject.clearChanges();
 	} // updateProjectDetails
 
+	private void searchProjects() {
+		String query = getStringInput("Enter words to search for (names, notes, steps and materials; partial words match):");
+		if(Objects.isNull(query)) {
+			return;
+		} // if
+		List<SearchHit> hits = searchService.search(query, SEARCH_RESULT_LIMIT);
+		if(hits.isEmpty()) {
+			System.out.println("\nNo projects match \"" + query + "\".");
+			return;
+		} // if
+		System.out.println("\nBest matches:  ");
+		hits.forEach(hit -> System.out.println("   " + hit.projectId() + ": " + hit.projectName()));
+	} // searchProjects
+
+	private void importProjects() {
+		String path = getStringInput("Enter the path of a .csv or .jsonl file of projects (optionally .gz):");
+		if(Objects.isNull(path)) {
+			return;
+		} // if
+		Path file = Path.of(path);
+		ImportConfig config = new ImportConfig();
+		config.setCheckpointName(file.toAbsolutePath().normalize().toString()); // Running the same file again resumes where it stopped.
+		config.setRejectFile(file.resolveSibling(file.getFileName() + ".rejects"));
+		ImportReport report = new ProjectImporter(projectService, config).importFile(file);
+		System.out.println("\n" + report);
+		report.rejects().forEach(reject -> System.out.println("   " + reject));
+		if(report.rejected() > 0) {
+			System.out.println("\nEvery rejected record is listed in " + config.getRejectFile());
+		} // if
+	} // importProjects
+
+	private void exportProjects() {
+		String path = getStringInput("Enter the path to write, ending in .csv or .jsonl (add .gz to compress it):");
+		if(Objects.isNull(path)) {
+			return;
+		} // if
+		ExportReport report = new ProjectExporter(projectService).exportTo(Path.of(path)); // The file can be imported again with option 8.
+		System.out.println("\n" + report);
+	} // exportProjects
+
+	private void manageCategory() {
+		System.out.println("\nCategories:  ");
+		for(Category category : categoryService.fetchAllCategories()) {
+			System.out.println("   " + category.getCategoryId() + ": " + category.getCategoryName() + " (" + categoryService.countProjectsInCategory(category.getCategoryId()) + " projects)");
+		} // for
+		Integer categoryId = getIntInput("Enter a category ID:");
+		if(Objects.isNull(categoryId)) {
+			return;
+		} // if
+		Category category = categoryService.fetchCategoryById(categoryId).orElseThrow(() -> new DbException("Category " + categoryId + " does not exist."));
+		System.out.println("\nProjects in " + category.getCategoryName() + ":  " + categoryService.fetchProjectIdsInCategory(categoryId));
+		String input = getStringInput("Enter project IDs to add, separated by commas (e.g. 3,7,12), or start with - to remove them instead:");
+		if(Objects.isNull(input)) {
+			return;
+		} // if
+		boolean remove = input.startsWith("-");
+		List<Integer> projectIds = new ArrayList<>();
+		for(String id : (remove ? input.substring(1) : input).split(",")) {
+			try {
+				projectIds.add(Integer.valueOf(id.trim()));
+			} catch(NumberFormatException e) {
+				throw new DbException(id.trim() + " is not a valid project ID.");
+			} // try-catch
+		} // for
+		// Both change all the projects in one transaction and skip the ones that are already as asked.
+		List<Integer> changed = remove ? projectService.removeCategory(categoryId, projectIds) : projectService.assignCategory(categoryId, projectIds);
+		System.out.println("\n" + changed.size() + " projects " + (remove ? "removed from " : "added to ") + category.getCategoryName() + ":  " + changed);
+	} // manageCategory
+
+	private void showReports() {
+		System.out.println("\nMaterial cost and hours by project:  ");
+		for(ProjectCost cost : reportService.fetchProjectCosts()) {
+			System.out.println("   " + cost.projectId() + ": " + cost.projectName() + " - " + cost.materialCount() + " materials, $"
+					+ cost.materialCost() + ", hours " + cost.estimatedHours() + " estimated / " + cost.actualHours() + " actual");
+		} // for
+		System.out.println("\nMaterial cost by category:  ");
+		for(CategorySpend spend : reportService.fetchCategorySpend()) {
+			System.out.println("   " + spend.categoryName() + " - " + spend.projectCount() + " projects, $" + spend.materialCost());
+		} // for
+		EstimateAccuracy accuracy = reportService.fetchOverallEstimateAccuracy();
+		System.out.println("\nEstimate accuracy over " + accuracy.projectCount() + " projects:  actual/estimate " + accuracy.actualToEstimateRatio()
+				+ ", mean error " + accuracy.meanAbsoluteError() + " hours, " + accuracy.overCount() + " over, " + accuracy.underCount() + " under, "
+				+ accuracy.onEstimateCount() + " on estimate");
+	} // showReports
+
 	private void selectProject() {
 		listProjects();
 		Integer projectId = getIntInput("Enter a project ID to select a project");
@@ -128,15 +305,26 @@ public class ProjectsApp {
 		curProject = projectService.fetchProjectById(projectId);
 		if(Objects.isNull(curProject)) {
 			System.out.println("\nInvalid Project ID");
+		} else {
+			curProject.loadChildren(); // Displaying it is what needs the materials, steps and categories.
 		} // if
 	} //selectProject
 
 	private void listProjects() {
-		List<Project> projects = projectService.fetchAllProjects();
 		System.out.println("\nProjects:  ");
-		projects.forEach(project -> System.out.println("   " + project.getProjectId() + ": " + project.getProjectName()));
+		String pageToken = null;
+		do { // Each page is one keyset query, so deep pages cost the same as the first.
+			ProjectRowPage page = projectService.fetchProjectRowPage(ProjectSort.ID, pageToken, LIST_PAGE_SIZE); // Compact rows: no notes, no child lists.
+			page.rows().forEach(row -> System.out.println("   " + row.projectId() + ": " + row.projectName()));
+			pageToken = page.nextPageToken();
+		} while(Objects.nonNull(pageToken) && showNextPage());
 	} // listProjects
 
+	private boolean showNextPage() {
+		String input = getStringInput("   There are more projects.  Press ENTER to see them, or type N to stop:");
+		return Objects.isNull(input) || !input.equalsIgnoreCase("N");
+	} // showNextPage
+
 	private void createProject() {
 		//ProjectsApp projectName; // associated with 2 lines below...
 		String projectName = getStringInput("Enter the project name"); 	// Collecting data for the new project...
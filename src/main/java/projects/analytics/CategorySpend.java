@@ -0,0 +1,9 @@
+package projects.analytics;
+
+import java.math.BigDecimal;
+
+/*
+ * The material cost of every project in a category.  A project in two categories counts fully in both.
+ */
+public record CategorySpend(Integer categoryId, String categoryName, int projectCount, BigDecimal materialCost) {
+}
@@ -0,0 +1,57 @@
+package projects.analytics;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Objects;
+
+/*
+ * How well hours were estimated for a group of projects: by difficulty, or overall when difficulty is null.  Only projects
+ * with both estimated and actual hours are counted.  The sums are kept (rather than averages) so groups can be combined exactly.
+ */
+public record EstimateAccuracy(Integer difficulty, int projectCount, BigDecimal estimatedHours, BigDecimal actualHours,
+		BigDecimal absoluteErrorHours, int overCount, int underCount) {
+
+	private static final int SCALE = 2;
+
+	/*
+	 * Average of |actual - estimated|, in hours.
+	 */
+	public BigDecimal meanAbsoluteError() {
+		return projectCount == 0 ? BigDecimal.ZERO : absoluteErrorHours.divide(BigDecimal.valueOf(projectCount), SCALE, RoundingMode.HALF_UP);
+	}
+
+	/*
+	 * Total actual over total estimated hours: 1.00 is perfect, 1.25 means work took 25% longer than planned.  Null if nothing
+	 * was estimated.
+	 */
+	public BigDecimal actualToEstimateRatio() {
+		return estimatedHours.signum() == 0 ? null : actualHours.divide(estimatedHours, SCALE, RoundingMode.HALF_UP);
+	}
+
+	public int onEstimateCount() {
+		return projectCount - overCount - underCount;
+	}
+
+	/*
+	 * Combines per-difficulty groups into one overall group.
+	 */
+	public static EstimateAccuracy combine(Collection<EstimateAccuracy> groups) {
+		int projectCount = 0;
+		int overCount = 0;
+		int underCount = 0;
+		BigDecimal estimated = BigDecimal.ZERO;
+		BigDecimal actual = BigDecimal.ZERO;
+		BigDecimal absoluteError = BigDecimal.ZERO;
+		for(EstimateAccuracy group : groups) {
+			projectCount += group.projectCount();
+			overCount += group.overCount();
+			underCount += group.underCount();
+			estimated = estimated.add(Objects.requireNonNullElse(group.estimatedHours(), BigDecimal.ZERO));
+			actual = actual.add(Objects.requireNonNullElse(group.actualHours(), BigDecimal.ZERO));
+			absoluteError = absoluteError.add(Objects.requireNonNullElse(group.absoluteErrorHours(), BigDecimal.ZERO));
+		} // for
+		return new EstimateAccuracy(null, projectCount, estimated, actual, absoluteError, overCount, underCount);
+	} // combine
+
+} // record
@@ -0,0 +1,19 @@
+package projects.analytics;
+
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/*
+ * One project's material cost (the sum of num_required * cost over its materials) next to its hours.
+ */
+public record ProjectCost(Integer projectId, String projectName, int materialCount, BigDecimal materialCost, BigDecimal estimatedHours,
+		BigDecimal actualHours) {
+
+	/*
+	 * Actual minus estimated hours: positive when the project ran over.  Null unless both are known.
+	 */
+	public BigDecimal hoursVariance() {
+		return Objects.isNull(estimatedHours) || Objects.isNull(actualHours) ? null : actualHours.subtract(estimatedHours);
+	}
+
+} // record
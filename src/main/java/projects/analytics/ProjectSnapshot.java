@@ -0,0 +1,261 @@
+package projects.analytics;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/*
+ * A read-only, column-oriented copy of the project and material tables for reporting.  Each column is one primitive array, so a
+ * snapshot of 100,000 projects is a handful of objects rather than hundreds of thousands of Projects, Integers and BigDecimals,
+ * and the aggregate loops below are plain counted loops over arrays that the JIT can unroll and vectorize.
+ *
+ * DECIMAL(7,2) columns are held as scaled longs: hundredths of an hour or of a dollar.  A NULL is stored as 0 in the value
+ * array and recorded in the column's presence bits, so the sums never branch on it.  Material rows carry the index of their
+ * project's row (not its ID), so roll-ups index straight into an array.
+ */
+public final class ProjectSnapshot {
+	public static final int SCALE = 2; // Decimal places in the scaled-long columns.
+	public static final int MAX_DIFFICULTY = 5;
+
+	// Project columns, one entry per project, sorted by project_id.
+	private final int projectCount;
+	private final int[] projectIds;
+	private final String[] projectNames;
+	private final long[] estimatedHours;
+	private final long[] actualHours;
+	private final byte[] difficulties; // 0 means NULL.
+	private final BitSet hasEstimatedHours;
+	private final BitSet hasActualHours;
+
+	// Material columns, one entry per material.
+	private final int materialCount;
+	private final int[] materialProjectRows;
+	private final int[] numRequired;
+	private final long[] costs;
+
+	private ProjectSnapshot(Builder builder) {
+		this.projectCount = builder.projectCount;
+		this.projectIds = Arrays.copyOf(builder.projectIds, projectCount);
+		this.projectNames = Arrays.copyOf(builder.projectNames, projectCount);
+		this.estimatedHours = Arrays.copyOf(builder.estimatedHours, projectCount);
+		this.actualHours = Arrays.copyOf(builder.actualHours, projectCount);
+		this.difficulties = Arrays.copyOf(builder.difficulties, projectCount);
+		this.hasEstimatedHours = (BitSet)builder.hasEstimatedHours.clone();
+		this.hasActualHours = (BitSet)builder.hasActualHours.clone();
+		this.materialCount = builder.materialCount;
+		this.materialProjectRows = Arrays.copyOf(builder.materialProjectRows, materialCount);
+		this.numRequired = Arrays.copyOf(builder.numRequired, materialCount);
+		this.costs = Arrays.copyOf(builder.costs, materialCount);
+	} // constructor
+
+	public int getProjectCount() {
+		return projectCount;
+	}
+
+	public int getMaterialCount() {
+		return materialCount;
+	}
+
+	public int getProjectId(int row) {
+		return projectIds[row];
+	}
+
+	public String getProjectName(int row) {
+		return projectNames[row];
+	}
+
+	/*
+	 * Returns the row of the given project, or -1 if it isn't in the snapshot.
+	 */
+	public int rowOf(int projectId) {
+		int row = Arrays.binarySearch(projectIds, 0, projectCount, projectId);
+		return row < 0 ? -1 : row;
+	} // rowOf
+
+	public BigDecimal getEstimatedHours(int row) {
+		return hasEstimatedHours.get(row) ? BigDecimal.valueOf(estimatedHours[row], SCALE) : null;
+	}
+
+	public BigDecimal getActualHours(int row) {
+		return hasActualHours.get(row) ? BigDecimal.valueOf(actualHours[row], SCALE) : null;
+	}
+
+	public long getEstimatedHundredths(int row) {
+		return estimatedHours[row];
+	}
+
+	public long getActualHundredths(int row) {
+		return actualHours[row];
+	}
+
+	public boolean hasEstimatedHours(int row) {
+		return hasEstimatedHours.get(row);
+	}
+
+	public boolean hasActualHours(int row) {
+		return hasActualHours.get(row);
+	}
+
+	/*
+	 * Returns the difficulty, or 0 if it is NULL.
+	 */
+	public int getDifficulty(int row) {
+		return difficulties[row];
+	}
+
+	/*
+	 * Total estimated hours, in hundredths.  Projects without an estimate add nothing.
+	 */
+	public long sumEstimatedHundredths() {
+		return sum(estimatedHours, projectCount);
+	}
+
+	/*
+	 * Total actual hours, in hundredths.  Projects without actual hours add nothing.
+	 */
+	public long sumActualHundredths() {
+		return sum(actualHours, projectCount);
+	}
+
+	public int countWithEstimatedHours() {
+		return hasEstimatedHours.cardinality();
+	}
+
+	public int countWithActualHours() {
+		return hasActualHours.cardinality();
+	}
+
+	/*
+	 * Number of projects at each difficulty.  Index 0 counts projects with no difficulty; 1 to 5 count the rest.  Out-of-range
+	 * values (the column is not constrained) are counted with the NULLs.
+	 */
+	public int[] difficultyHistogram() {
+		int[] counts = new int[MAX_DIFFICULTY + 1];
+		for(int row = 0; row < projectCount; row++) {
+			int difficulty = difficulties[row];
+			counts[difficulty >= 1 && difficulty <= MAX_DIFFICULTY ? difficulty : 0]++;
+		} // for
+		return counts;
+	} // difficultyHistogram
+
+	/*
+	 * Rows of the projects whose actual hours are over their estimate, in project_id order.
+	 */
+	public int[] overEstimateRows() {
+		int[] rows = new int[projectCount];
+		int found = 0;
+		for(int row = 0; row < projectCount; row++) {
+			if(actualHours[row] > estimatedHours[row] && hasEstimatedHours.get(row) && hasActualHours.get(row)) {
+				rows[found++] = row;
+			} // if
+		} // for
+		return Arrays.copyOf(rows, found);
+	} // overEstimateRows
+
+	/*
+	 * Total material cost (cost * num_required) in cents.  A NULL cost or quantity makes that material count as 0.
+	 */
+	public long totalMaterialCents() {
+		long total = 0;
+		for(int i = 0; i < materialCount; i++) {
+			total += costs[i] * numRequired[i];
+		} // for
+		return total;
+	} // totalMaterialCents
+
+	/*
+	 * Material cost per project in cents, indexed by project row.
+	 */
+	public long[] materialCentsByProject() {
+		long[] totals = new long[projectCount];
+		for(int i = 0; i < materialCount; i++) {
+			totals[materialProjectRows[i]] += costs[i] * numRequired[i];
+		} // for
+		return totals;
+	} // materialCentsByProject
+
+	private static long sum(long[] values, int count) {
+		long total = 0;
+		for(int i = 0; i < count; i++) {
+			total += values[i];
+		} // for
+		return total;
+	} // sum
+
+	/*
+	 * Collects rows as they are read.  Projects must be added in ascending project_id order, and a material's project must be
+	 * added before the material.  Not thread-safe.
+	 */
+	public static final class Builder {
+		private static final int INITIAL_CAPACITY = 256;
+
+		private int projectCount;
+		private int[] projectIds = new int[INITIAL_CAPACITY];
+		private String[] projectNames = new String[INITIAL_CAPACITY];
+		private long[] estimatedHours = new long[INITIAL_CAPACITY];
+		private long[] actualHours = new long[INITIAL_CAPACITY];
+		private byte[] difficulties = new byte[INITIAL_CAPACITY];
+		private final BitSet hasEstimatedHours = new BitSet();
+		private final BitSet hasActualHours = new BitSet();
+
+		private int materialCount;
+		private int[] materialProjectRows = new int[INITIAL_CAPACITY];
+		private int[] numRequired = new int[INITIAL_CAPACITY];
+		private long[] costs = new long[INITIAL_CAPACITY];
+
+		/*
+		 * Hours are in hundredths; pass false for hasEstimated / hasActual when the column is NULL.  A difficulty of 0 means NULL.
+		 */
+		public Builder addProject(int projectId, String projectName, long estimated, boolean hasEstimated, long actual, boolean hasActual,
+				int difficulty) {
+			if(projectCount > 0 && projectId <= projectIds[projectCount - 1]) {
+				throw new IllegalArgumentException("Projects must be added in ascending ID order; " + projectId + " came after "
+						+ projectIds[projectCount - 1]);
+			} // if
+			if(projectCount == projectIds.length) {
+				int capacity = projectCount * 2;
+				projectIds = Arrays.copyOf(projectIds, capacity);
+				projectNames = Arrays.copyOf(projectNames, capacity);
+				estimatedHours = Arrays.copyOf(estimatedHours, capacity);
+				actualHours = Arrays.copyOf(actualHours, capacity);
+				difficulties = Arrays.copyOf(difficulties, capacity);
+			} // if
+			projectIds[projectCount] = projectId;
+			projectNames[projectCount] = projectName;
+			estimatedHours[projectCount] = hasEstimated ? estimated : 0;
+			actualHours[projectCount] = hasActual ? actual : 0;
+			difficulties[projectCount] = (byte)(difficulty >= 1 && difficulty <= MAX_DIFFICULTY ? difficulty : 0);
+			hasEstimatedHours.set(projectCount, hasEstimated);
+			hasActualHours.set(projectCount, hasActual);
+			projectCount++;
+			return this;
+		} // addProject
+
+		/*
+		 * Cost is in cents.  Returns false (and adds nothing) if the project isn't in the snapshot, which happens when a project
+		 * was added after the project rows were read.
+		 */
+		public boolean addMaterial(int projectId, int required, long cost) {
+			int row = Arrays.binarySearch(projectIds, 0, projectCount, projectId);
+			if(row < 0) {
+				return false;
+			} // if
+			if(materialCount == costs.length) {
+				int capacity = materialCount * 2;
+				materialProjectRows = Arrays.copyOf(materialProjectRows, capacity);
+				numRequired = Arrays.copyOf(numRequired, capacity);
+				costs = Arrays.copyOf(costs, capacity);
+			} // if
+			materialProjectRows[materialCount] = row;
+			numRequired[materialCount] = required;
+			costs[materialCount] = cost;
+			materialCount++;
+			return true;
+		} // addMaterial
+
+		public ProjectSnapshot build() {
+			return new ProjectSnapshot(this);
+		}
+	} // class Builder
+
+} // class
@@ -0,0 +1,346 @@
+package projects.dao;
+
+import java.lang.System.Logger.Level;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+import projects.entity.Category;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import provided.util.DaoBase;
+import provided.util.RowMapper;
+
+/*
+ * The category dictionary and the project-category links.  The category table is small and rarely changes, so it is read
+ * once into memory and shared by every DAO: project loads read only the link table and resolve each category_id here, and
+ * every project in the category gets the same Category instance.  Those instances are shared, so they are read-only: their
+ * setters throw, and a caller that wants to edit one takes a copy() (Project.copy does).
+ * The dictionary is reloaded when a category is added through addCategory, when a link names a category it doesn't know yet
+ * (one added from outside the application), and on refreshCategories.
+ *
+ * Links are assigned and removed in bulk, for one category and many projects, in one transaction: the projects are locked,
+ * only the links that change are written (one batched INSERT, or one DELETE per IN chunk), the summaries are adjusted by the
+ * same delta and listeners are told which projects changed.
+ */
+public class CategoryDao extends DaoBase {
+	private static final System.Logger LOG = System.getLogger(CategoryDao.class.getName());
+
+	private static final String CATEGORY_TABLE = "category";
+	private static final String PROJECT_CATEGORY_TABLE = "project_category";
+
+	//@formatter:off
+	private static final String ALL_CATEGORIES_SQL = "SELECT * FROM " + CATEGORY_TABLE + " ORDER BY category_name";
+	private static final String INSERT_CATEGORY_SQL = "INSERT INTO " + CATEGORY_TABLE + " (category_name) VALUES (?)";
+	private static final String INSERT_PROJECT_CATEGORY_SQL = ""
+			+ "INSERT INTO " + PROJECT_CATEGORY_TABLE + " (project_id, category_id) VALUES (?, ?)";
+	private static final String LOCK_PROJECTS_IN_PREFIX = "SELECT project_id FROM project WHERE project_id IN ";
+	private static final String LOCK_PROJECTS_IN_SUFFIX = " FOR UPDATE";
+	private static final String LINKED_PROJECTS_IN_PREFIX = ""
+			+ "SELECT project_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE category_id = ? AND project_id IN ";
+	private static final String DELETE_LINKS_IN_PREFIX = ""
+			+ "DELETE FROM " + PROJECT_CATEGORY_TABLE + " WHERE category_id = ? AND project_id IN ";
+	// Read off the (category_id, project_id) key alone, already grouped by category.
+	private static final String ALL_LINKS_SQL = ""
+			+ "SELECT category_id, project_id FROM " + PROJECT_CATEGORY_TABLE + " ORDER BY category_id, project_id";
+	//@formatter:on
+
+	private static final int CHUNK_SIZE = ProjectDao.IN_CLAUSE_CHUNK_SIZE;
+
+	private static volatile Dictionary dictionary; // Null until first used.
+
+	private final SummaryTables summaries = new SummaryTables();
+
+	/*
+	 * One immutable load of the category table.
+	 */
+	private record Dictionary(Map<Integer, Category> byId, List<Category> inNameOrder) {
+	} // record
+
+	/*
+	 * A dictionary entry.  One instance is handed to every caller, so a setter would change the category under all of them.
+	 */
+	private static final class SharedCategory extends Category {
+		private SharedCategory(Category row) {
+			super.setCategoryId(row.getCategoryId());
+			super.setCategoryName(row.getCategoryName());
+		}
+
+		@Override
+		public void setCategoryId(Integer categoryId) {
+			throw new UnsupportedOperationException("Category " + getCategoryId() + " is shared; change a copy() of it");
+		}
+
+		@Override
+		public void setCategoryName(String categoryName) {
+			throw new UnsupportedOperationException("Category " + getCategoryId() + " is shared; change a copy() of it");
+		}
+	} // class
+
+	/*
+	 * Receives every project-category link; see forEachCategoryLink.
+	 */
+	@FunctionalInterface
+	public interface CategoryLinkVisitor {
+		void visit(int categoryId, int projectId);
+	}
+
+	/*
+	 * Every category, in name order, from memory once loaded.
+	 */
+	public List<Category> fetchAllCategories() {
+		return new ArrayList<>(dictionary().inNameOrder());
+	}
+
+	public Optional<Category> fetchCategoryById(Integer categoryId) {
+		Category category = dictionary().byId().get(categoryId);
+		if(Objects.nonNull(category)) {
+			return Optional.of(category);
+		} // if
+		return Optional.ofNullable(reload().byId().get(categoryId)); // It may have been added since the dictionary was read.
+	} // fetchCategoryById
+
+	public Category addCategory(String categoryName) {
+		try(OperationTimer timer = Metrics.start("addCategory"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				Integer categoryId;
+				try(PreparedStatement stmt = prepare(conn, INSERT_CATEGORY_SQL, Statement.RETURN_GENERATED_KEYS)) {
+					setParameter(stmt, 1, categoryName, String.class);
+					stmt.executeUpdate();
+					categoryId = getGeneratedKeys(stmt, 1)[0];
+				} // try
+				commitTransaction(conn);
+				Category category = load(conn).byId().get(categoryId);
+				timer.rows(1);
+				timer.success();
+				return category;
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // addCategory
+
+	/*
+	 * Rereads the category table, e.g. after categories were changed outside the application.
+	 */
+	public void refreshCategories() {
+		reload();
+	}
+
+	/*
+	 * The category with this ID, read with the caller's connection if the dictionary has to be loaded or doesn't know it yet.
+	 */
+	Category resolve(Connection conn, int categoryId) throws SQLException {
+		Dictionary current = dictionary;
+		Category category = Objects.isNull(current) ? null : current.byId().get(categoryId);
+		if(Objects.isNull(category)) {
+			category = load(conn).byId().get(categoryId);
+			if(Objects.isNull(category)) {
+				throw new DbException("Category " + categoryId + " does not exist.");
+			} // if
+		} // if
+		return category;
+	} // resolve
+
+	/*
+	 * Links the projects to the category.  Projects already in it, and projects that no longer exist, are skipped.  Returns the
+	 * IDs of the projects newly linked.
+	 */
+	public List<Integer> assignCategory(Integer categoryId, Collection<Integer> projectIds) {
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+		List<Integer> linked = new ArrayList<>();
+		try(OperationTimer timer = Metrics.start("assignCategory"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				resolve(conn, categoryId);
+				for(int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+					List<Integer> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+					Set<Integer> existing = queryIds(conn, LOCK_PROJECTS_IN_PREFIX + in(chunk) + LOCK_PROJECTS_IN_SUFFIX, null, chunk);
+					Set<Integer> alreadyLinked = queryIds(conn, LINKED_PROJECTS_IN_PREFIX + in(chunk), categoryId, chunk);
+					for(Integer projectId : chunk) {
+						if(existing.contains(projectId) && !alreadyLinked.contains(projectId)) {
+							linked.add(projectId);
+						} // if
+					} // for
+				} // for
+				if(!linked.isEmpty()) {
+					try(PreparedStatement stmt = prepare(conn, INSERT_PROJECT_CATEGORY_SQL)) {
+						for(Integer projectId : linked) {
+							setParameter(stmt, 1, projectId, Integer.class);
+							setParameter(stmt, 2, categoryId, Integer.class);
+							stmt.addBatch();
+						} // for
+						stmt.executeBatch();
+					} // try
+					if(summaries.isMaintained(conn)) {
+						summaries.changeCategoryLinks(conn, categoryId, linked, true);
+					} // if
+				} // if
+				commitTransaction(conn);
+				timer.rows(linked.size());
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw e instanceof DbException ? (DbException)e : new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		if(!linked.isEmpty()) {
+			List<Integer> changed = List.copyOf(linked);
+			ProjectDao.fireChange(listener -> listener.categoryLinksChanged(categoryId, changed, true));
+		} // if
+		return linked;
+	} // assignCategory
+
+	/*
+	 * Unlinks the projects from the category.  Projects not in it are skipped.  Returns the IDs of the projects unlinked.
+	 */
+	public List<Integer> removeCategory(Integer categoryId, Collection<Integer> projectIds) {
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds));
+		List<Integer> unlinked = new ArrayList<>();
+		try(OperationTimer timer = Metrics.start("removeCategory"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				boolean maintainSummaries = summaries.isMaintained(conn); // Read once for the whole transaction.
+				for(int from = 0; from < ids.size(); from += CHUNK_SIZE) {
+					List<Integer> chunk = ids.subList(from, Math.min(from + CHUNK_SIZE, ids.size()));
+					queryIds(conn, LOCK_PROJECTS_IN_PREFIX + in(chunk) + LOCK_PROJECTS_IN_SUFFIX, null, chunk);
+					Set<Integer> linked = queryIds(conn, LINKED_PROJECTS_IN_PREFIX + in(chunk), categoryId, chunk);
+					List<Integer> chunkUnlinked = new ArrayList<>(linked.size());
+					for(Integer projectId : chunk) {
+						if(linked.contains(projectId)) {
+							chunkUnlinked.add(projectId);
+						} // if
+					} // for
+					if(chunkUnlinked.isEmpty()) {
+						continue;
+					} // if
+					if(maintainSummaries) {
+						summaries.changeCategoryLinks(conn, categoryId, chunkUnlinked, false); // While the costs can still be summed.
+					} // if
+					try(PreparedStatement stmt = prepare(conn, DELETE_LINKS_IN_PREFIX + in(chunkUnlinked))) {
+						setParameter(stmt, 1, categoryId, Integer.class);
+						setIdParameters(stmt, 2, chunkUnlinked);
+						stmt.executeUpdate();
+					} // try
+					unlinked.addAll(chunkUnlinked);
+				} // for
+				commitTransaction(conn);
+				timer.rows(unlinked.size());
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		if(!unlinked.isEmpty()) {
+			List<Integer> changed = List.copyOf(unlinked);
+			ProjectDao.fireChange(listener -> listener.categoryLinksChanged(categoryId, changed, false));
+		} // if
+		return unlinked;
+	} // removeCategory
+
+	/*
+	 * Streams every project-category link, grouped by category, to the visitor.  For building an in-memory membership index.
+	 */
+	public void forEachCategoryLink(CategoryLinkVisitor visitor) {
+		try(OperationTimer timer = Metrics.start("fetchCategoryLinks"); Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = prepare(conn, ALL_LINKS_SQL)) {
+				enableStreaming(conn, stmt);
+				try(ResultSet rs = stmt.executeQuery()) {
+					long rows = 0;
+					while(rs.next()) {
+						visitor.visit(rs.getInt(1), rs.getInt(2));
+						rows++;
+					} // while
+					timer.rows(rows);
+					timer.success();
+				} // inner try
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // forEachCategoryLink
+
+	private Dictionary dictionary() {
+		Dictionary current = dictionary;
+		return Objects.isNull(current) ? reload() : current;
+	}
+
+	private Dictionary reload() {
+		try(Connection conn = DbConnection.getConnection()) {
+			return load(conn);
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // reload
+
+	private Dictionary load(Connection conn) throws SQLException {
+		try(OperationTimer timer = Metrics.start("loadCategories"); PreparedStatement stmt = prepare(conn, ALL_CATEGORIES_SQL)) {
+			try(ResultSet rs = stmt.executeQuery()) {
+				List<Category> categories = new ArrayList<>();
+				Map<Integer, Category> byId = new HashMap<>();
+				RowMapper<Category> categoryMapper = mapper(rs, Category.class);
+				while(rs.next()) {
+					Category category = new SharedCategory(categoryMapper.map(rs));
+					categories.add(category);
+					byId.put(category.getCategoryId(), category);
+				} // while
+				Dictionary loaded = new Dictionary(Map.copyOf(byId), List.copyOf(categories));
+				dictionary = loaded;
+				LOG.log(Level.DEBUG, () -> "Loaded " + categories.size() + " categories");
+				timer.rows(categories.size());
+				timer.success();
+				return loaded;
+			} // inner try
+		} // try
+	} // load
+
+	/*
+	 * The IDs returned by a query over an IN list of the given IDs, optionally preceded by one category_id parameter.
+	 */
+	private Set<Integer> queryIds(Connection conn, String sql, Integer categoryId, List<Integer> ids) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, sql)) {
+			int index = 1;
+			if(Objects.nonNull(categoryId)) {
+				setParameter(stmt, index++, categoryId, Integer.class);
+			} // if
+			setIdParameters(stmt, index, ids);
+			try(ResultSet rs = stmt.executeQuery()) {
+				Set<Integer> found = new LinkedHashSet<>();
+				while(rs.next()) {
+					found.add(rs.getInt(1));
+				} // while
+				return found;
+			} // inner try
+		} // try
+	} // queryIds
+
+	private void setIdParameters(PreparedStatement stmt, int firstIndex, List<Integer> ids) throws SQLException {
+		setPaddedIdParameters(stmt, firstIndex, ids, CHUNK_SIZE);
+	} // setIdParameters
+
+	private static String in(List<Integer> ids) {
+		return paddedInList(ids.size(), CHUNK_SIZE); // The tail chunk is padded, so it reuses one of a few statements.
+	}
+
+} // class
@@ -0,0 +1,15 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/*
+ * Opens a brand-new physical connection.  The ConnectionPool calls this only when it needs to grow, so an embedded database
+ * (or anything else with a JDBC driver) can be plugged in with a lambda such as () -> DriverManager.getConnection(url).
+ */
+@FunctionalInterface
+public interface ConnectionFactory {
+
+	Connection openConnection() throws SQLException;
+
+} // interface
@@ -0,0 +1,477 @@
+package projects.dao;
+
+import java.lang.System.Logger.Level;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import provided.util.QueryTracer;
+import provided.util.StatementCache;
+
+/*
+ * A bounded pool of physical connections.  getConnection() hands out a proxy; calling close() on the proxy (which every DAO
+ * method does through try-with-resources) resets the connection and puts it back in the pool instead of closing the socket.
+ * Idle connections are reused most-recently-used first, so the ones at the back of the idle queue are the ones that get evicted.
+ *
+ * The reset on return makes the next borrower see a fresh connection: uncommitted work is rolled back, auto-commit is turned
+ * back on, statements the borrower created and left open are closed (with their result sets), and the read-only flag,
+ * isolation level and catalog are put back to what the connection had when it was opened.  Those three are only restored if
+ * the borrower called their setters, so the usual return costs no round trips.  A borrower that changes any other session
+ * state through the Connection (schema, holdability, type map, client info, network timeout) gets its connection discarded
+ * instead of pooled.
+ */
+public class ConnectionPool implements AutoCloseable {
+	private static final System.Logger LOG = System.getLogger(ConnectionPool.class.getName());
+
+	private final ConnectionFactory factory;
+	private final PoolConfig config;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition available = lock.newCondition();
+	private final Deque<PooledConnection> idle = new ArrayDeque<>();
+	private final Set<PooledConnection> inUse = new HashSet<>();
+	private final ScheduledExecutorService maintenance;
+
+	// Everything below is guarded by lock.
+	private int total; // Idle + in use + currently being opened.
+	private int waiting;
+	private boolean closed;
+	private long borrowed;
+	private long created;
+	private long destroyed;
+	private long timeouts;
+	private long leaks;
+
+	public ConnectionPool(ConnectionFactory factory, PoolConfig config) {
+		if(config.getMaxSize() < 1 || config.getMinSize() < 0 || config.getMinSize() > config.getMaxSize()) {
+			throw new IllegalArgumentException("Invalid pool size: " + config);
+		} // if
+		this.factory = factory;
+		this.config = config;
+		this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "connection-pool-maintenance");
+			thread.setDaemon(true); // The pool must never keep the console app alive.
+			return thread;
+		});
+		maintenance.scheduleWithFixedDelay(this::maintain, 0, config.getMaintenanceIntervalMillis(), TimeUnit.MILLISECONDS);
+	} // constructor
+
+	/*
+	 * Borrows a connection, waiting up to the acquire timeout for one to come free.  The wait (or failure) is recorded as the
+	 * "connection.acquire" operation metric and, if the caller is being traced, as a span of its trace.
+	 */
+	public Connection getConnection() {
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Connection conn = acquire();
+			failed = false;
+			return conn;
+		} finally {
+			long nanos = System.nanoTime() - start;
+			Metrics.record("connection.acquire", nanos, 0, failed);
+			QueryTracer.recordSpan("connection.acquire", nanos);
+		} // try-finally
+	} // getConnection
+
+	private Connection acquire() {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+		while(true) {
+			PooledConnection pooled = null;
+			boolean mustOpen = false;
+			lock.lock();
+			try {
+				while(Objects.isNull(pooled) && !mustOpen) {
+					if(closed) {
+						throw new DbException("The connection pool is closed.");
+					} // if
+					if(!idle.isEmpty()) {
+						pooled = idle.pollFirst();
+					} else if(total < config.getMaxSize()) {
+						total++; // Reserve the slot now; the connect itself happens outside the lock.
+						mustOpen = true;
+					} else {
+						long remaining = deadline - System.nanoTime();
+						if(remaining <= 0) {
+							timeouts++;
+							throw new DbException("Timed out after " + config.getAcquireTimeoutMillis() + "ms waiting for a connection (" + statsLocked() + ")");
+						} // if
+						waiting++;
+						try {
+							available.awaitNanos(remaining);
+						} catch(InterruptedException e) {
+							Thread.currentThread().interrupt();
+							throw new DbException("Interrupted while waiting for a connection", e);
+						} finally {
+							waiting--;
+						} // try-catch
+					} // if
+				} // while
+			} finally {
+				lock.unlock();
+			} // try-finally
+
+			if(mustOpen) {
+				pooled = open();
+			} else if(!validate(pooled)) {
+				destroy(pooled);
+				continue; // The stale connection is gone; try again for another one.
+			} // if
+			return checkout(pooled);
+		} // while
+	} // acquire
+
+	public PoolStats getStats() {
+		lock.lock();
+		try {
+			return statsLocked();
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // getStats
+
+	public PoolConfig getConfig() {
+		return config;
+	}
+
+	@Override
+	public void close() {
+		List<PooledConnection> toClose;
+		lock.lock();
+		try {
+			if(closed) {
+				return;
+			} // if
+			closed = true;
+			toClose = new ArrayList<>(idle);
+			idle.clear();
+			available.signalAll(); // Waiters wake up and see the pool is closed.
+		} finally {
+			lock.unlock();
+		} // try-finally
+		maintenance.shutdownNow();
+		toClose.forEach(this::destroy); // Connections still in use are destroyed when they are returned.
+	} // close
+
+	private PoolStats statsLocked() {
+		return new PoolStats(total, idle.size(), inUse.size(), waiting, borrowed, created, destroyed, timeouts, leaks);
+	}
+
+	private PooledConnection open() {
+		try {
+			PooledConnection pooled = new PooledConnection(factory.openConnection(), config.getStatementCacheSize());
+			lock.lock();
+			try {
+				created++;
+			} finally {
+				lock.unlock();
+			} // try-finally
+			return pooled;
+		} catch(SQLException | RuntimeException e) {
+			lock.lock();
+			try {
+				total--; // Give back the reserved slot so another caller can try.
+				available.signal();
+			} finally {
+				lock.unlock();
+			} // try-finally
+			throw e instanceof DbException dbe ? dbe : new DbException(e);
+		} // try-catch
+	} // open
+
+	private boolean validate(PooledConnection pooled) {
+		long idleNanos = System.nanoTime() - pooled.lastUsedAt;
+		if(idleNanos < TimeUnit.MILLISECONDS.toNanos(config.getValidationIdleMillis())) {
+			return true; // Recently used connections are trusted, so the hot path costs no extra round trip.
+		} // if
+		try {
+			return pooled.physical.isValid(config.getValidationTimeoutSeconds());
+		} catch(SQLException e) {
+			return false;
+		} // try-catch
+	} // validate
+
+	private Connection checkout(PooledConnection pooled) {
+		lock.lock();
+		try {
+			inUse.add(pooled);
+			borrowed++;
+		} finally {
+			lock.unlock();
+		} // try-finally
+		pooled.borrowedAt = System.nanoTime();
+		pooled.borrowSite = config.getLeakDetectionThresholdMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+		pooled.leakReported = false;
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class}, new Handle(pooled));
+	} // checkout
+
+	private void release(PooledConnection pooled, List<Statement> statements) {
+		for(Statement stmt : statements) {
+			try {
+				stmt.close(); // A no-op for the ones the borrower closed itself.
+			} catch(SQLException e) {
+				pooled.broken = true;
+			} // try-catch
+		} // for
+		if(!pooled.broken) {
+			try {
+				if(!pooled.physical.getAutoCommit()) {
+					pooled.physical.rollback(); // Anything the borrower did not commit is thrown away, just like closing a real connection.
+					pooled.physical.setAutoCommit(true);
+				} // if
+				if(pooled.sessionChanged) {
+					pooled.restoreSession();
+				} // if
+			} catch(SQLException e) {
+				pooled.broken = true;
+			} // try-catch
+		} // if
+
+		lock.lock();
+		try {
+			inUse.remove(pooled);
+			if(!pooled.broken && !closed) {
+				pooled.lastUsedAt = System.nanoTime();
+				idle.offerFirst(pooled);
+				available.signal();
+				return;
+			} // if
+		} finally {
+			lock.unlock();
+		} // try-finally
+		destroy(pooled);
+	} // release
+
+	private void destroy(PooledConnection pooled) {
+		if(Objects.nonNull(pooled.statementCache)) {
+			pooled.statementCache.close();
+		} // if
+		try {
+			pooled.physical.close();
+		} catch(SQLException e) {
+			// The connection is being discarded anyway.
+		} // try-catch
+		lock.lock();
+		try {
+			total--;
+			destroyed++;
+			available.signal();
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // destroy
+
+	/*
+	 * Runs on the maintenance thread: evicts connections that have been idle too long, reports borrowed connections that were
+	 * never returned, and tops the pool back up to its minimum size.
+	 */
+	private void maintain() {
+		try {
+			List<PooledConnection> evicted = new ArrayList<>();
+			int toOpen;
+			lock.lock();
+			try {
+				if(closed) {
+					return;
+				} // if
+				long now = System.nanoTime();
+				long idleTimeout = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+				Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+				while(oldestFirst.hasNext() && total - evicted.size() > config.getMinSize()) {
+					PooledConnection pooled = oldestFirst.next();
+					if(now - pooled.lastUsedAt > idleTimeout) {
+						oldestFirst.remove();
+						evicted.add(pooled);
+					} // if
+				} // while
+
+				long leakThreshold = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+				if(leakThreshold > 0) {
+					for(PooledConnection pooled : inUse) {
+						if(!pooled.leakReported && now - pooled.borrowedAt > leakThreshold) {
+							pooled.leakReported = true;
+							leaks++;
+							// The borrow site is only captured when leak detection is on; it shows who is holding the connection.
+							LOG.log(Level.WARNING, "Possible connection leak: a connection has been borrowed for more than "
+									+ config.getLeakDetectionThresholdMillis() + "ms", pooled.borrowSite);
+						} // if
+					} // for
+				} // if
+
+				toOpen = Math.max(0, config.getMinSize() - (total - evicted.size()));
+				total += toOpen;
+			} finally {
+				lock.unlock();
+			} // try-finally
+
+			evicted.forEach(this::destroy);
+			for(int i = 0; i < toOpen; i++) {
+				PooledConnection pooled;
+				try {
+					pooled = open();
+				} catch(RuntimeException e) {
+					lock.lock();
+					try {
+						total -= toOpen - i - 1; // open() already gave back its own slot; give back the ones we never got to.
+					} finally {
+						lock.unlock();
+					} // try-finally
+					throw e;
+				} // try-catch
+				lock.lock();
+				try {
+					pooled.lastUsedAt = System.nanoTime();
+					idle.offerLast(pooled);
+					available.signal();
+				} finally {
+					lock.unlock();
+				} // try-finally
+			} // for
+		} catch(RuntimeException e) {
+			LOG.log(Level.WARNING, "Connection pool maintenance failed", e); // Try again on the next run; never kill the scheduler.
+		} // try-catch
+	} // maintain
+
+	private static boolean isFatal(SQLException e) {
+		String state = e.getSQLState();
+		return Objects.nonNull(state) && state.startsWith("08"); // SQLState class 08 is "connection exception".
+	}
+
+	private static class PooledConnection {
+		private final Connection physical;
+		private final StatementCache statementCache; // Owned by the physical connection, so it survives across borrows.
+		private final boolean readOnly; // The session state as opened, restored on return.
+		private final int isolation;
+		private final String catalog;
+		private volatile long lastUsedAt = System.nanoTime();
+		private volatile long borrowedAt;
+		private volatile Throwable borrowSite;
+		private volatile boolean leakReported;
+		private volatile boolean broken;
+		private volatile boolean sessionChanged; // A borrower called setReadOnly, setTransactionIsolation or setCatalog.
+
+		private PooledConnection(Connection physical, int statementCacheSize) throws SQLException {
+			this.physical = physical;
+			try {
+				this.readOnly = physical.isReadOnly();
+				this.isolation = physical.getTransactionIsolation();
+				this.catalog = physical.getCatalog();
+			} catch(SQLException | RuntimeException e) {
+				try {
+					physical.close(); // Nothing else holds the connection yet, so a failed snapshot would leak it.
+				} catch(SQLException closeFailure) {
+					e.addSuppressed(closeFailure);
+				} // inner try-catch
+				throw e;
+			} // try-catch
+			this.statementCache = statementCacheSize > 0 ? new StatementCache(physical, statementCacheSize) : null;
+		} // constructor
+
+		private void restoreSession() throws SQLException {
+			if(physical.isReadOnly() != readOnly) {
+				physical.setReadOnly(readOnly);
+			} // if
+			if(physical.getTransactionIsolation() != isolation) {
+				physical.setTransactionIsolation(isolation);
+			} // if
+			if(Objects.nonNull(catalog) && !catalog.equals(physical.getCatalog())) {
+				physical.setCatalog(catalog);
+			} // if
+			sessionChanged = false;
+		} // restoreSession
+	} // PooledConnection
+
+	/*
+	 * Each borrow gets its own handle, so a caller that holds on to a connection after closing it cannot reach into whoever
+	 * borrowed that physical connection next.
+	 */
+	private class Handle implements InvocationHandler {
+		private final PooledConnection pooled;
+		private final List<Statement> statements = new ArrayList<>(); // Created through this handle; closed on return.
+		private volatile boolean returned;
+
+		private Handle(PooledConnection pooled) {
+			this.pooled = pooled;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			switch(method.getName()) {
+			case "close":
+				if(!returned) {
+					returned = true;
+					release(pooled, statements);
+				} // if
+				return null;
+			case "isClosed":
+				if(returned) {
+					return true;
+				} // if
+				break;
+			case "equals":
+				return proxy == args[0];
+			case "hashCode":
+				return System.identityHashCode(proxy);
+			case "toString":
+				return "PooledConnection[" + pooled.physical + "]";
+			case "isWrapperFor":
+				if(args[0] == StatementCache.class) {
+					return Objects.nonNull(pooled.statementCache);
+				} // if
+				break;
+			case "unwrap":
+				if(args[0] == StatementCache.class && Objects.nonNull(pooled.statementCache) && !returned) {
+					return pooled.statementCache; // DaoBase.prepare() finds the cache this way.
+				} // if
+				break;
+			case "setReadOnly", "setTransactionIsolation", "setCatalog":
+				if(!returned) {
+					pooled.sessionChanged = true; // Restored on return.
+				} // if
+				break;
+			case "setSchema", "setHoldability", "setTypeMap", "setClientInfo", "setNetworkTimeout":
+				if(!returned) {
+					pooled.broken = true; // Not worth restoring; the connection is discarded on return instead.
+				} // if
+				break;
+			default:
+				break;
+			} // switch
+
+			if(returned) {
+				throw new SQLException("The connection has already been returned to the pool.", "08003");
+			} // if
+			try {
+				Object result = method.invoke(pooled.physical, args);
+				if(result instanceof Statement stmt) {
+					statements.add(stmt); // createStatement, prepareStatement and prepareCall.
+				} // if
+				return result;
+			} catch(InvocationTargetException e) {
+				if(e.getCause() instanceof SQLException sqle && isFatal(sqle)) {
+					pooled.broken = true; // Don't hand a dead socket to the next borrower.
+				} // if
+				throw e.getCause();
+			} // try-catch
+		} // invoke
+	} // Handle
+
+} // class
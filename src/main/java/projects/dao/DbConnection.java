@@ -1,32 +1,81 @@
 package projects.dao;
 
+import java.lang.System.Logger.Level;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.Objects;
 
 import projects.exception.DbException;
+import provided.util.StatementCache;
+import provided.util.StatementCacheStats;
 
 public class DbConnection {
+	private static final System.Logger LOG = System.getLogger(DbConnection.class.getName());
 	private static final String SCHEMA = "diyprojects";
 	private static final String USER = "projects";
 	private static final String PASSWORD = "projects";
 	private static final String HOST = "localhost";
 	private static final int PORT = 3306;
-	
+	// useCursorFetch only affects statements given a positive fetch size; ProjectDao.streamProjectGraphs needs it.
+	private static final String URL = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false&allowMultiQueries=true&rewriteBatchedStatements=true&useServerPrepStmts=true&useCursorFetch=true", HOST, PORT, SCHEMA, USER, PASSWORD);
+
+	private static volatile ConnectionPool pool;
+
+	/*
+	 * Borrows a connection from the pool.  Closing it (try-with-resources) hands it back to the pool.
+	 */
 	public static Connection getConnection() {
-		String url = String.format("jdbc:mysql://%s:%d/%s?user=%s&password=%s&useSSL=false", HOST, PORT, SCHEMA, USER, PASSWORD);
-		
-		System.out.println("Connecting with url= " + url);
-		
+		return getPool().getConnection();
+	}
+
+	public static ConnectionPool getPool() {
+		ConnectionPool current = pool;
+		if(Objects.isNull(current)) {
+			synchronized(DbConnection.class) {
+				if(Objects.isNull(pool)) {
+					pool = new ConnectionPool(DbConnection::openPhysicalConnection, new PoolConfig());
+				} // if
+				current = pool;
+			} // synchronized
+		} // if
+		return current;
+	} // getPool
+
+	/*
+	 * Swaps in a different pool, e.g. one built over an embedded database for testing.  The old pool is shut down.
+	 */
+	public static synchronized void usePool(ConnectionPool newPool) {
+		ConnectionPool old = pool;
+		pool = newPool;
+		if(Objects.nonNull(old) && old != newPool) {
+			old.close();
+		} // if
+	} // usePool
+
+	public static PoolStats getPoolStats() {
+		return getPool().getStats();
+	}
+
+	public static StatementCacheStats getStatementCacheStats() {
+		return StatementCache.getGlobalStats(); // Summed over every pooled connection's cache.
+	}
+
+	/*
+	 * Opens an unpooled connection to the MySQL server.  Only the pool should need to call this.
+	 */
+	public static Connection openPhysicalConnection() {
+		LOG.log(Level.DEBUG, () -> String.format("Connecting to %s:%d/%s as %s", HOST, PORT, SCHEMA, USER)); // The URL carries the password, so it isn't logged.
+
 		try {
-			Connection conn = DriverManager.getConnection(url);
-			System.out.println("Connection successful");
+			Connection conn = DriverManager.getConnection(URL);
+			LOG.log(Level.DEBUG, "Connection successful");
 			return conn;
 		} catch (SQLException e) {
-			System.out.println("Connection error");
+			LOG.log(Level.ERROR, "Connection error", e);
 			throw new DbException(e);
 			//e.printStackTrace();
 		}
 	}
-	
+
 }
@@ -0,0 +1,11 @@
+package projects.dao;
+
+/*
+ * How ProjectDao.fetchProjectById loads a project together with its materials, steps and categories.  In LAZY mode the
+ * project listings (fetchAllProjects, fetchProjectPage) hand out lazily loading projects as well.
+ */
+public enum GraphFetchMode {
+	SINGLE_ROUND_TRIP, // One multi-statement batch; the server sends back four result sets.
+	PER_TABLE, // The original path: one query for the project, then one per child table.
+	LAZY // Only the project row; each child list is read on first use, batched with its siblings (see LazyLoadSession).
+} // enum
@@ -0,0 +1,64 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+
+import projects.exception.DbException;
+import provided.util.DaoBase;
+
+/*
+ * Reads and writes import checkpoints.  Progress that covers inserted projects is saved by ProjectDao.insertProjects in the
+ * insert's own transaction; saveProgress here is for progress that only covers rejected records, which wrote nothing.
+ */
+public class ImportCheckpointDao extends DaoBase {
+
+	//@formatter:off
+	private static final String FETCH_PROGRESS_SQL = ""
+			+ "SELECT import_file, records FROM import_checkpoint WHERE checkpoint_name = ?";
+	private static final String SAVE_PROGRESS_SQL = ""
+			+ "INSERT INTO import_checkpoint (checkpoint_name, import_file, records) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE import_file = VALUES(import_file), records = VALUES(records)";
+	//@formatter:on
+
+	public Optional<ImportProgress> fetchProgress(String checkpointName) {
+		try(Connection conn = DbConnection.getConnection(); PreparedStatement stmt = prepare(conn, FETCH_PROGRESS_SQL)) {
+			setParameter(stmt, 1, checkpointName, String.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? Optional.of(new ImportProgress(checkpointName, rs.getString(1), rs.getLong(2))) : Optional.empty();
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchProgress
+
+	public void saveProgress(ImportProgress progress) {
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				saveProgress(conn, progress);
+				commitTransaction(conn);
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // saveProgress
+
+	/*
+	 * Saves the progress on the caller's connection, inside the caller's transaction.
+	 */
+	void saveProgress(Connection conn, ImportProgress progress) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, SAVE_PROGRESS_SQL)) {
+			setParameter(stmt, 1, progress.checkpointName(), String.class);
+			setParameter(stmt, 2, progress.importFile(), String.class);
+			setParameter(stmt, 3, progress.records(), Long.class);
+			stmt.executeUpdate();
+		} // try
+	} // saveProgress
+
+} // class
@@ -0,0 +1,8 @@
+package projects.dao;
+
+/*
+ * How far an import has got: the number of the file's records already dealt with, each either inserted or rejected.  Saved in
+ * the import_checkpoint table under checkpointName.
+ */
+public record ImportProgress(String checkpointName, String importFile, long records) {
+} // record
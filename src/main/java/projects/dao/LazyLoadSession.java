@@ -0,0 +1,95 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import projects.entity.ChildLoader;
+import projects.entity.Project;
+import projects.entity.ProjectChild;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+
+/*
+ * Loads the child collections of projects read in GraphFetchMode.LAZY, on first use and in batches.  The session remembers
+ * every project it has handed out whose collections are still unloaded; when one project's materials (say) are asked for,
+ * the materials of up to IN_CLAUSE_CHUNK_SIZE of those siblings come back in the same query.  So listing 100 projects and
+ * then walking their steps costs one steps query, not 100, and materials nobody looks at are never read.
+ *
+ * Only the most recent MAX_PENDING projects are remembered per collection; older ones still load, just without siblings.
+ * Each load uses its own connection, so projects can outlive the call that read them.
+ *
+ * ProjectDao keeps one session per thread, so units of work on different threads neither share batches nor wait for each
+ * other.  A session's projects may still be used from any thread: the monitor guards only the pending maps, and the query
+ * runs after the batch has been taken, outside it.  Two threads asking for the same unloaded project at once may both read it.
+ */
+public class LazyLoadSession implements ChildLoader {
+	private static final int MAX_PENDING = 10_000;
+	private static final Map<ProjectChild, String> OPERATION_NAMES = Map.of(ProjectChild.MATERIALS, "lazyLoadMaterials", ProjectChild.STEPS,
+			"lazyLoadSteps", ProjectChild.CATEGORIES, "lazyLoadCategories");
+
+	private final ProjectDao projectDao;
+	private final Map<ProjectChild, Map<Integer, Project>> pending = new EnumMap<>(ProjectChild.class);
+
+	LazyLoadSession(ProjectDao projectDao) {
+		this.projectDao = projectDao;
+		for(ProjectChild child : ProjectChild.values()) {
+			pending.put(child, new LinkedHashMap<>(16, 0.75f, false) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<Integer, Project> eldest) {
+					return size() > MAX_PENDING;
+				}
+			});
+		} // for
+	} // constructor
+
+	/*
+	 * Hands the project's collections over to this session.  Collections already loaded are left alone.
+	 */
+	synchronized void register(Project project) {
+		project.setChildLoader(this);
+		for(ProjectChild child : ProjectChild.values()) {
+			if(!project.isLoaded(child)) {
+				pending.get(child).put(project.getProjectId(), project);
+			} // if
+		} // for
+	} // register
+
+	@Override
+	public void load(Project project, ProjectChild child) {
+		Map<Integer, Project> batch = new LinkedHashMap<>();
+		batch.put(project.getProjectId(), project);
+		synchronized(this) {
+			Map<Integer, Project> siblings = pending.get(child);
+			siblings.remove(project.getProjectId());
+			for(Iterator<Project> it = siblings.values().iterator(); it.hasNext() && batch.size() < ProjectDao.IN_CLAUSE_CHUNK_SIZE;) {
+				Project sibling = it.next();
+				it.remove();
+				if(!sibling.isLoaded(child)) { // Set by hand since it was registered.
+					batch.put(sibling.getProjectId(), sibling);
+				} // if
+			} // for
+		} // synchronized
+
+		try(OperationTimer timer = Metrics.start(OPERATION_NAMES.get(child)); Connection conn = DbConnection.getConnection()) {
+			timer.rows(projectDao.loadChildren(conn, batch, child));
+			timer.success();
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // load
+
+	/*
+	 * The number of projects waiting for the given collection; for monitoring.
+	 */
+	public synchronized int getPendingCount(ProjectChild child) {
+		return pending.get(child).size();
+	}
+
+} // class
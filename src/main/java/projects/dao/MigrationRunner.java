@@ -0,0 +1,317 @@
+package projects.dao;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import provided.util.DaoBase;
+import provided.util.QueryTracer;
+
+/*
+ * Brings the database schema up to date by applying the versioned SQL scripts listed in db/migration/index.txt (on the
+ * classpath) that haven't been applied yet.  Applied versions are recorded in schema_version with a checksum of the script, so
+ * editing a script after it has run is caught instead of silently diverging.  Nothing is ever dropped, so existing data stays.
+ *
+ * Each script runs in its own transaction, but MySQL commits DDL implicitly, so a script that fails halfway stays half
+ * applied and is run again from the top on the next start.  Every statement must therefore be safe to re-run: CREATE TABLE
+ * needs IF NOT EXISTS, and the runner itself skips a CREATE INDEX whose index exists or an ALTER TABLE ... ADD COLUMN whose
+ * column exists (checked through the JDBC metadata).  Keep one schema change per statement.
+ *
+ * On MySQL the whole run holds the named lock schema_migration, so instances starting together apply each script once: the
+ * second waits, then finds the versions recorded.
+ */
+public class MigrationRunner extends DaoBase {
+	private static final System.Logger LOG = System.getLogger(MigrationRunner.class.getName());
+
+	private static final String DEFAULT_LOCATION = "db/migration";
+	private static final Pattern SCRIPT_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+	private static final Pattern CREATE_INDEX = Pattern.compile("CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+`?(\\w+)`?\\s+ON\\s+`?(\\w+)`?.*",
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+	private static final Pattern ADD_COLUMN = Pattern.compile("ALTER\\s+TABLE\\s+`?(\\w+)`?\\s+ADD\\s+COLUMN\\s+`?(\\w+)`?\\s"
+			+ "(?!.*,\\s*(?:ADD|DROP|MODIFY|CHANGE|ALTER|RENAME)\\b).*", // One added column, no other changes.
+			Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+	private static final String LOCK_NAME = "schema_migration";
+	private static final int LOCK_TIMEOUT_SECONDS = 300;
+
+	//@formatter:off
+	private static final String CREATE_VERSION_TABLE_SQL = ""
+			+ "CREATE TABLE IF NOT EXISTS schema_version ("
+			+ "version INT NOT NULL, "
+			+ "description VARCHAR(200) NOT NULL, "
+			+ "script VARCHAR(200) NOT NULL, "
+			+ "checksum BIGINT NOT NULL, "
+			+ "installed_on TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP, "
+			+ "execution_millis INT NOT NULL, "
+			+ "PRIMARY KEY (version))";
+	private static final String APPLIED_VERSIONS_SQL = "SELECT version, script, checksum FROM schema_version ORDER BY version";
+	private static final String RECORD_VERSION_SQL = ""
+			+ "INSERT INTO schema_version (version, description, script, checksum, execution_millis) VALUES (?, ?, ?, ?, ?)";
+	private static final String GET_LOCK_SQL = "SELECT GET_LOCK(?, ?)";
+	private static final String RELEASE_LOCK_SQL = "SELECT RELEASE_LOCK(?)";
+	//@formatter:on
+
+	private final String location;
+
+	public MigrationRunner() {
+		this(DEFAULT_LOCATION);
+	}
+
+	public MigrationRunner(String location) {
+		this.location = location;
+	}
+
+	/*
+	 * Applies every pending migration, oldest first, and returns the ones applied (empty if the schema was current).
+	 */
+	public List<Migration> migrate() {
+		List<Migration> available = loadMigrations();
+		try(OperationTimer timer = Metrics.start("migrate"); Connection conn = DbConnection.getConnection()) {
+			boolean locked = lock(conn);
+			try {
+				try(Statement stmt = QueryTracer.trace(conn.createStatement())) {
+					stmt.execute(CREATE_VERSION_TABLE_SQL);
+				} // try
+				Map<Integer, Long> applied = fetchAppliedChecksums(conn); // Read under the lock, so another instance's work is seen.
+				List<Migration> pending = new ArrayList<>();
+				for(Migration migration : available) {
+					Long checksum = applied.get(migration.version());
+					if(Objects.isNull(checksum)) {
+						pending.add(migration);
+					} else if(checksum != migration.checksum()) {
+						throw new DbException("Migration " + migration.script() + " was changed after it was applied.  Add a new migration instead.");
+					} // if
+				} // for
+				for(Migration migration : pending) {
+					apply(conn, migration);
+				} // for
+				timer.rows(pending.size());
+				timer.success();
+				return pending;
+			} finally {
+				if(locked) {
+					unlock(conn);
+				} // if
+			} // try-finally
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // migrate
+
+	/*
+	 * The highest applied version, or 0 if none.
+	 */
+	public int currentVersion() {
+		try(Connection conn = DbConnection.getConnection()) {
+			try(Statement stmt = QueryTracer.trace(conn.createStatement())) {
+				stmt.execute(CREATE_VERSION_TABLE_SQL);
+			} // try
+			return fetchAppliedChecksums(conn).keySet().stream().mapToInt(Integer::intValue).max().orElse(0);
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // currentVersion
+
+	private void apply(Connection conn, Migration migration) throws SQLException {
+		LOG.log(Level.INFO, () -> "Applying schema migration " + migration.script());
+		long start = System.nanoTime();
+		startTransaction(conn);
+		try {
+			try(Statement stmt = QueryTracer.trace(conn.createStatement())) {
+				for(String sql : migration.statements()) {
+					if(isAlreadyApplied(conn, sql)) {
+						LOG.log(Level.INFO, () -> "Skipping a statement of " + migration.script() + " that an earlier, failed run applied: " + sql);
+						continue;
+					} // if
+					stmt.execute(sql);
+				} // for
+			} // try
+			try(PreparedStatement stmt = prepare(conn, RECORD_VERSION_SQL)) {
+				setParameter(stmt, 1, migration.version(), Integer.class);
+				setParameter(stmt, 2, migration.description(), String.class);
+				setParameter(stmt, 3, migration.script(), String.class);
+				setParameter(stmt, 4, migration.checksum(), Long.class);
+				setParameter(stmt, 5, (int)((System.nanoTime() - start) / 1_000_000), Integer.class);
+				stmt.executeUpdate();
+			} // try
+			commitTransaction(conn);
+		} catch(Exception e) {
+			rollbackTransaction(conn);
+			throw new DbException("Migration " + migration.script() + " failed", e);
+		} // try-catch
+	} // apply
+
+	/*
+	 * Takes the migration lock on MySQL, waiting up to LOCK_TIMEOUT_SECONDS.  Returns false (no lock needed) elsewhere.
+	 */
+	private boolean lock(Connection conn) throws SQLException {
+		String url = conn.getMetaData().getURL();
+		if(Objects.isNull(url) || !url.startsWith("jdbc:mysql:")) {
+			return false;
+		} // if
+		try(PreparedStatement stmt = prepare(conn, GET_LOCK_SQL)) {
+			setParameter(stmt, 1, LOCK_NAME, String.class);
+			setParameter(stmt, 2, LOCK_TIMEOUT_SECONDS, Integer.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				if(!rs.next() || rs.getInt(1) != 1) {
+					throw new DbException("Timed out after " + LOCK_TIMEOUT_SECONDS + "s waiting for another instance to finish migrating the schema");
+				} // if
+			} // inner try
+		} // try
+		return true;
+	} // lock
+
+	private void unlock(Connection conn) {
+		try(PreparedStatement stmt = prepare(conn, RELEASE_LOCK_SQL)) {
+			setParameter(stmt, 1, LOCK_NAME, String.class);
+			stmt.executeQuery().close();
+		} catch(SQLException e) {
+			LOG.log(Level.WARNING, "Unable to release the schema migration lock; it goes when the connection closes", e);
+		} // try-catch
+	} // unlock
+
+	/*
+	 * True if the statement is a CREATE INDEX or ADD COLUMN whose index or column already exists, i.e. one that a failed
+	 * earlier run got as far as applying.  MySQL DDL commits on its own, so the rollback of that run didn't undo it.
+	 */
+	private boolean isAlreadyApplied(Connection conn, String sql) throws SQLException {
+		Matcher index = CREATE_INDEX.matcher(sql);
+		if(index.matches()) {
+			try(ResultSet rs = conn.getMetaData().getIndexInfo(conn.getCatalog(), null, index.group(2), false, true)) {
+				while(rs.next()) {
+					if(index.group(1).equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						return true;
+					} // if
+				} // while
+			} // try
+			return false;
+		} // if
+		Matcher column = ADD_COLUMN.matcher(sql);
+		if(column.matches()) {
+			try(ResultSet rs = conn.getMetaData().getColumns(conn.getCatalog(), null, column.group(1), null)) {
+				while(rs.next()) {
+					if(column.group(2).equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+						return true;
+					} // if
+				} // while
+			} // try
+		} // if
+		return false;
+	} // isAlreadyApplied
+
+	private Map<Integer, Long> fetchAppliedChecksums(Connection conn) throws SQLException {
+		Map<Integer, Long> applied = new HashMap<>();
+		try(PreparedStatement stmt = prepare(conn, APPLIED_VERSIONS_SQL); ResultSet rs = stmt.executeQuery()) {
+			while(rs.next()) {
+				applied.put(rs.getInt(1), rs.getLong(3));
+			} // while
+		} // try
+		return applied;
+	} // fetchAppliedChecksums
+
+	/*
+	 * Reads the scripts named in the index file.  Classpath directories can't be listed portably (e.g. inside a jar), hence
+	 * the index.
+	 */
+	List<Migration> loadMigrations() {
+		List<Migration> migrations = new ArrayList<>();
+		int lastVersion = 0;
+		for(String line : readResource(location + "/index.txt").split("\n")) {
+			String script = line.trim();
+			if(script.isEmpty() || script.startsWith("#")) {
+				continue;
+			} // if
+			Matcher matcher = SCRIPT_NAME.matcher(script);
+			if(!matcher.matches()) {
+				throw new DbException("Migration script " + script + " is not named V<version>__<description>.sql");
+			} // if
+			int version = Integer.parseInt(matcher.group(1));
+			if(version <= lastVersion) {
+				throw new DbException("Migration " + script + " is out of order in " + location + "/index.txt");
+			} // if
+			lastVersion = version;
+			String text = readResource(location + "/" + script);
+			migrations.add(new Migration(version, matcher.group(2).replace('_', ' '), script, checksum(text), splitStatements(text)));
+		} // for
+		return migrations;
+	} // loadMigrations
+
+	private static String readResource(String name) {
+		try(InputStream in = MigrationRunner.class.getClassLoader().getResourceAsStream(name)) {
+			if(Objects.isNull(in)) {
+				throw new DbException(name + " is not on the classpath");
+			} // if
+			return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r\n", "\n");
+		} catch(IOException e) {
+			throw new DbException("Unable to read " + name, e);
+		} // try-catch
+	} // readResource
+
+	private static long checksum(String text) {
+		CRC32 crc = new CRC32();
+		crc.update(text.getBytes(StandardCharsets.UTF_8));
+		return crc.getValue();
+	} // checksum
+
+	/*
+	 * Splits a script on semicolons outside quotes, dropping -- comment lines.
+	 */
+	static List<String> splitStatements(String text) {
+		List<String> statements = new ArrayList<>();
+		StringBuilder current = new StringBuilder();
+		for(String line : text.split("\n")) {
+			if(line.trim().startsWith("--")) {
+				continue;
+			} // if
+			current.append(line).append('\n');
+		} // for
+		StringBuilder statement = new StringBuilder();
+		char quote = 0;
+		for(int i = 0; i < current.length(); i++) {
+			char c = current.charAt(i);
+			if(quote != 0) {
+				quote = c == quote ? 0 : quote;
+			} else if(c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			} else if(c == ';') {
+				addStatement(statements, statement);
+				continue;
+			} // if
+			statement.append(c);
+		} // for
+		addStatement(statements, statement);
+		return statements;
+	} // splitStatements
+
+	private static void addStatement(List<String> statements, StringBuilder statement) {
+		String sql = statement.toString().trim();
+		if(!sql.isEmpty()) {
+			statements.add(sql);
+		} // if
+		statement.setLength(0);
+	} // addStatement
+
+	/*
+	 * One migration script.
+	 */
+	public record Migration(int version, String description, String script, long checksum, List<String> statements) {
+	}
+
+} // class
@@ -0,0 +1,96 @@
+package projects.dao;
+
+/*
+ * Settings for the ConnectionPool.  The defaults suit the console app talking to a local MySQL server.  All times are in milliseconds.
+ */
+public class PoolConfig {
+	private int minSize = 1;
+	private int maxSize = 10;
+	private long acquireTimeoutMillis = 5_000;
+	private long idleTimeoutMillis = 10 * 60_000;
+	private long maintenanceIntervalMillis = 30_000;
+	private long validationIdleMillis = 1_000; // Connections that sat idle longer than this get an isValid() check on borrow.
+	private int validationTimeoutSeconds = 2;
+	private long leakDetectionThresholdMillis = 0; // 0 turns leak detection off.
+	private int statementCacheSize = 64; // Prepared statements kept per connection; 0 turns the cache off.
+
+	public int getMinSize() {
+		return minSize;
+	}
+
+	public void setMinSize(int minSize) {
+		this.minSize = minSize;
+	}
+
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	public void setMaxSize(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	public long getAcquireTimeoutMillis() {
+		return acquireTimeoutMillis;
+	}
+
+	public void setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+		this.acquireTimeoutMillis = acquireTimeoutMillis;
+	}
+
+	public long getIdleTimeoutMillis() {
+		return idleTimeoutMillis;
+	}
+
+	public void setIdleTimeoutMillis(long idleTimeoutMillis) {
+		this.idleTimeoutMillis = idleTimeoutMillis;
+	}
+
+	public long getMaintenanceIntervalMillis() {
+		return maintenanceIntervalMillis;
+	}
+
+	public void setMaintenanceIntervalMillis(long maintenanceIntervalMillis) {
+		this.maintenanceIntervalMillis = maintenanceIntervalMillis;
+	}
+
+	public long getValidationIdleMillis() {
+		return validationIdleMillis;
+	}
+
+	public void setValidationIdleMillis(long validationIdleMillis) {
+		this.validationIdleMillis = validationIdleMillis;
+	}
+
+	public int getValidationTimeoutSeconds() {
+		return validationTimeoutSeconds;
+	}
+
+	public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+		this.validationTimeoutSeconds = validationTimeoutSeconds;
+	}
+
+	public long getLeakDetectionThresholdMillis() {
+		return leakDetectionThresholdMillis;
+	}
+
+	public void setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+		this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+	}
+
+	public int getStatementCacheSize() {
+		return statementCacheSize;
+	}
+
+	public void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	@Override
+	public String toString() {
+		return "minSize=" + minSize + ", maxSize=" + maxSize + ", acquireTimeoutMillis=" + acquireTimeoutMillis
+				+ ", idleTimeoutMillis=" + idleTimeoutMillis + ", leakDetectionThresholdMillis=" + leakDetectionThresholdMillis
+				+ ", statementCacheSize=" + statementCacheSize;
+	}
+
+} // class
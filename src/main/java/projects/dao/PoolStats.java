@@ -0,0 +1,15 @@
+package projects.dao;
+
+/*
+ * A point-in-time snapshot of the ConnectionPool counters.
+ */
+public record PoolStats(int total, int idle, int active, int waiting, long borrowed, long created, long destroyed,
+		long timeouts, long leaks) {
+
+	@Override
+	public String toString() {
+		return "total=" + total + ", idle=" + idle + ", active=" + active + ", waiting=" + waiting + ", borrowed=" + borrowed
+				+ ", created=" + created + ", destroyed=" + destroyed + ", timeouts=" + timeouts + ", leaks=" + leaks;
+	}
+
+} // record
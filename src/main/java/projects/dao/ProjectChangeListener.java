@@ -0,0 +1,40 @@
+package projects.dao;
+
+import java.util.List;
+
+import projects.entity.Project;
+
+/*
+ * Told about every project write made through any ProjectDao (or StepDao), after it has committed.  Listeners run on the writing thread,
+ * so they should be quick; an exception from a listener is logged and does not affect the write.
+ */
+public interface ProjectChangeListener {
+
+	/*
+	 * New projects, with whatever materials, steps and categories were inserted with them.
+	 */
+	default void projectsInserted(List<Project> projects) {
+	}
+
+	/*
+	 * A project's own columns changed (name, hours, difficulty, notes).  Its children are not included.
+	 */
+	default void projectModified(Project project) {
+	}
+
+	default void projectDeleted(Integer projectId) {
+	}
+
+	/*
+	 * Steps were added to, reordered in or renumbered in the project.
+	 */
+	default void projectStepsChanged(Integer projectId) {
+	}
+
+	/*
+	 * The projects were linked to (or unlinked from) the category in bulk.  Only projects whose link actually changed are listed.
+	 */
+	default void categoryLinksChanged(Integer categoryId, List<Integer> projectIds, boolean linked) {
+	}
+
+} // interface
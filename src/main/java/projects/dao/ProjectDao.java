@@ -1,42 +1,166 @@
 package projects.dao;
 
+import java.lang.System.Logger.Level;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.LinkedList;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import projects.analytics.ProjectSnapshot;
 import projects.entity.Category;
 import projects.entity.Material;
 import projects.entity.Project;
+import projects.entity.ProjectChild;
+import projects.entity.ProjectField;
+import projects.entity.ProjectRow;
 import projects.entity.Step;
 import projects.exception.DbException;
+import projects.exception.StaleDataException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
 import provided.util.DaoBase;
+import provided.util.QueryTracer;
+import provided.util.RowMapper;
 
 public class ProjectDao extends DaoBase {
+	private static final System.Logger LOG = System.getLogger(ProjectDao.class.getName());
 
-	private static final String CATEGORY_TABLE = "category";
 	private static final String MATERIAL_TABLE = "material";
 	private static final String PROJECT_TABLE = "project";
 	private static final String PROJECT_CATEGORY_TABLE = "project_category";
 	private static final String STEP_TABLE = "step";
+
+	//@formatter:off
+	private static final String PROJECT_GRAPH_SQL = ""
+			+ "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?; "
+			+ "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id = ?; "
+			+ "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order, step_id; "
+			+ "SELECT category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id = ?";
+	//@formatter:on
+
+	//@formatter:off
+	private static final String INSERT_PROJECT_SQL = ""
+			+ "INSERT INTO " + PROJECT_TABLE + " "
+			+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
+			+ "VALUES "
+			+ "(?, ?, ?, ?, ?)";
+	private static final String INSERT_MATERIAL_SQL = ""
+			+ "INSERT INTO " + MATERIAL_TABLE + " "
+			+ "(project_id, material_name, num_required, cost) "
+			+ "VALUES "
+			+ "(?, ?, ?, ?)";
+	private static final String INSERT_STEP_SQL = ""
+			+ "INSERT INTO " + STEP_TABLE + " "
+			+ "(project_id, step_text, step_order) "
+			+ "VALUES "
+			+ "(?, ?, ?)";
+	private static final String INSERT_PROJECT_CATEGORY_SQL = ""
+			+ "INSERT INTO " + PROJECT_CATEGORY_TABLE + " "
+			+ "(project_id, category_id) "
+			+ "VALUES "
+			+ "(?, ?)";
+	//@formatter:on
+
+	//@formatter:off
+	private static final String PROJECT_VERSION_SQL = "SELECT version FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+	private static final String DELETE_PROJECT_SQL = "DELETE FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+	private static final String ALL_PROJECTS_SQL = "SELECT * FROM " + PROJECT_TABLE + " ORDER BY project_id";
+	// The child cursors of streamProjectGraphs, each in project_id order like ALL_PROJECTS_SQL so the four merge in one pass.
+	private static final String ALL_MATERIALS_BY_PROJECT_SQL = "SELECT * FROM " + MATERIAL_TABLE + " ORDER BY project_id, material_id";
+	private static final String ALL_STEPS_BY_PROJECT_SQL = "SELECT * FROM " + STEP_TABLE + " ORDER BY project_id, step_order, step_id";
+	private static final String ALL_CATEGORIES_BY_PROJECT_SQL = ""
+			+ "SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE + " ORDER BY project_id, category_id";
+	static final String PROJECT_BY_ID_SQL = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
+	static final String MATERIALS_BY_PROJECT_SQL = "SELECT * FROM " + MATERIAL_TABLE + " m WHERE m.project_id = ?";
+	static final String STEPS_BY_PROJECT_SQL = ""
+			+ "SELECT * FROM " + STEP_TABLE + " s WHERE s.project_id = ? ORDER BY s.step_order, s.step_id";
+	// Only the links: the categories themselves come from the dictionary (see CategoryDao).
+	static final String CATEGORIES_BY_PROJECT_SQL = ""
+			+ "SELECT pc.category_id FROM " + PROJECT_CATEGORY_TABLE + " pc WHERE pc.project_id = ?";
+
+	private static final String PROJECTS_IN_PREFIX = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id IN ";
+	static final String MATERIALS_IN_PREFIX = "SELECT * FROM " + MATERIAL_TABLE + " WHERE project_id IN ";
+	static final String STEPS_IN_PREFIX = "SELECT * FROM " + STEP_TABLE + " WHERE project_id IN ";
+	static final String STEPS_IN_ORDER = " ORDER BY project_id, step_order, step_id";
+	static final String CATEGORIES_IN_PREFIX = ""
+			+ "SELECT project_id, category_id FROM " + PROJECT_CATEGORY_TABLE + " WHERE project_id IN ";
+
+	// The decimals are scaled and cast in SQL so they come back as integers and are read with getLong(), with no BigDecimal per
+	// row.  "x * 100" alone is still a DECIMAL, which the driver decodes as a BigDecimal before getLong() converts it.
+	private static final String HUNDREDTHS_ESTIMATED = "CAST(ROUND(estimated_hours * 100) AS SIGNED)";
+	private static final String HUNDREDTHS_ACTUAL = "CAST(ROUND(actual_hours * 100) AS SIGNED)";
+	private static final String PROJECT_SNAPSHOT_SQL = ""
+			+ "SELECT project_id, project_name, " + HUNDREDTHS_ESTIMATED + ", " + HUNDREDTHS_ACTUAL + ", difficulty "
+			+ "FROM " + PROJECT_TABLE + " ORDER BY project_id";
+	private static final String MATERIAL_SNAPSHOT_SQL = ""
+			+ "SELECT project_id, num_required, CAST(ROUND(cost * 100) AS SIGNED) FROM " + MATERIAL_TABLE;
+	// ProjectRow's columns: no notes, and hours scaled to hundredths as for the snapshot.
+	private static final String PROJECT_ROW_COLUMNS = ""
+			+ "project_id, project_name, " + HUNDREDTHS_ESTIMATED + ", " + HUNDREDTHS_ACTUAL + ", difficulty, version";
+	private static final String ALL_PROJECT_ROWS_SQL = "SELECT " + PROJECT_ROW_COLUMNS + " FROM " + PROJECT_TABLE + " ORDER BY project_id";
+	//@formatter:on
+
+	static final int IN_CLAUSE_CHUNK_SIZE = 500; // Keeps the IN lists (and the statements) a reasonable size.
+
+	static final Map<ProjectSort, String> FIRST_PAGE_SQL = new EnumMap<>(ProjectSort.class);
+	static final Map<ProjectSort, String> NEXT_PAGE_SQL = new EnumMap<>(ProjectSort.class);
+	private static final Map<ProjectSort, String> FIRST_ROW_PAGE_SQL = new EnumMap<>(ProjectSort.class);
+	private static final Map<ProjectSort, String> NEXT_ROW_PAGE_SQL = new EnumMap<>(ProjectSort.class);
+
+	static { // The page queries only vary by sort key, so all of them are built once here.
+		for(ProjectSort sort : ProjectSort.values()) {
+			String column = sort.getColumn();
+			String orderBy = sort == ProjectSort.ID ? " ORDER BY project_id" : " ORDER BY " + column + ", project_id";
+			String seek = sort == ProjectSort.ID
+					? " WHERE project_id > ?"
+					: " WHERE (" + column + " > ? OR (" + column + " = ? AND project_id > ?))";
+			FIRST_PAGE_SQL.put(sort, "SELECT * FROM " + PROJECT_TABLE + orderBy + " LIMIT ?");
+			NEXT_PAGE_SQL.put(sort, "SELECT * FROM " + PROJECT_TABLE + seek + orderBy + " LIMIT ?");
+			FIRST_ROW_PAGE_SQL.put(sort, "SELECT " + PROJECT_ROW_COLUMNS + " FROM " + PROJECT_TABLE + orderBy + " LIMIT ?");
+			NEXT_ROW_PAGE_SQL.put(sort, "SELECT " + PROJECT_ROW_COLUMNS + " FROM " + PROJECT_TABLE + seek + orderBy + " LIMIT ?");
+		} // for
+	} // static
+
+	// UPDATE statements for each combination of columns seen so far; at most 2^5 of each kind.
+	private static final Map<Set<ProjectField>, String> UPDATE_COLUMNS_SQL = new ConcurrentHashMap<>();
+	private static final Map<Set<ProjectField>, String> VERSIONED_UPDATE_SQL = new ConcurrentHashMap<>();
+
+	private static final List<ProjectChangeListener> CHANGE_LISTENERS = new CopyOnWriteArrayList<>();
+
+	private final SummaryTables summaryTables = new SummaryTables();
+	private final CategoryDao categoryDao = new CategoryDao(); // Resolves category links against the shared dictionary.
+	private final ImportCheckpointDao importCheckpointDao = new ImportCheckpointDao();
+	private GraphFetchMode graphFetchMode = GraphFetchMode.SINGLE_ROUND_TRIP;
+	private final ThreadLocal<LazyLoadSession> loadSession = new ThreadLocal<>(); // Each thread's current LAZY-mode session.
 	
 	public Project insertProject(Project project) {
-		//@formatter:off
-		String sql = ""
-				+ "INSERT INTO " + PROJECT_TABLE + " "
-				+ "(project_name, estimated_hours, actual_hours, difficulty, notes) "
-				+ "VALUES "
-				+ "(?, ?, ?, ?, ?)";
-		//@formatter:on
-		
-		try(Connection conn = DbConnection.getConnection()) {
+		try(OperationTimer timer = Metrics.start("insertProject"); Connection conn = DbConnection.getConnection()) {
 			startTransaction(conn);
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			InsertUndo undo = new InsertUndo(List.of(project));
+			try(PreparedStatement stmt = prepare(conn, INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS)) {
 				setParameter(stmt, 1, project.getProjectName(), String.class);
 				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
 				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
@@ -44,12 +168,21 @@ public class ProjectDao extends DaoBase {
 				setParameter(stmt, 5, project.getNotes(), String.class);
 				
 				stmt.executeUpdate();
-				Integer projectId = getLastInsertId(conn, PROJECT_TABLE); // This gets the last auto_increment value for projectId.
-				commitTransaction(conn);
+				Integer projectId = getGeneratedKeys(stmt, 1)[0]; // The auto_increment value comes back with the insert; no second query.
 				project.setProjectId(projectId); // This sets the current projectId.
+				project.setVersion(0); // The column default; the project now matches its row.
+				project.clearChanges();
+				if(summaryTables.isMaintained(conn)) {
+					summaryTables.addProjects(conn, List.of(project));
+				} // if
+				commitTransaction(conn);
+				fireChange(listener -> listener.projectsInserted(List.of(project)));
+				timer.rows(1);
+				timer.success();
 				return project;
 			} catch(Exception e) {
 				rollbackTransaction(conn);
+				undo.restore();
 				throw new DbException(e);
 			} // inner try-catch
 		} catch(SQLException e) {
@@ -57,55 +190,411 @@ public class ProjectDao extends DaoBase {
 		} // try-catch
 	} // insertProject
 
-	public boolean modifyProjectDetails(Project project) {
-		//@formatter:off
-		String sql = ""
-				+ "UPDATE " + PROJECT_TABLE + " SET "
-				+ "project_name = ?, estimated_hours = ?, actual_hours = ?, difficulty = ?, notes = ? "
-				+ "WHERE project_id = ?";
-		//@formatter:on
-		
-		try(Connection conn = DbConnection.getConnection()) {
-			startTransaction(conn);
-			System.out.println("Update transaction started for Project " + project.getProjectId());
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+	/*
+	 * Inserts whole project graphs (project, materials, steps and project_category links) using JDBC batches.  Each group of
+	 * batchSize projects is one transaction, so a failure only rolls back its own group; groups before it stay committed.
+	 * With rewriteBatchedStatements on the MySQL URL each batch goes over the wire as a multi-row INSERT.
+	 */
+	public List<Project> insertProjects(List<Project> projects, int batchSize) {
+		return insertProjects(projects, batchSize, null);
+	} // insertProjects
+
+	/*
+	 * Inserts the projects as a single transaction that also saves the import progress, so the projects and the checkpoint
+	 * that covers them are committed together or not at all.
+	 */
+	public List<Project> insertProjects(List<Project> projects, ImportProgress progress) {
+		return insertProjects(projects, Math.max(1, projects.size()), progress);
+	} // insertProjects
+
+	private List<Project> insertProjects(List<Project> projects, int batchSize, ImportProgress progress) {
+		if(batchSize < 1) {
+			throw new IllegalArgumentException("The batch size must be at least 1, not " + batchSize);
+		} // if
+		try(OperationTimer timer = Metrics.start("insertProjects"); Connection conn = DbConnection.getConnection()) {
+			for(int from = 0; from < projects.size(); from += batchSize) {
+				List<Project> batch = projects.subList(from, Math.min(from + batchSize, projects.size()));
+				startTransaction(conn);
+				InsertUndo undo = new InsertUndo(batch);
+				try {
+					insertProjectBatch(conn, batch);
+					insertMaterialBatch(conn, batch);
+					insertStepBatch(conn, batch);
+					insertProjectCategoryBatch(conn, batch);
+					if(summaryTables.isMaintained(conn)) {
+						summaryTables.addProjects(conn, batch);
+					} // if
+					if(Objects.nonNull(progress)) {
+						importCheckpointDao.saveProgress(conn, progress);
+					} // if
+					commitTransaction(conn);
+					fireChange(listener -> listener.projectsInserted(batch));
+					timer.rows(batch.size());
+				} catch(Exception e) {
+					rollbackTransaction(conn);
+					undo.restore(); // The IDs set during the batch name rows that no longer exist.
+					throw new DbException("Batch insert failed for projects " + from + " to " + (from + batch.size() - 1), e);
+				} // inner try-catch
+			} // for
+			timer.success();
+			return projects;
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // insertProjects
+
+	/*
+	 * What an insert writes onto the caller's objects as it goes (generated IDs, the version, the parent ID and default step
+	 * order of each child, the changed fields), taken before it starts so a rolled-back insert can put it all back.  The
+	 * objects then look exactly as they did before the call, and can be inserted again.
+	 */
+	private static final class InsertUndo {
+		private final List<ProjectState> projects = new ArrayList<>();
+		private final List<MaterialState> materials = new ArrayList<>();
+		private final List<StepState> steps = new ArrayList<>();
+
+		private record ProjectState(Project project, Integer projectId, Integer version, Set<ProjectField> changed) {
+		} // record
+
+		private record MaterialState(Material material, Integer materialId, Integer projectId) {
+		} // record
+
+		private record StepState(Step step, Integer stepId, Integer projectId, Integer stepOrder) {
+		} // record
+
+		InsertUndo(List<Project> batch) {
+			for(Project project : batch) {
+				projects.add(new ProjectState(project, project.getProjectId(), project.getVersion(), project.getChangedFields()));
+				if(project.isLoaded(ProjectChild.MATERIALS)) {
+					for(Material material : project.getMaterials()) {
+						materials.add(new MaterialState(material, material.getMaterialId(), material.getProjectId()));
+					} // for
+				} // if
+				if(project.isLoaded(ProjectChild.STEPS)) {
+					for(Step step : project.getSteps()) {
+						steps.add(new StepState(step, step.getStepId(), step.getProjectId(), step.getStepOrder()));
+					} // for
+				} // if
+			} // for
+		} // constructor
+
+		void restore() {
+			for(ProjectState state : projects) {
+				state.project().setProjectId(state.projectId());
+				state.project().setVersion(state.version());
+				state.project().clearChanges();
+				for(ProjectField field : state.changed()) {
+					field.set(state.project(), field.get(state.project())); // Marks it changed again.
+				} // for
+			} // for
+			for(MaterialState state : materials) {
+				state.material().setMaterialId(state.materialId());
+				state.material().setProjectId(state.projectId());
+			} // for
+			for(StepState state : steps) {
+				state.step().setStepId(state.stepId());
+				state.step().setProjectId(state.projectId());
+				state.step().setStepOrder(state.stepOrder());
+			} // for
+		} // restore
+
+	} // InsertUndo
+
+	private void insertProjectBatch(Connection conn, List<Project> batch) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, INSERT_PROJECT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+			for(Project project : batch) {
 				setParameter(stmt, 1, project.getProjectName(), String.class);
 				setParameter(stmt, 2, project.getEstimatedHours(), BigDecimal.class);
 				setParameter(stmt, 3, project.getActualHours(), BigDecimal.class);
 				setParameter(stmt, 4, project.getDifficulty(), Integer.class);
 				setParameter(stmt, 5, project.getNotes(), String.class);
-				setParameter(stmt, 6, project.getProjectId(), Integer.class); // Included to set the WHERE clause in the SQL statement.
+				stmt.addBatch();
+			} // for
+			stmt.executeBatch();
+			int[] keys = getGeneratedKeys(stmt, batch.size());
+			for(int index = 0; index < keys.length; index++) {
+				batch.get(index).setProjectId(keys[index]);
+				batch.get(index).setVersion(0);
+				batch.get(index).clearChanges();
+			} // for
+		} // try
+	} // insertProjectBatch
+
+	private void insertMaterialBatch(Connection conn, List<Project> batch) throws SQLException {
+		List<Material> materials = new ArrayList<>();
+		try(PreparedStatement stmt = prepare(conn, INSERT_MATERIAL_SQL, Statement.RETURN_GENERATED_KEYS)) {
+			for(Project project : batch) {
+				for(Material material : project.getMaterials()) {
+					material.setProjectId(project.getProjectId());
+					setParameter(stmt, 1, material.getProjectId(), Integer.class);
+					setParameter(stmt, 2, material.getMaterialName(), String.class);
+					setParameter(stmt, 3, material.getNumRequired(), Integer.class);
+					setParameter(stmt, 4, material.getCost(), BigDecimal.class);
+					stmt.addBatch();
+					materials.add(material);
+				} // for
+			} // for
+			if(materials.isEmpty()) {
+				return;
+			} // if
+			stmt.executeBatch();
+			int[] keys = getGeneratedKeys(stmt, materials.size());
+			for(int index = 0; index < keys.length; index++) {
+				materials.get(index).setMaterialId(keys[index]);
+			} // for
+		} // try
+	} // insertMaterialBatch
+
+	private void insertStepBatch(Connection conn, List<Project> batch) throws SQLException {
+		List<Step> steps = new ArrayList<>();
+		try(PreparedStatement stmt = prepare(conn, INSERT_STEP_SQL, Statement.RETURN_GENERATED_KEYS)) {
+			for(Project project : batch) {
+				int position = 0;
+				for(Step step : project.getSteps()) {
+					position++;
+					step.setProjectId(project.getProjectId());
+					if(Objects.isNull(step.getStepOrder())) {
+						step.setStepOrder(position * StepDao.ORDER_GAP); // New projects have no steps yet; leave room to insert between.
+					} // if
+					setParameter(stmt, 1, step.getProjectId(), Integer.class);
+					setParameter(stmt, 2, step.getStepText(), String.class);
+					setParameter(stmt, 3, step.getStepOrder(), Integer.class);
+					stmt.addBatch();
+					steps.add(step);
+				} // for
+			} // for
+			if(steps.isEmpty()) {
+				return;
+			} // if
+			stmt.executeBatch();
+			int[] keys = getGeneratedKeys(stmt, steps.size());
+			for(int index = 0; index < keys.length; index++) {
+				steps.get(index).setStepId(keys[index]);
+			} // for
+		} // try
+	} // insertStepBatch
+
+	private void insertProjectCategoryBatch(Connection conn, List<Project> batch) throws SQLException {
+		boolean any = false;
+		try(PreparedStatement stmt = prepare(conn, INSERT_PROJECT_CATEGORY_SQL)) {
+			for(Project project : batch) {
+				for(Category category : project.getCategories()) {
+					if(Objects.isNull(category.getCategoryId())) {
+						throw new DbException("Category '" + category.getCategoryName() + "' has no ID.  Only existing categories can be linked.");
+					} // if
+					setParameter(stmt, 1, project.getProjectId(), Integer.class);
+					setParameter(stmt, 2, category.getCategoryId(), Integer.class);
+					stmt.addBatch();
+					any = true;
+				} // for
+			} // for
+			if(any) {
+				stmt.executeBatch();
+			} // if
+		} // try
+	} // insertProjectCategoryBatch
+
+	/*
+	 * Writes only the fields changed on the project (see Project.getChangedFields), so an edit of the name doesn't resend the
+	 * notes.  If the project carries a version, the update only applies to that version: a project someone else changed
+	 * meanwhile raises StaleDataException instead of being overwritten.  On success the version is advanced and the changes
+	 * cleared.  Returns false if the project doesn't exist.  With nothing changed, only the row (and its version) is checked.
+	 */
+	public boolean modifyProjectDetails(Project project) {
+		Set<ProjectField> columns = EnumSet.noneOf(ProjectField.class);
+		columns.addAll(project.getChangedFields());
+		if(columns.isEmpty()) {
+			return checkUnchanged(project);
+		} // if
+		boolean checkVersion = Objects.nonNull(project.getVersion());
+		String sql = (checkVersion ? VERSIONED_UPDATE_SQL : UPDATE_COLUMNS_SQL).computeIfAbsent(columns, key -> buildUpdateSql(key, checkVersion));
+		try(OperationTimer timer = Metrics.start("modifyProjectDetails"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			LOG.log(Level.DEBUG, () -> "Update transaction started for Project " + project.getProjectId() + ", columns " + columns);
+			try(PreparedStatement stmt = prepare(conn, sql)) {
+				int index = 1;
+				for(ProjectField field : columns) {
+					setParameter(stmt, index++, field.get(project), field.getType());
+				} // for
+				setParameter(stmt, index++, project.getProjectId(), Integer.class); // Included to set the WHERE clause in the SQL statement.
+				if(checkVersion) {
+					setParameter(stmt, index, project.getVersion(), Integer.class);
+				} // if
 				boolean updated = stmt.executeUpdate() == 1; // This checks to see how many rows the executeUpdate updated.  If it only updated 1 row, it returns true for updated, which then gets returned for modifyProjectDetails.
-				System.out.println("During attempt of Project " + project.getProjectId() + " it updated " + updated + " records.");
+				LOG.log(Level.DEBUG, () -> "During attempt of Project " + project.getProjectId() + " it updated " + updated + " records.");
+				if(!updated && checkVersion) {
+					Integer currentVersion = fetchVersion(conn, project.getProjectId());
+					if(Objects.nonNull(currentVersion)) {
+						throw new StaleDataException("Project " + project.getProjectId() + " was changed by someone else (version " + project.getVersion()
+								+ " is now " + currentVersion + ").  Reload it and try again.");
+					} // if
+				} // if
+				// Listeners are handed the whole project, but this one may carry only the changed fields, so the row is read back.
+				List<Project> modified = updated && !CHANGE_LISTENERS.isEmpty() ? fetchProjectRows(conn, List.of(project.getProjectId())) : List.of();
 				commitTransaction(conn);
+				if(updated) {
+					if(checkVersion) {
+						project.setVersion(project.getVersion() + 1);
+					} // if
+					project.clearChanges();
+					modified.forEach(row -> fireChange(listener -> listener.projectModified(row)));
+				} // if
+				timer.rows(updated ? 1 : 0);
+				timer.success();
 				return updated;
 			} catch(Exception e) {
 				rollbackTransaction(conn);
-				System.out.println("Update failed");
-				throw new DbException(e);
+				LOG.log(Level.DEBUG, () -> "Update failed for Project " + project.getProjectId());
+				throw e instanceof DbException ? (DbException)e : new DbException(e);
 			} // inner try-catch
 		} catch(SQLException e) {
 			throw new DbException(e);
 		} // try-catch
 	} // modifyProjectDetails
 
+	/*
+	 * An edit that changes nothing writes nothing, but still fails like a real one: false for a missing project, and
+	 * StaleDataException for a version someone else has moved past.
+	 */
+	private boolean checkUnchanged(Project project) {
+		try(OperationTimer timer = Metrics.start("modifyProjectDetails"); Connection conn = DbConnection.getConnection()) {
+			Integer currentVersion = fetchVersion(conn, project.getProjectId());
+			if(Objects.isNull(currentVersion)) {
+				timer.success();
+				return false;
+			} // if
+			if(Objects.nonNull(project.getVersion()) && !project.getVersion().equals(currentVersion)) {
+				throw new StaleDataException("Project " + project.getProjectId() + " was changed by someone else (version " + project.getVersion()
+						+ " is now " + currentVersion + ").  Reload it and try again.");
+			} // if
+			timer.success();
+			return true;
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // checkUnchanged
+
+	/*
+	 * Applies many partial updates in one transaction.  Updates touching the same set of columns share one batched statement,
+	 * so a burst of edits costs a few round trips rather than a transaction each.  Returns the IDs of the projects that exist
+	 * and were updated.
+	 */
+	public Set<Integer> applyUpdates(Collection<ProjectUpdate> updates) {
+		Map<Set<ProjectField>, List<ProjectUpdate>> byColumns = new HashMap<>();
+		for(ProjectUpdate update : updates) {
+			if(!update.isEmpty()) {
+				byColumns.computeIfAbsent(EnumSet.copyOf(update.getFields()), columns -> new ArrayList<>()).add(update);
+			} // if
+		} // for
+		if(byColumns.isEmpty()) {
+			return Set.of();
+		} // if
+
+		try(OperationTimer timer = Metrics.start("applyUpdates"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				Set<Integer> updated = new LinkedHashSet<>();
+				for(Map.Entry<Set<ProjectField>, List<ProjectUpdate>> group : byColumns.entrySet()) {
+					updateBatch(conn, group.getKey(), group.getValue(), updated);
+				} // for
+				// Listeners are handed whole projects, so the updated rows are read back; skipped when nobody listens.
+				List<Project> modified = CHANGE_LISTENERS.isEmpty() ? List.of() : fetchProjectRows(conn, new ArrayList<>(updated));
+				commitTransaction(conn);
+				for(Project project : modified) {
+					fireChange(listener -> listener.projectModified(project));
+				} // for
+				timer.rows(updated.size());
+				timer.success();
+				return updated;
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // applyUpdates
+
+	private void updateBatch(Connection conn, Set<ProjectField> columns, List<ProjectUpdate> updates, Set<Integer> updated) throws SQLException {
+		String sql = UPDATE_COLUMNS_SQL.computeIfAbsent(columns, key -> buildUpdateSql(key, false));
+		try(PreparedStatement stmt = prepare(conn, sql)) {
+			for(ProjectUpdate update : updates) {
+				int index = 1;
+				for(ProjectField field : columns) {
+					setParameter(stmt, index++, update.get(field), field.getType());
+				} // for
+				setParameter(stmt, index, update.getProjectId(), Integer.class);
+				stmt.addBatch();
+			} // for
+			int[] counts = stmt.executeBatch();
+			for(int i = 0; i < counts.length; i++) {
+				if(counts[i] != 0) { // SUCCESS_NO_INFO counts as updated.
+					updated.add(updates.get(i).getProjectId());
+				} // if
+			} // for
+		} // try
+	} // updateBatch
+
+	/*
+	 * Every update advances the row's version, so an edit based on the old version can tell it is stale.
+	 */
+	private static String buildUpdateSql(Set<ProjectField> columns, boolean checkVersion) {
+		StringBuilder sql = new StringBuilder("UPDATE " + PROJECT_TABLE + " SET ");
+		for(ProjectField field : columns) {
+			sql.append(field.getColumn()).append(" = ?, ");
+		} // for
+		sql.append("version = version + 1 WHERE project_id = ?");
+		return checkVersion ? sql.append(" AND version = ?").toString() : sql.toString();
+	} // buildUpdateSql
+
+	private Integer fetchVersion(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, PROJECT_VERSION_SQL)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : null;
+			} // inner try
+		} // try
+	} // fetchVersion
+
+	private List<Project> fetchProjectRows(Connection conn, List<Integer> ids) throws SQLException {
+		List<Project> projects = new ArrayList<>(ids.size());
+		for(int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+			String in = paddedInList(chunk.size(), IN_CLAUSE_CHUNK_SIZE); // Tails padded, so few distinct statements.
+			try(PreparedStatement stmt = prepare(conn, PROJECTS_IN_PREFIX + in)) {
+				setIdParameters(stmt, chunk);
+				try(ResultSet rs = stmt.executeQuery()) {
+					RowMapper<Project> projectMapper = mapper(rs, Project.class);
+					while(rs.next()) {
+						projects.add(projectMapper.map(rs));
+					} // while
+				} // inner try
+			} // try
+		} // for
+		return projects;
+	} // fetchProjectRows
+
 	public boolean deleteProcject(Project project) {
-		//@formatter:off
-		String sql = "DELETE FROM " + PROJECT_TABLE
-				+ " WHERE project_id = ?";
-		//@formatter:on
-		try(Connection conn = DbConnection.getConnection()) {
+		try(OperationTimer timer = Metrics.start("deleteProject"); Connection conn = DbConnection.getConnection()) {
 			startTransaction(conn);
-			System.out.println("Starting deletion of Project " + project.getProjectId());
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			LOG.log(Level.DEBUG, () -> "Starting deletion of Project " + project.getProjectId());
+			try(PreparedStatement stmt = prepare(conn, DELETE_PROJECT_SQL)) {
+				if(summaryTables.isMaintained(conn)) {
+					summaryTables.removeProject(conn, project.getProjectId()); // Needs the category links, so it runs before the delete.
+				} // if
 				setParameter(stmt, 1, project.getProjectId(), Integer.class); // Included to set the WHERE clause in the SQL statement.
 				boolean deleted = stmt.executeUpdate() == 1; // This checks to see how many rows the executeUpdate updated.  If it only updated 1 row, it returns true for updated, which then gets returned for modifyProjectDetails.
 				commitTransaction(conn);
-				System.out.println("Delete successful - from DAO");
+				LOG.log(Level.DEBUG, () -> "Delete successful for Project " + project.getProjectId());
+				if(deleted) {
+					fireChange(listener -> listener.projectDeleted(project.getProjectId()));
+				} // if
+				timer.rows(deleted ? 1 : 0);
+				timer.success();
 				return deleted;
 			} catch(Exception e) {
 				rollbackTransaction(conn);
-				System.out.println("Delete failed");
+				LOG.log(Level.DEBUG, () -> "Delete failed for Project " + project.getProjectId());
 				throw new DbException(e);
 			} // inner try-catch
 		} catch(SQLException e) {
@@ -115,18 +604,18 @@ public class ProjectDao extends DaoBase {
 
 	
 	public List<Project> fetchAllProjects() { // This will list all the projects.
-		//@formatter:off
-		String sql = "SELECT * FROM " // This is the SQL statement for listing them.
-				 + PROJECT_TABLE + " ORDER BY project_Name";
-		//@formatter:on
-		try(Connection conn = DbConnection.getConnection()) {
+		try(OperationTimer timer = Metrics.start("fetchAllProjects"); Connection conn = DbConnection.getConnection()) {
 			startTransaction(conn);
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) { // The SQL statement gets passed to the DB here.
+			try(PreparedStatement stmt = prepare(conn, ALL_PROJECTS_SQL)) { // The SQL statement gets passed to the DB here.
 				try(ResultSet rs = stmt.executeQuery()) {
-					List<Project> projects = new LinkedList<>();
+					List<Project> projects = new ArrayList<>();
+					RowMapper<Project> projectMapper = mapper(rs, Project.class); // Column positions are resolved once, not per row.
 					while(rs.next()) {
-						projects.add(extract(rs, Project.class));
+						projects.add(projectMapper.map(rs));
 					}
+					projects.forEach(this::registerLazy);
+					timer.rows(projects.size());
+					timer.success();
 					return projects;
 				} // single try, 3rd inner try //and it is executed here.
 			} catch(Exception e) {
@@ -138,27 +627,380 @@ public class ProjectDao extends DaoBase {
 		} // try-catch
 	} // fetchAllProjects
 
-	public Optional<Project> fetchProjectById(Integer projectId) {
-		String sql = "SELECT * FROM " + PROJECT_TABLE + " WHERE project_id = ?";
-		try(Connection conn = DbConnection.getConnection()) {
+	public List<Category> fetchAllCategories() {
+		return categoryDao.fetchAllCategories(); // In name order, from the shared dictionary.
+	}
+
+	/*
+	 * Keyset (seek) pagination: instead of OFFSET, each page starts strictly after the (sort key, project_id) of the last row of
+	 * the previous page, which the continuation token carries.  The database can seek straight to that point, so page 1000 costs
+	 * the same as page 1, and the ORDER BY is the only sort.  Pass a null token for the first page.
+	 */
+	public ProjectPage fetchProjectPage(ProjectSort sort, String pageToken, int pageSize) {
+		List<Project> projects = fetchPage("fetchProjectPage", FIRST_PAGE_SQL, NEXT_PAGE_SQL, sort, pageToken, pageSize,
+				rs -> mapper(rs, Project.class)::map);
+		projects.forEach(this::registerLazy);
+		if(projects.size() <= pageSize) {
+			return new ProjectPage(projects, null);
+		} // if
+		projects.remove(pageSize);
+		Project last = projects.get(pageSize - 1);
+		return new ProjectPage(projects, encodePageToken(sort, last.getProjectId(), last.getProjectName()));
+	} // fetchProjectPage
+
+	/*
+	 * Like fetchProjectPage, but returns compact ProjectRows (no notes) for listings.  The page tokens of the two are the same.
+	 */
+	public ProjectRowPage fetchProjectRowPage(ProjectSort sort, String pageToken, int pageSize) {
+		List<ProjectRow> rows = fetchPage("fetchProjectRowPage", FIRST_ROW_PAGE_SQL, NEXT_ROW_PAGE_SQL, sort, pageToken, pageSize,
+				rs -> ProjectDao::readProjectRow);
+		if(rows.size() <= pageSize) {
+			return new ProjectRowPage(rows, null);
+		} // if
+		rows.remove(pageSize);
+		ProjectRow last = rows.get(pageSize - 1);
+		return new ProjectRowPage(rows, encodePageToken(sort, last.projectId(), last.projectName()));
+	} // fetchProjectRowPage
+
+	/*
+	 * Every project as a ProjectRow, in project_id order.
+	 */
+	public List<ProjectRow> fetchAllProjectRows() {
+		try(OperationTimer timer = Metrics.start("fetchAllProjectRows"); Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = prepare(conn, ALL_PROJECT_ROWS_SQL)) {
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<ProjectRow> rows = new ArrayList<>();
+					while(rs.next()) {
+						rows.add(readProjectRow(rs));
+					} // while
+					timer.rows(rows.size());
+					timer.success();
+					return rows;
+				} // inner try
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchAllProjectRows
+
+	/*
+	 * Reads a row of PROJECT_ROW_COLUMNS by position, with no boxing and no BigDecimal.
+	 */
+	private static ProjectRow readProjectRow(ResultSet rs) throws SQLException {
+		int projectId = rs.getInt(1);
+		String projectName = rs.getString(2);
+		long estimated = rs.getLong(3);
+		if(rs.wasNull()) {
+			estimated = ProjectRow.NO_HOURS;
+		} // if
+		long actual = rs.getLong(4);
+		if(rs.wasNull()) {
+			actual = ProjectRow.NO_HOURS;
+		} // if
+		return new ProjectRow(projectId, projectName, estimated, actual, rs.getInt(5), rs.getInt(6)); // getInt gives 0 for a NULL difficulty.
+	} // readProjectRow
+
+	@FunctionalInterface
+	private interface RowReader<T> {
+		T read(ResultSet rs) throws SQLException;
+	}
+
+	@FunctionalInterface
+	private interface RowReaderFactory<T> {
+		RowReader<T> forResultSet(ResultSet rs) throws SQLException;
+	}
+
+	/*
+	 * Runs one page query and returns up to pageSize + 1 rows; the extra row tells the caller whether another page exists.
+	 */
+	private <T> List<T> fetchPage(String operation, Map<ProjectSort, String> firstPageSql, Map<ProjectSort, String> nextPageSql, ProjectSort sort,
+			String pageToken, int pageSize, RowReaderFactory<T> readers) {
+		if(pageSize < 1) {
+			throw new IllegalArgumentException("The page size must be at least 1, not " + pageSize);
+		} // if
+		String[] after = Objects.isNull(pageToken) ? null : decodePageToken(sort, pageToken);
+		String sql = Objects.isNull(after) ? firstPageSql.get(sort) : nextPageSql.get(sort);
+
+		try(OperationTimer timer = Metrics.start(operation); Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = prepare(conn, sql)) {
+				int index = 1;
+				if(Objects.nonNull(after)) {
+					Integer lastId = Integer.valueOf(after[0]);
+					if(sort == ProjectSort.ID) {
+						setParameter(stmt, index++, lastId, Integer.class);
+					} else {
+						setParameter(stmt, index++, after[1], String.class);
+						setParameter(stmt, index++, after[1], String.class);
+						setParameter(stmt, index++, lastId, Integer.class);
+					} // if
+				} // if
+				setParameter(stmt, index, pageSize + 1, Integer.class); // One extra row tells us whether another page exists.
+
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<T> rows = new ArrayList<>(pageSize + 1);
+					RowReader<T> reader = readers.forResultSet(rs);
+					while(rs.next()) {
+						rows.add(reader.read(rs));
+					} // while
+					timer.rows(rows.size());
+					timer.success();
+					return rows;
+				} // inner try
+			} // try
+		} catch(SQLException | NumberFormatException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchPage
+
+	private String encodePageToken(ProjectSort sort, int lastId, String lastName) {
+		String key = sort == ProjectSort.ID ? "" : lastName;
+		String token = sort.name() + "\n" + lastId + "\n" + key;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8));
+	} // encodePageToken
+
+	private String[] decodePageToken(ProjectSort sort, String pageToken) {
+		String[] parts;
+		try {
+			parts = new String(Base64.getUrlDecoder().decode(pageToken), StandardCharsets.UTF_8).split("\n", 3);
+		} catch(IllegalArgumentException e) {
+			throw new DbException("Invalid page token: " + pageToken, e);
+		} // try-catch
+		if(parts.length != 3 || !parts[0].equals(sort.name())) {
+			throw new DbException("The page token does not belong to a listing sorted by " + sort);
+		} // if
+		return new String[] {parts[1], parts[2]}; // Last project_id, then the last sort key.
+	} // decodePageToken
+
+	/*
+	 * Streams every project (without children) in project_id order.  Rows are pulled from the server as the stream is consumed,
+	 * so memory stays flat however big the table is.  The stream holds a connection until it is closed: use try-with-resources.
+	 * Its metrics cover the whole life of the stream, from this call until it is closed.
+	 */
+	public Stream<Project> streamAllProjects() {
+		OperationTimer timer = Metrics.start("streamAllProjects");
+		try {
+			return timedStream(streamQuery(DbConnection.getConnection(), ALL_PROJECTS_SQL, Project.class), timer);
+		} catch(SQLException e) {
+			timer.close();
+			throw new DbException(e);
+		} catch(RuntimeException e) {
+			timer.close();
+			throw e;
+		} // try-catch
+	} // streamAllProjects
+
+	/*
+	 * Streams every project with its materials, steps and categories, in project_id order.  Four cursors, one per table and all
+	 * ordered by project_id, stay open side by side and are merged as the stream advances: the whole table is four queries, and
+	 * only the current project's graph is held in memory.  They share one transaction, so the graphs are a consistent snapshot.
+	 * On MySQL several open cursors need useCursorFetch (see DbConnection and DaoBase.enableCursorFetch).
+	 *
+	 * The stream holds a connection until it is closed: use try-with-resources.  Its metrics cover the whole life of the stream.
+	 */
+	public Stream<Project> streamProjectGraphs() {
+		OperationTimer timer = Metrics.start("streamProjectGraphs");
+		List<AutoCloseable> resources = new ArrayList<>(); // Closed in reverse order, so the connection goes last.
+		try {
+			Connection conn = DbConnection.getConnection();
+			resources.add(conn);
+			startTransaction(conn); // Rolled back when the pool takes the connection back; nothing is written.
+			ResultSet projectRows = openCursor(conn, ALL_PROJECTS_SQL, resources);
+			RowMapper<Project> projectMapper = mapper(projectRows, Project.class);
+			ResultSet materialRows = openCursor(conn, ALL_MATERIALS_BY_PROJECT_SQL, resources);
+			ChildCursor<Material> materials = new ChildCursor<>(materialRows, mapper(materialRows, Material.class)::map);
+			ResultSet stepRows = openCursor(conn, ALL_STEPS_BY_PROJECT_SQL, resources);
+			ChildCursor<Step> steps = new ChildCursor<>(stepRows, mapper(stepRows, Step.class)::map);
+			ResultSet categoryRows = openCursor(conn, ALL_CATEGORIES_BY_PROJECT_SQL, resources);
+			ChildCursor<Category> categories = new ChildCursor<>(categoryRows, categoryReader(conn, categoryRows));
+
+			Spliterator<Project> graphs = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+				@Override
+				public boolean tryAdvance(Consumer<? super Project> action) {
+					try {
+						if(!projectRows.next()) {
+							return false;
+						} // if
+						Project project = projectMapper.map(projectRows);
+						project.setMaterials(materials.takeFor(project.getProjectId()));
+						project.setSteps(steps.takeFor(project.getProjectId()));
+						project.setCategories(categories.takeFor(project.getProjectId()));
+						action.accept(project);
+						return true;
+					} catch(SQLException e) {
+						throw new DbException("Unable to read the next project graph", e);
+					} // try-catch
+				} // tryAdvance
+			};
+			return timedStream(StreamSupport.stream(graphs, false).onClose(() -> closeInReverse(resources)), timer);
+		} catch(SQLException e) {
+			closeInReverse(resources);
+			timer.close();
+			throw new DbException(e);
+		} catch(RuntimeException e) {
+			closeInReverse(resources);
+			timer.close();
+			throw e;
+		} // try-catch
+	} // streamProjectGraphs
+
+	/*
+	 * Counts the source's elements into the timer and closes the source, then the timer, when the stream is closed.  The timer's
+	 * trace ends as soon as the stream is exhausted or fails: the trace is the thread's current one until then, and a caller
+	 * that reads to the end without closing must not leave later operations on the thread nested under it.  The operation only
+	 * counts as a success if the stream was read to the end; one that failed, or was closed part way, is recorded as an error.
+	 */
+	private static <T> Stream<T> timedStream(Stream<T> source, OperationTimer timer) {
+		Spliterator<T> elements = source.spliterator();
+		AtomicBoolean exhausted = new AtomicBoolean(); // Closing may happen on another thread than reading.
+		Spliterator<T> timed = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				boolean advanced;
+				try {
+					advanced = elements.tryAdvance(action);
+				} catch(RuntimeException e) {
+					timer.endTrace();
+					throw e;
+				} // try-catch
+				if(advanced) {
+					timer.rows(1);
+				} else {
+					exhausted.set(true);
+					timer.endTrace();
+				} // if
+				return advanced;
+			} // tryAdvance
+		};
+		return StreamSupport.stream(timed, false).onClose(() -> {
+			try {
+				source.close();
+				if(exhausted.get()) {
+					timer.success();
+				} // if
+			} finally {
+				timer.close();
+			} // try-finally
+		});
+	} // timedStream
+
+	private ResultSet openCursor(Connection conn, String sql, List<AutoCloseable> resources) throws SQLException {
+		// Not cached: it holds a server-side cursor open for the life of the stream.
+		PreparedStatement stmt = QueryTracer.trace(conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), sql);
+		resources.add(stmt);
+		enableCursorFetch(stmt);
+		ResultSet rs = stmt.executeQuery();
+		resources.add(rs);
+		return rs;
+	} // openCursor
+
+	private static void closeInReverse(List<AutoCloseable> resources) {
+		for(int index = resources.size() - 1; index >= 0; index--) {
+			try {
+				resources.get(index).close();
+			} catch(Exception e) {
+				LOG.log(Level.WARNING, "Unable to close a project graph cursor", e); // Keep going: the connection must still go back.
+			} // try-catch
+		} // for
+	} // closeInReverse
+
+	/*
+	 * One child table's cursor, ordered by project_id, read one project's rows at a time.
+	 */
+	private static final class ChildCursor<T> {
+		private final ResultSet rs;
+		private final RowReader<T> reader;
+		private final int projectIdColumn;
+		private boolean hasRow;
+
+		ChildCursor(ResultSet rs, RowReader<T> reader) throws SQLException {
+			this.rs = rs;
+			this.reader = reader;
+			this.projectIdColumn = rs.findColumn("project_id"); // Category has no projectId field, so the column is read directly.
+			this.hasRow = rs.next();
+		} // constructor
+
+		/*
+		 * The rows of the given project.  Called with rising project IDs; rows of projects before it are skipped (a consistent
+		 * snapshot has none, as the foreign keys cascade).
+		 */
+		List<T> takeFor(int projectId) throws SQLException {
+			List<T> children = new ArrayList<>();
+			while(hasRow) {
+				int rowProjectId = rs.getInt(projectIdColumn);
+				if(rowProjectId > projectId) {
+					break;
+				} // if
+				if(rowProjectId == projectId) {
+					children.add(reader.read(rs));
+				} // if
+				hasRow = rs.next();
+			} // while
+			return children;
+		} // takeFor
+
+	} // ChildCursor
+
+	/*
+	 * Reads the project and material tables into a columnar snapshot for reporting (see ProjectSnapshot).  Both tables are
+	 * streamed, so the only memory used is the snapshot's own arrays, and both are read in one transaction so they agree.
+	 */
+	public ProjectSnapshot fetchProjectSnapshot() {
+		try(OperationTimer timer = Metrics.start("fetchProjectSnapshot"); Connection conn = DbConnection.getConnection()) {
 			startTransaction(conn);
 			try {
-				Project project = null;
-				try(PreparedStatement stmt = conn.prepareStatement(sql)) {
-					setParameter(stmt, 1, projectId, Integer.class);
+				ProjectSnapshot.Builder builder = new ProjectSnapshot.Builder();
+				try(PreparedStatement stmt = prepare(conn, PROJECT_SNAPSHOT_SQL)) {
+					enableStreaming(conn, stmt);
 					try(ResultSet rs = stmt.executeQuery()) {
-						if (rs.next()) {
-							project = extract(rs, Project.class);
-						} // ResultSet if
-					} // single try, 3rd inner try
-					if (Objects.nonNull(project)) {
-						project.getMaterials().addAll(fetchMaterialsForProject(conn, projectId));
-						project.getSteps().addAll(fetchStepsForProject(conn, projectId));
-						project.getCategories().addAll(fetchCategoriesForProject(conn, projectId));
-					} // stmt if
-					commitTransaction(conn);
-					return Optional.ofNullable(project);
-				} // single try, 2nd inner try
+						while(rs.next()) {
+							long estimated = rs.getLong(3);
+							boolean hasEstimated = !rs.wasNull();
+							long actual = rs.getLong(4);
+							boolean hasActual = !rs.wasNull();
+							builder.addProject(rs.getInt(1), rs.getString(2), estimated, hasEstimated, actual, hasActual, rs.getInt(5));
+						} // while
+					} // inner try
+				} // try
+				try(PreparedStatement stmt = prepare(conn, MATERIAL_SNAPSHOT_SQL)) {
+					enableStreaming(conn, stmt);
+					try(ResultSet rs = stmt.executeQuery()) {
+						while(rs.next()) {
+							builder.addMaterial(rs.getInt(1), rs.getInt(2), rs.getLong(3)); // getInt/getLong return 0 for NULL.
+						} // while
+					} // inner try
+				} // try
+				commitTransaction(conn);
+				ProjectSnapshot snapshot = builder.build();
+				timer.rows(snapshot.getProjectCount() + snapshot.getMaterialCount());
+				timer.success();
+				return snapshot;
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchProjectSnapshot
+
+	public Optional<Project> fetchProjectById(Integer projectId) {
+		try(OperationTimer timer = Metrics.start("fetchProjectById"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				// Drivers that can't return several result sets from one statement (e.g. an embedded test database) use the per-table path.
+				Project project;
+				if(graphFetchMode == GraphFetchMode.LAZY) {
+					project = fetchProjectRow(conn, projectId);
+					registerLazy(project);
+				} else {
+					project = graphFetchMode == GraphFetchMode.SINGLE_ROUND_TRIP && conn.getMetaData().supportsMultipleResultSets()
+							? fetchProjectGraph(conn, projectId)
+							: fetchProjectPerTable(conn, projectId);
+				} // if
+				commitTransaction(conn);
+				timer.rows(Objects.isNull(project) ? 0 : 1);
+				timer.success();
+				return Optional.ofNullable(project);
 			} catch(Exception e) {
 				rollbackTransaction(conn);
 				throw new DbException(e);
@@ -168,16 +1010,281 @@ public class ProjectDao extends DaoBase {
 		} // try-catch
 	} // fetchProjectById
 
+	/*
+	 * Loads the full graphs of many projects with four set-based queries per chunk of IDs instead of four queries per project.
+	 * Projects come back in the order their IDs were given; IDs that don't exist are skipped.
+	 */
+	public List<Project> fetchProjectGraphs(Collection<Integer> projectIds) {
+		List<Integer> ids = new ArrayList<>(new LinkedHashSet<>(projectIds)); // Duplicates would only repeat the same rows.
+		if(ids.isEmpty()) {
+			return new ArrayList<>();
+		} // if
+		try(OperationTimer timer = Metrics.start("fetchProjectGraphs"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				Map<Integer, Project> projectsById = new HashMap<>(ids.size() * 4 / 3 + 1);
+				for(int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+					List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+					fetchProjectGraphChunk(conn, chunk, projectsById);
+				} // for
+				commitTransaction(conn);
+				List<Project> projects = new ArrayList<>(projectsById.size());
+				for(Integer projectId : ids) {
+					Project project = projectsById.get(projectId);
+					if(Objects.nonNull(project)) {
+						projects.add(project);
+					} // if
+				} // for
+				timer.rows(projects.size());
+				timer.success();
+				return projects;
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchProjectGraphs
+
+	private void fetchProjectGraphChunk(Connection conn, List<Integer> chunk, Map<Integer, Project> projectsById) throws SQLException {
+		String in = paddedInList(chunk.size(), IN_CLAUSE_CHUNK_SIZE); // Tails padded, so few distinct statements.
+
+		try(PreparedStatement stmt = prepare(conn, PROJECTS_IN_PREFIX + in)) {
+			setIdParameters(stmt, chunk);
+			try(ResultSet rs = stmt.executeQuery()) {
+				RowMapper<Project> projectMapper = mapper(rs, Project.class);
+				while(rs.next()) {
+					Project project = projectMapper.map(rs);
+					projectsById.put(project.getProjectId(), project);
+				} // while
+			} // inner try
+		} // try
+
+		// Each child row carries its project_id, so one pass over each result set attaches it to its parent.
+		try(PreparedStatement stmt = prepare(conn, MATERIALS_IN_PREFIX + in)) {
+			setIdParameters(stmt, chunk);
+			try(ResultSet rs = stmt.executeQuery()) {
+				RowMapper<Material> materialMapper = mapper(rs, Material.class);
+				while(rs.next()) {
+					Material material = materialMapper.map(rs);
+					projectsById.get(material.getProjectId()).getMaterials().add(material);
+				} // while
+			} // inner try
+		} // try
+
+		try(PreparedStatement stmt = prepare(conn, STEPS_IN_PREFIX + in + STEPS_IN_ORDER)) {
+			setIdParameters(stmt, chunk);
+			try(ResultSet rs = stmt.executeQuery()) {
+				RowMapper<Step> stepMapper = mapper(rs, Step.class);
+				while(rs.next()) {
+					Step step = stepMapper.map(rs);
+					projectsById.get(step.getProjectId()).getSteps().add(step);
+				} // while
+			} // inner try
+		} // try
+
+		try(PreparedStatement stmt = prepare(conn, CATEGORIES_IN_PREFIX + in)) {
+			setIdParameters(stmt, chunk);
+			try(ResultSet rs = stmt.executeQuery()) {
+				RowReader<Category> categoryReader = categoryReader(conn, rs);
+				while(rs.next()) {
+					// Category has no projectId field, so the link column is read by position.
+					projectsById.get(rs.getInt(1)).getCategories().add(categoryReader.read(rs));
+				} // while
+			} // inner try
+		} // try
+	} // fetchProjectGraphChunk
+
+	private void setIdParameters(PreparedStatement stmt, List<Integer> ids) throws SQLException {
+		setPaddedIdParameters(stmt, 1, ids, IN_CLAUSE_CHUNK_SIZE);
+	} // setIdParameters
+
+	/*
+	 * Registers a listener for writes made through any ProjectDao.
+	 */
+	public static void addChangeListener(ProjectChangeListener listener) {
+		CHANGE_LISTENERS.add(Objects.requireNonNull(listener));
+	}
+
+	public static void removeChangeListener(ProjectChangeListener listener) {
+		CHANGE_LISTENERS.remove(listener);
+	}
+
+	static void fireChange(Consumer<ProjectChangeListener> event) {
+		for(ProjectChangeListener listener : CHANGE_LISTENERS) {
+			try {
+				event.accept(listener);
+			} catch(RuntimeException e) {
+				LOG.log(Level.WARNING, "Project change listener " + listener + " failed", e); // The write itself already committed.
+			} // try-catch
+		} // for
+	} // fireChange
+
+	/*
+	 * In LAZY mode, attaches the project to the current load session so its child lists load on first use.
+	 */
+	private void registerLazy(Project project) {
+		if(graphFetchMode == GraphFetchMode.LAZY && Objects.nonNull(project)) {
+			getLoadSession().register(project);
+		} // if
+	} // registerLazy
+
+	/*
+	 * Starts a new LAZY-mode session for the calling thread: projects it reads from now on batch their child loads with each
+	 * other, not with projects read earlier (which keep loading through the old session) or by other threads.  Start one per
+	 * unit of work, e.g. per screen or request, and end it when the work is done on a thread that is reused.
+	 */
+	public LazyLoadSession startLoadSession() {
+		LazyLoadSession session = new LazyLoadSession(this);
+		loadSession.set(session);
+		return session;
+	} // startLoadSession
+
+	/*
+	 * Lets go of the calling thread's session.  Projects it handed out still load their children through it.
+	 */
+	public void endLoadSession() {
+		loadSession.remove();
+	}
+
+	/*
+	 * The calling thread's session, started if it has none.
+	 */
+	public LazyLoadSession getLoadSession() {
+		LazyLoadSession session = loadSession.get();
+		return Objects.isNull(session) ? startLoadSession() : session;
+	} // getLoadSession
+
+	/*
+	 * Reads one child collection for every project in the batch with IN queries, and sets it (empty if there are no rows) on
+	 * each.  Returns the number of child rows read.
+	 */
+	int loadChildren(Connection conn, Map<Integer, Project> batch, ProjectChild child) throws SQLException {
+		List<Integer> ids = new ArrayList<>(batch.keySet());
+		Map<Integer, List<Object>> byProject = new HashMap<>(ids.size() * 4 / 3 + 1);
+		int rows = 0;
+		for(int from = 0; from < ids.size(); from += IN_CLAUSE_CHUNK_SIZE) {
+			List<Integer> chunk = ids.subList(from, Math.min(from + IN_CLAUSE_CHUNK_SIZE, ids.size()));
+			String in = paddedInList(chunk.size(), IN_CLAUSE_CHUNK_SIZE); // Tails padded, so few distinct statements.
+			String sql = switch(child) {
+				case MATERIALS -> MATERIALS_IN_PREFIX + in;
+				case STEPS -> STEPS_IN_PREFIX + in + STEPS_IN_ORDER;
+				case CATEGORIES -> CATEGORIES_IN_PREFIX + in;
+			};
+			try(PreparedStatement stmt = prepare(conn, sql)) {
+				setIdParameters(stmt, chunk);
+				try(ResultSet rs = stmt.executeQuery()) {
+					RowReader<?> reader = switch(child) {
+						case MATERIALS -> mapper(rs, Material.class)::map;
+						case STEPS -> mapper(rs, Step.class)::map;
+						case CATEGORIES -> categoryReader(conn, rs);
+					};
+					int projectIdColumn = rs.findColumn("project_id"); // Category has no projectId field; the link column is read directly.
+					while(rs.next()) {
+						byProject.computeIfAbsent(rs.getInt(projectIdColumn), id -> new ArrayList<>()).add(reader.read(rs));
+						rows++;
+					} // while
+				} // inner try
+			} // try
+		} // for
+		for(Project project : batch.values()) {
+			List<Object> children = byProject.getOrDefault(project.getProjectId(), new ArrayList<>());
+			setChildren(project, child, children);
+		} // for
+		return rows;
+	} // loadChildren
+
+	@SuppressWarnings("unchecked")
+	private static void setChildren(Project project, ProjectChild child, List<?> children) {
+		switch(child) {
+		case MATERIALS:
+			project.setMaterials((List<Material>)children);
+			break;
+		case STEPS:
+			project.setSteps((List<Step>)children);
+			break;
+		default:
+			project.setCategories((List<Category>)children);
+			break;
+		} // switch
+	} // setChildren
+
+	public GraphFetchMode getGraphFetchMode() {
+		return graphFetchMode;
+	}
+
+	public void setGraphFetchMode(GraphFetchMode graphFetchMode) {
+		this.graphFetchMode = graphFetchMode;
+	}
+
+	private Project fetchProjectPerTable(Connection conn, Integer projectId) throws SQLException {
+		Project project = fetchProjectRow(conn, projectId);
+		if (Objects.nonNull(project)) {
+			project.setMaterials(fetchMaterialsForProject(conn, projectId));
+			project.setSteps(fetchStepsForProject(conn, projectId));
+			project.setCategories(fetchCategoriesForProject(conn, projectId));
+		} // if
+		return project;
+	} // fetchProjectPerTable
+
+	private Project fetchProjectRow(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, PROJECT_BY_ID_SQL)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? extract(rs, Project.class) : null;
+			} // inner try
+		} // try
+	} // fetchProjectRow
+
+	/*
+	 * Sends all four SELECTs as one multi-statement batch and walks the result sets in order, so the whole graph costs a single
+	 * round trip.  Needs allowMultiQueries=true on the MySQL URL (see DbConnection).
+	 */
+	private Project fetchProjectGraph(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, PROJECT_GRAPH_SQL)) {
+			for(int index = 1; index <= 4; index++) {
+				setParameter(stmt, index, projectId, Integer.class); // Every statement in the batch takes the same project ID.
+			} // for
+			if(!stmt.execute()) {
+				throw new SQLException("The project graph query did not return a result set.");
+			} // if
+			Project project = null;
+			try(ResultSet rs = stmt.getResultSet()) {
+				if(rs.next()) {
+					project = extract(rs, Project.class);
+				} // if
+			} // try
+			if(Objects.isNull(project)) {
+				return null; // The child result sets are empty too; closing the statement discards them.
+			} // if
+			readNextResultSet(stmt, "Material", rs -> mapper(rs, Material.class)::map, project.getMaterials());
+			readNextResultSet(stmt, "Step", rs -> mapper(rs, Step.class)::map, project.getSteps());
+			readNextResultSet(stmt, "Category", rs -> categoryReader(conn, rs), project.getCategories());
+			return project;
+		} // try
+	} // fetchProjectGraph
+
+	private <T> void readNextResultSet(PreparedStatement stmt, String what, RowReaderFactory<T> readers, List<T> target) throws SQLException {
+		if(!stmt.getMoreResults()) {
+			throw new SQLException("Expected another result set for " + what + ".  Is allowMultiQueries enabled?");
+		} // if
+		try(ResultSet rs = stmt.getResultSet()) {
+			RowReader<T> reader = readers.forResultSet(rs);
+			while(rs.next()) {
+				target.add(reader.read(rs));
+			} // while
+		} // try
+	} // readNextResultSet
+
 	private List<Material> fetchMaterialsForProject(Connection conn, Integer projectId) throws SQLException {
-		//@formatter:off
-		String sql = "SELECT * FROM " + MATERIAL_TABLE + " m WHERE m.project_id = ?";
-		//@formatter:on
-		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		try(PreparedStatement stmt = prepare(conn, MATERIALS_BY_PROJECT_SQL)) {
 			setParameter(stmt, 1, projectId, Integer.class);
 			try(ResultSet rs = stmt.executeQuery()) {
-				List<Material> materials = new LinkedList<Material>();
+				List<Material> materials = new ArrayList<>();
+				RowMapper<Material> materialMapper = mapper(rs, Material.class);
 				while(rs.next()) {
-					Material material = extract(rs, Material.class);
+					Material material = materialMapper.map(rs);
 					materials.add(material);
 				} // while
 				return materials;
@@ -186,13 +1293,13 @@ public class ProjectDao extends DaoBase {
 	} // fetchMaterialsForProject
 
 	private List<Step> fetchStepsForProject(Connection conn, Integer projectId) throws SQLException {
-		String sql = "SELECT * FROM " + STEP_TABLE + " s WHERE s.project_id = ?"; 
-		try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+		try(PreparedStatement stmt = prepare(conn, STEPS_BY_PROJECT_SQL)) {
 			setParameter(stmt, 1, projectId, Integer.class);
 			try(ResultSet rs = stmt.executeQuery()) {
-				List<Step> steps = new LinkedList<Step>();
+				List<Step> steps = new ArrayList<>();
+				RowMapper<Step> stepMapper = mapper(rs, Step.class);
 				while(rs.next()) {
-					steps.add(extract(rs, Step.class));
+					steps.add(stepMapper.map(rs));
 				} // while
 				return steps;
 				} // ResultSet if
@@ -200,23 +1307,26 @@ public class ProjectDao extends DaoBase {
 	} // fetchStepsForProject
 
 	private List<Category> fetchCategoriesForProject(Connection conn, Integer projectId) throws SQLException {
-		//@formatter:off
-			String sql = ""
-				+ "SELECT c.* FROM " + CATEGORY_TABLE + " c "
-				+ "JOIN " + PROJECT_CATEGORY_TABLE + " pc USING (category_id) "
-				+ "WHERE project_id = ?";
-		//@formatter:on
-			try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+			try(PreparedStatement stmt = prepare(conn, CATEGORIES_BY_PROJECT_SQL)) {
 				setParameter(stmt, 1, projectId, Integer.class);
 				try(ResultSet rs = stmt.executeQuery()) {
-					List<Category> categories = new LinkedList<>();
+					List<Category> categories = new ArrayList<>();
+					RowReader<Category> categoryReader = categoryReader(conn, rs);
 					while(rs.next()) {
-						categories.add(extract(rs, Category.class));
+						categories.add(categoryReader.read(rs));
 					} // while
 					return categories;
 				} // inner try
 			} // try
 	} // fetchCategoriesForProject
 
+	/*
+	 * Reads a link row's category_id and returns the shared Category for it, so no query touches the category table.
+	 */
+	private RowReader<Category> categoryReader(Connection conn, ResultSet rs) throws SQLException {
+		int categoryIdColumn = rs.findColumn("category_id");
+		return row -> categoryDao.resolve(conn, row.getInt(categoryIdColumn));
+	} // categoryReader
+
 
 } // class
@@ -0,0 +1,18 @@
+package projects.dao;
+
+import java.util.List;
+import java.util.Objects;
+
+import projects.entity.Project;
+
+/*
+ * One page of a keyset-paginated project listing.  nextPageToken is null on the last page; otherwise pass it back to
+ * fetchProjectPage to get the page that follows.
+ */
+public record ProjectPage(List<Project> projects, String nextPageToken) {
+
+	public boolean hasNextPage() {
+		return Objects.nonNull(nextPageToken);
+	}
+
+} // record
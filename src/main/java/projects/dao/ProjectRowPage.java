@@ -0,0 +1,18 @@
+package projects.dao;
+
+import java.util.List;
+import java.util.Objects;
+
+import projects.entity.ProjectRow;
+
+/*
+ * One page of a keyset-paginated listing of ProjectRows.  nextPageToken is null on the last page; otherwise pass it back to
+ * fetchProjectRowPage to get the page that follows.
+ */
+public record ProjectRowPage(List<ProjectRow> rows, String nextPageToken) {
+
+	public boolean hasNextPage() {
+		return Objects.nonNull(nextPageToken);
+	}
+
+} // record
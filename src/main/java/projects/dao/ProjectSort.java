@@ -0,0 +1,21 @@
+package projects.dao;
+
+/*
+ * The sort keys a project listing can be paged by.  Every key is paired with project_id as a tie-breaker, so the
+ * (key, project_id) pair is unique and a page can pick up exactly where the previous one stopped.
+ */
+public enum ProjectSort {
+	ID("project_id"),
+	NAME("project_name");
+
+	private final String column;
+
+	private ProjectSort(String column) {
+		this.column = column;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+} // enum
@@ -0,0 +1,87 @@
+package projects.dao;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import projects.entity.Project;
+import projects.entity.ProjectField;
+
+/*
+ * New values for some of one project's columns.  A field that is absent is left alone; a field present with a null value is
+ * set to NULL.  Not thread-safe.
+ */
+public class ProjectUpdate {
+	private final Integer projectId;
+	private final Map<ProjectField, Object> values = new EnumMap<>(ProjectField.class);
+
+	public ProjectUpdate(Integer projectId) {
+		this.projectId = Objects.requireNonNull(projectId);
+	}
+
+	/*
+	 * An update of the fields changed on the project since it was read (every field set, for a Project built from scratch).
+	 */
+	public static ProjectUpdate changesOf(Project project) {
+		ProjectUpdate update = new ProjectUpdate(project.getProjectId());
+		for(ProjectField field : project.getChangedFields()) {
+			update.set(field, field.get(project));
+		} // for
+		return update;
+	} // changesOf
+
+	public ProjectUpdate set(ProjectField field, Object value) {
+		if(Objects.nonNull(value) && !field.getType().isInstance(value)) {
+			throw new IllegalArgumentException(field + " needs a " + field.getType().getSimpleName() + ", not " + value.getClass().getSimpleName());
+		} // if
+		values.put(field, value);
+		return this;
+	} // set
+
+	/*
+	 * Takes every field the later update sets; fields only this one sets are kept.
+	 */
+	public void merge(ProjectUpdate later) {
+		if(!projectId.equals(later.projectId)) {
+			throw new IllegalArgumentException("Cannot merge an update of project " + later.projectId + " into one of project " + projectId);
+		} // if
+		values.putAll(later.values);
+	} // merge
+
+	/*
+	 * Copies the updated fields onto the project.
+	 */
+	public void applyTo(Project project) {
+		values.forEach((field, value) -> field.set(project, value));
+	}
+
+	public Integer getProjectId() {
+		return projectId;
+	}
+
+	public Set<ProjectField> getFields() {
+		return Collections.unmodifiableSet(values.keySet());
+	}
+
+	public Object get(ProjectField field) {
+		return values.get(field);
+	}
+
+	public boolean isEmpty() {
+		return values.isEmpty();
+	}
+
+	public ProjectUpdate copy() {
+		ProjectUpdate copy = new ProjectUpdate(projectId);
+		copy.values.putAll(values);
+		return copy;
+	}
+
+	@Override
+	public String toString() {
+		return "ProjectUpdate [projectId=" + projectId + ", values=" + values + "]";
+	}
+
+} // class
@@ -0,0 +1,135 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import provided.util.QueryTracer;
+
+/*
+ * Runs EXPLAIN (MySQL's tabular format) on the DAO's own queries and checks that each access path uses the index meant for
+ * it: an index lookup rather than a scan, no filesort where the index supplies the order, and index-only reads for the
+ * roll-ups.  The queries are the DAO's SQL constants with sample values bound, so the checks can't drift from the code.
+ *
+ * The optimizer prefers scans on tiny tables, so run this against a realistically sized database.
+ */
+public class QueryPlanVerifier {
+
+	private static final Set<String> LOOKUP_TYPES = Set.of("system", "const", "eq_ref", "ref", "ref_or_null", "range");
+
+	public enum Requirement {
+		INDEX_LOOKUP, NO_FILESORT, COVERING
+	}
+
+	/*
+	 * One table of one query's plan, and what it must look like.
+	 */
+	record PlanCheck(String name, String sql, String table, Set<Requirement> requirements) {
+	}
+
+	public record PlanCheckResult(String name, String table, String type, String key, String extra, List<String> problems) {
+
+		public boolean passed() {
+			return problems.isEmpty();
+		}
+
+		@Override
+		public String toString() {
+			return (passed() ? "OK    " : "FAIL  ") + name + " [" + table + "] type=" + type + ", key=" + key + ", extra=" + extra
+					+ (passed() ? "" : " - " + String.join("; ", problems));
+		}
+
+	} // record
+
+	//@formatter:off
+	private static final List<PlanCheck> CHECKS = List.of(
+			new PlanCheck("fetchProjectById", bind(ProjectDao.PROJECT_BY_ID_SQL, "1"), "project",
+					EnumSet.of(Requirement.INDEX_LOOKUP)),
+			new PlanCheck("fetchMaterialsForProject", bind(ProjectDao.MATERIALS_BY_PROJECT_SQL, "1"), "m",
+					EnumSet.of(Requirement.INDEX_LOOKUP)),
+			new PlanCheck("fetchStepsForProject", bind(ProjectDao.STEPS_BY_PROJECT_SQL, "1"), "s",
+					EnumSet.of(Requirement.INDEX_LOOKUP, Requirement.NO_FILESORT)),
+			new PlanCheck("fetchCategoriesForProject", bind(ProjectDao.CATEGORIES_BY_PROJECT_SQL, "1"), "pc",
+					EnumSet.of(Requirement.INDEX_LOOKUP, Requirement.COVERING)),
+			new PlanCheck("fetchProjectPage(ID, next)", bind(ProjectDao.NEXT_PAGE_SQL.get(ProjectSort.ID), "1", "26"), "project",
+					EnumSet.of(Requirement.INDEX_LOOKUP, Requirement.NO_FILESORT)),
+			new PlanCheck("fetchProjectPage(NAME, first)", bind(ProjectDao.FIRST_PAGE_SQL.get(ProjectSort.NAME), "26"), "project",
+					EnumSet.of(Requirement.NO_FILESORT)),
+			new PlanCheck("fetchProjectPage(NAME, next)", bind(ProjectDao.NEXT_PAGE_SQL.get(ProjectSort.NAME), "'M'", "'M'", "1", "26"), "project",
+					EnumSet.of(Requirement.INDEX_LOOKUP, Requirement.NO_FILESORT)),
+			new PlanCheck("fetchProjectCosts", ReportDao.PROJECT_COSTS_SQL, "m",
+					EnumSet.of(Requirement.INDEX_LOOKUP, Requirement.COVERING)),
+			new PlanCheck("fetchEstimateAccuracy", ReportDao.ESTIMATE_ACCURACY_SQL, "project",
+					EnumSet.of(Requirement.COVERING, Requirement.NO_FILESORT)));
+	//@formatter:on
+
+	public List<PlanCheckResult> verify() {
+		List<PlanCheckResult> results = new ArrayList<>();
+		try(OperationTimer timer = Metrics.start("verifyQueryPlans"); Connection conn = DbConnection.getConnection();
+				Statement stmt = QueryTracer.trace(conn.createStatement())) {
+			for(PlanCheck check : CHECKS) {
+				results.add(verify(stmt, check));
+			} // for
+			timer.rows(results.size());
+			timer.success();
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		return results;
+	} // verify
+
+	private PlanCheckResult verify(Statement stmt, PlanCheck check) throws SQLException {
+		try(ResultSet rs = stmt.executeQuery("EXPLAIN " + check.sql())) {
+			while(rs.next()) {
+				if(!check.table().equals(rs.getString("table"))) {
+					continue;
+				} // if
+				String type = rs.getString("type");
+				String key = rs.getString("key");
+				String extra = Objects.requireNonNullElse(rs.getString("Extra"), "");
+				List<String> problems = new ArrayList<>();
+				if(check.requirements().contains(Requirement.INDEX_LOOKUP) && (Objects.isNull(key) || !LOOKUP_TYPES.contains(type))) {
+					problems.add("expected an index lookup");
+				} // if
+				if(check.requirements().contains(Requirement.NO_FILESORT) && extra.contains("filesort")) {
+					problems.add("sorts instead of reading in index order");
+				} // if
+				if(check.requirements().contains(Requirement.COVERING) && !extra.contains("Using index")) {
+					problems.add("reads table rows instead of only the index");
+				} // if
+				return new PlanCheckResult(check.name(), check.table(), type, key, extra, problems);
+			} // while
+		} // try
+		return new PlanCheckResult(check.name(), check.table(), null, null, null,
+				List.of("table is not in the plan (the optimizer may have resolved it from an empty table)"));
+	} // verify
+
+	/*
+	 * Replaces each ? in turn with the given SQL literal.
+	 */
+	private static String bind(String sql, String... literals) {
+		StringBuilder bound = new StringBuilder();
+		int next = 0;
+		for(char c : sql.toCharArray()) {
+			if(c == '?') {
+				bound.append(literals[next++]);
+			} else {
+				bound.append(c);
+			} // if
+		} // for
+		if(next != literals.length) {
+			throw new IllegalArgumentException("Expected " + next + " values for: " + sql);
+		} // if
+		return bound.toString();
+	} // bind
+
+} // class
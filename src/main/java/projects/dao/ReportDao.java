@@ -0,0 +1,190 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import projects.analytics.CategorySpend;
+import projects.analytics.EstimateAccuracy;
+import projects.analytics.ProjectCost;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import provided.util.DaoBase;
+
+/*
+ * Roll-up queries for reporting.  The aggregation happens in the database (GROUP BY), so only one row per project or
+ * category comes back.  When summary tables are on (see SummaryTables) the cost reports read them instead of the materials.
+ */
+public class ReportDao extends DaoBase {
+
+	//@formatter:off
+	static final String PROJECT_COSTS_SQL = ""
+			+ "SELECT p.project_id, p.project_name, COUNT(m.material_id), COALESCE(SUM(m.num_required * m.cost), 0), "
+			+ "p.estimated_hours, p.actual_hours "
+			+ "FROM project p LEFT JOIN material m ON m.project_id = p.project_id "
+			+ "GROUP BY p.project_id, p.project_name, p.estimated_hours, p.actual_hours "
+			+ "ORDER BY p.project_id";
+	private static final String PROJECT_COSTS_FROM_SUMMARY_SQL = ""
+			+ "SELECT p.project_id, p.project_name, COALESCE(s.material_count, 0), COALESCE(s.total_cost, 0), "
+			+ "p.estimated_hours, p.actual_hours "
+			+ "FROM project p LEFT JOIN project_cost_summary s ON s.project_id = p.project_id "
+			+ "ORDER BY p.project_id";
+	private static final String CATEGORY_SPEND_SQL = ""
+			+ "SELECT c.category_id, c.category_name, COUNT(pc.project_id), COALESCE(SUM(pcost.total_cost), 0) "
+			+ "FROM category c "
+			+ "LEFT JOIN project_category pc ON pc.category_id = c.category_id "
+			+ "LEFT JOIN (SELECT project_id, SUM(num_required * cost) AS total_cost FROM material GROUP BY project_id) pcost "
+			+ "ON pcost.project_id = pc.project_id "
+			+ "GROUP BY c.category_id, c.category_name "
+			+ "ORDER BY c.category_id";
+	private static final String CATEGORY_SPEND_FROM_SUMMARY_SQL = ""
+			+ "SELECT c.category_id, c.category_name, COALESCE(s.project_count, 0), COALESCE(s.total_cost, 0) "
+			+ "FROM category c LEFT JOIN category_spend_summary s ON s.category_id = c.category_id "
+			+ "ORDER BY c.category_id";
+	static final String ESTIMATE_ACCURACY_SQL = ""
+			+ "SELECT difficulty, COUNT(*), SUM(estimated_hours), SUM(actual_hours), SUM(ABS(actual_hours - estimated_hours)), "
+			+ "SUM(CASE WHEN actual_hours > estimated_hours THEN 1 ELSE 0 END), "
+			+ "SUM(CASE WHEN actual_hours < estimated_hours THEN 1 ELSE 0 END) "
+			+ "FROM project "
+			+ "WHERE estimated_hours IS NOT NULL AND actual_hours IS NOT NULL "
+			+ "GROUP BY difficulty "
+			+ "ORDER BY difficulty";
+	//@formatter:on
+
+	private final SummaryTables summaryTables = new SummaryTables();
+
+	public List<ProjectCost> fetchProjectCosts() {
+		try(OperationTimer timer = Metrics.start("fetchProjectCosts"); Connection conn = DbConnection.getConnection()) {
+			String sql = summaryTables.isReadable(conn) ? PROJECT_COSTS_FROM_SUMMARY_SQL : PROJECT_COSTS_SQL;
+			try(PreparedStatement stmt = prepare(conn, sql); ResultSet rs = stmt.executeQuery()) {
+				List<ProjectCost> costs = new ArrayList<>();
+				while(rs.next()) {
+					costs.add(new ProjectCost(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getBigDecimal(4), rs.getBigDecimal(5),
+							rs.getBigDecimal(6)));
+				} // while
+				timer.rows(costs.size());
+				timer.success();
+				return costs;
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchProjectCosts
+
+	public List<CategorySpend> fetchCategorySpend() {
+		try(OperationTimer timer = Metrics.start("fetchCategorySpend"); Connection conn = DbConnection.getConnection()) {
+			String sql = summaryTables.isReadable(conn) ? CATEGORY_SPEND_FROM_SUMMARY_SQL : CATEGORY_SPEND_SQL;
+			try(PreparedStatement stmt = prepare(conn, sql); ResultSet rs = stmt.executeQuery()) {
+				List<CategorySpend> spend = new ArrayList<>();
+				while(rs.next()) {
+					spend.add(new CategorySpend(rs.getInt(1), rs.getString(2), rs.getInt(3), rs.getBigDecimal(4)));
+				} // while
+				timer.rows(spend.size());
+				timer.success();
+				return spend;
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchCategorySpend
+
+	/*
+	 * Estimate accuracy per difficulty.  Projects without a difficulty form a group whose difficulty is null.
+	 */
+	public List<EstimateAccuracy> fetchEstimateAccuracy() {
+		try(OperationTimer timer = Metrics.start("fetchEstimateAccuracy"); Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = prepare(conn, ESTIMATE_ACCURACY_SQL); ResultSet rs = stmt.executeQuery()) {
+				List<EstimateAccuracy> groups = new ArrayList<>();
+				while(rs.next()) {
+					Integer difficulty = rs.getInt(1);
+					if(rs.wasNull()) {
+						difficulty = null;
+					} // if
+					groups.add(new EstimateAccuracy(difficulty, rs.getInt(2), zeroIfNull(rs.getBigDecimal(3)), zeroIfNull(rs.getBigDecimal(4)),
+							zeroIfNull(rs.getBigDecimal(5)), rs.getInt(6), rs.getInt(7)));
+				} // while
+				timer.rows(groups.size());
+				timer.success();
+				return groups;
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchEstimateAccuracy
+
+	public boolean isSummariesEnabled() {
+		try(Connection conn = DbConnection.getConnection()) {
+			return summaryTables.isReadable(conn);
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // isSummariesEnabled
+
+	/*
+	 * Turns the summary tables on or off, for every instance using the database.  Turning them on rebuilds them: they are
+	 * BUILDING (maintained by writers, not read) from a first commit until the rebuild's own commit switches them ON.  Maintenance
+	 * starts before the rebuild so that writes landing during it still reach the summaries; for an exact starting point, turn them
+	 * on while writes are quiet.
+	 */
+	public void setSummariesEnabled(boolean enabled) {
+		saveSummariesState(enabled ? SummaryTables.State.BUILDING : SummaryTables.State.OFF);
+		if(!enabled) {
+			return;
+		} // if
+		try {
+			rebuildSummaries();
+		} catch(RuntimeException e) {
+			saveSummariesState(SummaryTables.State.OFF); // Nobody reads them; stop the writers paying for them.
+			throw e;
+		} // try-catch
+	} // setSummariesEnabled
+
+	/*
+	 * Recomputes the summary tables from the detail tables, e.g. after rows were changed outside this application.  Summaries
+	 * that were BUILDING are ON once this commits.
+	 */
+	public void rebuildSummaries() {
+		try(OperationTimer timer = Metrics.start("rebuildSummaries"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				summaryTables.rebuild(conn);
+				if(summaryTables.fetchState(conn) == SummaryTables.State.BUILDING) {
+					summaryTables.saveState(conn, SummaryTables.State.ON); // Readers switch over exactly when the rebuilt rows appear.
+				} // if
+				commitTransaction(conn);
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // rebuildSummaries
+
+	private void saveSummariesState(SummaryTables.State state) {
+		try(Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				summaryTables.saveState(conn, state);
+				commitTransaction(conn);
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // saveSummariesState
+
+	private static BigDecimal zeroIfNull(BigDecimal value) {
+		return Objects.isNull(value) ? BigDecimal.ZERO : value;
+	}
+
+} // class
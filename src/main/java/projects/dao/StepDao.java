@@ -0,0 +1,298 @@
+package projects.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import projects.entity.Step;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import provided.util.DaoBase;
+import provided.util.RowMapper;
+
+/*
+ * Keeps a project's steps in order using sparse order keys.  Steps are numbered ORDER_GAP apart, so a step inserted between
+ * two others takes the midpoint of their keys: one lookup on the (project_id, step_order) index and one INSERT, however many
+ * steps the project has, and no other row changes.  Only when two neighbours' keys have no room left between them are the
+ * project's steps renumbered, which a background sweep (findCrowdedProjects) normally does before that happens.
+ *
+ * Writes lock the project row first, so concurrent edits of one project's steps take turns.
+ */
+public class StepDao extends DaoBase {
+
+	public static final int ORDER_GAP = 1024;
+
+	private static final String STEP_TABLE = "step";
+
+	//@formatter:off
+	private static final String LOCK_PROJECT_SQL = "SELECT project_id FROM project WHERE project_id = ? FOR UPDATE";
+	private static final String STEPS_IN_ORDER_SQL = ""
+			+ "SELECT * FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order, step_id";
+	private static final String STEP_ORDER_SQL = "SELECT step_order FROM " + STEP_TABLE + " WHERE step_id = ? AND project_id = ?";
+	private static final String LAST_ORDER_SQL = "SELECT MAX(step_order) FROM " + STEP_TABLE + " WHERE project_id = ?";
+	private static final String NEXT_ORDER_SQL = "SELECT MIN(step_order) FROM " + STEP_TABLE + " WHERE project_id = ? AND step_order > ?";
+	private static final String INSERT_STEP_SQL = ""
+			+ "INSERT INTO " + STEP_TABLE + " (project_id, step_text, step_order) VALUES (?, ?, ?)";
+	private static final String STEP_IDS_IN_ORDER_SQL = ""
+			+ "SELECT step_id FROM " + STEP_TABLE + " WHERE project_id = ? ORDER BY step_order, step_id";
+	private static final String CROWDED_PROJECTS_SQL = ""
+			+ "SELECT DISTINCT project_id FROM ("
+			+ "SELECT project_id, step_order - LAG(step_order) OVER (PARTITION BY project_id ORDER BY step_order, step_id) AS gap "
+			+ "FROM " + STEP_TABLE + ") gaps "
+			+ "WHERE gap < ?";
+	//@formatter:on
+
+	private static final Map<Integer, String> ASSIGN_ORDERS_SQL = new ConcurrentHashMap<>(); // By padded chunk size.
+
+	/*
+	 * All of a project's steps, in order.
+	 */
+	public List<Step> fetchSteps(Integer projectId) {
+		try(OperationTimer timer = Metrics.start("fetchSteps"); Connection conn = DbConnection.getConnection()) {
+			List<Step> steps = fetchSteps(conn, projectId);
+			timer.rows(steps.size());
+			timer.success();
+			return steps;
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // fetchSteps
+
+	/*
+	 * Adds a step after the project's current last step.
+	 */
+	public Step appendStep(Integer projectId, String stepText) {
+		return insertStep("appendStep", projectId, null, stepText, true);
+	}
+
+	/*
+	 * Inserts a step directly after the given step, or first if afterStepId is null.
+	 */
+	public Step insertStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		return insertStep("insertStepAfter", projectId, afterStepId, stepText, false);
+	}
+
+	/*
+	 * Puts the project's steps in the given order with one UPDATE (a CASE over the step IDs), spacing the keys ORDER_GAP apart
+	 * again.  The list must name every step of the project exactly once.
+	 */
+	public void reorderSteps(Integer projectId, List<Integer> stepIdsInOrder) {
+		try(OperationTimer timer = Metrics.start("reorderSteps"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				lockProject(conn, projectId);
+				List<Integer> current = fetchStepIds(conn, projectId);
+				if(current.size() != stepIdsInOrder.size() || !new LinkedHashSet<>(current).equals(new LinkedHashSet<>(stepIdsInOrder))) {
+					throw new DbException("The new order must list each of project " + projectId + "'s " + current.size() + " steps exactly once.");
+				} // if
+				int updated = assignOrders(conn, projectId, stepIdsInOrder);
+				commitTransaction(conn);
+				timer.rows(updated);
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw e instanceof DbException ? (DbException)e : new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		ProjectDao.fireChange(listener -> listener.projectStepsChanged(projectId));
+	} // reorderSteps
+
+	/*
+	 * Respaces the project's step keys ORDER_GAP apart without changing their order.
+	 */
+	public void renumberSteps(Integer projectId) {
+		try(OperationTimer timer = Metrics.start("renumberSteps"); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				lockProject(conn, projectId);
+				int updated = assignOrders(conn, projectId, fetchStepIds(conn, projectId));
+				commitTransaction(conn);
+				timer.rows(updated);
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		ProjectDao.fireChange(listener -> listener.projectStepsChanged(projectId));
+	} // renumberSteps
+
+	/*
+	 * Projects where two neighbouring steps' keys are less than minGap apart, i.e. that will soon need renumbering.
+	 */
+	public List<Integer> findCrowdedProjects(int minGap) {
+		try(OperationTimer timer = Metrics.start("findCrowdedProjects"); Connection conn = DbConnection.getConnection()) {
+			try(PreparedStatement stmt = prepare(conn, CROWDED_PROJECTS_SQL)) {
+				setParameter(stmt, 1, minGap, Integer.class);
+				try(ResultSet rs = stmt.executeQuery()) {
+					List<Integer> projectIds = new ArrayList<>();
+					while(rs.next()) {
+						projectIds.add(rs.getInt(1));
+					} // while
+					timer.rows(projectIds.size());
+					timer.success();
+					return projectIds;
+				} // inner try
+			} // try
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+	} // findCrowdedProjects
+
+	private Step insertStep(String operation, Integer projectId, Integer afterStepId, String stepText, boolean append) {
+		Step step = new Step();
+		step.setProjectId(projectId);
+		step.setStepText(stepText);
+		try(OperationTimer timer = Metrics.start(operation); Connection conn = DbConnection.getConnection()) {
+			startTransaction(conn);
+			try {
+				lockProject(conn, projectId);
+				Integer order = append ? orderAfterLast(conn, projectId) : orderAfter(conn, projectId, afterStepId);
+				if(Objects.isNull(order)) {
+					assignOrders(conn, projectId, fetchStepIds(conn, projectId)); // No room between the neighbours: respace, then retry.
+					order = orderAfter(conn, projectId, afterStepId);
+				} // if
+				step.setStepOrder(order);
+				try(PreparedStatement stmt = prepare(conn, INSERT_STEP_SQL, Statement.RETURN_GENERATED_KEYS)) {
+					setParameter(stmt, 1, projectId, Integer.class);
+					setParameter(stmt, 2, stepText, String.class);
+					setParameter(stmt, 3, order, Integer.class);
+					stmt.executeUpdate();
+					step.setStepId(getGeneratedKeys(stmt, 1)[0]);
+				} // try
+				commitTransaction(conn);
+				timer.rows(1);
+				timer.success();
+			} catch(Exception e) {
+				rollbackTransaction(conn);
+				throw e instanceof DbException ? (DbException)e : new DbException(e);
+			} // inner try-catch
+		} catch(SQLException e) {
+			throw new DbException(e);
+		} // try-catch
+		ProjectDao.fireChange(listener -> listener.projectStepsChanged(projectId)); // After the connection is back in the pool.
+		return step;
+	} // insertStep
+
+	private Integer orderAfterLast(Connection conn, Integer projectId) throws SQLException {
+		Integer last = queryInteger(conn, LAST_ORDER_SQL, projectId);
+		return Objects.isNull(last) ? ORDER_GAP : last + ORDER_GAP;
+	} // orderAfterLast
+
+	/*
+	 * The midpoint between the given step (or 0, for the first position) and the step after it; null if they are adjacent.
+	 */
+	private Integer orderAfter(Connection conn, Integer projectId, Integer afterStepId) throws SQLException {
+		int lower = 0;
+		if(Objects.nonNull(afterStepId)) {
+			Integer afterOrder = queryInteger(conn, STEP_ORDER_SQL, afterStepId, projectId);
+			if(Objects.isNull(afterOrder)) {
+				throw new DbException("Step " + afterStepId + " does not belong to project " + projectId + ".");
+			} // if
+			lower = afterOrder;
+		} // if
+		Integer upper = queryInteger(conn, NEXT_ORDER_SQL, projectId, lower);
+		if(Objects.isNull(upper)) {
+			return lower + ORDER_GAP;
+		} // if
+		return upper - lower > 1 ? lower + (upper - lower) / 2 : null;
+	} // orderAfter
+
+	/*
+	 * Gives the steps keys ORDER_GAP, 2 * ORDER_GAP, ... in list order, with one CASE UPDATE per ProjectDao.IN_CLAUSE_CHUNK_SIZE
+	 * steps: each step takes three placeholders, and MySQL allows 65,535 in a statement.  The chunks are padded like the IN
+	 * lists (see DaoBase.paddedInList), repeating the last step and its key, so the few statement texts stay cached.
+	 */
+	private int assignOrders(Connection conn, Integer projectId, List<Integer> stepIds) throws SQLException {
+		int updated = 0;
+		for(int from = 0; from < stepIds.size(); from += ProjectDao.IN_CLAUSE_CHUNK_SIZE) {
+			List<Integer> chunk = stepIds.subList(from, Math.min(from + ProjectDao.IN_CLAUSE_CHUNK_SIZE, stepIds.size()));
+			int size = paddedInSize(chunk.size(), ProjectDao.IN_CLAUSE_CHUNK_SIZE);
+			try(PreparedStatement stmt = prepare(conn, ASSIGN_ORDERS_SQL.computeIfAbsent(size, StepDao::buildAssignOrdersSql))) {
+				int index = 1;
+				for(int i = 0; i < size; i++) {
+					int position = Math.min(i, chunk.size() - 1);
+					setParameter(stmt, index++, chunk.get(position), Integer.class);
+					setParameter(stmt, index++, (from + position + 1) * ORDER_GAP, Integer.class);
+				} // for
+				setParameter(stmt, index++, projectId, Integer.class);
+				setPaddedIdParameters(stmt, index, chunk, ProjectDao.IN_CLAUSE_CHUNK_SIZE);
+				updated += stmt.executeUpdate();
+			} // try
+		} // for
+		return updated;
+	} // assignOrders
+
+	private static String buildAssignOrdersSql(int size) {
+		StringBuilder sql = new StringBuilder("UPDATE " + STEP_TABLE + " SET step_order = CASE step_id");
+		for(int i = 0; i < size; i++) {
+			sql.append(" WHEN ? THEN ?");
+		} // for
+		return sql.append(" END WHERE project_id = ? AND step_id IN (").append(inClause(size)).append(")").toString();
+	} // buildAssignOrdersSql
+
+	private void lockProject(Connection conn, Integer projectId) throws SQLException {
+		if(Objects.isNull(queryInteger(conn, LOCK_PROJECT_SQL, projectId))) {
+			throw new DbException("Project " + projectId + " does not exist.");
+		} // if
+	} // lockProject
+
+	private List<Step> fetchSteps(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, STEPS_IN_ORDER_SQL)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				List<Step> steps = new ArrayList<>();
+				RowMapper<Step> stepMapper = mapper(rs, Step.class);
+				while(rs.next()) {
+					steps.add(stepMapper.map(rs));
+				} // while
+				return steps;
+			} // inner try
+		} // try
+	} // fetchSteps
+
+	private List<Integer> fetchStepIds(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, STEP_IDS_IN_ORDER_SQL)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				List<Integer> stepIds = new ArrayList<>();
+				while(rs.next()) {
+					stepIds.add(rs.getInt(1));
+				} // while
+				return stepIds;
+			} // inner try
+		} // try
+	} // fetchStepIds
+
+	/*
+	 * Runs a query with Integer parameters that returns at most one Integer; null if there is no row or the value is NULL.
+	 */
+	private Integer queryInteger(Connection conn, String sql, Integer... parameters) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, sql)) {
+			for(int index = 0; index < parameters.length; index++) {
+				setParameter(stmt, index + 1, parameters[index], Integer.class);
+			} // for
+			try(ResultSet rs = stmt.executeQuery()) {
+				if(!rs.next()) {
+					return null;
+				} // if
+				int value = rs.getInt(1);
+				return rs.wasNull() ? null : value;
+			} // inner try
+		} // try
+	} // queryInteger
+
+} // class
@@ -0,0 +1,205 @@
+package projects.dao;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import provided.util.DaoBase;
+import provided.util.QueryTracer;
+
+/*
+ * Keeps project_cost_summary and category_spend_summary in step with the detail tables.  When summaries are on, every DAO
+ * write that changes costs or category links applies its delta to the summaries in the same transaction, so a report can read
+ * one row per project or category instead of aggregating the materials.  Deleting a project drops its cost row through the
+ * foreign key cascade.
+ *
+ * The summaries are not maintained while they are off, so turning them on rebuilds them from the detail tables.  In between
+ * they are BUILDING: writers already maintain them, but reports keep aggregating the detail tables, because the rows left from
+ * the last time the summaries were on miss every write made since.  The rebuild switches them ON in its own transaction, so
+ * reports move over exactly when the rebuilt rows become visible.  The state is a row in app_setting, not a field, so every
+ * instance sharing the database maintains and reads the summaries alike, and it survives a restart.  Writers read it on their
+ * own connection, inside the transaction whose delta it decides.
+ */
+class SummaryTables extends DaoBase {
+
+	private static final String PROJECT_COST_SUMMARY_TABLE = "project_cost_summary";
+	private static final String CATEGORY_SPEND_SUMMARY_TABLE = "category_spend_summary";
+
+	//@formatter:off
+	private static final String ADD_PROJECT_COST_SQL = ""
+			+ "INSERT INTO " + PROJECT_COST_SUMMARY_TABLE + " (project_id, material_count, total_cost) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE material_count = material_count + VALUES(material_count), total_cost = total_cost + VALUES(total_cost)";
+	private static final String ADD_CATEGORY_SPEND_SQL = ""
+			+ "INSERT INTO " + CATEGORY_SPEND_SUMMARY_TABLE + " (category_id, project_count, total_cost) VALUES (?, ?, ?) "
+			+ "ON DUPLICATE KEY UPDATE project_count = project_count + VALUES(project_count), total_cost = total_cost + VALUES(total_cost)";
+	private static final String REMOVE_PROJECT_FROM_CATEGORIES_SQL = ""
+			+ "UPDATE " + CATEGORY_SPEND_SUMMARY_TABLE + " SET project_count = project_count - 1, "
+			+ "total_cost = total_cost - COALESCE((SELECT total_cost FROM " + PROJECT_COST_SUMMARY_TABLE + " WHERE project_id = ?), 0) "
+			+ "WHERE category_id IN (SELECT category_id FROM project_category WHERE project_id = ?)";
+	private static final String STATE_SETTING = "summary_tables";
+	private static final String FETCH_SETTING_SQL = "SELECT setting_value FROM app_setting WHERE setting_name = ?";
+	private static final String SAVE_SETTING_SQL = ""
+			+ "INSERT INTO app_setting (setting_name, setting_value) VALUES (?, ?) "
+			+ "ON DUPLICATE KEY UPDATE setting_value = VALUES(setting_value)";
+	private static final String PROJECT_COSTS_IN_PREFIX = ""
+			+ "SELECT COALESCE(SUM(total_cost), 0) FROM " + PROJECT_COST_SUMMARY_TABLE + " WHERE project_id IN ";
+
+	private static final String[] REBUILD_SQL = {
+			"DELETE FROM " + CATEGORY_SPEND_SUMMARY_TABLE,
+			"DELETE FROM " + PROJECT_COST_SUMMARY_TABLE,
+			"INSERT INTO " + PROJECT_COST_SUMMARY_TABLE + " (project_id, material_count, total_cost) "
+					+ "SELECT p.project_id, COUNT(m.material_id), COALESCE(SUM(m.num_required * m.cost), 0) "
+					+ "FROM project p LEFT JOIN material m ON m.project_id = p.project_id GROUP BY p.project_id",
+			"INSERT INTO " + CATEGORY_SPEND_SUMMARY_TABLE + " (category_id, project_count, total_cost) "
+					+ "SELECT c.category_id, COUNT(pc.project_id), COALESCE(SUM(s.total_cost), 0) "
+					+ "FROM category c LEFT JOIN project_category pc ON pc.category_id = c.category_id "
+					+ "LEFT JOIN " + PROJECT_COST_SUMMARY_TABLE + " s ON s.project_id = pc.project_id GROUP BY c.category_id"
+	};
+	//@formatter:on
+
+	/*
+	 * Whether writers keep the summaries up to date: while they are being rebuilt, and once they are on.
+	 */
+	boolean isMaintained(Connection conn) throws SQLException {
+		return fetchState(conn) != State.OFF;
+	}
+
+	/*
+	 * Whether reports may read the summaries: only once a rebuild has committed.
+	 */
+	boolean isReadable(Connection conn) throws SQLException {
+		return fetchState(conn) == State.ON;
+	}
+
+	/*
+	 * The summaries' state; OFF until they are first turned on.
+	 */
+	State fetchState(Connection conn) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, FETCH_SETTING_SQL)) {
+			setParameter(stmt, 1, STATE_SETTING, String.class);
+			try(ResultSet rs = stmt.executeQuery()) {
+				return rs.next() ? State.valueOf(rs.getString(1)) : State.OFF;
+			} // inner try
+		} // try
+	} // fetchState
+
+	void saveState(Connection conn, State state) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, SAVE_SETTING_SQL)) {
+			setParameter(stmt, 1, STATE_SETTING, String.class);
+			setParameter(stmt, 2, state.name(), String.class);
+			stmt.executeUpdate();
+		} // try
+	} // saveState
+
+	/*
+	 * Adds newly inserted projects (with their materials and category links) to the summaries.
+	 */
+	void addProjects(Connection conn, List<Project> projects) throws SQLException {
+		Map<Integer, Integer> categoryProjects = new LinkedHashMap<>(); // category_id -> projects added to it
+		Map<Integer, BigDecimal> categoryCosts = new LinkedHashMap<>(); // category_id -> cost added to it
+		try(PreparedStatement stmt = prepare(conn, ADD_PROJECT_COST_SQL)) {
+			for(Project project : projects) {
+				BigDecimal cost = BigDecimal.ZERO;
+				for(Material material : project.getMaterials()) {
+					cost = cost.add(lineCost(material));
+				} // for
+				setParameter(stmt, 1, project.getProjectId(), Integer.class);
+				setParameter(stmt, 2, project.getMaterials().size(), Integer.class);
+				setParameter(stmt, 3, cost, BigDecimal.class);
+				stmt.addBatch();
+
+				for(Category category : project.getCategories()) {
+					categoryProjects.merge(category.getCategoryId(), 1, Integer::sum);
+					categoryCosts.merge(category.getCategoryId(), cost, BigDecimal::add);
+				} // for
+			} // for
+			if(!projects.isEmpty()) {
+				stmt.executeBatch();
+			} // if
+		} // try
+
+		if(!categoryProjects.isEmpty()) {
+			try(PreparedStatement stmt = prepare(conn, ADD_CATEGORY_SPEND_SQL)) {
+				for(Map.Entry<Integer, Integer> entry : categoryProjects.entrySet()) {
+					setParameter(stmt, 1, entry.getKey(), Integer.class);
+					setParameter(stmt, 2, entry.getValue(), Integer.class);
+					setParameter(stmt, 3, categoryCosts.get(entry.getKey()), BigDecimal.class);
+					stmt.addBatch();
+				} // for
+				stmt.executeBatch();
+			} // try
+		} // if
+	} // addProjects
+
+	/*
+	 * Takes a project out of its categories' totals.  Must run before the project (and so its links) is deleted.
+	 */
+	void removeProject(Connection conn, Integer projectId) throws SQLException {
+		try(PreparedStatement stmt = prepare(conn, REMOVE_PROJECT_FROM_CATEGORIES_SQL)) {
+			setParameter(stmt, 1, projectId, Integer.class);
+			setParameter(stmt, 2, projectId, Integer.class);
+			stmt.executeUpdate();
+		} // try
+	} // removeProject
+
+	/*
+	 * Adds the projects to (or takes them out of) one category's totals, for links assigned or removed in bulk.  Removals
+	 * must run before the links are deleted, like removeProject.
+	 */
+	void changeCategoryLinks(Connection conn, Integer categoryId, List<Integer> projectIds, boolean added) throws SQLException {
+		BigDecimal cost = BigDecimal.ZERO;
+		for(int from = 0; from < projectIds.size(); from += ProjectDao.IN_CLAUSE_CHUNK_SIZE) {
+			List<Integer> chunk = projectIds.subList(from, Math.min(from + ProjectDao.IN_CLAUSE_CHUNK_SIZE, projectIds.size()));
+			String in = paddedInList(chunk.size(), ProjectDao.IN_CLAUSE_CHUNK_SIZE); // Padding repeats an ID; IN still sums it once.
+			try(PreparedStatement stmt = prepare(conn, PROJECT_COSTS_IN_PREFIX + in)) {
+				setPaddedIdParameters(stmt, 1, chunk, ProjectDao.IN_CLAUSE_CHUNK_SIZE);
+				try(ResultSet rs = stmt.executeQuery()) {
+					rs.next(); // SUM always returns a row.
+					cost = cost.add(rs.getBigDecimal(1));
+				} // inner try
+			} // try
+		} // for
+		try(PreparedStatement stmt = prepare(conn, ADD_CATEGORY_SPEND_SQL)) {
+			setParameter(stmt, 1, categoryId, Integer.class);
+			setParameter(stmt, 2, added ? projectIds.size() : -projectIds.size(), Integer.class);
+			setParameter(stmt, 3, added ? cost : cost.negate(), BigDecimal.class);
+			stmt.executeUpdate();
+		} // try
+	} // changeCategoryLinks
+
+	/*
+	 * OFF: not maintained, not read.  BUILDING: maintained, being rebuilt, not read yet.  ON: maintained and read.
+	 */
+	enum State {
+		OFF, BUILDING, ON
+	} // enum
+
+	void rebuild(Connection conn) throws SQLException {
+		try(Statement stmt = QueryTracer.trace(conn.createStatement())) {
+			for(String sql : REBUILD_SQL) {
+				stmt.executeUpdate(sql);
+			} // for
+		} // try
+	} // rebuild
+
+	/*
+	 * num_required * cost, as the SQL computes it: a NULL in either makes the line count as 0.
+	 */
+	private static BigDecimal lineCost(Material material) {
+		if(Objects.isNull(material.getNumRequired()) || Objects.isNull(material.getCost())) {
+			return BigDecimal.ZERO;
+		} // if
+		return material.getCost().multiply(BigDecimal.valueOf(material.getNumRequired()));
+	} // lineCost
+
+} // class
@@ -27,6 +27,16 @@ public class Category {
     this.categoryName = categoryName;
   }
 
+  /**
+   * @return A copy of this category
+   */
+  public Category copy() {
+    Category copy = new Category();
+    copy.categoryId = categoryId;
+    copy.categoryName = categoryName;
+    return copy;
+  }
+
   @Override
   public String toString() {
     return "ID=" + categoryId + ", categoryName=" + categoryName;
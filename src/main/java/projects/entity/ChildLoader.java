@@ -0,0 +1,23 @@
+/**
+ *
+ */
+package projects.entity;
+
+/**
+ * This fills in a project's child collection the first time it is used. A project read in lazy
+ * mode carries a loader, and its getMaterials, getSteps and getCategories call it once.
+ *
+ * @author Promineo
+ *
+ */
+public interface ChildLoader {
+
+  /**
+   * This sets the given child collection on the project (through its setter), and may do the
+   * same for other projects read alongside it.
+   *
+   * @param project The project whose collection was asked for
+   * @param child Which collection
+   */
+  void load(Project project, ProjectChild child);
+}
@@ -56,6 +56,19 @@ public class Material {
     this.cost = cost;
   }
 
+  /**
+   * @return A copy of this material
+   */
+  public Material copy() {
+    Material copy = new Material();
+    copy.materialId = materialId;
+    copy.projectId = projectId;
+    copy.materialName = materialName;
+    copy.numRequired = numRequired;
+    copy.cost = cost;
+    return copy;
+  }
+
   @Override
   public String toString() {
     return "ID=" + materialId + ", materialName=" + materialName + ", numRequired=" + numRequired
@@ -4,8 +4,11 @@
 package projects.entity;
 
 import java.math.BigDecimal;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * @author Promineo
@@ -18,10 +21,26 @@ public class Project {
   private BigDecimal actualHours;
   private Integer difficulty;
   private String notes;
+  private Integer version;
 
-  private List<Material> materials = new LinkedList<>();
-  private List<Step> steps = new LinkedList<>();
-  private List<Category> categories = new LinkedList<>();
+  /*
+   * One bit per ProjectField (by ordinal) set since the project was read or since clearChanges.
+   * Not a column, so the row mapper leaves it alone.
+   */
+  private int changedMask;
+
+  /*
+   * The child lists are created on first use: most projects are read for listings and never get
+   * any children.
+   */
+  private List<Material> materials;
+  private List<Step> steps;
+  private List<Category> categories;
+
+  /*
+   * Fills in the child lists on first use when the project was read in lazy mode; null otherwise.
+   */
+  private ChildLoader childLoader;
 
   public Integer getProjectId() {
     return projectId;
@@ -37,6 +56,7 @@ public class Project {
 
   public void setProjectName(String projectName) {
     this.projectName = projectName;
+    changedMask |= 1 << ProjectField.PROJECT_NAME.ordinal();
   }
 
   public BigDecimal getEstimatedHours() {
@@ -45,6 +65,7 @@ public class Project {
 
   public void setEstimatedHours(BigDecimal estimatedHours) {
     this.estimatedHours = estimatedHours;
+    changedMask |= 1 << ProjectField.ESTIMATED_HOURS.ordinal();
   }
 
   public BigDecimal getActualHours() {
@@ -53,6 +74,7 @@ public class Project {
 
   public void setActualHours(BigDecimal actualHours) {
     this.actualHours = actualHours;
+    changedMask |= 1 << ProjectField.ACTUAL_HOURS.ordinal();
   }
 
   public Integer getDifficulty() {
@@ -61,6 +83,7 @@ public class Project {
 
   public void setDifficulty(Integer difficulty) {
     this.difficulty = difficulty;
+    changedMask |= 1 << ProjectField.DIFFICULTY.ordinal();
   }
 
   public String getNotes() {
@@ -69,49 +92,199 @@ public class Project {
 
   public void setNotes(String notes) {
     this.notes = notes;
+    changedMask |= 1 << ProjectField.NOTES.ordinal();
+  }
+
+  public Integer getVersion() {
+    return version;
+  }
+
+  public void setVersion(Integer version) {
+    this.version = version;
+  }
+
+  /**
+   * @return The editable fields whose setters have been called since the project was read or
+   *         since {@link #clearChanges()}
+   */
+  public Set<ProjectField> getChangedFields() {
+    Set<ProjectField> changed = EnumSet.noneOf(ProjectField.class);
+
+    for(ProjectField field : ProjectField.values()) {
+      if((changedMask & 1 << field.ordinal()) != 0) {
+        changed.add(field);
+      }
+    }
+
+    return changed;
+  }
+
+  /**
+   * This forgets which fields were changed, e.g. once the changes have been saved.
+   */
+  public void clearChanges() {
+    changedMask = 0;
   }
 
   public List<Material> getMaterials() {
+    if(Objects.isNull(materials) && Objects.nonNull(childLoader)) {
+      childLoader.load(this, ProjectChild.MATERIALS);
+    }
+
+    if(Objects.isNull(materials)) {
+      materials = new ArrayList<>();
+    }
+
     return materials;
   }
 
+  /**
+   * @param materials The project's materials. The list is used as is, not copied.
+   */
+  public void setMaterials(List<Material> materials) {
+    this.materials = materials;
+  }
+
   public List<Step> getSteps() {
+    if(Objects.isNull(steps) && Objects.nonNull(childLoader)) {
+      childLoader.load(this, ProjectChild.STEPS);
+    }
+
+    if(Objects.isNull(steps)) {
+      steps = new ArrayList<>();
+    }
+
     return steps;
   }
 
+  /**
+   * @param steps The project's steps, in order. The list is used as is, not copied.
+   */
+  public void setSteps(List<Step> steps) {
+    this.steps = steps;
+  }
+
   public List<Category> getCategories() {
+    if(Objects.isNull(categories) && Objects.nonNull(childLoader)) {
+      childLoader.load(this, ProjectChild.CATEGORIES);
+    }
+
+    if(Objects.isNull(categories)) {
+      categories = new ArrayList<>();
+    }
+
     return categories;
   }
 
+  /**
+   * @param categories The project's categories. The list is used as is, not copied.
+   */
+  public void setCategories(List<Category> categories) {
+    this.categories = categories;
+  }
+
+  /**
+   * @param child A child collection
+   * @return true if the collection is in memory, i.e. reading it will not go to the database
+   */
+  public boolean isLoaded(ProjectChild child) {
+    switch(child) {
+      case MATERIALS:
+        return Objects.nonNull(materials);
+      case STEPS:
+        return Objects.nonNull(steps);
+      default:
+        return Objects.nonNull(categories);
+    }
+  }
+
+  /**
+   * This reads the child lists that are not loaded yet, e.g. before showing the whole project.
+   */
+  public void loadChildren() {
+    getMaterials();
+    getSteps();
+    getCategories();
+  }
+
+  public ChildLoader getChildLoader() {
+    return childLoader;
+  }
+
+  /**
+   * @param childLoader Loads the child lists on first use, or null to treat unloaded lists as
+   *        empty
+   */
+  public void setChildLoader(ChildLoader childLoader) {
+    this.childLoader = childLoader;
+  }
+
+  /**
+   * This makes a deep copy: the child lists loaded so far are copied element by element. Lists not
+   * loaded yet stay unloaded, and are read through the same child loader when first used.
+   *
+   * @return A copy of this project, sharing nothing mutable with it
+   */
+  public Project copy() {
+    Project copy = new Project();
+    copy.projectId = projectId;
+    copy.projectName = projectName;
+    copy.estimatedHours = estimatedHours;
+    copy.actualHours = actualHours;
+    copy.difficulty = difficulty;
+    copy.notes = notes;
+    copy.version = version;
+    copy.changedMask = changedMask;
+    copy.childLoader = childLoader;
+
+    if(Objects.nonNull(materials)) {
+      copy.materials = new ArrayList<>(materials.size());
+      materials.forEach(material -> copy.materials.add(material.copy()));
+    }
+
+    if(Objects.nonNull(steps)) {
+      copy.steps = new ArrayList<>(steps.size());
+      steps.forEach(step -> copy.steps.add(step.copy()));
+    }
+
+    if(Objects.nonNull(categories)) {
+      copy.categories = new ArrayList<>(categories.size());
+      categories.forEach(category -> copy.categories.add(category.copy()));
+    }
+
+    return copy;
+  }
+
   @Override
   public String toString() {
-    String result = "";
-    
-    result += "\n   ID=" + projectId;
-    result += "\n   name=" + projectName;
-    result += "\n   estimatedHours=" + estimatedHours;
-    result += "\n   actualHours=" + actualHours;
-    result += "\n   difficulty=" + difficulty;
-    result += "\n   notes=" + notes;
-    
-    result += "\n   Materials:";
-    
-    for(Material material : materials) {
-      result += "\n      " + material;
-    }
-    
-    result += "\n   Steps:";
-    
-    for(Step step : steps) {
-      result += "\n      " + step;
+    StringBuilder result = new StringBuilder(); // Shows only the child lists already loaded; printing must not query.
+
+    result.append("\n   ID=").append(projectId);
+    result.append("\n   name=").append(projectName);
+    result.append("\n   estimatedHours=").append(estimatedHours);
+    result.append("\n   actualHours=").append(actualHours);
+    result.append("\n   difficulty=").append(difficulty);
+    result.append("\n   notes=").append(notes);
+    result.append("\n   version=").append(version);
+
+    result.append("\n   Materials:");
+    appendChildren(result, materials);
+    result.append("\n   Steps:");
+    appendChildren(result, steps);
+    result.append("\n   Categories:");
+    appendChildren(result, categories);
+
+    return result.toString();
+  }
+
+  private void appendChildren(StringBuilder result, List<?> children) {
+    if(Objects.isNull(children)) {
+      result.append(Objects.isNull(childLoader) ? "" : " (not loaded)");
+      return;
     }
-    
-    result += "\n   Categories:";
-    
-    for(Category category : categories) {
-      result += "\n      " + category;
+
+    for(Object child : children) {
+      result.append("\n      ").append(child);
     }
-    
-    return result;
   }
 }
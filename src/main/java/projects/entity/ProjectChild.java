@@ -0,0 +1,14 @@
+/**
+ *
+ */
+package projects.entity;
+
+/**
+ * The child collections of a project.
+ *
+ * @author Promineo
+ *
+ */
+public enum ProjectChild {
+  MATERIALS, STEPS, CATEGORIES
+}
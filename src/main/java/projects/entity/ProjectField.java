@@ -0,0 +1,57 @@
+/**
+ *
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The editable columns of the project table, with the Project getter and setter for each. Used to
+ * describe updates that touch only some of a project's columns.
+ *
+ * @author Promineo
+ *
+ */
+public enum ProjectField {
+  PROJECT_NAME("project_name", String.class, Project::getProjectName,
+      (project, value) -> project.setProjectName((String)value)),
+  ESTIMATED_HOURS("estimated_hours", BigDecimal.class, Project::getEstimatedHours,
+      (project, value) -> project.setEstimatedHours((BigDecimal)value)),
+  ACTUAL_HOURS("actual_hours", BigDecimal.class, Project::getActualHours,
+      (project, value) -> project.setActualHours((BigDecimal)value)),
+  DIFFICULTY("difficulty", Integer.class, Project::getDifficulty,
+      (project, value) -> project.setDifficulty((Integer)value)),
+  NOTES("notes", String.class, Project::getNotes,
+      (project, value) -> project.setNotes((String)value));
+
+  private final String column;
+  private final Class<?> type;
+  private final Function<Project, Object> getter;
+  private final BiConsumer<Project, Object> setter;
+
+  private ProjectField(String column, Class<?> type, Function<Project, Object> getter,
+      BiConsumer<Project, Object> setter) {
+    this.column = column;
+    this.type = type;
+    this.getter = getter;
+    this.setter = setter;
+  }
+
+  public String getColumn() {
+    return column;
+  }
+
+  public Class<?> getType() {
+    return type;
+  }
+
+  public Object get(Project project) {
+    return getter.apply(project);
+  }
+
+  public void set(Project project, Object value) {
+    setter.accept(project, value);
+  }
+}
@@ -0,0 +1,57 @@
+/**
+ *
+ */
+package projects.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * This is an immutable, compact view of one project row for listings. It has no notes and no
+ * children, and the hours are held as scaled longs (hundredths of an hour), so a row is one small
+ * object plus its name instead of a Project with boxed and BigDecimal fields.
+ *
+ * @param projectId The project ID
+ * @param projectName The project name
+ * @param estimatedHundredths The estimated hours in hundredths, or {@link #NO_HOURS}
+ * @param actualHundredths The actual hours in hundredths, or {@link #NO_HOURS}
+ * @param difficulty The difficulty, or 0 if there is none
+ * @param version The row version
+ *
+ * @author Promineo
+ *
+ */
+public record ProjectRow(int projectId, String projectName, long estimatedHundredths,
+    long actualHundredths, int difficulty, int version) {
+
+  /**
+   * Stands for NULL in the hours fields.
+   */
+  public static final long NO_HOURS = Long.MIN_VALUE;
+
+  /**
+   * The number of decimal places in the scaled hours.
+   */
+  public static final int SCALE = 2;
+
+  public boolean hasEstimatedHours() {
+    return estimatedHundredths != NO_HOURS;
+  }
+
+  public boolean hasActualHours() {
+    return actualHundredths != NO_HOURS;
+  }
+
+  /**
+   * @return The estimated hours, or null if there is no estimate
+   */
+  public BigDecimal estimatedHours() {
+    return hasEstimatedHours() ? BigDecimal.valueOf(estimatedHundredths, SCALE) : null;
+  }
+
+  /**
+   * @return The actual hours, or null if they were not recorded
+   */
+  public BigDecimal actualHours() {
+    return hasActualHours() ? BigDecimal.valueOf(actualHundredths, SCALE) : null;
+  }
+}
@@ -1,5 +1,8 @@
 package projects.exception;
 
+import java.sql.SQLException;
+import java.util.Objects;
+
 @SuppressWarnings("serial")
 public class DbException extends RuntimeException {
 
@@ -22,4 +25,17 @@ public class DbException extends RuntimeException {
 		super(message, cause, enableSuppression, writableStackTrace);
 	}
 
+	/*
+	 * Whether the failure was the data's fault (SQLSTATE class 22, data exception, or 23, constraint violation) rather than the
+	 * database's or the connection's.  Retrying the same data can't succeed; retrying after a transient failure can.
+	 */
+	public boolean isDataError() {
+		for(Throwable cause = this; Objects.nonNull(cause); cause = cause.getCause()) {
+			if(cause instanceof SQLException sql && Objects.nonNull(sql.getSQLState())) {
+				return sql.getSQLState().startsWith("22") || sql.getSQLState().startsWith("23");
+			} // if
+		} // for
+		return false;
+	} // isDataError
+
 } //class
@@ -0,0 +1,13 @@
+package projects.exception;
+
+/*
+ * Thrown when an update was made against a version of a row that someone else has changed since it was read.
+ */
+@SuppressWarnings("serial")
+public class StaleDataException extends DbException {
+
+	public StaleDataException(String message) {
+		super(message);
+	}
+
+} //class
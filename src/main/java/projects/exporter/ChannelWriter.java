@@ -0,0 +1,58 @@
+package projects.exporter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Encodes text as UTF-8 straight into one large direct buffer and hands the buffer to the channel only when it is full, so
+ * the file (or gzip stream) sees a few big writes instead of one per record.  Not thread-safe.
+ */
+final class ChannelWriter implements AutoCloseable {
+	private final WritableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+	ChannelWriter(WritableByteChannel channel, int bufferSize) {
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocateDirect(bufferSize);
+	}
+
+	void write(CharSequence text) throws IOException {
+		CharBuffer chars = CharBuffer.wrap(text);
+		while(true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if(result.isUnderflow()) {
+				break; // All encoded.
+			} // if
+			if(result.isOverflow()) {
+				drain();
+			} else {
+				result.throwException(); // Only an unpaired surrogate gets here.
+			} // if
+		} // while
+		encoder.reset();
+	} // write
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		} // while
+		buffer.clear();
+	} // drain
+
+	@Override
+	public void close() throws IOException {
+		try {
+			drain();
+		} finally {
+			channel.close();
+		} // try-finally
+	} // close
+
+} // class
@@ -0,0 +1,200 @@
+package projects.exporter;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Objects;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * The file formats ProjectExporter writes.  They are the formats ProjectImporter reads (see the importer's CsvRecords and
+ * JsonRecords), so an export can be imported again; IDs are not written, since an import assigns new ones.
+ */
+public enum ExportFormat {
+	CSV {
+		@Override
+		void appendHeader(StringBuilder out) {
+			out.append("type,name,estimated_hours,actual_hours,difficulty,notes\n");
+		}
+
+		@Override
+		void appendProject(Project project, StringBuilder out) {
+			out.append("project,");
+			appendCsv(out, project.getProjectName()).append(',');
+			appendCsv(out, project.getEstimatedHours()).append(',');
+			appendCsv(out, project.getActualHours()).append(',');
+			appendCsv(out, project.getDifficulty()).append(',');
+			appendCsv(out, project.getNotes()).append('\n');
+			for(Material material : project.getMaterials()) {
+				out.append("material,");
+				appendCsv(out, material.getMaterialName()).append(',');
+				appendCsv(out, material.getNumRequired()).append(',');
+				appendCsv(out, material.getCost()).append('\n');
+			} // for
+			for(Step step : project.getSteps()) {
+				out.append("step,");
+				appendCsv(out, step.getStepText()).append('\n');
+			} // for
+			for(Category category : project.getCategories()) {
+				out.append("category,");
+				appendCsv(out, category.getCategoryName()).append('\n');
+			} // for
+		} // appendProject
+	},
+	JSONL {
+		@Override
+		void appendHeader(StringBuilder out) {
+		}
+
+		@Override
+		void appendProject(Project project, StringBuilder out) {
+			out.append("{\"projectName\":");
+			appendJson(out, project.getProjectName());
+			appendJsonField(out, "estimatedHours", project.getEstimatedHours());
+			appendJsonField(out, "actualHours", project.getActualHours());
+			appendJsonField(out, "difficulty", project.getDifficulty());
+			appendJsonField(out, "notes", project.getNotes());
+			out.append(",\"materials\":[");
+			String separator = "";
+			for(Material material : project.getMaterials()) {
+				out.append(separator).append("{\"materialName\":");
+				appendJson(out, material.getMaterialName());
+				appendJsonField(out, "numRequired", material.getNumRequired());
+				appendJsonField(out, "cost", material.getCost());
+				out.append('}');
+				separator = ",";
+			} // for
+			out.append("],\"steps\":[");
+			separator = "";
+			for(Step step : project.getSteps()) {
+				out.append(separator);
+				appendJson(out, step.getStepText());
+				separator = ",";
+			} // for
+			out.append("],\"categories\":[");
+			separator = "";
+			for(Category category : project.getCategories()) {
+				out.append(separator);
+				appendJson(out, category.getCategoryName());
+				separator = ",";
+			} // for
+			out.append("]}\n");
+		} // appendProject
+	};
+
+	/*
+	 * Whatever comes before the first project.
+	 */
+	abstract void appendHeader(StringBuilder out);
+
+	/*
+	 * One project, with its children, as a complete record ending in a line break.
+	 */
+	abstract void appendProject(Project project, StringBuilder out);
+
+	/*
+	 * The format for a file name ending in .csv, .jsonl or .ndjson, each optionally followed by .gz.
+	 */
+	public static ExportFormat forPath(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if(name.endsWith(".gz")) {
+			name = name.substring(0, name.length() - ".gz".length());
+		} // if
+		if(name.endsWith(".csv")) {
+			return CSV;
+		} // if
+		if(name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+			return JSONL;
+		} // if
+		throw new IllegalArgumentException("Cannot tell the format for " + file + " from its name; expected .csv, .jsonl or .ndjson, optionally with .gz");
+	} // forPath
+
+	public static boolean isGzipped(Path file) {
+		return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+
+	/*
+	 * RFC 4180: a field holding a separator, quote or line break is quoted, with its quotes doubled.  Null is an empty field.
+	 */
+	private static StringBuilder appendCsv(StringBuilder out, Object value) {
+		if(Objects.isNull(value)) {
+			return out;
+		} // if
+		String text = value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString();
+		boolean quote = false;
+		for(int i = 0; i < text.length() && !quote; i++) {
+			char c = text.charAt(i);
+			quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+		} // for
+		if(!quote) {
+			return out.append(text);
+		} // if
+		out.append('"');
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '"') {
+				out.append('"');
+			} // if
+			out.append(c);
+		} // for
+		return out.append('"');
+	} // appendCsv
+
+	/*
+	 * Appends ,"name":value, leaving out null values altogether.
+	 */
+	private static void appendJsonField(StringBuilder out, String name, Object value) {
+		if(Objects.isNull(value)) {
+			return;
+		} // if
+		out.append(",\"").append(name).append("\":");
+		if(value instanceof BigDecimal decimal) {
+			out.append(decimal.toPlainString());
+		} else if(value instanceof Number) {
+			out.append(value);
+		} else {
+			appendJson(out, value.toString());
+		} // if
+	} // appendJsonField
+
+	private static void appendJson(StringBuilder out, String text) {
+		if(Objects.isNull(text)) {
+			out.append("null");
+			return;
+		} // if
+		out.append('"');
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch(c) {
+			case '"':
+				out.append("\\\"");
+				break;
+			case '\\':
+				out.append("\\\\");
+				break;
+			case '\n':
+				out.append("\\n");
+				break;
+			case '\r':
+				out.append("\\r");
+				break;
+			case '\t':
+				out.append("\\t");
+				break;
+			default:
+				if(c < 0x20) {
+					out.append(String.format("\\u%04x", (int)c));
+				} else {
+					out.append(c);
+				} // if
+				break;
+			} // switch
+		} // for
+		out.append('"');
+	} // appendJson
+
+} // enum
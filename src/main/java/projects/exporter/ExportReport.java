@@ -0,0 +1,26 @@
+package projects.exporter;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/*
+ * What one run of ProjectExporter wrote.  bytesWritten is the size of the file on disk, i.e. after compression.
+ */
+public record ExportReport(Path file, long projects, long materials, long steps, long categoryLinks, long bytesWritten, Duration elapsed) {
+
+	public double projectsPerSecond() {
+		return elapsed.isZero() ? 0 : projects * 1_000_000_000.0 / elapsed.toNanos();
+	}
+
+	public double megabytesPerSecond() {
+		return elapsed.isZero() ? 0 : bytesWritten * 1_000.0 / elapsed.toNanos(); // bytes/ns * 1e9 / 1e6
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %,d projects exported (%,d materials, %,d steps, %,d category links), %,d bytes in %.1f s"
+				+ " - %,.0f projects/s, %,.1f MB/s", file, projects, materials, steps, categoryLinks, bytesWritten, elapsed.toMillis() / 1000.0,
+				projectsPerSecond(), megabytesPerSecond());
+	} // toString
+
+} // record
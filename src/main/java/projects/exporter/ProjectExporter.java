@@ -0,0 +1,117 @@
+package projects.exporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import projects.entity.Project;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import projects.service.ProjectService;
+
+/*
+ * Writes every project, with its materials, steps and categories, to a CSV or JSON Lines file, optionally gzipped.  The
+ * projects come from ProjectService.streamProjectGraphs, which merges one ordered cursor per table, and go out through a
+ * ChannelWriter, so memory stays flat however many projects there are and the export runs as fast as the database sends rows
+ * and the disk takes them.
+ *
+ * The file is written under a temporary name beside the target and renamed once complete, so a failed export never leaves a
+ * truncated file that looks finished.
+ */
+public class ProjectExporter {
+	private static final System.Logger LOG = System.getLogger(ProjectExporter.class.getName());
+
+	private static final int BUFFER_SIZE = 256 * 1024;
+	private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+
+	private final ProjectService projectService;
+
+	public ProjectExporter(ProjectService projectService) {
+		this.projectService = projectService;
+	}
+
+	/*
+	 * Exports in the format the file name asks for, e.g. projects.csv, projects.jsonl.gz.
+	 */
+	public ExportReport exportTo(Path file) {
+		return exportTo(file, ExportFormat.forPath(file), ExportFormat.isGzipped(file));
+	}
+
+	public ExportReport exportTo(Path file, ExportFormat format, boolean gzip) {
+		long started = System.nanoTime();
+		Path partFile = file.resolveSibling(file.getFileName() + ".part");
+		long projects = 0;
+		long materials = 0;
+		long steps = 0;
+		long categoryLinks = 0;
+		try(OperationTimer timer = Metrics.start("exportProjects")) {
+			try(ChannelWriter writer = open(partFile, gzip); Stream<Project> graphs = projectService.streamProjectGraphs()) {
+				StringBuilder record = new StringBuilder(1024); // Reused for every record.
+				format.appendHeader(record);
+				writer.write(record);
+				for(Iterator<Project> iterator = graphs.iterator(); iterator.hasNext();) {
+					Project project = iterator.next();
+					record.setLength(0);
+					format.appendProject(project, record);
+					writer.write(record);
+					projects++;
+					materials += project.getMaterials().size();
+					steps += project.getSteps().size();
+					categoryLinks += project.getCategories().size();
+				} // for
+			} // try
+			Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			timer.rows(projects);
+			timer.success();
+		} catch(IOException e) {
+			deletePartFile(partFile);
+			throw new UncheckedIOException("Unable to export projects to " + file, e);
+		} catch(RuntimeException e) {
+			deletePartFile(partFile);
+			throw e;
+		} // try-catch
+		ExportReport report = new ExportReport(file, projects, materials, steps, categoryLinks, size(file), Duration.ofNanos(System.nanoTime() - started));
+		LOG.log(Level.INFO, report::toString);
+		return report;
+	} // exportTo
+
+	private static ChannelWriter open(Path partFile, boolean gzip) throws IOException {
+		FileChannel channel = FileChannel.open(partFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		if(!gzip) {
+			return new ChannelWriter(channel, BUFFER_SIZE);
+		} // if
+		try {
+			return new ChannelWriter(Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_SIZE)), BUFFER_SIZE);
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		} // try-catch
+	} // open
+
+	private static void deletePartFile(Path partFile) {
+		try {
+			Files.deleteIfExists(partFile);
+		} catch(IOException e) {
+			LOG.log(Level.WARNING, "Unable to delete the unfinished export " + partFile, e);
+		} // try-catch
+	} // deletePartFile
+
+	private static long size(Path file) {
+		try {
+			return Files.size(file);
+		} catch(IOException e) {
+			return -1; // Only the report needs it.
+		} // try-catch
+	} // size
+
+} // class
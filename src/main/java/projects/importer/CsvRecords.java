@@ -0,0 +1,284 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * The CSV import format.  Every row starts with its type, and a project's child rows follow its project row:
+ *
+ *   type,name,estimated_hours,actual_hours,difficulty,notes      (optional header)
+ *   project,Bookshelf,12.5,,3,"Use pine, not oak"
+ *   material,Pine board,4,8.99
+ *   step,Cut the boards to length
+ *   category,Woodworking
+ *
+ * Fields follow RFC 4180: quote a field holding commas, quotes or line breaks, and double any quote inside it.  Empty fields
+ * are null, trailing fields may be left off, blank lines and lines starting with # are skipped.  Rows are
+ *   project,name,estimated_hours,actual_hours,difficulty,notes
+ *   material,name,num_required,cost
+ *   step,text
+ *   category,name  (an existing category)
+ * and steps keep the order they appear in.
+ */
+final class CsvRecords {
+	private static final String PROJECT = "project";
+
+	private CsvRecords() {
+	}
+
+	/*
+	 * Groups rows into records: a project row and every row up to the next project row.
+	 */
+	static final class Splitter implements RecordSplitter {
+		private final BufferedReader in;
+		private final int maxRecordChars;
+		private long lineNumber;
+		private long rowLine;
+		private String pendingRow; // The project row that ended the previous record.
+		private long pendingLine;
+		private boolean firstRow = true;
+
+		Splitter(BufferedReader in, int maxRecordChars) {
+			this.in = in;
+			this.maxRecordChars = maxRecordChars;
+		}
+
+		@Override
+		public RawRecord next(long sequence) throws IOException {
+			StringBuilder text = new StringBuilder();
+			long startLine = 0;
+			boolean oversized = false;
+			while(true) {
+				String row;
+				long line;
+				if(Objects.nonNull(pendingRow)) {
+					row = pendingRow;
+					line = pendingLine;
+					pendingRow = null;
+				} else {
+					row = readRow();
+					line = rowLine;
+				} // if
+				if(Objects.isNull(row)) {
+					break;
+				} // if
+				if(row.isBlank() || row.startsWith("#")) {
+					continue;
+				} // if
+				String type = typeOf(row);
+				if(firstRow) {
+					firstRow = false;
+					if(type.equals("type")) {
+						continue; // The header.
+					} // if
+				} // if
+				if(startLine > 0 && type.equals(PROJECT)) {
+					pendingRow = row;
+					pendingLine = line;
+					break;
+				} // if
+				if(startLine == 0) {
+					startLine = line;
+				} // if
+				if(!oversized) {
+					text.append(row).append('\n');
+					if(text.length() > maxRecordChars) {
+						oversized = true;
+						text = new StringBuilder(); // Let the rows go; only the start line is reported.
+					} // if
+				} // if
+			} // while
+			return startLine == 0 ? null : new RawRecord(sequence, startLine, oversized ? null : text.toString());
+		} // next
+
+		/*
+		 * One row, which is several physical lines when a quoted field holds line breaks.
+		 */
+		private String readRow() throws IOException {
+			String line = in.readLine();
+			if(Objects.isNull(line)) {
+				return null;
+			} // if
+			rowLine = ++lineNumber;
+			if(!hasOpenQuote(line, false)) {
+				return line;
+			} // if
+			StringBuilder row = new StringBuilder(line);
+			boolean open = true;
+			while(open && Objects.nonNull(line = in.readLine())) {
+				lineNumber++;
+				if(row.length() <= maxRecordChars) { // Past the limit the record is rejected anyway; just find its end.
+					row.append('\n').append(line);
+				} // if
+				open = hasOpenQuote(line, true);
+			} // while
+			return row.toString();
+		} // readRow
+
+		/*
+		 * Whether a quoted field is still open at the end of the line, given whether one was open at its start.  Doubled quotes
+		 * inside a field toggle twice, so counting quotes is enough.
+		 */
+		private static boolean hasOpenQuote(String line, boolean open) {
+			for(int i = 0; i < line.length(); i++) {
+				if(line.charAt(i) == '"') {
+					open = !open;
+				} // if
+			} // for
+			return open;
+		} // hasOpenQuote
+
+		private static String typeOf(String row) {
+			int comma = row.indexOf(',');
+			return (comma < 0 ? row : row.substring(0, comma)).trim().toLowerCase(Locale.ROOT);
+		} // typeOf
+
+	} // Splitter
+
+	static Project parse(String text) {
+		List<List<String>> rows = parseRows(text);
+		List<String> first = rows.get(0);
+		if(!type(first).equals(PROJECT)) {
+			throw new IllegalArgumentException("A " + type(first) + " row must follow a project row");
+		} // if
+		checkFieldCount(first, 6);
+		Project project = new Project();
+		project.setProjectName(field(first, 1));
+		project.setEstimatedHours(decimal(first, 2, "estimated_hours"));
+		project.setActualHours(decimal(first, 3, "actual_hours"));
+		project.setDifficulty(integer(first, 4, "difficulty"));
+		project.setNotes(field(first, 5));
+		for(List<String> row : rows.subList(1, rows.size())) {
+			switch(type(row)) {
+			case "material":
+				checkFieldCount(row, 4);
+				Material material = new Material();
+				material.setMaterialName(field(row, 1));
+				material.setNumRequired(integer(row, 2, "num_required"));
+				material.setCost(decimal(row, 3, "cost"));
+				project.getMaterials().add(material);
+				break;
+			case "step":
+				checkFieldCount(row, 2);
+				Step step = new Step();
+				step.setStepText(field(row, 1));
+				project.getSteps().add(step);
+				break;
+			case "category":
+				checkFieldCount(row, 2);
+				Category category = new Category();
+				category.setCategoryName(field(row, 1));
+				project.getCategories().add(category);
+				break;
+			case PROJECT:
+				throw new IllegalArgumentException("Two project rows in one record"); // The splitter never does this.
+			default:
+				throw new IllegalArgumentException("Unknown row type '" + type(row) + "'; expected project, material, step or category");
+			} // switch
+		} // for
+		return project;
+	} // parse
+
+	/*
+	 * Splits the record's text into rows of fields.
+	 */
+	static List<List<String>> parseRows(String text) {
+		List<List<String>> rows = new ArrayList<>();
+		List<String> row = new ArrayList<>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false; // Inside a quoted field.
+		boolean wasQuoted = false; // The current field was quoted, so only a separator may follow its closing quote.
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(quoted) {
+				if(c != '"') {
+					field.append(c);
+				} else if(i + 1 < text.length() && text.charAt(i + 1) == '"') {
+					field.append('"');
+					i++;
+				} else {
+					quoted = false;
+				} // if
+			} else if(c == ',' || c == '\n') {
+				row.add(field.toString());
+				field.setLength(0);
+				wasQuoted = false;
+				if(c == '\n') {
+					addRow(rows, row);
+					row = new ArrayList<>();
+				} // if
+			} else if(c == '"' && field.isEmpty() && !wasQuoted) {
+				quoted = true;
+				wasQuoted = true;
+			} else if(wasQuoted && c != '\r') {
+				throw new IllegalArgumentException("Unexpected text after a closing quote in '" + field + "'");
+			} else if(c != '\r') {
+				field.append(c);
+			} // if
+		} // for
+		if(quoted) {
+			throw new IllegalArgumentException("A quoted field is never closed");
+		} // if
+		if(!field.isEmpty() || !row.isEmpty()) {
+			row.add(field.toString());
+			addRow(rows, row);
+		} // if
+		if(rows.isEmpty()) {
+			throw new IllegalArgumentException("The record is empty");
+		} // if
+		return rows;
+	} // parseRows
+
+	private static void addRow(List<List<String>> rows, List<String> row) {
+		if(row.size() > 1 || !row.get(0).isBlank()) {
+			rows.add(row);
+		} // if
+	} // addRow
+
+	private static String type(List<String> row) {
+		return row.get(0).trim().toLowerCase(Locale.ROOT);
+	}
+
+	private static void checkFieldCount(List<String> row, int max) {
+		if(row.size() > max) {
+			throw new IllegalArgumentException("A " + type(row) + " row has " + row.size() + " fields; at most " + max + " are allowed");
+		} // if
+	} // checkFieldCount
+
+	private static String field(List<String> row, int index) {
+		if(index >= row.size()) {
+			return null;
+		} // if
+		String value = row.get(index).trim();
+		return value.isEmpty() ? null : value;
+	} // field
+
+	private static BigDecimal decimal(List<String> row, int index, String name) {
+		String value = field(row, index);
+		try {
+			return Objects.isNull(value) ? null : new BigDecimal(value);
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException(name + " is not a number: '" + value + "'");
+		} // try-catch
+	} // decimal
+
+	private static Integer integer(List<String> row, int index, String name) {
+		String value = field(row, index);
+		try {
+			return Objects.isNull(value) ? null : Integer.valueOf(value);
+		} catch(NumberFormatException e) {
+			throw new IllegalArgumentException(name + " is not a whole number: '" + value + "'");
+		} // try-catch
+	} // integer
+
+} // class
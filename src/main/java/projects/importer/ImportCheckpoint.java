@@ -0,0 +1,56 @@
+package projects.importer;
+
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+import projects.dao.ImportCheckpointDao;
+import projects.dao.ImportProgress;
+
+/*
+ * Where an import can resume: the number of the file's records already dealt with, each either inserted or rejected.  It is a
+ * row in the import_checkpoint table, and a batch of projects saves it in the batch's own insert transaction (see
+ * progress()), so the database never holds projects beyond the checkpoint or a checkpoint beyond its projects.  A finished
+ * import keeps its checkpoint, so running it again only picks up records appended to the file since.
+ */
+final class ImportCheckpoint {
+	private final ImportCheckpointDao checkpointDao = new ImportCheckpointDao();
+	private final String name;
+	private final String importFile;
+
+	ImportCheckpoint(String name, Path importFile) {
+		this.name = name;
+		this.importFile = importFile.toAbsolutePath().normalize().toString();
+	}
+
+	/*
+	 * The number of records done, or 0 if there is no checkpoint yet.
+	 */
+	long read() {
+		Optional<ImportProgress> progress = checkpointDao.fetchProgress(name);
+		if(progress.isEmpty()) {
+			return 0;
+		} // if
+		String file = progress.get().importFile();
+		if(!Objects.equals(file, importFile)) {
+			throw new IllegalStateException("The checkpoint " + name + " belongs to " + file + ", not " + importFile
+					+ "; delete its import_checkpoint row to start over");
+		} // if
+		return progress.get().records();
+	} // read
+
+	/*
+	 * The checkpoint at the given record, to be saved with the inserts that complete it.
+	 */
+	ImportProgress progress(long records) {
+		return new ImportProgress(name, importFile, records);
+	}
+
+	/*
+	 * Saves the checkpoint on its own, for records that were all rejected and so wrote nothing.
+	 */
+	void write(long records) {
+		checkpointDao.saveProgress(progress(records));
+	}
+
+} // class
@@ -0,0 +1,79 @@
+package projects.importer;
+
+import java.nio.file.Path;
+
+/*
+ * Settings for a ProjectImporter.  Memory use is bounded by queueCapacity and maxRecordChars, not by the size of the file.
+ */
+public class ImportConfig {
+	private int parserThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1); // The reader and writer take a thread each.
+	private int queueCapacity = 1_000; // Records waiting between two stages.
+	private int batchSize = 500; // Projects per insert transaction, and records per checkpoint.
+	private int maxRecordChars = 1_000_000; // Longer records are rejected without being parsed.
+	private long maxRejects = -1; // The import stops once more records than this are rejected; -1 for no limit.
+	private String checkpointName; // The import_checkpoint row to resume from and save to; null to import from the start every time.
+	private Path rejectFile; // Null to keep only the first rejects, in the report.
+
+	public int getParserThreads() {
+		return parserThreads;
+	}
+
+	public void setParserThreads(int parserThreads) {
+		this.parserThreads = parserThreads;
+	}
+
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	public void setQueueCapacity(int queueCapacity) {
+		this.queueCapacity = queueCapacity;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	public int getMaxRecordChars() {
+		return maxRecordChars;
+	}
+
+	public void setMaxRecordChars(int maxRecordChars) {
+		this.maxRecordChars = maxRecordChars;
+	}
+
+	public long getMaxRejects() {
+		return maxRejects;
+	}
+
+	public void setMaxRejects(long maxRejects) {
+		this.maxRejects = maxRejects;
+	}
+
+	public String getCheckpointName() {
+		return checkpointName;
+	}
+
+	public void setCheckpointName(String checkpointName) {
+		this.checkpointName = checkpointName;
+	}
+
+	public Path getRejectFile() {
+		return rejectFile;
+	}
+
+	public void setRejectFile(Path rejectFile) {
+		this.rejectFile = rejectFile;
+	}
+
+	@Override
+	public String toString() {
+		return "parserThreads=" + parserThreads + ", queueCapacity=" + queueCapacity + ", batchSize=" + batchSize + ", maxRecordChars="
+				+ maxRecordChars + ", maxRejects=" + maxRejects + ", checkpointName=" + checkpointName + ", rejectFile=" + rejectFile;
+	}
+
+} // class
@@ -0,0 +1,64 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import projects.entity.Project;
+
+/*
+ * The file formats ProjectImporter reads.  See CsvRecords and JsonRecords for their layout.
+ */
+public enum ImportFormat {
+	CSV {
+		@Override
+		RecordSplitter splitter(BufferedReader in, int maxRecordChars) {
+			return new CsvRecords.Splitter(in, maxRecordChars);
+		}
+
+		@Override
+		Project parse(String text) {
+			return CsvRecords.parse(text);
+		}
+	},
+	JSONL {
+		@Override
+		RecordSplitter splitter(BufferedReader in, int maxRecordChars) {
+			return new JsonRecords.Splitter(in, maxRecordChars);
+		}
+
+		@Override
+		Project parse(String text) {
+			return JsonRecords.parse(text);
+		}
+	};
+
+	abstract RecordSplitter splitter(BufferedReader in, int maxRecordChars);
+
+	/*
+	 * Turns one record's text into an unsaved project.  Throws IllegalArgumentException if it is malformed.
+	 */
+	abstract Project parse(String text);
+
+	/*
+	 * The format for a file name ending in .csv, .jsonl or .ndjson, each optionally followed by .gz.
+	 */
+	public static ImportFormat forPath(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		if(isGzipped(file)) {
+			name = name.substring(0, name.length() - ".gz".length());
+		} // if
+		if(name.endsWith(".csv")) {
+			return CSV;
+		} // if
+		if(name.endsWith(".jsonl") || name.endsWith(".ndjson")) {
+			return JSONL;
+		} // if
+		throw new IllegalArgumentException("Cannot tell the format of " + file + " from its name; expected .csv, .jsonl or .ndjson, optionally with .gz");
+	} // forPath
+
+	public static boolean isGzipped(Path file) {
+		return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".gz");
+	}
+
+} // enum
@@ -0,0 +1,38 @@
+package projects.importer;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+/*
+ * What one run of ProjectImporter did.  Records skipped because an earlier run's checkpoint covered them are counted in
+ * resumedAfter only.  The rejects list holds the first few rejects; ImportConfig.rejectFile gets every one.
+ */
+public record ImportReport(Path file, long resumedAfter, long recordsRead, long imported, long rejected, long materials, long steps,
+		Duration elapsed, List<Reject> rejects) {
+
+	public record Reject(long line, String reason) {
+
+		@Override
+		public String toString() {
+			return "line " + line + ": " + reason;
+		}
+
+	} // Reject
+
+	public double recordsPerSecond() {
+		return elapsed.isZero() ? 0 : recordsRead * 1_000_000_000.0 / elapsed.toNanos();
+	}
+
+	public double projectsPerSecond() {
+		return elapsed.isZero() ? 0 : imported * 1_000_000_000.0 / elapsed.toNanos();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %,d records read%s, %,d projects imported (%,d materials, %,d steps), %,d rejected in %.1f s"
+				+ " - %,.0f records/s, %,.0f projects/s", file, recordsRead, resumedAfter > 0 ? " after resuming at record " + (resumedAfter + 1) : "",
+				imported, materials, steps, rejected, elapsed.toMillis() / 1000.0, recordsPerSecond(), projectsPerSecond());
+	} // toString
+
+} // record
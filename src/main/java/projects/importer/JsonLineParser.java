@@ -0,0 +1,218 @@
+package projects.importer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Just enough JSON for one import record per line.  Objects come back as Maps, arrays as Lists and numbers as BigDecimals,
+ * along with Strings, Booleans and null.  Anything malformed throws IllegalArgumentException naming the column.
+ */
+final class JsonLineParser {
+	private static final int MAX_DEPTH = 16; // Import records nest two levels; this only stops a hostile line blowing the stack.
+
+	private final String text;
+	private int pos;
+
+	private JsonLineParser(String text) {
+		this.text = text;
+	}
+
+	static Object parse(String text) {
+		JsonLineParser parser = new JsonLineParser(text);
+		parser.skipWhitespace();
+		Object value = parser.readValue(0);
+		parser.skipWhitespace();
+		if(parser.pos < text.length()) {
+			throw parser.error("Unexpected text after the value");
+		} // if
+		return value;
+	} // parse
+
+	private Object readValue(int depth) {
+		if(depth > MAX_DEPTH) {
+			throw error("Nested deeper than " + MAX_DEPTH + " levels");
+		} // if
+		if(pos >= text.length()) {
+			throw error("Unexpected end of line");
+		} // if
+		char c = text.charAt(pos);
+		switch(c) {
+		case '{':
+			return readObject(depth);
+		case '[':
+			return readArray(depth);
+		case '"':
+			return readString();
+		case 't':
+			return readLiteral("true", Boolean.TRUE);
+		case 'f':
+			return readLiteral("false", Boolean.FALSE);
+		case 'n':
+			return readLiteral("null", null);
+		default:
+			if(c == '-' || (c >= '0' && c <= '9')) {
+				return readNumber();
+			} // if
+			throw error("Unexpected character '" + c + "'");
+		} // switch
+	} // readValue
+
+	private Map<String, Object> readObject(int depth) {
+		Map<String, Object> object = new LinkedHashMap<>();
+		pos++;
+		skipWhitespace();
+		if(peek() == '}') {
+			pos++;
+			return object;
+		} // if
+		while(true) {
+			skipWhitespace();
+			if(peek() != '"') {
+				throw error("Expected a quoted key");
+			} // if
+			String key = readString();
+			skipWhitespace();
+			expect(':');
+			skipWhitespace();
+			if(object.containsKey(key)) {
+				throw error("Duplicate key \"" + key + "\"");
+			} // if
+			object.put(key, readValue(depth + 1));
+			skipWhitespace();
+			if(peek() == ',') {
+				pos++;
+			} else {
+				expect('}');
+				return object;
+			} // if
+		} // while
+	} // readObject
+
+	private List<Object> readArray(int depth) {
+		List<Object> array = new ArrayList<>();
+		pos++;
+		skipWhitespace();
+		if(peek() == ']') {
+			pos++;
+			return array;
+		} // if
+		while(true) {
+			skipWhitespace();
+			array.add(readValue(depth + 1));
+			skipWhitespace();
+			if(peek() == ',') {
+				pos++;
+			} else {
+				expect(']');
+				return array;
+			} // if
+		} // while
+	} // readArray
+
+	private String readString() {
+		pos++; // The opening quote.
+		StringBuilder result = new StringBuilder();
+		while(true) {
+			if(pos >= text.length()) {
+				throw error("Unterminated string");
+			} // if
+			char c = text.charAt(pos++);
+			if(c == '"') {
+				return result.toString();
+			} // if
+			if(c < 0x20) {
+				throw error("Unescaped control character in a string");
+			} // if
+			if(c != '\\') {
+				result.append(c);
+				continue;
+			} // if
+			if(pos >= text.length()) {
+				throw error("Unterminated string");
+			} // if
+			char escaped = text.charAt(pos++);
+			switch(escaped) {
+			case '"', '\\', '/':
+				result.append(escaped);
+				break;
+			case 'b':
+				result.append('\b');
+				break;
+			case 'f':
+				result.append('\f');
+				break;
+			case 'n':
+				result.append('\n');
+				break;
+			case 'r':
+				result.append('\r');
+				break;
+			case 't':
+				result.append('\t');
+				break;
+			case 'u':
+				if(pos + 4 > text.length()) {
+					throw error("Incomplete \\u escape");
+				} // if
+				try {
+					result.append((char)Integer.parseInt(text.substring(pos, pos + 4), 16));
+				} catch(NumberFormatException e) {
+					throw error("Invalid \\u escape");
+				} // try-catch
+				pos += 4;
+				break;
+			default:
+				throw error("Invalid escape \\" + escaped);
+			} // switch
+		} // while
+	} // readString
+
+	private BigDecimal readNumber() {
+		int start = pos;
+		if(peek() == '-') {
+			pos++;
+		} // if
+		while(pos < text.length() && "0123456789.eE+-".indexOf(text.charAt(pos)) >= 0) {
+			pos++;
+		} // while
+		try {
+			return new BigDecimal(text.substring(start, pos));
+		} catch(NumberFormatException e) {
+			pos = start;
+			throw error("Invalid number");
+		} // try-catch
+	} // readNumber
+
+	private Object readLiteral(String literal, Object value) {
+		if(!text.startsWith(literal, pos)) {
+			throw error("Unexpected character '" + text.charAt(pos) + "'");
+		} // if
+		pos += literal.length();
+		return value;
+	} // readLiteral
+
+	private void expect(char c) {
+		if(peek() != c) {
+			throw error("Expected '" + c + "'");
+		} // if
+		pos++;
+	} // expect
+
+	private char peek() {
+		return pos < text.length() ? text.charAt(pos) : '\0';
+	}
+
+	private void skipWhitespace() {
+		while(pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+			pos++;
+		} // while
+	} // skipWhitespace
+
+	private IllegalArgumentException error(String message) {
+		return new IllegalArgumentException(message + " at column " + (pos + 1));
+	}
+
+} // class
@@ -0,0 +1,158 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * The JSON Lines import format: one project object per line, with its children inline.
+ *
+ *   {"projectName": "Bookshelf", "estimatedHours": 12.5, "difficulty": 3, "notes": "Use pine",
+ *    "materials": [{"materialName": "Pine board", "numRequired": 4, "cost": 8.99}],
+ *    "steps": ["Cut the boards to length", "Sand"], "categories": ["Woodworking"]}
+ *
+ * Only projectName is required.  Hours and costs may be numbers or numeric strings, steps keep their order, categories name
+ * existing categories, and unknown keys are rejected so a misspelt one isn't silently dropped.  Blank lines are skipped.
+ */
+final class JsonRecords {
+	private static final Set<String> PROJECT_KEYS = Set.of("projectName", "estimatedHours", "actualHours", "difficulty", "notes", "materials",
+			"steps", "categories");
+	private static final Set<String> MATERIAL_KEYS = Set.of("materialName", "numRequired", "cost");
+
+	private JsonRecords() {
+	}
+
+	static final class Splitter implements RecordSplitter {
+		private final BufferedReader in;
+		private final int maxRecordChars;
+		private long lineNumber;
+
+		Splitter(BufferedReader in, int maxRecordChars) {
+			this.in = in;
+			this.maxRecordChars = maxRecordChars;
+		}
+
+		@Override
+		public RawRecord next(long sequence) throws IOException {
+			String line;
+			while(Objects.nonNull(line = in.readLine())) {
+				lineNumber++;
+				if(!line.isBlank()) {
+					return new RawRecord(sequence, lineNumber, line.length() > maxRecordChars ? null : line);
+				} // if
+			} // while
+			return null;
+		} // next
+
+	} // Splitter
+
+	static Project parse(String text) {
+		Map<String, Object> object = object(JsonLineParser.parse(text), "The record");
+		checkKeys(object, PROJECT_KEYS, "project");
+		Project project = new Project();
+		project.setProjectName(string(object, "projectName"));
+		project.setEstimatedHours(decimal(object, "estimatedHours"));
+		project.setActualHours(decimal(object, "actualHours"));
+		project.setDifficulty(integer(object, "difficulty"));
+		project.setNotes(string(object, "notes"));
+		for(Object element : list(object, "materials")) {
+			Map<String, Object> fields = object(element, "Each material");
+			checkKeys(fields, MATERIAL_KEYS, "material");
+			Material material = new Material();
+			material.setMaterialName(string(fields, "materialName"));
+			material.setNumRequired(integer(fields, "numRequired"));
+			material.setCost(decimal(fields, "cost"));
+			project.getMaterials().add(material);
+		} // for
+		for(Object element : list(object, "steps")) {
+			if(!(element instanceof String stepText)) {
+				throw new IllegalArgumentException("Each step must be a string");
+			} // if
+			Step step = new Step();
+			step.setStepText(stepText.trim());
+			project.getSteps().add(step);
+		} // for
+		for(Object element : list(object, "categories")) {
+			if(!(element instanceof String name)) {
+				throw new IllegalArgumentException("Each category must be a string naming an existing category");
+			} // if
+			Category category = new Category();
+			category.setCategoryName(name.trim());
+			project.getCategories().add(category);
+		} // for
+		return project;
+	} // parse
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> object(Object value, String what) {
+		if(!(value instanceof Map)) {
+			throw new IllegalArgumentException(what + " must be a JSON object");
+		} // if
+		return (Map<String, Object>)value;
+	} // object
+
+	private static void checkKeys(Map<String, Object> object, Set<String> allowed, String what) {
+		for(String key : object.keySet()) {
+			if(!allowed.contains(key)) {
+				throw new IllegalArgumentException("Unknown " + what + " key \"" + key + "\"");
+			} // if
+		} // for
+	} // checkKeys
+
+	private static String string(Map<String, Object> object, String key) {
+		Object value = object.get(key);
+		if(Objects.isNull(value)) {
+			return null;
+		} // if
+		if(!(value instanceof String text)) {
+			throw new IllegalArgumentException(key + " must be a string");
+		} // if
+		String trimmed = text.trim();
+		return trimmed.isEmpty() ? null : trimmed;
+	} // string
+
+	private static BigDecimal decimal(Map<String, Object> object, String key) {
+		Object value = object.get(key);
+		if(Objects.isNull(value) || value instanceof BigDecimal) {
+			return (BigDecimal)value;
+		} // if
+		if(value instanceof String text && !text.isBlank()) {
+			try {
+				return new BigDecimal(text.trim());
+			} catch(NumberFormatException e) {
+				// Reported below.
+			} // try-catch
+		} // if
+		throw new IllegalArgumentException(key + " is not a number: " + value);
+	} // decimal
+
+	private static Integer integer(Map<String, Object> object, String key) {
+		BigDecimal value = decimal(object, key);
+		try {
+			return Objects.isNull(value) ? null : value.intValueExact();
+		} catch(ArithmeticException e) {
+			throw new IllegalArgumentException(key + " is not a whole number: " + value.toPlainString());
+		} // try-catch
+	} // integer
+
+	private static List<?> list(Map<String, Object> object, String key) {
+		Object value = object.get(key);
+		if(Objects.isNull(value)) {
+			return List.of();
+		} // if
+		if(!(value instanceof List<?> elements)) {
+			throw new IllegalArgumentException(key + " must be an array");
+		} // if
+		return elements;
+	} // list
+
+} // class
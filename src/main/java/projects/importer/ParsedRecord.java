@@ -0,0 +1,23 @@
+package projects.importer;
+
+import projects.entity.Project;
+
+/*
+ * A record after the parse and validate stage: either a project ready to insert, or the reason it was rejected.
+ */
+record ParsedRecord(long sequence, long line, Project project, String rejectReason) {
+	static final ParsedRecord END = new ParsedRecord(-1, -1, null, null); // One parser thread has finished.
+
+	static ParsedRecord accepted(RawRecord raw, Project project) {
+		return new ParsedRecord(raw.sequence(), raw.line(), project, null);
+	}
+
+	static ParsedRecord rejected(RawRecord raw, String reason) {
+		return new ParsedRecord(raw.sequence(), raw.line(), null, reason);
+	}
+
+	boolean isAccepted() {
+		return project != null;
+	}
+
+} // record
@@ -0,0 +1,373 @@
+package projects.importer;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.System.Logger.Level;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import projects.entity.Project;
+import projects.exception.DbException;
+import projects.metrics.Metrics;
+import projects.metrics.OperationTimer;
+import projects.service.ProjectService;
+
+/*
+ * Streams projects, with their materials, steps and categories, from a CSV or JSON Lines file (optionally gzipped) into the
+ * database.  Three stages run on their own threads, joined by bounded queues:
+ *
+ *   read (1 thread)               cuts the file into records, one project each
+ *   parse (parserThreads threads) parses and validates records in parallel
+ *   write (1 thread)              puts records back in file order and inserts them batchSize at a time with
+ *                                 ProjectService.addProjects, i.e. as JDBC batches through ProjectDao.insertProjects
+ *
+ * The reader may only run a fixed window of records ahead of the writer, so memory stays flat however long the file is.
+ * Each batch saves the import's checkpoint in its own insert transaction, so a batch and the checkpoint that covers it commit
+ * together; running a failed or interrupted import again with the same checkpoint name carries on after the last committed
+ * batch, and never inserts a project twice.  Records that don't parse or validate, and projects the database refuses, are
+ * rejected and reported without stopping the import.  The reject file is written ahead of the checkpoint, so a resumed run may
+ * list a reject again, but never loses one.
+ */
+public class ProjectImporter {
+	private static final System.Logger LOG = System.getLogger(ProjectImporter.class.getName());
+
+	private static final int REPORTED_REJECTS = 100; // Kept in the report; the reject file gets every one.
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+	private final ProjectService projectService;
+	private final ImportConfig config;
+
+	public ProjectImporter(ProjectService projectService, ImportConfig config) {
+		if(config.getParserThreads() < 1 || config.getQueueCapacity() < 1 || config.getBatchSize() < 1 || config.getMaxRecordChars() < 1) {
+			throw new IllegalArgumentException("Thread count, queue capacity, batch size and record size must all be at least 1: " + config);
+		} // if
+		this.projectService = projectService;
+		this.config = config;
+	} // constructor
+
+	public ImportReport importFile(Path file) {
+		return importFile(file, ImportFormat.forPath(file));
+	}
+
+	public ImportReport importFile(Path file, ImportFormat format) {
+		return new Run(file, format).execute();
+	}
+
+	@FunctionalInterface
+	private interface Stage {
+		void run() throws Exception;
+	}
+
+	/*
+	 * The state of one import.  The counters and batch belong to the writer thread; execute reads them once every stage has
+	 * finished.
+	 */
+	private class Run {
+		private final Path file;
+		private final ImportFormat format;
+		private final ImportCheckpoint checkpoint; // Null without a checkpoint name.
+		private final long resumeAfter;
+		private final ProjectValidator validator;
+		private final BlockingQueue<RawRecord> rawRecords;
+		private final BlockingQueue<ParsedRecord> parsedRecords;
+		private final Semaphore window; // Records read but not yet taken in order by the writer.
+		private final ExecutorService executor;
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		private final List<ParsedRecord> batch = new ArrayList<>();
+		private final List<ImportReport.Reject> unsavedRejects = new ArrayList<>(); // Since the last checkpoint.
+		private final List<ImportReport.Reject> reportedRejects = new ArrayList<>();
+		private BufferedWriter rejectWriter;
+		private long recordsRead;
+		private long imported;
+		private long rejected;
+		private long materials;
+		private long steps;
+		private volatile long committedThrough; // Also read by execute, for progress.
+
+		Run(Path file, ImportFormat format) {
+			this.file = file;
+			this.format = format;
+			this.checkpoint = Objects.isNull(config.getCheckpointName()) ? null : new ImportCheckpoint(config.getCheckpointName(), file);
+			this.resumeAfter = Objects.isNull(checkpoint) ? 0 : checkpoint.read();
+			this.committedThrough = resumeAfter;
+			this.validator = new ProjectValidator(projectService.fetchAllCategories());
+			this.rawRecords = new ArrayBlockingQueue<>(config.getQueueCapacity());
+			this.parsedRecords = new ArrayBlockingQueue<>(config.getQueueCapacity());
+			// Both queues full plus one record in each parser.  Without the limit a slow record would let the writer's reorder
+			// buffer grow without end while the records after it kept arriving.
+			this.window = new Semaphore(2 * config.getQueueCapacity() + config.getParserThreads());
+			AtomicInteger threadNumber = new AtomicInteger();
+			this.executor = Executors.newFixedThreadPool(config.getParserThreads() + 2, runnable -> {
+				Thread thread = new Thread(runnable, "project-import-" + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		} // constructor
+
+		ImportReport execute() {
+			long started = System.nanoTime();
+			LOG.log(Level.INFO, () -> "Importing " + file + " as " + format + (resumeAfter > 0 ? ", resuming after record " + resumeAfter : ""));
+			try(OperationTimer timer = Metrics.start("importProjects")) {
+				executor.execute(guard(this::read));
+				for(int i = 0; i < config.getParserThreads(); i++) {
+					executor.execute(guard(this::parse));
+				} // for
+				executor.execute(guard(this::write));
+				executor.shutdown();
+				try {
+					while(!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+						LOG.log(Level.DEBUG, () -> "Import of " + file + " has committed " + committedThrough + " records");
+					} // while
+				} catch(InterruptedException e) {
+					executor.shutdownNow();
+					Thread.currentThread().interrupt();
+					throw new DbException("Interrupted while importing " + file + resumeHint(), e);
+				} // try-catch
+				Throwable cause = failure.get();
+				if(Objects.nonNull(cause)) {
+					throw new DbException("Import of " + file + " stopped: " + cause.getMessage() + resumeHint(), cause);
+				} // if
+				timer.rows(imported);
+				timer.success();
+			} // try
+			ImportReport report = new ImportReport(file, resumeAfter, recordsRead, imported, rejected, materials, steps,
+					Duration.ofNanos(System.nanoTime() - started), List.copyOf(reportedRejects));
+			LOG.log(Level.INFO, report::toString);
+			return report;
+		} // execute
+
+		private String resumeHint() {
+			return Objects.isNull(checkpoint) ? "" : ".  Records through " + committedThrough + " are committed; run the import again to resume.";
+		}
+
+		/*
+		 * Runs a stage.  If it fails, the others are interrupted so none is left waiting on a queue forever.
+		 */
+		private Runnable guard(Stage stage) {
+			return () -> {
+				try {
+					stage.run();
+				} catch(InterruptedException e) {
+					// Stopped because another stage failed.
+				} catch(Throwable e) { // Errors too: a stage that dies quietly would leave the pipeline stuck.
+					failure.compareAndSet(null, e);
+					executor.shutdownNow();
+				} // try-catch
+			};
+		} // guard
+
+		private void read() throws IOException, InterruptedException {
+			try(BufferedReader in = openFile()) {
+				RecordSplitter splitter = format.splitter(in, config.getMaxRecordChars());
+				long sequence = 0;
+				RawRecord record;
+				while(Objects.nonNull(record = splitter.next(sequence + 1))) {
+					sequence++;
+					if(sequence <= resumeAfter) {
+						continue; // Committed by an earlier run.
+					} // if
+					window.acquire();
+					rawRecords.put(record);
+				} // while
+			} // try
+			for(int i = 0; i < config.getParserThreads(); i++) {
+				rawRecords.put(RawRecord.END);
+			} // for
+		} // read
+
+		private BufferedReader openFile() throws IOException {
+			InputStream in = Files.newInputStream(file);
+			try {
+				if(ImportFormat.isGzipped(file)) {
+					in = new GZIPInputStream(in, READ_BUFFER_SIZE);
+				} // if
+			} catch(IOException e) {
+				in.close();
+				throw e;
+			} // try-catch
+			// A decoder that reports bad bytes, rather than one that quietly turns them into replacement characters.
+			return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8.newDecoder()), READ_BUFFER_SIZE);
+		} // openFile
+
+		private void parse() throws InterruptedException {
+			while(true) {
+				RawRecord raw = rawRecords.take();
+				if(raw == RawRecord.END) {
+					parsedRecords.put(ParsedRecord.END);
+					return;
+				} // if
+				parsedRecords.put(parse(raw));
+			} // while
+		} // parse
+
+		private ParsedRecord parse(RawRecord raw) {
+			if(Objects.isNull(raw.text())) {
+				return ParsedRecord.rejected(raw, "The record is longer than " + config.getMaxRecordChars() + " characters");
+			} // if
+			try {
+				Project project = format.parse(raw.text());
+				validator.validate(project);
+				return ParsedRecord.accepted(raw, project);
+			} catch(IllegalArgumentException e) {
+				return ParsedRecord.rejected(raw, e.getMessage());
+			} // try-catch
+		} // parse
+
+		private void write() throws IOException, InterruptedException {
+			Map<Long, ParsedRecord> waiting = new HashMap<>(); // Parsed ahead of the next record in file order.
+			long next = resumeAfter + 1;
+			int runningParsers = config.getParserThreads();
+			openRejectFile();
+			try {
+				while(runningParsers > 0) {
+					ParsedRecord parsed = parsedRecords.take();
+					if(parsed == ParsedRecord.END) {
+						runningParsers--;
+						continue;
+					} // if
+					waiting.put(parsed.sequence(), parsed);
+					while(Objects.nonNull(parsed = waiting.remove(next))) {
+						next++;
+						window.release();
+						recordsRead++;
+						if(parsed.isAccepted()) {
+							batch.add(parsed);
+						} else {
+							reject(parsed.line(), parsed.rejectReason());
+						} // if
+						if(batch.size() >= config.getBatchSize() || unsavedRejects.size() >= config.getBatchSize()) {
+							commit(next - 1);
+						} // if
+					} // while
+				} // while
+				commit(next - 1);
+			} finally {
+				if(Objects.nonNull(rejectWriter)) {
+					rejectWriter.close();
+				} // if
+			} // try-finally
+		} // write
+
+		/*
+		 * Saves the rejects, then inserts the batch and moves the checkpoint to the given record.
+		 */
+		private void commit(long throughSequence) throws IOException {
+			if(Objects.nonNull(rejectWriter)) {
+				for(ImportReport.Reject reject : unsavedRejects) {
+					rejectWriter.write(reject.toString().replace('\n', ' ').replace('\r', ' '));
+					rejectWriter.newLine();
+				} // for
+				rejectWriter.flush();
+			} // if
+			unsavedRejects.clear();
+			boolean saved = !batch.isEmpty() && insert(throughSequence);
+			if(!saved && Objects.nonNull(checkpoint)) {
+				checkpoint.write(throughSequence); // Nothing was inserted since the last checkpoint, so there is nothing to commit with it.
+			} // if
+			committedThrough = throughSequence;
+			LOG.log(Level.DEBUG, () -> "Import of " + file + " committed through record " + throughSequence + ": " + imported + " imported, "
+					+ rejected + " rejected");
+		} // commit
+
+		/*
+		 * Inserts the batch, whose records all come at or before the given one, and says whether the checkpoint was saved at it
+		 * with the inserts.
+		 */
+		private boolean insert(long throughSequence) {
+			List<Project> projects = new ArrayList<>(batch.size());
+			batch.forEach(record -> projects.add(record.project()));
+			try {
+				add(projects, throughSequence);
+				counted(projects);
+				batch.clear();
+				return true;
+			} catch(DbException e) {
+				if(!e.isDataError()) {
+					throw e; // The database itself is in trouble; stop, and resume from the checkpoint later.
+				} // if
+				// One bad project fails its whole batch, so find it by inserting the projects one at a time.
+				LOG.log(Level.DEBUG, () -> "Batch ending at line " + batch.get(batch.size() - 1).line() + " was refused; retrying one by one");
+				for(ParsedRecord record : batch) {
+					try {
+						add(List.of(record.project()), record.sequence()); // Each insert moves the checkpoint up to its own record.
+						counted(List.of(record.project()));
+					} catch(DbException single) {
+						if(!single.isDataError()) {
+							throw single;
+						} // if
+						reject(record.line(), "The database refused the project: " + rootMessage(single));
+					} // try-catch
+				} // for
+			} // try-catch
+			batch.clear();
+			return false; // The records after the last project inserted still need the checkpoint.
+		} // insert
+
+		private void add(List<Project> projects, long throughSequence) {
+			if(Objects.isNull(checkpoint)) {
+				projectService.addProjects(projects, projects.size());
+			} else {
+				projectService.addProjects(projects, checkpoint.progress(throughSequence));
+			} // if
+		} // add
+
+		private void counted(List<Project> projects) {
+			imported += projects.size();
+			for(Project project : projects) {
+				materials += project.getMaterials().size();
+				steps += project.getSteps().size();
+			} // for
+		} // counted
+
+		private void reject(long line, String reason) {
+			rejected++;
+			ImportReport.Reject reject = new ImportReport.Reject(line, reason);
+			if(reportedRejects.size() < REPORTED_REJECTS) {
+				reportedRejects.add(reject);
+			} // if
+			unsavedRejects.add(reject);
+			if(config.getMaxRejects() >= 0 && rejected > config.getMaxRejects()) {
+				throw new DbException("More than " + config.getMaxRejects() + " records were rejected; the last was at " + reject);
+			} // if
+		} // reject
+
+		private void openRejectFile() throws IOException {
+			if(Objects.isNull(config.getRejectFile())) {
+				return;
+			} // if
+			StandardOpenOption mode = resumeAfter > 0 ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING; // A resumed run adds to the last one's rejects.
+			rejectWriter = Files.newBufferedWriter(config.getRejectFile(), StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+		} // openRejectFile
+
+	} // Run
+
+	private static String rootMessage(Throwable e) {
+		Throwable root = e;
+		while(Objects.nonNull(root.getCause())) {
+			root = root.getCause();
+		} // while
+		return root.getMessage();
+	} // rootMessage
+
+} // class
@@ -0,0 +1,111 @@
+package projects.importer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.entity.Category;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * Checks a parsed project against the schema before it reaches the database, so one bad record is rejected on its own
+ * instead of failing the batch it would have been inserted with.  Also swaps each category name for the existing category.
+ * Thread-safe: the category map is never changed after construction.
+ */
+final class ProjectValidator {
+	private static final int MAX_NAME_LENGTH = 128; // VARCHAR(128)
+	private static final int MAX_TEXT_BYTES = 65_535; // TEXT
+	private static final BigDecimal MAX_DECIMAL = new BigDecimal("99999.99"); // DECIMAL(7,2)
+	private static final int MAX_DECIMAL_SCALE = 2;
+
+	private final Map<String, Category> categoriesByName = new HashMap<>();
+
+	ProjectValidator(List<Category> categories) {
+		for(Category category : categories) {
+			categoriesByName.put(key(category.getCategoryName()), category);
+		} // for
+	} // constructor
+
+	/*
+	 * Throws IllegalArgumentException describing the first problem found.
+	 */
+	void validate(Project project) {
+		checkName(project.getProjectName(), "projectName");
+		checkDecimal(project.getEstimatedHours(), "estimatedHours");
+		checkDecimal(project.getActualHours(), "actualHours");
+		if(Objects.nonNull(project.getDifficulty()) && (project.getDifficulty() < 1 || project.getDifficulty() > 5)) {
+			throw new IllegalArgumentException("difficulty must be from 1 to 5, not " + project.getDifficulty());
+		} // if
+		checkText(project.getNotes(), "notes");
+		for(Material material : project.getMaterials()) {
+			checkName(material.getMaterialName(), "materialName");
+			if(Objects.nonNull(material.getNumRequired()) && material.getNumRequired() < 0) {
+				throw new IllegalArgumentException("numRequired of material '" + material.getMaterialName() + "' is negative");
+			} // if
+			checkDecimal(material.getCost(), "cost of material '" + material.getMaterialName() + "'");
+		} // for
+		for(Step step : project.getSteps()) {
+			if(Objects.isNull(step.getStepText()) || step.getStepText().isBlank()) {
+				throw new IllegalArgumentException("A step has no text");
+			} // if
+			checkText(step.getStepText(), "step text");
+		} // for
+		project.setCategories(resolveCategories(project.getCategories()));
+	} // validate
+
+	/*
+	 * The existing categories named, each once; a project can only be linked to a category once.
+	 */
+	private List<Category> resolveCategories(List<Category> named) {
+		Map<Integer, Category> resolved = new LinkedHashMap<>();
+		for(Category category : named) {
+			Category existing = Objects.isNull(category.getCategoryName()) ? null : categoriesByName.get(key(category.getCategoryName()));
+			if(Objects.isNull(existing)) {
+				throw new IllegalArgumentException("Unknown category '" + category.getCategoryName() + "'");
+			} // if
+			resolved.putIfAbsent(existing.getCategoryId(), existing);
+		} // for
+		return new ArrayList<>(resolved.values());
+	} // resolveCategories
+
+	private static void checkName(String name, String field) {
+		if(Objects.isNull(name) || name.isBlank()) {
+			throw new IllegalArgumentException(field + " is required");
+		} // if
+		if(name.length() > MAX_NAME_LENGTH) {
+			throw new IllegalArgumentException(field + " is longer than " + MAX_NAME_LENGTH + " characters");
+		} // if
+	} // checkName
+
+	private static void checkDecimal(BigDecimal value, String field) {
+		if(Objects.isNull(value)) {
+			return;
+		} // if
+		if(value.signum() < 0 || value.compareTo(MAX_DECIMAL) > 0) {
+			throw new IllegalArgumentException(field + " must be from 0 to " + MAX_DECIMAL + ", not " + value.toPlainString());
+		} // if
+		if(value.stripTrailingZeros().scale() > MAX_DECIMAL_SCALE) {
+			throw new IllegalArgumentException(field + " has more than " + MAX_DECIMAL_SCALE + " decimal places: " + value.toPlainString());
+		} // if
+	} // checkDecimal
+
+	private static void checkText(String text, String field) {
+		// A char is at most 3 UTF-8 bytes (surrogate pairs are 4 bytes for 2 chars), so short text needs no encoding.
+		if(Objects.nonNull(text) && text.length() > MAX_TEXT_BYTES / 3 && text.getBytes(StandardCharsets.UTF_8).length > MAX_TEXT_BYTES) {
+			throw new IllegalArgumentException(field + " is longer than " + MAX_TEXT_BYTES + " bytes");
+		} // if
+	} // checkText
+
+	private static String key(String categoryName) {
+		return categoryName.trim().toLowerCase(Locale.ROOT);
+	}
+
+} // class
@@ -0,0 +1,9 @@
+package projects.importer;
+
+/*
+ * One record as cut from the import file, before parsing: its position among the file's records (from 1), the line it starts
+ * on, and its text.  The text is null for a record over ImportConfig.maxRecordChars; only its size was kept.
+ */
+record RawRecord(long sequence, long line, String text) {
+	static final RawRecord END = new RawRecord(-1, -1, null); // Tells a parser thread there is nothing more to read.
+} // record
@@ -0,0 +1,15 @@
+package projects.importer;
+
+import java.io.IOException;
+
+/*
+ * Cuts an import file into records, one project each, reading it front to back in a single pass.
+ */
+interface RecordSplitter {
+
+	/*
+	 * The next record, numbered with the given sequence, or null at the end of the file.
+	 */
+	RawRecord next(long sequence) throws IOException;
+
+} // interface
@@ -0,0 +1,81 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A lock-free latency histogram with HDR-style log-linear buckets: every power of two is split into 16 equal sub-buckets, so
+ * any recorded value is known to within about 6% whether it is 2 microseconds or 2 seconds, in a fixed 976-slot array.
+ * Values are in nanoseconds.
+ */
+public class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS + SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+	private final LongAdder totalCount = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(indexOf(value));
+		totalCount.increment();
+		totalNanos.add(value);
+		maxNanos.accumulate(value);
+	} // record
+
+	public long getCount() {
+		return totalCount.sum();
+	}
+
+	public long getMaxNanos() {
+		return maxNanos.get();
+	}
+
+	public double getMeanNanos() {
+		long count = totalCount.sum();
+		return count == 0 ? 0.0 : (double)totalNanos.sum() / count;
+	}
+
+	/*
+	 * The smallest bucket upper bound that at least the given fraction (0.0 to 1.0) of recorded values fall under.
+	 */
+	public long getPercentileNanos(double fraction) {
+		long count = totalCount.sum();
+		if(count == 0) {
+			return 0;
+		} // if
+		long target = Math.max(1, (long)Math.ceil(fraction * count));
+		long seen = 0;
+		for(int index = 0; index < BUCKET_COUNT; index++) {
+			seen += counts.get(index);
+			if(seen >= target) {
+				return Math.min(upperBoundOf(index), getMaxNanos());
+			} // if
+		} // for
+		return getMaxNanos(); // Only reachable if records raced with this read.
+	} // getPercentileNanos
+
+	static int indexOf(long value) {
+		if(value < SUB_BUCKETS) {
+			return (int)value;
+		} // if
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift) & (SUB_BUCKETS - 1);
+		return (shift + 1) * SUB_BUCKETS + subBucket;
+	} // indexOf
+
+	static long upperBoundOf(int index) {
+		if(index < SUB_BUCKETS) {
+			return index;
+		} // if
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS;
+		return ((SUB_BUCKETS + subBucket + 1) << shift) - 1;
+	} // upperBoundOf
+
+} // class
@@ -0,0 +1,54 @@
+package projects.metrics;
+
+import java.util.Objects;
+
+import provided.util.QueryTracer;
+
+/*
+ * Static access to the current MetricsRegistry, so DAO code doesn't have to pass one around.
+ *
+ * Besides the per-operation metrics, every statement execution can be recorded under its SQL text (MetricsRegistry.statement),
+ * so an operation that runs several statements can be broken down.  The statements report through QueryTracer, which then
+ * wraps each one in a reflective proxy on top of the statement cache's, so every setter and execute pays for it.  That is off
+ * by default; turn it on to investigate with the system property query.metrics.statements=true, setStatementMetricsEnabled
+ * or the TracingControl MBean.
+ */
+public final class Metrics {
+
+	private static volatile MetricsRegistry registry = new SimpleMetricsRegistry(true);
+
+	private static final QueryTracer.StatementListener STATEMENT_METRICS =
+			(sql, nanos, rows, failed) -> registry.statement(sql).record(nanos, rows, failed);
+
+	static {
+		setStatementMetricsEnabled(Boolean.getBoolean("query.metrics.statements"));
+	}
+
+	private Metrics() {
+	}
+
+	public static MetricsRegistry getRegistry() {
+		return registry;
+	}
+
+	public static void setRegistry(MetricsRegistry newRegistry) {
+		registry = Objects.requireNonNull(newRegistry);
+	}
+
+	public static OperationTimer start(String operation) {
+		return new OperationTimer(registry.operation(operation));
+	}
+
+	public static void record(String operation, long nanos, long rows, boolean failed) {
+		registry.operation(operation).record(nanos, rows, failed);
+	}
+
+	public static boolean isStatementMetricsEnabled() {
+		return QueryTracer.getStatementListener() == STATEMENT_METRICS;
+	}
+
+	public static void setStatementMetricsEnabled(boolean enabled) {
+		QueryTracer.setStatementListener(enabled ? STATEMENT_METRICS : null);
+	}
+
+} // class
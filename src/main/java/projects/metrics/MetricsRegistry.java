@@ -0,0 +1,26 @@
+package projects.metrics;
+
+import java.util.Collection;
+
+/*
+ * Where operation metrics are kept.  Metrics.setRegistry() swaps in a different implementation, e.g. one that forwards to an
+ * external monitoring library.
+ */
+public interface MetricsRegistry {
+
+	/*
+	 * Returns the metrics for the named operation, creating them on first use.  Called on every DAO call, so it must be cheap.
+	 */
+	OperationMetrics operation(String name);
+
+	Collection<OperationMetrics> operations();
+
+	/*
+	 * Returns the metrics for one SQL text, creating them on first use.  Called on every statement execution while statement
+	 * metrics are on (see Metrics.setStatementMetricsEnabled).
+	 */
+	OperationMetrics statement(String sql);
+
+	Collection<OperationMetrics> statements();
+
+} // interface
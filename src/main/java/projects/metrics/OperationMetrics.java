@@ -0,0 +1,85 @@
+package projects.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Call, error and row counts plus a latency histogram for one named operation (a DAO method, or "connection.acquire"), or for
+ * one SQL text.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+	private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+	private final String name;
+	private final LongAdder errors = new LongAdder();
+	private final LongAdder rows = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	public OperationMetrics(String name) {
+		this.name = name;
+	}
+
+	public void record(long nanos, long rowCount, boolean failed) {
+		latency.record(nanos);
+		rows.add(rowCount);
+		if(failed) {
+			errors.increment();
+		} // if
+	} // record
+
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public long getCount() {
+		return latency.getCount();
+	}
+
+	@Override
+	public long getErrors() {
+		return errors.sum();
+	}
+
+	@Override
+	public long getRows() {
+		return rows.sum();
+	}
+
+	@Override
+	public double getMeanMillis() {
+		return latency.getMeanNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP50Millis() {
+		return latency.getPercentileNanos(0.50) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP95Millis() {
+		return latency.getPercentileNanos(0.95) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getP99Millis() {
+		return latency.getPercentileNanos(0.99) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis() {
+		return latency.getMaxNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d, errors=%d, rows=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms", name, getCount(),
+				getErrors(), getRows(), getMeanMillis(), getP50Millis(), getP99Millis(), getMaxMillis());
+	}
+
+} // class
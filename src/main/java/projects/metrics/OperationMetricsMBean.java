@@ -0,0 +1,26 @@
+package projects.metrics;
+
+/*
+ * The JMX view of one OperationMetrics.  Times are in milliseconds.
+ */
+public interface OperationMetricsMBean {
+
+	String getName();
+
+	long getCount();
+
+	long getErrors();
+
+	long getRows();
+
+	double getMeanMillis();
+
+	double getP50Millis();
+
+	double getP95Millis();
+
+	double getP99Millis();
+
+	double getMaxMillis();
+
+} // interface
@@ -0,0 +1,53 @@
+package projects.metrics;
+
+import provided.util.QueryTracer;
+
+/*
+ * Times one operation.  Open it in a try-with-resources block, call success() just before returning normally and rows() for
+ * anything read or written; if the block is left without success(), the call is counted as an error.  The timer also begins a
+ * QueryTracer trace for the operation, so a sampled call logs each of its statements.
+ */
+public class OperationTimer implements AutoCloseable {
+
+	private final OperationMetrics metrics;
+	private final QueryTracer.Trace trace;
+	private final long startNanos = System.nanoTime();
+	private long rows;
+	private boolean succeeded;
+	private boolean traceEnded;
+	private boolean closed;
+
+	OperationTimer(OperationMetrics metrics) {
+		this.metrics = metrics;
+		this.trace = QueryTracer.begin(metrics.getName());
+	}
+
+	public void rows(long count) {
+		rows += count;
+	}
+
+	public void success() {
+		succeeded = true;
+	}
+
+	@Override
+	public void close() {
+		if(!closed) {
+			closed = true;
+			metrics.record(System.nanoTime() - startNanos, rows, !succeeded);
+			endTrace();
+		} // if
+	} // close
+
+	/*
+	 * Ends the trace before close(), for an operation that outlives the call that started it (a stream): the trace is the
+	 * thread's current one until it ends, so later operations on the thread would nest under it.  The timing runs on to close().
+	 */
+	public void endTrace() {
+		if(!traceEnded) {
+			traceEnded = true;
+			trace.close();
+		} // if
+	} // endTrace
+
+} // class
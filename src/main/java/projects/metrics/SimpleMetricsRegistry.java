@@ -0,0 +1,87 @@
+package projects.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/*
+ * The default registry: keeps everything in memory and, optionally, publishes each operation as an MBean named
+ * projects:type=DaoOperation,name=<operation> so it shows up in JConsole / VisualVM, along with the QueryTracer settings as
+ * projects:type=QueryTracing.  Statement metrics are published the same way as projects:type=DaoStatement,name=<SQL>.
+ *
+ * The DAOs build their SQL from constants, so the number of distinct statement texts is small; still, past MAX_STATEMENTS
+ * further texts share one "(other statements)" entry rather than growing the map without bound.
+ */
+public class SimpleMetricsRegistry implements MetricsRegistry {
+
+	private static final System.Logger LOG = System.getLogger(SimpleMetricsRegistry.class.getName());
+
+	private static final int MAX_STATEMENTS = 1_000;
+	private static final String OTHER_STATEMENTS = "(other statements)";
+
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, OperationMetrics> statements = new ConcurrentHashMap<>();
+	private final boolean exportToJmx;
+
+	public SimpleMetricsRegistry(boolean exportToJmx) {
+		this.exportToJmx = exportToJmx;
+		if(exportToJmx) {
+			register(new TracingControl(), "projects:type=QueryTracing");
+		} // if
+	} // constructor
+
+	@Override
+	public OperationMetrics operation(String name) {
+		OperationMetrics metrics = operations.get(name); // The common case is a plain lookup with no locking.
+		return metrics != null ? metrics : operations.computeIfAbsent(name, this::create);
+	} // operation
+
+	@Override
+	public Collection<OperationMetrics> operations() {
+		return Collections.unmodifiableCollection(operations.values());
+	}
+
+	@Override
+	public OperationMetrics statement(String sql) {
+		OperationMetrics metrics = statements.get(sql);
+		if(metrics != null) {
+			return metrics;
+		} // if
+		String key = statements.size() < MAX_STATEMENTS ? sql : OTHER_STATEMENTS; // The limit is approximate under races, which is fine.
+		return statements.computeIfAbsent(key, text -> create(text, "DaoStatement"));
+	} // statement
+
+	@Override
+	public Collection<OperationMetrics> statements() {
+		return Collections.unmodifiableCollection(statements.values());
+	}
+
+	private OperationMetrics create(String name) {
+		return create(name, "DaoOperation");
+	}
+
+	private OperationMetrics create(String name, String type) {
+		OperationMetrics metrics = new OperationMetrics(name);
+		if(exportToJmx) {
+			register(metrics, "projects:type=" + type + ",name=" + ObjectName.quote(name));
+		} // if
+		return metrics;
+	} // create
+
+	private static void register(Object mbean, String name) {
+		try {
+			ObjectName objectName = new ObjectName(name);
+			if(!ManagementFactory.getPlatformMBeanServer().isRegistered(objectName)) {
+				ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+			} // if
+		} catch(JMException e) {
+			LOG.log(System.Logger.Level.WARNING, "Unable to register " + name + " with JMX", e); // Everything still works without JMX.
+		} // try-catch
+	} // register
+
+} // class
@@ -0,0 +1,50 @@
+package projects.metrics;
+
+import provided.util.QueryTracer;
+
+/*
+ * Exposes the QueryTracer settings as the MBean projects:type=QueryTracing.
+ */
+public class TracingControl implements TracingControlMBean {
+
+	@Override
+	public double getSampleRate() {
+		return QueryTracer.getSampleRate();
+	}
+
+	@Override
+	public void setSampleRate(double rate) {
+		QueryTracer.setSampleRate(rate);
+	}
+
+	@Override
+	public long getSlowQueryThresholdMillis() {
+		return QueryTracer.getSlowQueryThresholdMillis();
+	}
+
+	@Override
+	public void setSlowQueryThresholdMillis(long millis) {
+		QueryTracer.setSlowQueryThresholdMillis(millis);
+	}
+
+	@Override
+	public boolean isRedactParameters() {
+		return QueryTracer.isRedactParameters();
+	}
+
+	@Override
+	public void setRedactParameters(boolean redact) {
+		QueryTracer.setRedactParameters(redact);
+	}
+
+	@Override
+	public boolean isStatementMetrics() {
+		return Metrics.isStatementMetricsEnabled();
+	}
+
+	@Override
+	public void setStatementMetrics(boolean enabled) {
+		Metrics.setStatementMetricsEnabled(enabled);
+	}
+
+} // class
@@ -0,0 +1,24 @@
+package projects.metrics;
+
+/*
+ * JMX controls for QueryTracer, so tracing can be turned up on a running application.
+ */
+public interface TracingControlMBean {
+
+	double getSampleRate();
+
+	void setSampleRate(double rate);
+
+	long getSlowQueryThresholdMillis();
+
+	void setSlowQueryThresholdMillis(long millis);
+
+	boolean isRedactParameters();
+
+	void setRedactParameters(boolean redact);
+
+	boolean isStatementMetrics();
+
+	void setStatementMetrics(boolean enabled);
+
+} // interface
@@ -0,0 +1,173 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import projects.dao.ProjectChangeListener;
+import projects.entity.Category;
+import projects.entity.Project;
+
+/*
+ * Which projects are in which category, as one bitmap per category indexed by project ID.  Project IDs are dense
+ * auto-increment keys, so a bitmap costs about one bit per project, "projects in category X" is a scan of one bitmap in
+ * project_id order, and combining categories (in all of them, in any of them) is a word-at-a-time AND or OR.
+ *
+ * The index is a ProjectChangeListener: once registered with ProjectDao it follows inserted and deleted projects and bulk
+ * category assignments.  It is safe for concurrent queries and updates.
+ */
+public class CategoryIndex implements ProjectChangeListener {
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final Map<Integer, BitSet> projectsByCategory = new HashMap<>();
+
+	public void add(int categoryId, int projectId) {
+		lock.writeLock().lock();
+		try {
+			projectsByCategory.computeIfAbsent(categoryId, id -> new BitSet()).set(projectId);
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // add
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			projectsByCategory.clear();
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // clear
+
+	/*
+	 * The IDs of the projects in the category, in ascending order.
+	 */
+	public List<Integer> projectsIn(Integer categoryId) {
+		lock.readLock().lock();
+		try {
+			return toList(projectsByCategory.get(categoryId));
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // projectsIn
+
+	public int countIn(Integer categoryId) {
+		lock.readLock().lock();
+		try {
+			BitSet projects = projectsByCategory.get(categoryId);
+			return Objects.isNull(projects) ? 0 : projects.cardinality();
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // countIn
+
+	/*
+	 * The IDs of the projects in every one of the categories, in ascending order.  No categories matches no projects.
+	 */
+	public List<Integer> projectsInAll(Collection<Integer> categoryIds) {
+		lock.readLock().lock();
+		try {
+			BitSet result = null;
+			for(Integer categoryId : categoryIds) {
+				BitSet projects = projectsByCategory.get(categoryId);
+				if(Objects.isNull(projects)) {
+					return new ArrayList<>();
+				} // if
+				if(Objects.isNull(result)) {
+					result = (BitSet)projects.clone();
+				} else {
+					result.and(projects);
+				} // if
+			} // for
+			return toList(result);
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // projectsInAll
+
+	/*
+	 * The IDs of the projects in at least one of the categories, in ascending order.
+	 */
+	public List<Integer> projectsInAny(Collection<Integer> categoryIds) {
+		lock.readLock().lock();
+		try {
+			BitSet result = new BitSet();
+			for(Integer categoryId : categoryIds) {
+				BitSet projects = projectsByCategory.get(categoryId);
+				if(Objects.nonNull(projects)) {
+					result.or(projects);
+				} // if
+			} // for
+			return toList(result);
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // projectsInAny
+
+	public boolean contains(Integer categoryId, Integer projectId) {
+		lock.readLock().lock();
+		try {
+			BitSet projects = projectsByCategory.get(categoryId);
+			return Objects.nonNull(projects) && projects.get(projectId);
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // contains
+
+	@Override
+	public void projectsInserted(List<Project> projects) {
+		lock.writeLock().lock();
+		try {
+			for(Project project : projects) {
+				for(Category category : project.getCategories()) {
+					projectsByCategory.computeIfAbsent(category.getCategoryId(), id -> new BitSet()).set(project.getProjectId());
+				} // for
+			} // for
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // projectsInserted
+
+	@Override
+	public void projectDeleted(Integer projectId) {
+		lock.writeLock().lock();
+		try {
+			for(BitSet projects : projectsByCategory.values()) {
+				projects.clear(projectId); // The event doesn't say which categories it was in; one bit per category is cheap.
+			} // for
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // projectDeleted
+
+	@Override
+	public void categoryLinksChanged(Integer categoryId, List<Integer> projectIds, boolean linked) {
+		lock.writeLock().lock();
+		try {
+			BitSet projects = projectsByCategory.computeIfAbsent(categoryId, id -> new BitSet());
+			for(Integer projectId : projectIds) {
+				projects.set(projectId, linked);
+			} // for
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // categoryLinksChanged
+
+	private static List<Integer> toList(BitSet projects) {
+		if(Objects.isNull(projects)) {
+			return new ArrayList<>();
+		} // if
+		List<Integer> projectIds = new ArrayList<>(projects.cardinality());
+		for(int projectId = projects.nextSetBit(0); projectId >= 0; projectId = projects.nextSetBit(projectId + 1)) {
+			projectIds.add(projectId);
+		} // for
+		return projectIds;
+	} // toList
+
+} // class
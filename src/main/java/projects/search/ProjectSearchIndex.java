@@ -0,0 +1,364 @@
+package projects.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import projects.dao.ProjectChangeListener;
+import projects.entity.Material;
+import projects.entity.Project;
+import projects.entity.Step;
+
+/*
+ * An in-memory inverted index over project names, notes, step text and material names.  Terms are kept sorted, so every
+ * query word also matches as a prefix ("sand" finds "sanding"), and each term maps straight to the projects containing it
+ * with a precomputed weight, so a search touches only the postings of its own terms.  Projects are numbered densely inside
+ * the index, so postings are parallel int/float arrays.  A query word's matches are sorted by document number, the words are
+ * intersected smallest first and only the documents left are ranked: the work and the memory of a search follow the postings
+ * it matches, not the size of the index, and nothing is boxed on the query path.
+ *
+ * Ranking is TF-IDF style: a term counts more the more often it appears in a project (damped logarithmically), the more
+ * important the field (name over materials over notes and steps) and the rarer it is across projects.  Every query word
+ * must match; prefix matches count a little less than exact ones.
+ *
+ * The index is a ProjectChangeListener: once registered with ProjectDao it follows inserts, edits and deletes.  It is safe
+ * for concurrent searches and updates.
+ */
+public class ProjectSearchIndex implements ProjectChangeListener {
+
+	private static final float NAME_WEIGHT = 3.0f;
+	private static final float MATERIAL_WEIGHT = 1.5f;
+	private static final float NOTES_WEIGHT = 1.0f;
+	private static final float STEP_WEIGHT = 1.0f;
+	private static final double PREFIX_MATCH_FACTOR = 0.7;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	private final NavigableMap<String, Postings> postings = new TreeMap<>();
+	private final Map<Integer, Integer> docNumbers = new HashMap<>(); // project ID -> document number
+	private final Deque<Integer> freeDocNumbers = new ArrayDeque<>(); // Reused so the numbers stay dense.
+	private IndexedProject[] docs = new IndexedProject[64];
+	private int docLimit; // One past the highest document number ever used.
+
+	/*
+	 * Adds or replaces a whole project, children included.
+	 */
+	public void index(Project project) {
+		IndexedProject indexed = new IndexedProject(project.getProjectId(), project.getProjectName(), detailTerms(project), childTerms(project));
+		lock.writeLock().lock();
+		try {
+			put(indexed);
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // index
+
+	public void remove(Integer projectId) {
+		lock.writeLock().lock();
+		try {
+			Integer doc = docNumbers.remove(projectId);
+			if(Objects.nonNull(doc)) {
+				removePostings(doc, docs[doc]);
+				docs[doc] = null;
+				freeDocNumbers.push(doc);
+			} // if
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // remove
+
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			postings.clear();
+			docNumbers.clear();
+			freeDocNumbers.clear();
+			Arrays.fill(docs, null);
+			docLimit = 0;
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // clear
+
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return docNumbers.size();
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // size
+
+	/*
+	 * Returns up to limit projects matching every word of the query, best first.
+	 */
+	public List<SearchHit> search(String query, int limit) {
+		List<String> words = new ArrayList<>(new LinkedHashSet<>(Tokenizer.tokenize(query)));
+		if(words.isEmpty() || limit < 1) {
+			return new ArrayList<>();
+		} // if
+		lock.readLock().lock();
+		try {
+			List<Matches> perWord = new ArrayList<>(words.size());
+			for(String word : words) {
+				Matches matches = matchWord(word);
+				if(matches.size == 0) {
+					return new ArrayList<>(); // Some word matches nothing, so nothing matches every word.
+				} // if
+				perWord.add(matches);
+			} // for
+			perWord.sort((a, b) -> Integer.compare(a.size, b.size)); // Smallest first, so the candidates shrink fastest.
+			Matches candidates = perWord.get(0);
+			for(int word = 1; word < perWord.size() && candidates.size > 0; word++) {
+				candidates = candidates.intersect(perWord.get(word)); // Only projects that matched every earlier word stay in.
+			} // for
+			return topHits(candidates, limit);
+		} finally {
+			lock.readLock().unlock();
+		} // try-finally
+	} // search
+
+	@Override
+	public void projectsInserted(List<Project> inserted) {
+		inserted.forEach(this::index);
+	}
+
+	@Override
+	public void projectModified(Project project) {
+		lock.writeLock().lock();
+		try {
+			Integer doc = docNumbers.get(project.getProjectId());
+			if(Objects.isNull(doc)) {
+				return; // Not indexed yet (or deleted meanwhile); the next rebuild picks it up.
+			} // if
+			// Edits don't carry children, so the old child terms are kept.
+			put(new IndexedProject(project.getProjectId(), project.getProjectName(), detailTerms(project), docs[doc].childTerms()));
+		} finally {
+			lock.writeLock().unlock();
+		} // try-finally
+	} // projectModified
+
+	@Override
+	public void projectDeleted(Integer projectId) {
+		remove(projectId);
+	}
+
+	private void put(IndexedProject indexed) {
+		Integer doc = docNumbers.get(indexed.projectId());
+		if(Objects.nonNull(doc)) {
+			removePostings(doc, docs[doc]);
+		} else {
+			doc = freeDocNumbers.isEmpty() ? docLimit++ : freeDocNumbers.pop();
+			docNumbers.put(indexed.projectId(), doc);
+			if(doc >= docs.length) {
+				docs = Arrays.copyOf(docs, Math.max(doc + 1, docs.length * 2));
+			} // if
+		} // if
+		docs[doc] = indexed;
+		int docNumber = doc;
+		indexed.allTerms().forEach((term, weight) -> postings.computeIfAbsent(term, key -> new Postings()).add(docNumber, weight));
+	} // put
+
+	/*
+	 * The documents matching one query word, through its exact term and every term it is a prefix of, each with its best score.
+	 * The best rather than the sum, so "deck" matching both "deck" and "decking" in one project isn't counted twice.  The
+	 * postings are gathered under keys of document number and position, so one sort both orders the documents and brings each
+	 * document's entries together.
+	 */
+	private Matches matchWord(String word) {
+		Map<String, Postings> terms = postings.subMap(word, true, word + Character.MAX_VALUE, true);
+		int total = 0;
+		for(Postings matches : terms.values()) {
+			total += matches.size;
+		} // for
+		long[] keys = new long[total];
+		double[] termScores = new double[total];
+		int n = 0;
+		int docCount = docNumbers.size();
+		for(Map.Entry<String, Postings> term : terms.entrySet()) {
+			Postings matches = term.getValue();
+			double idf = Math.log(1.0 + (double)docCount / matches.size);
+			double factor = term.getKey().length() == word.length() ? idf : idf * PREFIX_MATCH_FACTOR;
+			for(int i = 0; i < matches.size; i++, n++) {
+				keys[n] = (long)matches.docs[i] << 32 | n;
+				termScores[n] = matches.weights[i] * factor;
+			} // for
+		} // for
+		Arrays.sort(keys);
+		Matches result = new Matches(total);
+		for(long key : keys) {
+			int doc = (int)(key >>> 32);
+			double score = termScores[(int)key];
+			if(result.size > 0 && result.docs[result.size - 1] == doc) {
+				result.scores[result.size - 1] = Math.max(result.scores[result.size - 1], score);
+			} else {
+				result.docs[result.size] = doc;
+				result.scores[result.size++] = score;
+			} // if
+		} // for
+		return result;
+	} // matchWord
+
+	/*
+	 * Picks the best `limit` documents that matched every word, best first, ties going to the lower project ID.
+	 */
+	private List<SearchHit> topHits(Matches candidates, int limit) {
+		int[] best = new int[Math.min(limit, candidates.size) + 1]; // Positions in candidates, kept sorted, best first; a short insertion sort beats a heap here.
+		int found = 0;
+		for(int candidate = 0; candidate < candidates.size; candidate++) {
+			int position = found;
+			while(position > 0 && isBetter(candidates, candidate, best[position - 1])) {
+				position--;
+			} // while
+			if(position < limit) {
+				System.arraycopy(best, position, best, position + 1, Math.min(found, limit - 1) - position);
+				best[position] = candidate;
+				found = Math.min(found + 1, limit);
+			} // if
+		} // for
+		List<SearchHit> hits = new ArrayList<>(found);
+		for(int i = 0; i < found; i++) {
+			IndexedProject indexed = docs[candidates.docs[best[i]]];
+			hits.add(new SearchHit(indexed.projectId(), indexed.projectName(), candidates.scores[best[i]]));
+		} // for
+		return hits;
+	} // topHits
+
+	private boolean isBetter(Matches candidates, int candidate, int other) {
+		double score = candidates.scores[candidate];
+		double otherScore = candidates.scores[other];
+		return score > otherScore
+				|| (score == otherScore && docs[candidates.docs[candidate]].projectId() < docs[candidates.docs[other]].projectId());
+	} // isBetter
+
+	private void removePostings(int doc, IndexedProject indexed) {
+		for(String term : indexed.allTerms().keySet()) {
+			Postings matches = postings.get(term);
+			if(Objects.nonNull(matches) && matches.remove(doc) && matches.size == 0) {
+				postings.remove(term);
+			} // if
+		} // for
+	} // removePostings
+
+	private static Map<String, Float> detailTerms(Project project) {
+		Map<String, Float> terms = new HashMap<>();
+		addField(terms, project.getProjectName(), NAME_WEIGHT);
+		addField(terms, project.getNotes(), NOTES_WEIGHT);
+		return terms;
+	} // detailTerms
+
+	private static Map<String, Float> childTerms(Project project) {
+		Map<String, Float> terms = new HashMap<>();
+		StringBuilder materials = new StringBuilder();
+		for(Material material : project.getMaterials()) {
+			materials.append(material.getMaterialName()).append(' ');
+		} // for
+		StringBuilder steps = new StringBuilder();
+		for(Step step : project.getSteps()) {
+			steps.append(step.getStepText()).append(' ');
+		} // for
+		addField(terms, materials.toString(), MATERIAL_WEIGHT);
+		addField(terms, steps.toString(), STEP_WEIGHT);
+		return terms;
+	} // childTerms
+
+	/*
+	 * Adds fieldWeight * (1 + ln(occurrences)) for each term of the text.
+	 */
+	private static void addField(Map<String, Float> terms, String text, float fieldWeight) {
+		Map<String, Integer> counts = new HashMap<>();
+		for(String token : Tokenizer.tokenize(text)) {
+			counts.merge(token, 1, Integer::sum);
+		} // for
+		counts.forEach((term, count) -> terms.merge(term, fieldWeight * (1.0f + (float)Math.log(count)), Float::sum));
+	} // addField
+
+	/*
+	 * What is indexed for one project.  The project's own columns and its children are kept apart so an edit of the project
+	 * (which carries no children) can replace just its part.
+	 */
+	private record IndexedProject(Integer projectId, String projectName, Map<String, Float> detailTerms, Map<String, Float> childTerms) {
+
+		Map<String, Float> allTerms() {
+			Map<String, Float> all = new HashMap<>(childTerms);
+			detailTerms.forEach((term, weight) -> all.merge(term, weight, Float::sum));
+			return all;
+		}
+
+	} // record
+
+	/*
+	 * Documents matched by a query so far, ascending, with their summed scores.
+	 */
+	private static final class Matches {
+		private final int[] docs;
+		private final double[] scores;
+		private int size;
+
+		private Matches(int capacity) {
+			docs = new int[capacity];
+			scores = new double[capacity];
+		}
+
+		/*
+		 * The documents in both, scores added: a merge of the two sorted lists.
+		 */
+		private Matches intersect(Matches other) {
+			Matches both = new Matches(Math.min(size, other.size));
+			int i = 0;
+			int j = 0;
+			while(i < size && j < other.size) {
+				if(docs[i] < other.docs[j]) {
+					i++;
+				} else if(docs[i] > other.docs[j]) {
+					j++;
+				} else {
+					both.docs[both.size] = docs[i];
+					both.scores[both.size++] = scores[i++] + other.scores[j++];
+				} // if
+			} // while
+			return both;
+		} // intersect
+	} // class Matches
+
+	/*
+	 * The documents containing one term, as parallel arrays.  Order doesn't matter, so removal swaps in the last entry.
+	 */
+	private static final class Postings {
+		private int size;
+		private int[] docs = new int[4];
+		private float[] weights = new float[4];
+
+		private void add(int doc, float weight) {
+			if(size == docs.length) {
+				docs = Arrays.copyOf(docs, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			} // if
+			docs[size] = doc;
+			weights[size] = weight;
+			size++;
+		} // add
+
+		private boolean remove(int doc) {
+			for(int i = 0; i < size; i++) {
+				if(docs[i] == doc) {
+					size--;
+					docs[i] = docs[size];
+					weights[i] = weights[size];
+					return true;
+				} // if
+			} // for
+			return false;
+		} // remove
+	} // class Postings
+
+} // class
@@ -0,0 +1,7 @@
+package projects.search;
+
+/*
+ * One search result.  Higher scores are better matches; scores are only comparable within one search.
+ */
+public record SearchHit(Integer projectId, String projectName, double score) {
+}
@@ -0,0 +1,40 @@
+package projects.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Set;
+
+/*
+ * Splits text into lower-case search terms: runs of letters and digits, with a few very common English words dropped.
+ */
+final class Tokenizer {
+
+	private static final Set<String> STOP_WORDS = Set.of("a", "an", "and", "at", "by", "for", "in", "is", "it", "of", "on", "or", "the", "to", "with");
+
+	private Tokenizer() {
+	}
+
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if(Objects.isNull(text)) {
+			return tokens;
+		} // if
+		int start = -1;
+		for(int i = 0; i <= text.length(); i++) {
+			boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if(wordChar && start < 0) {
+				start = i;
+			} else if(!wordChar && start >= 0) {
+				String token = text.substring(start, i).toLowerCase(Locale.ROOT);
+				if(!STOP_WORDS.contains(token)) {
+					tokens.add(token);
+				} // if
+				start = -1;
+			} // if
+		} // for
+		return tokens;
+	} // tokenize
+
+} // class
@@ -0,0 +1,201 @@
+package projects.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import projects.analytics.ProjectSnapshot;
+import projects.dao.DbConnection;
+import projects.dao.ProjectPage;
+import projects.dao.ProjectRowPage;
+import projects.dao.ProjectSort;
+import projects.dao.ProjectUpdate;
+import projects.entity.Category;
+import projects.entity.Project;
+import projects.entity.ProjectRow;
+import projects.entity.Step;
+import projects.exception.DbException;
+
+/*
+ * A non-blocking front for ProjectService.  Every call runs on its own virtual thread, so thousands of lookups can be in flight
+ * without tying up platform threads; a virtual thread blocked on JDBC just parks.  A semaphore sized to the connection pool
+ * keeps the number of calls actually touching the database at the pool size, so the rest queue here cheaply instead of timing
+ * out in the pool.
+ */
+public class AsyncProjectService implements AutoCloseable {
+
+	private final ProjectService projectService;
+	private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+	private final Semaphore permits;
+
+	public AsyncProjectService() {
+		this(new ProjectService(), DbConnection.getPool().getConfig().getMaxSize());
+	}
+
+	public AsyncProjectService(ProjectService projectService, int maxConcurrency) {
+		if(maxConcurrency < 1) {
+			throw new IllegalArgumentException("The concurrency limit must be at least 1, not " + maxConcurrency);
+		} // if
+		this.projectService = projectService;
+		this.permits = new Semaphore(maxConcurrency, true); // Fair, so early callers aren't starved under load.
+	} // constructor
+
+	public CompletableFuture<Project> addProject(Project project) {
+		return submit(() -> projectService.addProject(project));
+	}
+
+	public CompletableFuture<List<Project>> addProjects(List<Project> projects, int batchSize) {
+		return submit(() -> projectService.addProjects(projects, batchSize));
+	}
+
+	public CompletableFuture<List<Project>> fetchAllProjects() {
+		return submit(projectService::fetchAllProjects);
+	}
+
+	public CompletableFuture<ProjectPage> fetchProjectPage(ProjectSort sort, String pageToken, int pageSize) {
+		return submit(() -> projectService.fetchProjectPage(sort, pageToken, pageSize));
+	}
+
+	public CompletableFuture<ProjectRowPage> fetchProjectRowPage(ProjectSort sort, String pageToken, int pageSize) {
+		return submit(() -> projectService.fetchProjectRowPage(sort, pageToken, pageSize));
+	}
+
+	public CompletableFuture<List<ProjectRow>> fetchAllProjectRows() {
+		return submit(projectService::fetchAllProjectRows);
+	}
+
+	public CompletableFuture<List<Category>> fetchAllCategories() {
+		return submit(projectService::fetchAllCategories);
+	}
+
+	public CompletableFuture<List<Integer>> assignCategory(Integer categoryId, Collection<Integer> projectIds) {
+		return submit(() -> projectService.assignCategory(categoryId, projectIds));
+	}
+
+	public CompletableFuture<List<Integer>> removeCategory(Integer categoryId, Collection<Integer> projectIds) {
+		return submit(() -> projectService.removeCategory(categoryId, projectIds));
+	}
+
+	/*
+	 * The async counterpart of streamAllProjects: the stream is consumed (and closed) on the virtual thread, and the future
+	 * completes once every project has been handed to the consumer.
+	 */
+	public CompletableFuture<Void> forEachProject(Consumer<Project> consumer) {
+		return submit(() -> {
+			try(Stream<Project> projects = projectService.streamAllProjects()) {
+				projects.forEach(consumer);
+			} // try
+			return null;
+		});
+	} // forEachProject
+
+	/*
+	 * The async counterpart of streamProjectGraphs, like forEachProject.
+	 */
+	public CompletableFuture<Void> forEachProjectGraph(Consumer<Project> consumer) {
+		return submit(() -> {
+			try(Stream<Project> projects = projectService.streamProjectGraphs()) {
+				projects.forEach(consumer);
+			} // try
+			return null;
+		});
+	} // forEachProjectGraph
+
+	public CompletableFuture<Project> fetchProjectById(Integer projectId) {
+		return submit(() -> projectService.fetchProjectById(projectId));
+	}
+
+	public CompletableFuture<List<Project>> fetchProjectGraphs(Collection<Integer> projectIds) {
+		return submit(() -> projectService.fetchProjectGraphs(projectIds));
+	}
+
+	public CompletableFuture<ProjectSnapshot> fetchProjectSnapshot() {
+		return submit(projectService::fetchProjectSnapshot);
+	}
+
+	public CompletableFuture<Void> modifyProjectDetails(Project project) {
+		return submit(() -> {
+			projectService.modifyProjectDetails(project);
+			return null;
+		});
+	} // modifyProjectDetails
+
+	public CompletableFuture<Void> modifyProjectFields(ProjectUpdate update) {
+		return submit(() -> {
+			projectService.modifyProjectFields(update);
+			return null;
+		});
+	} // modifyProjectFields
+
+	public CompletableFuture<Void> deleteProject(Project project) {
+		return submit(() -> {
+			projectService.deleteProject(project);
+			return null;
+		});
+	} // deleteProject
+
+	public CompletableFuture<List<Step>> fetchSteps(Integer projectId) {
+		return submit(() -> projectService.fetchSteps(projectId));
+	}
+
+	public CompletableFuture<Step> addStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		return submit(() -> projectService.addStepAfter(projectId, afterStepId, stepText));
+	}
+
+	public CompletableFuture<Step> appendStep(Integer projectId, String stepText) {
+		return submit(() -> projectService.appendStep(projectId, stepText));
+	}
+
+	public CompletableFuture<Void> reorderSteps(Integer projectId, List<Integer> stepIdsInOrder) {
+		return submit(() -> {
+			projectService.reorderSteps(projectId, stepIdsInOrder);
+			return null;
+		});
+	} // reorderSteps
+
+	public CompletableFuture<Integer> renumberCrowdedSteps(int minGap) {
+		return submit(() -> projectService.renumberCrowdedSteps(minGap));
+	}
+
+	public CompletableFuture<Void> flushWrites() {
+		return submit(() -> {
+			projectService.flushWrites();
+			return null;
+		});
+	} // flushWrites
+
+	public ProjectService getProjectService() {
+		return projectService;
+	}
+
+	/*
+	 * Stops accepting new calls.  Calls already submitted still run to completion.
+	 */
+	@Override
+	public void close() {
+		executor.shutdown();
+	}
+
+	private <T> CompletableFuture<T> submit(Supplier<T> call) {
+		return CompletableFuture.supplyAsync(() -> {
+			try {
+				permits.acquire();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new DbException("Interrupted while waiting to run a project service call", e);
+			} // try-catch
+			try {
+				return call.get();
+			} finally {
+				permits.release();
+			} // try-finally
+		}, executor);
+	} // submit
+
+} // class
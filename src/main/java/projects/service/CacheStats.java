@@ -0,0 +1,19 @@
+package projects.service;
+
+/*
+ * A point-in-time snapshot of the ProjectCache counters.
+ */
+public record CacheStats(int size, long hits, long misses, long evictions, long expirations, long invalidations) {
+
+	public double hitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0.0 : (double)hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return "size=" + size + ", hits=" + hits + ", misses=" + misses + ", hitRate=" + String.format("%.2f", hitRate())
+				+ ", evictions=" + evictions + ", expirations=" + expirations + ", invalidations=" + invalidations;
+	}
+
+} // record
@@ -0,0 +1,138 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import projects.dao.CategoryDao;
+import projects.dao.ProjectChangeListener;
+import projects.dao.ProjectDao;
+import projects.entity.Category;
+import projects.entity.Project;
+import projects.search.CategoryIndex;
+
+/*
+ * Categories and their members without querying MySQL.  The categories come from CategoryDao's shared dictionary; which
+ * projects are in which category comes from a bitmap index built from the link table on first use and then kept current
+ * through ProjectDao's change events.  Assigning and removing categories goes through ProjectService, so its cache stays right.
+ *
+ * A rebuild streams the link table, so a link can be read just before a delete or unlink commits and added to the index after
+ * the event removed it.  Events that arrive during a rebuild are therefore also kept, and replayed over the index once the
+ * read is done.
+ */
+public class CategoryService implements AutoCloseable {
+
+	private final CategoryDao categoryDao = new CategoryDao();
+	private final CategoryIndex index = new CategoryIndex();
+	private final List<Consumer<CategoryIndex>> changesDuringRebuild = new ArrayList<>(); // Guarded by itself, as is rebuilding.
+	private boolean rebuilding;
+	private volatile boolean built;
+
+	/*
+	 * Forwards the changes to the index, keeping them for replay while a rebuild runs.
+	 */
+	private final ProjectChangeListener changeListener = new ProjectChangeListener() {
+		@Override
+		public void projectsInserted(List<Project> projects) {
+			apply(index -> index.projectsInserted(projects));
+		}
+
+		@Override
+		public void projectDeleted(Integer projectId) {
+			apply(index -> index.projectDeleted(projectId));
+		}
+
+		@Override
+		public void categoryLinksChanged(Integer categoryId, List<Integer> projectIds, boolean linked) {
+			List<Integer> changed = List.copyOf(projectIds);
+			apply(index -> index.categoryLinksChanged(categoryId, changed, linked));
+		}
+	};
+
+	public CategoryService() {
+		ProjectDao.addChangeListener(changeListener); // Registered before the first build, so no write is missed.
+	}
+
+	public List<Category> fetchAllCategories() {
+		return categoryDao.fetchAllCategories(); // In name order.
+	}
+
+	public Optional<Category> fetchCategoryById(Integer categoryId) {
+		return categoryDao.fetchCategoryById(categoryId);
+	}
+
+	public Category addCategory(String categoryName) {
+		return categoryDao.addCategory(categoryName);
+	}
+
+	/*
+	 * Rereads the categories, e.g. after they were changed outside the application.
+	 */
+	public void refreshCategories() {
+		categoryDao.refreshCategories();
+	}
+
+	public List<Integer> fetchProjectIdsInCategory(Integer categoryId) {
+		return index().projectsIn(categoryId); // In projectId order.
+	}
+
+	public int countProjectsInCategory(Integer categoryId) {
+		return index().countIn(categoryId);
+	}
+
+	public List<Integer> fetchProjectIdsInAllCategories(Collection<Integer> categoryIds) {
+		return index().projectsInAll(categoryIds);
+	}
+
+	public List<Integer> fetchProjectIdsInAnyCategory(Collection<Integer> categoryIds) {
+		return index().projectsInAny(categoryIds);
+	}
+
+	/*
+	 * Re-reads every project-category link into the index.
+	 */
+	public synchronized void rebuild() {
+		synchronized(changesDuringRebuild) {
+			changesDuringRebuild.clear();
+			rebuilding = true;
+		} // synchronized
+		try {
+			index.clear();
+			categoryDao.forEachCategoryLink(index::add);
+			built = true;
+		} finally {
+			synchronized(changesDuringRebuild) { // Replayed in order, and before any later change gets through.
+				rebuilding = false;
+				changesDuringRebuild.forEach(change -> change.accept(index));
+				changesDuringRebuild.clear();
+			} // synchronized
+		} // try-finally
+	} // rebuild
+
+	/*
+	 * Stops following ProjectDao changes.
+	 */
+	@Override
+	public void close() {
+		ProjectDao.removeChangeListener(changeListener);
+	}
+
+	private void apply(Consumer<CategoryIndex> change) {
+		synchronized(changesDuringRebuild) {
+			if(rebuilding) {
+				changesDuringRebuild.add(change);
+			} // if
+			change.accept(index);
+		} // synchronized
+	} // apply
+
+	private CategoryIndex index() {
+		if(!built) {
+			rebuild();
+		} // if
+		return index;
+	} // index
+
+} // class
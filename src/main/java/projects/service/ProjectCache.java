@@ -0,0 +1,132 @@
+package projects.service;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import projects.entity.Project;
+import projects.entity.ProjectChild;
+
+/*
+ * A bounded, in-process cache of full project graphs, keyed by projectId.  When it is full the least recently used entry is
+ * evicted, and entries older than the time-to-live are treated as misses.  All access is synchronized; every operation is a
+ * hash lookup, so the lock is held only briefly.
+ *
+ * Projects are copied on the way in and on the way out (see Project.copy), so every caller gets its own graph: editing it
+ * never touches the cached one or another caller's copy.  Only whole graphs are cached.  The cached copy drops its child
+ * loader, so a hit never queries and an entry doesn't keep a LAZY-mode load session (and its pending projects) alive.
+ */
+public class ProjectCache {
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final LinkedHashMap<Integer, Entry> entries;
+
+	private long version; // Bumped on every invalidation so a load that raced with a write can't put stale data back.
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private long invalidations;
+
+	public ProjectCache(int maxSize, Duration timeToLive) {
+		if(maxSize < 1) {
+			throw new IllegalArgumentException("The cache size must be at least 1, not " + maxSize);
+		} // if
+		this.maxSize = maxSize;
+		this.ttlNanos = timeToLive.toNanos();
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) { // Access order: the eldest entry is the least recently used.
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Entry> eldest) {
+				if(size() > ProjectCache.this.maxSize) {
+					evictions++;
+					return true;
+				} // if
+				return false;
+			}
+		};
+	} // constructor
+
+	public synchronized Project get(Integer projectId) {
+		Entry entry = entries.get(projectId);
+		if(Objects.isNull(entry)) {
+			misses++;
+			return null;
+		} // if
+		if(System.nanoTime() - entry.loadedAt > ttlNanos) {
+			entries.remove(projectId);
+			expirations++;
+			misses++;
+			return null;
+		} // if
+		hits++;
+		return entry.project.copy();
+	} // get
+
+	/*
+	 * Call before loading a project and pass the result to put(), so a load that overlaps an invalidation is not cached.
+	 */
+	public synchronized long currentVersion() {
+		return version;
+	}
+
+	public void put(Project project, long versionAtLoad) {
+		if(!isWholeGraph(project)) {
+			return;
+		} // if
+		Project copy = project.copy(); // Outside the lock; the caller keeps the original.
+		copy.setChildLoader(null);
+		synchronized(this) {
+			if(versionAtLoad == version) {
+				entries.put(copy.getProjectId(), new Entry(copy, System.nanoTime()));
+			} // if
+		} // synchronized
+	} // put
+
+	private static boolean isWholeGraph(Project project) {
+		for(ProjectChild child : ProjectChild.values()) {
+			if(!project.isLoaded(child) && Objects.nonNull(project.getChildLoader())) {
+				return false;
+			} // if
+		} // for
+		return true;
+	} // isWholeGraph
+
+	public synchronized void invalidate(Integer projectId) {
+		version++;
+		if(Objects.nonNull(entries.remove(projectId))) {
+			invalidations++;
+		} // if
+	} // invalidate
+
+	public synchronized void invalidateAll() {
+		version++;
+		invalidations += entries.size();
+		entries.clear();
+	} // invalidateAll
+
+	/*
+	 * Drops expired entries.  get() already ignores them; this just gives the memory back sooner.
+	 */
+	public synchronized void removeExpired() {
+		long now = System.nanoTime();
+		for(Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+			if(now - it.next().loadedAt > ttlNanos) {
+				it.remove();
+				expirations++;
+			} // if
+		} // for
+	} // removeExpired
+
+	public synchronized CacheStats getStats() {
+		return new CacheStats(entries.size(), hits, misses, evictions, expirations, invalidations);
+	}
+
+	private record Entry(Project project, long loadedAt) {
+	}
+
+} // class
@@ -1,48 +1,332 @@
 package projects.service;
 
+import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import projects.analytics.ProjectSnapshot;
+import projects.dao.CategoryDao;
+import projects.dao.GraphFetchMode;
+import projects.dao.ImportProgress;
 import projects.dao.ProjectDao;
+import projects.dao.ProjectPage;
+import projects.dao.ProjectRowPage;
+import projects.dao.ProjectSort;
+import projects.dao.ProjectUpdate;
+import projects.dao.StepDao;
+import projects.entity.Category;
 import projects.entity.Project;
+import projects.entity.ProjectRow;
+import projects.entity.Step;
 import projects.exception.DbException;
 
 public class ProjectService {
+	private static final System.Logger LOG = System.getLogger(ProjectService.class.getName());
+
+	private static final int DEFAULT_INSERT_BATCH_SIZE = 500;
+
+	private static final int PROJECT_CACHE_SIZE = 1_000;
+	private static final Duration PROJECT_CACHE_TTL = Duration.ofMinutes(5);
 
 	private ProjectDao projectDao = new ProjectDao();
+	private StepDao stepDao = new StepDao();
+	private CategoryDao categoryDao = new CategoryDao();
+	private ProjectCache projectCache = new ProjectCache(PROJECT_CACHE_SIZE, PROJECT_CACHE_TTL);
+	private volatile WriteBehindQueue writeBehind; // Null unless write-behind is on.
+	private StepRenumberer stepRenumberer; // Null unless background renumbering is on; guarded by this.
 	
 	public Project addProject(Project project) {
-		return projectDao.insertProject(project);
+		Project dbProject = projectDao.insertProject(project);
+		projectCache.invalidate(dbProject.getProjectId()); // Nothing should be cached for a new ID, but a stale entry for a reused ID must not survive.
+		return dbProject;
 	}
 
+	public List<Project> addProjects(List<Project> projects) {
+		return addProjects(projects, DEFAULT_INSERT_BATCH_SIZE);
+	} // addProjects
+
+	public List<Project> addProjects(List<Project> projects, int batchSize) {
+		try {
+			return projectDao.insertProjects(projects, batchSize); // Whole graphs, batchSize projects per transaction.
+		} finally {
+			projectCache.invalidateAll();
+		} // try-finally
+	} // addProjects
+
+	/*
+	 * Inserts the projects in one transaction, together with the import progress that covers them.
+	 */
+	public List<Project> addProjects(List<Project> projects, ImportProgress progress) {
+		try {
+			return projectDao.insertProjects(projects, progress);
+		} finally {
+			projectCache.invalidateAll();
+		} // try-finally
+	} // addProjects
+
 	public List<Project> fetchAllProjects() {
-		//return projectDao.fetchAllProjects();
-		return projectDao.fetchAllProjects().stream().sorted((p1, p2) -> p1.getProjectId() - p2.getProjectId()).collect(Collectors.toList()); // This sorts the list by projectId.
+		return projectDao.fetchAllProjects(); // The DAO already returns them in projectId order, so there's nothing left to sort here.
 	} // fetchAllProjects
 
+	public ProjectPage fetchProjectPage(ProjectSort sort, String pageToken, int pageSize) {
+		return projectDao.fetchProjectPage(sort, pageToken, pageSize); // Pass the previous page's nextPageToken, or null for the first page.
+	} // fetchProjectPage
+
+	public ProjectRowPage fetchProjectRowPage(ProjectSort sort, String pageToken, int pageSize) {
+		return projectDao.fetchProjectRowPage(sort, pageToken, pageSize); // For listings: compact rows, same page tokens as fetchProjectPage.
+	} // fetchProjectRowPage
+
+	public List<ProjectRow> fetchAllProjectRows() {
+		return projectDao.fetchAllProjectRows();
+	} // fetchAllProjectRows
+
+	public List<Category> fetchAllCategories() {
+		return projectDao.fetchAllCategories(); // In name order.
+	} // fetchAllCategories
+
+	/*
+	 * Links many projects to a category at once; returns the projects newly linked.
+	 */
+	public List<Integer> assignCategory(Integer categoryId, Collection<Integer> projectIds) {
+		List<Integer> linked = categoryDao.assignCategory(categoryId, projectIds);
+		linked.forEach(projectCache::invalidate); // The cached graphs list their categories.
+		return linked;
+	} // assignCategory
+
+	/*
+	 * Unlinks many projects from a category at once; returns the projects unlinked.
+	 */
+	public List<Integer> removeCategory(Integer categoryId, Collection<Integer> projectIds) {
+		List<Integer> unlinked = categoryDao.removeCategory(categoryId, projectIds);
+		unlinked.forEach(projectCache::invalidate);
+		return unlinked;
+	} // removeCategory
+
+	public Stream<Project> streamAllProjects() {
+		return projectDao.streamAllProjects(); // Already in projectId order; the caller must close the stream.
+	} // streamAllProjects
+
+	public Stream<Project> streamProjectGraphs() {
+		return projectDao.streamProjectGraphs(); // Full graphs in projectId order, in constant memory; the caller must close the stream.
+	} // streamProjectGraphs
+
 	public Project fetchProjectById(Integer projectId) {
-		//Optional<Project> op = projectDao.fetchProjectById(projectId);
-		return projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException("Project with project ID " + projectId + ", does not exist."));
+		WriteBehindQueue queue = writeBehind;
+		Optional<ProjectUpdate> pending = Objects.isNull(queue) ? Optional.empty() : queue.pendingFor(projectId);
+		if(pending.isPresent()) { // Read your own queued edits; the result isn't cached because the row is about to change.
+			Project project = projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException("Project with project ID " + projectId + ", does not exist."));
+			pending.get().applyTo(project);
+			return project;
+		} // if
+		Project cached = projectCache.get(projectId); // Select, update and delete in the console all re-read the same project.
+		if(Objects.nonNull(cached)) {
+			return cached;
+		} // if
+		long cacheVersion = projectCache.currentVersion();
+		Project project = projectDao.fetchProjectById(projectId).orElseThrow(() -> new NoSuchElementException("Project with project ID " + projectId + ", does not exist."));
+		project.loadChildren(); // No-op unless LAZY; the cache keeps whole graphs, so its hits never query.
+		projectCache.put(project, cacheVersion);
+		return project;
 	} //fetchProjectById
 
+	public GraphFetchMode getGraphFetchMode() {
+		return projectDao.getGraphFetchMode();
+	}
+
+	/*
+	 * How fetchProjectById and the project listings read child lists (see GraphFetchMode).  With LAZY, call startLoadSession at
+	 * the start of each unit of work so the projects it reads batch their child loads together.  Sessions belong to the calling
+	 * thread.  fetchProjectById still reads the children of a project it caches, since the cache holds whole graphs.
+	 */
+	public void setGraphFetchMode(GraphFetchMode graphFetchMode) {
+		projectDao.setGraphFetchMode(graphFetchMode);
+	}
+
+	public void startLoadSession() {
+		projectDao.startLoadSession();
+	}
+
+	public void endLoadSession() {
+		projectDao.endLoadSession();
+	}
+
+	public CacheStats getProjectCacheStats() {
+		return projectCache.getStats();
+	}
+
+	public List<Project> fetchProjectGraphs(Collection<Integer> projectIds) {
+		return projectDao.fetchProjectGraphs(projectIds); // Full graphs for many projects with a fixed number of queries.
+	} // fetchProjectGraphs
+
+	public ProjectSnapshot fetchProjectSnapshot() {
+		return projectDao.fetchProjectSnapshot(); // Not cached: each call reads the tables afresh.
+	}
+
+	/*
+	 * Writes the fields changed on the project.  A project carrying a version is only updated if nobody changed it since it was
+	 * read (StaleDataException otherwise), and its version is advanced.  Such versioned edits always bypass write-behind: the
+	 * queue merges updates and writes them later, so it has nobody to report a stale row to.  Anything already queued is
+	 * flushed first, so the edits still reach the database in the order they were made.
+	 */
 	public void modifyProjectDetails(Project project) {
-		System.out.println("Attempting update of project " + project.getProjectId());
-		if(!projectDao.modifyProjectDetails(project)) {
+		LOG.log(Level.DEBUG, () -> "Attempting update of project " + project.getProjectId());
+		WriteBehindQueue queue = writeBehind;
+		if(Objects.nonNull(queue)) {
+			if(Objects.isNull(project.getVersion())) {
+				queue.submit(ProjectUpdate.changesOf(project)); // Whether the project exists is only known at flush time.
+				projectCache.invalidate(project.getProjectId());
+				return;
+			} // if
+			queue.flush();
+		} // if
+		boolean modified;
+		try {
+			modified = projectDao.modifyProjectDetails(project);
+		} finally {
+			projectCache.invalidate(project.getProjectId());
+		} // try-finally
+		if(!modified) {
 			throw new DbException("Project " + project.getProjectId() + " does not exist.");
 		} else {
-			System.out.println("Update of project " + project.getProjectId() + " successful.");
+			LOG.log(Level.DEBUG, () -> "Update of project " + project.getProjectId() + " successful.");
 		} // if
 	} // modifyProjectDetails
 
+	/*
+	 * Changes only the columns the update sets.  Queued when write-behind is on; otherwise written at once, failing if the
+	 * project doesn't exist.
+	 */
+	public void modifyProjectFields(ProjectUpdate update) {
+		WriteBehindQueue queue = writeBehind;
+		try {
+			if(Objects.nonNull(queue)) {
+				queue.submit(update);
+			} else if(projectDao.applyUpdates(List.of(update)).isEmpty() && !update.isEmpty()) {
+				throw new DbException("Project " + update.getProjectId() + " does not exist.");
+			} // if
+		} finally {
+			projectCache.invalidate(update.getProjectId());
+		} // try-finally
+	} // modifyProjectFields
+
 	public void deleteProject(Project project) {
-		System.out.println("Attempting deletion of project " + project.getProjectId());
-		if(!projectDao.deleteProcject(project)) {
+		LOG.log(Level.DEBUG, () -> "Attempting deletion of project " + project.getProjectId());
+		WriteBehindQueue queue = writeBehind;
+		if(Objects.nonNull(queue)) {
+			queue.discard(project.getProjectId());
+		} // if
+		boolean deleted;
+		try {
+			deleted = projectDao.deleteProcject(project);
+		} finally {
+			projectCache.invalidate(project.getProjectId());
+		} // try-finally
+		if(!deleted) {
 			throw new DbException("Project " + project.getProjectId() + " does not exist.");
 		} else {
-			System.out.println("Deletion of project " + project.getProjectId() + " successful - from service.");
+			LOG.log(Level.DEBUG, () -> "Deletion of project " + project.getProjectId() + " successful.");
 		} // if
 	} // deleteProject
 
+	public List<Step> fetchSteps(Integer projectId) {
+		return stepDao.fetchSteps(projectId);
+	}
+
+	/*
+	 * Adds a step after the given step, or first if afterStepId is null.
+	 */
+	public Step addStepAfter(Integer projectId, Integer afterStepId, String stepText) {
+		try {
+			return stepDao.insertStepAfter(projectId, afterStepId, stepText);
+		} finally {
+			projectCache.invalidate(projectId);
+		} // try-finally
+	} // addStepAfter
+
+	public Step appendStep(Integer projectId, String stepText) {
+		try {
+			return stepDao.appendStep(projectId, stepText);
+		} finally {
+			projectCache.invalidate(projectId);
+		} // try-finally
+	} // appendStep
+
+	public void reorderSteps(Integer projectId, List<Integer> stepIdsInOrder) {
+		try {
+			stepDao.reorderSteps(projectId, stepIdsInOrder);
+		} finally {
+			projectCache.invalidate(projectId);
+		} // try-finally
+	} // reorderSteps
+
+	/*
+	 * Respaces the step order keys of every project whose keys have drawn closer than minGap.  Returns how many projects were
+	 * renumbered.
+	 */
+	public int renumberCrowdedSteps(int minGap) {
+		List<Integer> projectIds = stepDao.findCrowdedProjects(minGap);
+		for(Integer projectId : projectIds) {
+			try {
+				stepDao.renumberSteps(projectId);
+			} finally {
+				projectCache.invalidate(projectId);
+			} // try-finally
+		} // for
+		return projectIds.size();
+	} // renumberCrowdedSteps
+
+	/*
+	 * Starts respacing crowded step keys in the background every interval (see StepRenumberer), so inserting a step between two
+	 * others almost never has to renumber the project's steps while the caller waits.
+	 */
+	public synchronized void startStepRenumbering(Duration interval) {
+		if(Objects.isNull(stepRenumberer)) {
+			stepRenumberer = new StepRenumberer(this, interval);
+		} // if
+	} // startStepRenumbering
+
+	public synchronized void stopStepRenumbering() {
+		if(Objects.nonNull(stepRenumberer)) {
+			stepRenumberer.close();
+			stepRenumberer = null;
+		} // if
+	} // stopStepRenumbering
+
+	/*
+	 * Switches project edits to write-behind: modifyProjectDetails and modifyProjectFields queue their changes, which are
+	 * merged per project and written in batches.  fetchProjectById sees queued changes; lists and pages show them once flushed.
+	 * Edits of a project carrying a version are still written at once, so their version check holds (see modifyProjectDetails).
+	 */
+	public synchronized void enableWriteBehind(WriteBehindConfig config) {
+		if(Objects.isNull(writeBehind)) {
+			writeBehind = new WriteBehindQueue(projectDao, config, projectIds -> projectIds.forEach(projectCache::invalidate));
+		} // if
+	} // enableWriteBehind
+
+	/*
+	 * Writes any queued changes and goes back to writing each edit at once.
+	 */
+	public synchronized void disableWriteBehind() {
+		WriteBehindQueue queue = writeBehind;
+		if(Objects.nonNull(queue)) {
+			writeBehind = null;
+			queue.close();
+		} // if
+	} // disableWriteBehind
+
+	/*
+	 * Writes any queued changes now.  Does nothing when write-behind is off.
+	 */
+	public void flushWrites() {
+		WriteBehindQueue queue = writeBehind;
+		if(Objects.nonNull(queue)) {
+			queue.flush();
+		} // if
+	} // flushWrites
+
 } // class
@@ -0,0 +1,49 @@
+package projects.service;
+
+import java.util.List;
+
+import projects.analytics.CategorySpend;
+import projects.analytics.EstimateAccuracy;
+import projects.analytics.ProjectCost;
+import projects.dao.ReportDao;
+
+/*
+ * Cost and hours reports.  Every figure is aggregated by the database, so no project graphs are loaded.
+ */
+public class ReportService {
+
+	private ReportDao reportDao = new ReportDao();
+
+	public List<ProjectCost> fetchProjectCosts() {
+		return reportDao.fetchProjectCosts();
+	}
+
+	public List<CategorySpend> fetchCategorySpend() {
+		return reportDao.fetchCategorySpend();
+	}
+
+	public List<EstimateAccuracy> fetchEstimateAccuracyByDifficulty() {
+		return reportDao.fetchEstimateAccuracy();
+	}
+
+	public EstimateAccuracy fetchOverallEstimateAccuracy() {
+		return EstimateAccuracy.combine(reportDao.fetchEstimateAccuracy()); // The groups carry sums, so combining them is exact.
+	}
+
+	public boolean isSummariesEnabled() {
+		return reportDao.isSummariesEnabled();
+	}
+
+	/*
+	 * Turns the incrementally maintained summary tables on (rebuilding them) or off.  With them on, the cost reports read one
+	 * summary row per project or category instead of scanning the materials.
+	 */
+	public void setSummariesEnabled(boolean enabled) {
+		reportDao.setSummariesEnabled(enabled);
+	}
+
+	public void rebuildSummaries() {
+		reportDao.rebuildSummaries();
+	}
+
+} // class
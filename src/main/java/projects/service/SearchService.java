@@ -0,0 +1,151 @@
+package projects.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import projects.dao.ProjectChangeListener;
+import projects.dao.ProjectDao;
+import projects.entity.Project;
+import projects.search.ProjectSearchIndex;
+import projects.search.SearchHit;
+
+/*
+ * Searches projects by name, notes, steps and materials without querying MySQL.  The index is built from the database on the
+ * first search and then kept current through ProjectDao's change events.
+ *
+ * Change events run on the writing thread, so nothing here reads the database from one: a step edit only marks its project
+ * dirty, and the next search re-reads the dirty projects first.  Reading graphs races with deletes (a graph read just before a
+ * delete committed would be indexed after the delete removed it), so deletes seen while graphs are being read are kept as
+ * tombstones and applied once the read is done.
+ */
+public class SearchService implements AutoCloseable {
+
+	private static final int REBUILD_CHUNK_SIZE = 500;
+
+	private final ProjectDao projectDao = new ProjectDao();
+	private final ProjectSearchIndex index = new ProjectSearchIndex();
+	private final Set<Integer> dirty = ConcurrentHashMap.newKeySet(); // Projects whose indexed graph is out of date.
+	private final Set<Integer> tombstones = new HashSet<>(); // Guarded by itself, as is reading.
+	private boolean reading;
+	private volatile boolean built;
+
+	private final ProjectChangeListener changeListener = new ProjectChangeListener() {
+		@Override
+		public void projectStepsChanged(Integer projectId) {
+			dirty.add(projectId); // Step edits only name the project; its graph is re-read on the next search.
+		}
+
+		@Override
+		public void projectModified(Project project) {
+			synchronized(tombstones) {
+				if(reading) {
+					dirty.add(project.getProjectId()); // The index skips projects it doesn't hold yet, and the read may predate the edit.
+				} // if
+			} // synchronized
+		}
+
+		@Override
+		public void projectDeleted(Integer projectId) {
+			synchronized(tombstones) {
+				if(reading) {
+					tombstones.add(projectId);
+				} // if
+			} // synchronized
+		}
+	};
+
+	public SearchService() {
+		ProjectDao.addChangeListener(index); // Registered before the first build, so no write is missed.
+		ProjectDao.addChangeListener(changeListener);
+	}
+
+	public List<SearchHit> search(String query, int limit) {
+		if(!built) {
+			rebuild();
+		} else if(!dirty.isEmpty()) {
+			reindexDirty();
+		} // if
+		return index.search(query, limit);
+	} // search
+
+	/*
+	 * Re-reads every project into the index, a chunk of full graphs at a time.
+	 */
+	public synchronized void rebuild() {
+		startReading();
+		try {
+			index.clear(); // Before the IDs are read, so a project inserted meanwhile is either read below or indexed by its event.
+			dirty.clear();
+			List<Integer> projectIds = new ArrayList<>();
+			try(Stream<Project> projects = projectDao.streamAllProjects()) {
+				projects.forEach(project -> projectIds.add(project.getProjectId()));
+			} // try
+			indexGraphs(projectIds);
+			built = true;
+		} finally {
+			finishReading();
+		} // try-finally
+	} // rebuild
+
+	/*
+	 * Re-reads the projects marked dirty since the last read.
+	 */
+	private synchronized void reindexDirty() {
+		List<Integer> projectIds = new ArrayList<>();
+		for(Iterator<Integer> marked = dirty.iterator(); marked.hasNext();) {
+			projectIds.add(marked.next());
+			marked.remove(); // A project marked again from here on stays marked for the next search.
+		} // for
+		startReading();
+		try {
+			indexGraphs(projectIds); // Deleted projects have no graph and are simply skipped.
+		} finally {
+			finishReading();
+		} // try-finally
+	} // reindexDirty
+
+	private void indexGraphs(List<Integer> projectIds) {
+		for(int from = 0; from < projectIds.size(); from += REBUILD_CHUNK_SIZE) {
+			List<Integer> chunk = projectIds.subList(from, Math.min(from + REBUILD_CHUNK_SIZE, projectIds.size()));
+			projectDao.fetchProjectGraphs(chunk).forEach(index::index);
+		} // for
+	} // indexGraphs
+
+	private void startReading() {
+		synchronized(tombstones) {
+			tombstones.clear();
+			reading = true;
+		} // synchronized
+	} // startReading
+
+	/*
+	 * Removes the projects deleted while the graphs were read.  A project ID is never reused, so a tombstone can't remove a live
+	 * project, and deletes from here on are removed by the index itself.
+	 */
+	private void finishReading() {
+		synchronized(tombstones) {
+			reading = false;
+			tombstones.forEach(index::remove);
+			tombstones.clear();
+		} // synchronized
+	} // finishReading
+
+	public int getIndexedProjectCount() {
+		return index.size();
+	}
+
+	/*
+	 * Stops following ProjectDao changes.
+	 */
+	@Override
+	public void close() {
+		ProjectDao.removeChangeListener(index);
+		ProjectDao.removeChangeListener(changeListener);
+	}
+
+} // class
@@ -0,0 +1,56 @@
+package projects.service;
+
+import java.lang.System.Logger.Level;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import projects.dao.StepDao;
+
+/*
+ * Periodically respaces the step order keys of projects whose keys have drawn close together from repeated insert-between,
+ * so that inserts almost never have to renumber while the user waits.  Runs on a daemon thread until closed.
+ */
+public class StepRenumberer implements AutoCloseable {
+	private static final System.Logger LOG = System.getLogger(StepRenumberer.class.getName());
+
+	// Keys this close leave about four more halvings before an insert-between has to renumber.
+	public static final int DEFAULT_MIN_GAP = StepDao.ORDER_GAP / 64;
+
+	private final ProjectService projectService;
+	private final int minGap;
+	private final ScheduledExecutorService scheduler;
+
+	public StepRenumberer(ProjectService projectService, Duration interval) {
+		this(projectService, interval, DEFAULT_MIN_GAP);
+	}
+
+	public StepRenumberer(ProjectService projectService, Duration interval, int minGap) {
+		this.projectService = projectService;
+		this.minGap = minGap;
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "step-renumberer");
+			thread.setDaemon(true); // Must never keep the console app alive.
+			return thread;
+		});
+		scheduler.scheduleWithFixedDelay(this::renumber, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+	} // constructor
+
+	private void renumber() {
+		try {
+			int renumbered = projectService.renumberCrowdedSteps(minGap);
+			if(renumbered > 0) {
+				LOG.log(Level.DEBUG, () -> "Renumbered the steps of " + renumbered + " projects");
+			} // if
+		} catch(RuntimeException e) {
+			LOG.log(Level.WARNING, "Step renumbering failed", e); // Try again on the next run; never kill the scheduler.
+		} // try-catch
+	} // renumber
+
+	@Override
+	public void close() {
+		scheduler.shutdownNow();
+	}
+
+} // class
@@ -0,0 +1,200 @@
+package projects.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.System.Logger.Level;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+import projects.dao.ProjectUpdate;
+import projects.entity.ProjectField;
+
+/*
+ * The append-only journal behind WriteBehindConfig.Durability.JOURNAL.  Updates are written to numbered segment files, one
+ * line each, and forced to disk.  At the start of a flush the queue rolls to a new segment; once the flush commits, the
+ * segments it covered are deleted.  Segments left behind by a crash or a failed flush are replayed, oldest first, on the next
+ * start.
+ *
+ * A line is the project ID followed by tab-separated FIELD=value pairs.  Values are escaped so they never contain a tab or a
+ * line break, and \N stands for NULL.  Not thread-safe: the queue calls it under its lock.
+ */
+class UpdateJournal implements AutoCloseable {
+	private static final System.Logger LOG = System.getLogger(UpdateJournal.class.getName());
+
+	private static final String SEGMENT_PREFIX = "updates-";
+	private static final String SEGMENT_SUFFIX = ".journal";
+	private static final String NULL_VALUE = "\\N";
+
+	private final Path directory;
+	private final List<Path> closedSegments = new ArrayList<>();
+	private long segmentNumber;
+	private FileChannel active;
+
+	UpdateJournal(Path directory) {
+		this.directory = directory;
+		try {
+			Files.createDirectories(directory);
+			try(DirectoryStream<Path> segments = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+				segments.forEach(closedSegments::add);
+			} // try
+		} catch(IOException e) {
+			throw new UncheckedIOException("Unable to open the update journal in " + directory, e);
+		} // try-catch
+		closedSegments.sort(null); // Zero-padded numbers, so name order is age order.
+		segmentNumber = closedSegments.isEmpty() ? 0 : segmentNumberOf(closedSegments.get(closedSegments.size() - 1));
+		openNextSegment();
+	} // constructor
+
+	/*
+	 * The updates left in segments from before this journal was opened, oldest first.
+	 */
+	List<ProjectUpdate> recover() {
+		List<ProjectUpdate> updates = new ArrayList<>();
+		for(Path segment : closedSegments) {
+			try(BufferedReader reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8)) {
+				String line;
+				while(Objects.nonNull(line = reader.readLine())) {
+					try {
+						updates.add(decode(line));
+					} catch(RuntimeException e) {
+						// Most likely the last line, cut short by a crash mid-write; that update never returned to its caller.
+						LOG.log(Level.WARNING, "Skipping unreadable journal entry in " + segment + ": " + line, e);
+					} // try-catch
+				} // while
+			} catch(IOException e) {
+				throw new UncheckedIOException("Unable to read journal segment " + segment, e);
+			} // try-catch
+		} // for
+		return updates;
+	} // recover
+
+	void append(ProjectUpdate update) {
+		try {
+			ByteBuffer line = ByteBuffer.wrap((encode(update) + "\n").getBytes(StandardCharsets.UTF_8));
+			while(line.hasRemaining()) {
+				active.write(line);
+			} // while
+			active.force(false);
+		} catch(IOException e) {
+			throw new UncheckedIOException("Unable to write to the update journal", e);
+		} // try-catch
+	} // append
+
+	/*
+	 * Closes the active segment and starts a new one.  Returns the number of the newest closed segment, to pass to
+	 * deleteThrough once everything written so far has committed.
+	 */
+	long roll() {
+		try {
+			active.close();
+		} catch(IOException e) {
+			throw new UncheckedIOException("Unable to close journal segment " + segmentNumber, e);
+		} // try-catch
+		closedSegments.add(segmentPath(segmentNumber));
+		long closed = segmentNumber;
+		openNextSegment();
+		return closed;
+	} // roll
+
+	void deleteThrough(long lastSegment) {
+		while(!closedSegments.isEmpty() && segmentNumberOf(closedSegments.get(0)) <= lastSegment) {
+			Path segment = closedSegments.remove(0);
+			try {
+				Files.deleteIfExists(segment);
+			} catch(IOException e) {
+				LOG.log(Level.WARNING, "Unable to delete journal segment " + segment + "; its updates will be replayed on restart", e);
+			} // try-catch
+		} // while
+	} // deleteThrough
+
+	@Override
+	public void close() {
+		try {
+			boolean empty = active.size() == 0;
+			active.close();
+			if(empty) {
+				Files.deleteIfExists(segmentPath(segmentNumber));
+			} // if
+		} catch(IOException e) {
+			throw new UncheckedIOException("Unable to close journal segment " + segmentNumber, e);
+		} // try-catch
+	} // close
+
+	private void openNextSegment() {
+		segmentNumber++;
+		try {
+			active = FileChannel.open(segmentPath(segmentNumber), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		} catch(IOException e) {
+			throw new UncheckedIOException("Unable to create journal segment " + segmentNumber + " in " + directory, e);
+		} // try-catch
+	} // openNextSegment
+
+	private Path segmentPath(long number) {
+		return directory.resolve(SEGMENT_PREFIX + String.format("%012d", number) + SEGMENT_SUFFIX);
+	}
+
+	private static long segmentNumberOf(Path segment) {
+		String name = segment.getFileName().toString();
+		return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+	}
+
+	static String encode(ProjectUpdate update) {
+		StringBuilder line = new StringBuilder().append(update.getProjectId());
+		for(ProjectField field : update.getFields()) {
+			Object value = update.get(field);
+			line.append('\t').append(field.name()).append('=').append(Objects.isNull(value) ? NULL_VALUE : escape(value.toString()));
+		} // for
+		return line.toString();
+	} // encode
+
+	static ProjectUpdate decode(String line) {
+		String[] parts = line.split("\t");
+		ProjectUpdate update = new ProjectUpdate(Integer.valueOf(parts[0]));
+		for(int i = 1; i < parts.length; i++) {
+			int equals = parts[i].indexOf('=');
+			ProjectField field = ProjectField.valueOf(parts[i].substring(0, equals));
+			String text = parts[i].substring(equals + 1);
+			update.set(field, text.equals(NULL_VALUE) ? null : parse(field, unescape(text)));
+		} // for
+		return update;
+	} // decode
+
+	private static Object parse(ProjectField field, String text) {
+		if(field.getType() == BigDecimal.class) {
+			return new BigDecimal(text);
+		} // if
+		if(field.getType() == Integer.class) {
+			return Integer.valueOf(text);
+		} // if
+		return text;
+	} // parse
+
+	private static String escape(String text) {
+		return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+	}
+
+	private static String unescape(String text) {
+		StringBuilder result = new StringBuilder(text.length());
+		for(int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if(c == '\\' && i + 1 < text.length()) {
+				char next = text.charAt(++i);
+				result.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+			} else {
+				result.append(c);
+			} // if
+		} // for
+		return result.toString();
+	} // unescape
+
+} // class
@@ -0,0 +1,77 @@
+package projects.service;
+
+import java.nio.file.Path;
+
+/*
+ * Settings for the WriteBehindQueue.  All times are in milliseconds.
+ */
+public class WriteBehindConfig {
+
+	public enum Durability {
+		MEMORY, // Queued updates are lost if the process dies before they are flushed.
+		JOURNAL, // Each update is appended to a local journal and forced to disk before submit returns; replayed on restart.
+		SYNC // Submit returns once the update has committed, or throws and the update is dropped.  Concurrent submitters share one flush.
+	}
+
+	private int maxPendingProjects = 10_000; // Submits for further projects wait (back-pressure) until a flush makes room.
+	private int flushSize = 500; // Pending projects that trigger a flush without waiting for the interval.
+	private long flushIntervalMillis = 1_000;
+	private long submitTimeoutMillis = 5_000; // How long a submit waits for room before failing.
+	private Durability durability = Durability.MEMORY;
+	private Path journalDirectory = Path.of("write-behind-journal");
+
+	public int getMaxPendingProjects() {
+		return maxPendingProjects;
+	}
+
+	public void setMaxPendingProjects(int maxPendingProjects) {
+		this.maxPendingProjects = maxPendingProjects;
+	}
+
+	public int getFlushSize() {
+		return flushSize;
+	}
+
+	public void setFlushSize(int flushSize) {
+		this.flushSize = flushSize;
+	}
+
+	public long getFlushIntervalMillis() {
+		return flushIntervalMillis;
+	}
+
+	public void setFlushIntervalMillis(long flushIntervalMillis) {
+		this.flushIntervalMillis = flushIntervalMillis;
+	}
+
+	public long getSubmitTimeoutMillis() {
+		return submitTimeoutMillis;
+	}
+
+	public void setSubmitTimeoutMillis(long submitTimeoutMillis) {
+		this.submitTimeoutMillis = submitTimeoutMillis;
+	}
+
+	public Durability getDurability() {
+		return durability;
+	}
+
+	public void setDurability(Durability durability) {
+		this.durability = durability;
+	}
+
+	public Path getJournalDirectory() {
+		return journalDirectory;
+	}
+
+	public void setJournalDirectory(Path journalDirectory) {
+		this.journalDirectory = journalDirectory;
+	}
+
+	@Override
+	public String toString() {
+		return "maxPendingProjects=" + maxPendingProjects + ", flushSize=" + flushSize + ", flushIntervalMillis=" + flushIntervalMillis
+				+ ", submitTimeoutMillis=" + submitTimeoutMillis + ", durability=" + durability + ", journalDirectory=" + journalDirectory;
+	}
+
+} // class
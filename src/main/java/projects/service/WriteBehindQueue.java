@@ -0,0 +1,404 @@
+package projects.service;
+
+import java.lang.System.Logger.Level;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import projects.dao.ProjectDao;
+import projects.dao.ProjectUpdate;
+import projects.exception.DbException;
+
+/*
+ * Holds project updates in memory and writes them in batches.  Updates to the same project are merged as they arrive, later
+ * values winning field by field, so a burst of edits to one row becomes one UPDATE.  Pending updates are flushed in a single
+ * transaction (see ProjectDao.applyUpdates) when flushSize projects are waiting, every flush interval, on flush() and on close.
+ *
+ * When maxPendingProjects are waiting, updates for further projects block until a flush makes room, and fail after the
+ * submit timeout.  A flush that fails for a transient reason puts its updates back (under any newer ones) and is retried on the
+ * next interval.  A batch the database refuses for its data (SQLSTATE class 22 or 23) would fail the same way every time, so
+ * its updates are applied one at a time instead, and each one refused is logged and dropped; otherwise one bad value would
+ * hold every other project's edits back, fill the queue and, with JOURNAL durability, be replayed on every restart.  With SYNC
+ * durability every submit in a failed flush throws and its update is dropped, so an update the caller was told failed can't
+ * land later.  The updates of concurrent submitters are merged field by field, so a submit's own changes can't be picked out
+ * of the batch; the whole batch fails together.
+ *
+ * Updates of a project that no longer exists are dropped at flush time with a warning: the queue can't report a missing row
+ * to the caller that submitted it.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+	private static final System.Logger LOG = System.getLogger(WriteBehindQueue.class.getName());
+
+	private final ProjectDao projectDao;
+	private final WriteBehindConfig config;
+	private final Consumer<Set<Integer>> onFlushed; // Told which projects were written, after the commit.
+	private final UpdateJournal journal; // Null unless the durability is JOURNAL.
+	private final ScheduledExecutorService flusher;
+
+	private final Lock lock = new ReentrantLock(); // Guards the maps and sequence numbers.
+	private final Condition notFull = lock.newCondition();
+	private final Lock flushLock = new ReentrantLock(); // One flush at a time.
+	private Map<Integer, ProjectUpdate> pending = new LinkedHashMap<>();
+	private Map<Integer, ProjectUpdate> inFlight = Map.of(); // Taken by the running flush, not yet committed.
+	private List<CompletableFuture<Void>> waiters = new ArrayList<>(); // SYNC submits whose updates are in pending.
+	private long submitted; // Sequence number of the last submit.
+	private volatile long committed; // Every submit up to this number has been written (or dropped, or failed with SYNC).
+	private boolean closed;
+
+	public WriteBehindQueue(ProjectDao projectDao, WriteBehindConfig config, Consumer<Set<Integer>> onFlushed) {
+		this.projectDao = projectDao;
+		this.config = config;
+		this.onFlushed = onFlushed;
+		this.journal = config.getDurability() == WriteBehindConfig.Durability.JOURNAL ? new UpdateJournal(config.getJournalDirectory()) : null;
+		if(Objects.nonNull(journal)) {
+			for(ProjectUpdate update : journal.recover()) {
+				merge(pending, update);
+				submitted++;
+			} // for
+			if(!pending.isEmpty()) {
+				LOG.log(Level.INFO, () -> "Recovered unflushed updates of " + pending.size() + " projects from the journal");
+			} // if
+		} // if
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "write-behind-flusher");
+			thread.setDaemon(true); // close() does the final flush; the thread must not keep the app alive.
+			return thread;
+		});
+		long interval = config.getFlushIntervalMillis();
+		flusher.scheduleWithFixedDelay(this::flushQuietly, pending.isEmpty() ? interval : 0, interval, TimeUnit.MILLISECONDS);
+	} // constructor
+
+	/*
+	 * Queues an update.  Returns once it is queued (and journaled, or committed, depending on the durability).
+	 */
+	public void submit(ProjectUpdate update) {
+		CompletableFuture<Void> done = null; // SYNC only.
+		lock.lock();
+		try {
+			if(closed) {
+				throw new DbException("The write-behind queue is closed");
+			} // if
+			long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(config.getSubmitTimeoutMillis());
+			while(pending.size() >= config.getMaxPendingProjects() && !pending.containsKey(update.getProjectId())) {
+				requestFlush();
+				long remaining = deadline - System.nanoTime();
+				if(remaining <= 0) {
+					throw new DbException("The write-behind queue is full (" + pending.size() + " projects waiting)");
+				} // if
+				notFull.awaitNanos(remaining);
+			} // while
+			if(Objects.nonNull(journal)) {
+				journal.append(update); // Before the merge: if the disk write fails, the update isn't queued either.
+			} // if
+			merge(pending, update.copy());
+			submitted++;
+			if(isSync()) {
+				done = new CompletableFuture<>();
+				waiters.add(done);
+			} // if
+			if(pending.size() >= config.getFlushSize()) {
+				requestFlush();
+			} // if
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DbException("Interrupted while waiting for room in the write-behind queue", e);
+		} finally {
+			lock.unlock();
+		} // try-finally
+
+		if(isSync()) {
+			awaitFlush(update.getProjectId(), done);
+		} // if
+	} // submit
+
+	/*
+	 * Flushes unless another thread's flush has already taken the update, then reports how the flush that took it ended.
+	 */
+	private void awaitFlush(Integer projectId, CompletableFuture<Void> done) {
+		flushLock.lock();
+		try {
+			if(!done.isDone()) {
+				flushPending(); // Takes this submit's update with the rest, and completes done either way.
+			} // if
+		} catch(RuntimeException e) {
+			if(!done.isDone()) {
+				throw e;
+			} // if
+		} finally {
+			flushLock.unlock();
+		} // try-finally
+		try {
+			done.join();
+		} catch(CompletionException e) {
+			throw new DbException("The update of project " + projectId + " was not written and has been dropped", e.getCause());
+		} // try-catch
+	} // awaitFlush
+
+	/*
+	 * The queued changes to the project that are not yet in the database, merged; empty if there are none.
+	 */
+	public Optional<ProjectUpdate> pendingFor(Integer projectId) {
+		lock.lock();
+		try {
+			ProjectUpdate flushing = inFlight.get(projectId);
+			ProjectUpdate waiting = pending.get(projectId);
+			if(Objects.isNull(flushing)) {
+				return Optional.ofNullable(waiting).map(ProjectUpdate::copy);
+			} // if
+			ProjectUpdate merged = flushing.copy();
+			if(Objects.nonNull(waiting)) {
+				merged.merge(waiting);
+			} // if
+			return Optional.of(merged);
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // pendingFor
+
+	/*
+	 * Drops the project's queued updates, e.g. because it is being deleted.  A flush already under way still writes its copy.
+	 */
+	public void discard(Integer projectId) {
+		lock.lock();
+		try {
+			if(Objects.nonNull(pending.remove(projectId))) {
+				notFull.signalAll();
+			} // if
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // discard
+
+	public int getPendingCount() {
+		lock.lock();
+		try {
+			return pending.size();
+		} finally {
+			lock.unlock();
+		} // try-finally
+	} // getPendingCount
+
+	/*
+	 * Writes everything submitted so far and returns once it has committed.
+	 */
+	public void flush() {
+		long target;
+		lock.lock();
+		try {
+			target = submitted;
+		} finally {
+			lock.unlock();
+		} // try-finally
+		flushThrough(target);
+	} // flush
+
+	/*
+	 * Stops the background flushes and writes what is left.  If that final flush fails the updates stay in the journal (with
+	 * JOURNAL durability) and the exception is thrown.
+	 */
+	@Override
+	public void close() {
+		lock.lock();
+		try {
+			closed = true;
+		} finally {
+			lock.unlock();
+		} // try-finally
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(config.getFlushIntervalMillis() + config.getSubmitTimeoutMillis(), TimeUnit.MILLISECONDS);
+			flush();
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			if(Objects.nonNull(journal)) {
+				journal.close();
+			} // if
+		} // try-finally
+	} // close
+
+	private void flushThrough(long sequence) {
+		flushLock.lock();
+		try {
+			if(committed < sequence) { // Otherwise a flush that ran while this thread waited for the lock already wrote it.
+				flushPending();
+			} // if
+		} finally {
+			flushLock.unlock();
+		} // try-finally
+	} // flushThrough
+
+	private void flushQuietly() {
+		try {
+			flushLock.lock();
+			try {
+				flushPending();
+			} finally {
+				flushLock.unlock();
+			} // try-finally
+		} catch(RuntimeException e) { // Never let an exception cancel the schedule.
+			LOG.log(Level.WARNING, isSync() ? "Write-behind flush failed; its submitters were told" : "Write-behind flush failed; will retry", e);
+		} // try-catch
+	} // flushQuietly
+
+	/*
+	 * Called holding flushLock.
+	 */
+	private void flushPending() {
+		Map<Integer, ProjectUpdate> batch;
+		List<CompletableFuture<Void>> batchWaiters;
+		long through;
+		long journalSegment = -1;
+		lock.lock();
+		try {
+			if(pending.isEmpty()) {
+				committed = submitted;
+				waiters.forEach(waiter -> waiter.complete(null)); // Their updates were discarded with a deleted project.
+				waiters = new ArrayList<>();
+				return;
+			} // if
+			batch = pending;
+			batchWaiters = waiters;
+			through = submitted;
+			pending = new LinkedHashMap<>();
+			waiters = new ArrayList<>();
+			inFlight = batch;
+			if(Objects.nonNull(journal)) {
+				journalSegment = journal.roll();
+			} // if
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		} // try-finally
+
+		Set<Integer> written;
+		try {
+			written = projectDao.applyUpdates(batch.values());
+		} catch(RuntimeException e) {
+			if(isSync() || !(e instanceof DbException db && db.isDataError())) {
+				lock.lock();
+				try {
+					if(isSync()) {
+						committed = through; // Dropped: every submitter in the batch gets the exception below.
+					} else {
+						requeue(batch);
+					} // if
+					inFlight = Map.of();
+				} finally {
+					lock.unlock();
+				} // try-finally
+				batchWaiters.forEach(waiter -> waiter.completeExceptionally(e));
+				throw e;
+			} // if
+			written = applyOneByOne(batch);
+		} // try-catch
+
+		lock.lock();
+		try {
+			inFlight = Map.of();
+			committed = through;
+			if(Objects.nonNull(journal)) {
+				journal.deleteThrough(journalSegment);
+			} // if
+		} finally {
+			lock.unlock();
+		} // try-finally
+
+		if(written.size() < batch.size()) {
+			Set<Integer> missing = new HashSet<>(batch.keySet());
+			missing.removeAll(written);
+			LOG.log(Level.WARNING, () -> "Dropped queued updates of projects that no longer exist: " + missing);
+		} // if
+		try {
+			onFlushed.accept(batch.keySet());
+		} finally {
+			batchWaiters.forEach(waiter -> waiter.complete(null)); // After the callback, so a submitter returns to a current cache.
+		} // try-finally
+	} // flushPending
+
+	/*
+	 * Applies a batch the database refused, one update at a time, dropping each update that is refused as well.  If an update
+	 * fails for any other reason, it and the ones after it go back in the queue, the updates already written are reported to
+	 * onFlushed, and the exception is thrown.  Called holding flushLock, never with SYNC durability.
+	 */
+	private Set<Integer> applyOneByOne(Map<Integer, ProjectUpdate> batch) {
+		LOG.log(Level.DEBUG, () -> "Write-behind batch of " + batch.size() + " projects was refused; applying it one update at a time");
+		Set<Integer> written = new LinkedHashSet<>();
+		List<ProjectUpdate> updates = new ArrayList<>(batch.values());
+		for(int i = 0; i < updates.size(); i++) {
+			ProjectUpdate update = updates.get(i);
+			try {
+				written.addAll(projectDao.applyUpdates(List.of(update)));
+			} catch(DbException e) {
+				if(e.isDataError()) {
+					LOG.log(Level.WARNING, "Dropped a queued update of project " + update.getProjectId() + " that the database refused: " + update, e);
+					written.add(update.getProjectId()); // Not missing, only refused; keeps it out of the missing-project warning.
+					continue;
+				} // if
+				Map<Integer, ProjectUpdate> rest = new LinkedHashMap<>();
+				updates.subList(i, updates.size()).forEach(left -> rest.put(left.getProjectId(), left));
+				lock.lock();
+				try {
+					requeue(rest);
+					inFlight = Map.of();
+				} finally {
+					lock.unlock();
+				} // try-finally
+				if(i > 0) {
+					onFlushed.accept(updates.subList(0, i).stream().map(ProjectUpdate::getProjectId).collect(Collectors.toSet()));
+				} // if
+				throw e;
+			} // try-catch
+		} // for
+		return written;
+	} // applyOneByOne
+
+	/*
+	 * Puts a batch that wasn't written back in the queue, under any updates submitted since.  Called holding lock.
+	 */
+	private void requeue(Map<Integer, ProjectUpdate> batch) {
+		for(ProjectUpdate newer : pending.values()) {
+			merge(batch, newer);
+		} // for
+		pending = batch;
+	} // requeue
+
+	private boolean isSync() {
+		return config.getDurability() == WriteBehindConfig.Durability.SYNC;
+	}
+
+	private void requestFlush() {
+		try {
+			flusher.execute(this::flushQuietly);
+		} catch(RejectedExecutionException e) {
+			// Closing: close() does the final flush.
+		} // try-catch
+	} // requestFlush
+
+	private static void merge(Map<Integer, ProjectUpdate> updates, ProjectUpdate update) {
+		ProjectUpdate existing = updates.get(update.getProjectId());
+		if(Objects.isNull(existing)) {
+			updates.put(update.getProjectId(), update);
+		} else {
+			existing.merge(update);
+		} // if
+	} // merge
+
+} // class
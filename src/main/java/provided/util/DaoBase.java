@@ -3,20 +3,23 @@
  */
 package provided.util;
 
-import java.lang.reflect.Constructor;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.sql.Time;
-import java.sql.Timestamp;
 import java.sql.Types;
-import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * This class contains utility methods for the DAO class.
@@ -25,6 +28,23 @@ import java.util.Objects;
  *
  */
 public abstract class DaoBase {
+  /**
+   * The fetch size used by {@link #streamQuery(Connection, String, Class)} for drivers other than
+   * MySQL.
+   */
+  private static final int STREAM_FETCH_SIZE = 500;
+
+  /**
+   * The number of rows a server-side cursor fetches at a time; see
+   * {@link #enableCursorFetch(PreparedStatement)}.
+   */
+  private static final int CURSOR_FETCH_SIZE = 1000;
+
+  /**
+   * The parenthesized IN lists built by {@link #paddedInList(int, int)}, by number of parameters.
+   */
+  private static final Map<Integer, String> PADDED_IN_LISTS = new ConcurrentHashMap<>();
+
   /**
    * This starts a MySQL transaction. Normally MySQL starts a transaction before every request and
    * commits it after each request. By turning auto-commit off, the transaction is only committed
@@ -57,6 +77,42 @@ public abstract class DaoBase {
     conn.rollback();
   }
 
+  /**
+   * This prepares a statement, reusing one from the connection's {@link StatementCache} when the
+   * connection has one (pooled connections do). Callers should pass SQL that is built once, such as
+   * a static final constant, so that the same text maps to the same cached statement. Close the
+   * statement as usual; a cached statement is returned to the cache instead of being closed. When
+   * {@link QueryTracer} is on, the statement's executions are timed.
+   * 
+   * @param conn The connection
+   * @param sql The SQL text
+   * @return The prepared statement
+   * @throws SQLException Thrown if an error occurs.
+   */
+  protected PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+    return prepare(conn, sql, Statement.NO_GENERATED_KEYS);
+  }
+
+  /**
+   * This is the same as {@link #prepare(Connection, String)}, but lets the caller ask for generated
+   * keys.
+   * 
+   * @param conn The connection
+   * @param sql The SQL text
+   * @param autoGeneratedKeys Either {@link Statement#RETURN_GENERATED_KEYS} or
+   *        {@link Statement#NO_GENERATED_KEYS}
+   * @return The prepared statement
+   * @throws SQLException Thrown if an error occurs.
+   */
+  protected PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys)
+      throws SQLException {
+    PreparedStatement stmt = conn.isWrapperFor(StatementCache.class)
+        ? conn.unwrap(StatementCache.class).prepare(sql, autoGeneratedKeys)
+        : conn.prepareStatement(sql, autoGeneratedKeys);
+
+    return QueryTracer.trace(stmt, sql);
+  }
+
   /**
    * This sets a parameter on a prepared statement. If the parameter is null, it is handled
    * correctly.
@@ -92,6 +148,10 @@ public abstract class DaoBase {
           stmt.setInt(parameterIndex, (Integer)value);
           break;
 
+        case Types.BIGINT:
+          stmt.setLong(parameterIndex, (Long)value);
+          break;
+
         case Types.OTHER:
           stmt.setObject(parameterIndex, value);
           break;
@@ -117,6 +177,10 @@ public abstract class DaoBase {
       return Types.INTEGER;
     }
 
+    if(Long.class.equals(classType)) {
+      return Types.BIGINT;
+    }
+
     if(String.class.equals(classType)) {
       return Types.VARCHAR;
     }
@@ -136,10 +200,104 @@ public abstract class DaoBase {
     throw new DaoException("Unsupported class type: " + classType.getName());
   }
 
+  /**
+   * This builds the parameter list for an IN clause with the given number of values. For example,
+   * a count of 3 returns "?, ?, ?", which is used like this:
+   *
+   * <pre>
+   * String sql = "SELECT * FROM recipe WHERE recipe_id IN (" + inClause(ids.size()) + ")";
+   * </pre>
+   *
+   * @param count The number of values. This must be at least one.
+   * @return The comma-separated question marks.
+   */
+  protected static String inClause(int count) {
+    if(count < 1) {
+      throw new DaoException("An IN clause needs at least one value.");
+    }
+
+    StringBuilder builder = new StringBuilder(count * 3);
+
+    for(int index = 0; index < count; index++) {
+      builder.append(index == 0 ? "?" : ", ?");
+    }
+
+    return builder.toString();
+  }
+
+  /**
+   * This returns the number of parameters {@link #paddedInList(int, int)} uses for the given
+   * number of values: the next power of two, but never more than the chunk size. A list chunked
+   * at 500 therefore produces at most ten different statement texts (1, 2, 4 ... 256 and 500)
+   * instead of one per tail length, so the statement cache and the server's plan cache keep
+   * being hit.
+   *
+   * @param count The number of values. This must be at least one.
+   * @param chunkSize The largest number of values in one IN list.
+   * @return The padded number of parameters.
+   */
+  protected static int paddedInSize(int count, int chunkSize) {
+    if(count < 1) {
+      throw new DaoException("An IN clause needs at least one value.");
+    }
+
+    int size = Integer.highestOneBit(count);
+
+    if(size < count) {
+      size <<= 1;
+    }
+
+    return Math.min(size, chunkSize);
+  }
+
+  /**
+   * This returns the parenthesized IN list for a chunk of values, padded to
+   * {@link #paddedInSize(int, int)} parameters. Bind the values with
+   * {@link #setPaddedIdParameters(PreparedStatement, int, List, int)}, which fills the padding by
+   * repeating the last value. A repeated value matches the same rows, so the result is unchanged.
+   *
+   * @param count The number of values in the chunk.
+   * @param chunkSize The largest number of values in one IN list.
+   * @return The IN list, for example "(?, ?, ?, ?)" for three values.
+   */
+  protected static String paddedInList(int count, int chunkSize) {
+    return PADDED_IN_LISTS.computeIfAbsent(paddedInSize(count, chunkSize),
+        size -> "(" + inClause(size) + ")");
+  }
+
+  /**
+   * This binds the IDs for an IN list built by {@link #paddedInList(int, int)}, repeating the last
+   * ID in the padding parameters.
+   *
+   * @param stmt The statement.
+   * @param firstIndex The index of the first IN list parameter.
+   * @param ids The IDs in the chunk. There must be at least one.
+   * @param chunkSize The chunk size the IN list was built with.
+   * @return The index of the parameter following the IN list.
+   * @throws SQLException Thrown if a parameter can't be set.
+   */
+  protected int setPaddedIdParameters(PreparedStatement stmt, int firstIndex, List<Integer> ids,
+      int chunkSize) throws SQLException {
+    int index = firstIndex;
+
+    for(Integer id : ids) {
+      setParameter(stmt, index++, id, Integer.class);
+    }
+
+    Integer last = ids.get(ids.size() - 1);
+
+    for(int padding = paddedInSize(ids.size(), chunkSize) - ids.size(); padding > 0; padding--) {
+      setParameter(stmt, index++, last, Integer.class);
+    }
+
+    return index;
+  }
+
   /**
    * This retrieves the number of child rows and adds one to the value. It is used to set the order
    * of a child row. For a *real* application, a more sophisticated approach is desired. This method
-   * does not allow for entity reordering and does not allow for an entity to be deleted.
+   * does not allow for entity reordering and does not allow for an entity to be deleted. Project
+   * steps use the gap-based order keys in projects.dao.StepDao instead.
    * 
    * @param conn The connection
    * @param id The ID of the parent entity
@@ -152,7 +310,7 @@ public abstract class DaoBase {
       String idName) throws SQLException {
     String sql = "SELECT COUNT(*) FROM " + tableName + " WHERE " + idName + " = ?";
 
-    try(PreparedStatement stmt = conn.prepareStatement(sql)) {
+    try(PreparedStatement stmt = QueryTracer.trace(conn.prepareStatement(sql), sql)) {
       setParameter(stmt, 1, id, Integer.class);
 
       try(ResultSet rs = stmt.executeQuery()) {
@@ -181,7 +339,7 @@ public abstract class DaoBase {
   protected Integer getLastInsertId(Connection conn, String table) throws SQLException {
     String sql = String.format("SELECT LAST_INSERT_ID() FROM %s", table);
 
-    try(Statement stmt = conn.createStatement()) {
+    try(Statement stmt = QueryTracer.trace(conn.createStatement())) {
       try(ResultSet rs = stmt.executeQuery(sql)) {
         if(rs.next()) {
           return rs.getInt(1);
@@ -192,14 +350,42 @@ public abstract class DaoBase {
     }
   }
 
+  /**
+   * This reads the auto-generated primary keys after executing an INSERT (single or batched) on a
+   * statement that was prepared with {@link Statement#RETURN_GENERATED_KEYS}. Unlike
+   * {@link #getLastInsertId(Connection, String)} this needs no extra round trip: the driver returns
+   * the keys with the update count. For a batch, the keys are in the order the rows were added.
+   * 
+   * @param stmt The statement that executed the INSERT
+   * @param expected The number of rows that were inserted
+   * @return The primary key values
+   * @throws SQLException Thrown if an error occurs or fewer keys than expected are returned
+   */
+  protected int[] getGeneratedKeys(Statement stmt, int expected) throws SQLException {
+    int[] keys = new int[expected];
+
+    try(ResultSet rs = stmt.getGeneratedKeys()) {
+      int count = 0;
+
+      while(rs.next() && count < expected) {
+        keys[count++] = rs.getInt(1);
+      }
+
+      if(count < expected) {
+        throw new SQLException(
+            "Expected " + expected + " generated keys but the driver returned " + count + ".");
+      }
+    }
+
+    return keys;
+  }
+
   /**
    * This extracts an object of the given type from a result set. The object must have a
-   * zero-argument constructor. It builds an object from a result set using reflection as follows:
+   * zero-argument constructor. It builds an object from a result set as follows:
    * <ol>
-   * <li>The zero-argument constructor is obtained.</li>
    * <li>An object of the given class type is created.</li>
-   * <li>A list of fields is obtained using reflection.</li>
-   * <li>The field name is converted from Java naming to SQL naming conventions (camel case to snake
+   * <li>Each field name is converted from Java naming to SQL naming conventions (camel case to snake
    * case). Obviously, for this to work, the Java name must match the column name. So, if the Java
    * name is numServings, the column name must be num_servings.</li>
    * <li>The value is assigned to the field in the object.</li>
@@ -224,6 +410,10 @@ public abstract class DaoBase {
    * Since the result set does not contain a column named "ingredients", the value is left alone and
    * the list initialization is preserved.
    * 
+   * This method resolves the column positions every time it is called. When reading more than one
+   * row, call {@link #mapper(ResultSet, Class)} once and use the returned {@link RowMapper} for every
+   * row instead.
+   * 
    * @param <T> The Generic for the type of object to create and return.
    * @param rs The result set in which to extract values. The result set must be positioned on the
    *        correct row by the caller.
@@ -232,57 +422,159 @@ public abstract class DaoBase {
    */
   protected <T> T extract(ResultSet rs, Class<T> classType) {
     try {
-      /* Obtain the constructor and create an object of the correct type. */
-      Constructor<T> con = classType.getConstructor();
-      T obj = con.newInstance();
-
-      /* Get the list of fields and loop through them. */
-      for(Field field : classType.getDeclaredFields()) {
-        String colName = camelCaseToSnakeCase(field.getName());
-        Class<?> fieldType = field.getType();
-
-        /*
-         * Set the field accessible flag which means that we can populate even private fields
-         * without using the setter.
-         */
-        field.setAccessible(true);
-        Object fieldValue = null;
+      return mapper(rs, classType).map(rs);
+    }
+    catch(SQLException e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+  }
 
-        try {
-          fieldValue = rs.getObject(colName);
-        }
-        catch(SQLException e) {
-          /*
-           * An exception caught here means that the field name isn't in the result set. Don't take
-           * any action.
-           */
-        }
+  /**
+   * This returns a mapper that converts rows of the given result set into objects of the given type.
+   * The class-level work (finding the constructor and fields and converting their names) is done
+   * once per class and cached. The column positions are resolved here, once per result set. So:
+   * 
+   * <pre>
+   * RowMapper<Recipe> recipeMapper = mapper(rs, Recipe.class);
+   * 
+   * while(rs.next()) {
+   *   recipes.add(recipeMapper.map(rs));
+   * }
+   * </pre>
+   * 
+   * @param <T> The Generic for the type of object to create and return.
+   * @param rs The result set that will be mapped.
+   * @param classType The actual class type of the objects to create.
+   * @return The mapper for this result set.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  protected <T> RowMapper<T> mapper(ResultSet rs, Class<T> classType) throws SQLException {
+    return RowMapper.forResultSet(rs, classType);
+  }
+
+  /**
+   * This runs a query and returns its rows as a lazily evaluated stream. Rows are read from the
+   * database and converted only as the stream is consumed, so memory use does not grow with the size
+   * of the result. With MySQL the driver is switched into row-by-row streaming mode; other drivers
+   * get a modest fetch size.
+   * 
+   * The stream takes ownership of the connection. Closing the stream closes the result set, the
+   * statement and the connection, so always use it in a try-with-resources block:
+   * 
+   * <pre>
+   * try(Stream<Recipe> recipes = streamQuery(conn, "SELECT * FROM recipe", Recipe.class)) {
+   *   recipes.forEach(System.out::println);
+   * }
+   * </pre>
+   * 
+   * If the query cannot be started, the connection is closed before the exception is thrown.
+   * 
+   * @param <T> The Generic for the type of object to create and return.
+   * @param conn The connection to run the query on. The stream closes it.
+   * @param sql The query. It must not have any parameters.
+   * @param classType The actual class type of the objects to create.
+   * @return A stream of populated objects.
+   * @throws SQLException Thrown if the query cannot be executed.
+   */
+  protected <T> Stream<T> streamQuery(Connection conn, String sql, Class<T> classType)
+      throws SQLException {
+    PreparedStatement stmt = null;
+    ResultSet rs = null;
 
-        /*
-         * Only set the value in the object if there is a value with the same name in the result
-         * set. This will preserve instance variables (like lists) that are assigned values when the
-         * object is created.
-         */
-        if(Objects.nonNull(fieldValue)) {
-          /*
-           * Convert the following types: Time -> LocalTime, and Timestamp -> LocalDateTime.
-           */
-          if(fieldValue instanceof Time && fieldType.equals(LocalTime.class)) {
-            fieldValue = ((Time)fieldValue).toLocalTime();
+    try {
+      stmt = QueryTracer.trace(
+          conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY), sql);
+      enableStreaming(conn, stmt);
+      rs = stmt.executeQuery();
+
+      RowMapper<T> rowMapper = mapper(rs, classType);
+      ResultSet rows = rs;
+      Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+          Spliterator.ORDERED | Spliterator.NONNULL) {
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+          try {
+            if(!rows.next()) {
+              return false;
+            }
+
+            action.accept(rowMapper.map(rows));
+            return true;
           }
-          else if(fieldValue instanceof Timestamp && fieldType.equals(LocalDateTime.class)) {
-            fieldValue = ((Timestamp)fieldValue).toLocalDateTime();
+          catch(SQLException e) {
+            throw new DaoException("Unable to read the next " + classType.getSimpleName(), e);
           }
-
-          field.set(obj, fieldValue);
         }
-      }
+      };
 
-      return obj;
+      AutoCloseable[] resources = {rs, stmt, conn};
+      return StreamSupport.stream(spliterator, false).onClose(() -> closeAll(resources));
+    }
+    catch(SQLException | RuntimeException e) {
+      closeAll(new AutoCloseable[] {rs, stmt, conn});
+      throw e;
+    }
+  }
+
+  /**
+   * This tells the driver not to buffer the whole result set in memory. MySQL Connector/J only
+   * streams rows when the fetch size is Integer.MIN_VALUE on a forward-only, read-only statement.
+   * 
+   * @param conn The connection the statement belongs to
+   * @param stmt The statement to configure
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected void enableStreaming(Connection conn, PreparedStatement stmt) throws SQLException {
+    String url = conn.getMetaData().getURL();
 
+    if(Objects.nonNull(url) && url.startsWith("jdbc:mysql:")) {
+      stmt.setFetchSize(Integer.MIN_VALUE);
     }
-    catch(Exception e) {
-      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    else {
+      stmt.setFetchSize(STREAM_FETCH_SIZE);
+    }
+  }
+
+  /**
+   * Like {@link #enableStreaming(Connection, PreparedStatement)}, this keeps the driver from
+   * buffering the whole result set, but it also lets several result sets be open on one connection
+   * at once. MySQL's row-by-row streaming allows only one, so on MySQL this needs a server-side
+   * cursor: the connection URL must have useCursorFetch=true, or the driver quietly reads the whole
+   * result into memory.
+   * 
+   * @param stmt The statement to configure. It should be forward-only and read-only.
+   * @throws SQLException Thrown if an error occurs
+   */
+  protected void enableCursorFetch(PreparedStatement stmt) throws SQLException {
+    stmt.setFetchSize(CURSOR_FETCH_SIZE);
+  }
+
+  /**
+   * Closes each resource in order, even if an earlier one fails.
+   * 
+   * @param resources The resources to close. Null entries are skipped.
+   */
+  private void closeAll(AutoCloseable[] resources) {
+    DaoException failure = null;
+
+    for(AutoCloseable resource : resources) {
+      if(Objects.nonNull(resource)) {
+        try {
+          resource.close();
+        }
+        catch(Exception e) {
+          if(Objects.isNull(failure)) {
+            failure = new DaoException("Unable to close a streamed query", e);
+          }
+          else {
+            failure.addSuppressed(e);
+          }
+        }
+      }
+    }
+
+    if(Objects.nonNull(failure)) {
+      throw failure;
     }
   }
 
@@ -292,7 +584,7 @@ public abstract class DaoBase {
    * @param identifier The name in camel case to convert.
    * @return The name converted to snake case.
    */
-  private String camelCaseToSnakeCase(String identifier) {
+  static String camelCaseToSnakeCase(String identifier) {
     StringBuilder nameBuilder = new StringBuilder();
 
     for(char ch : identifier.toCharArray()) {
@@ -0,0 +1,454 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.System.Logger.Level;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This is an opt-in tracer for the SQL statements a DAO operation runs. It is off by default and
+ * then costs one volatile read per statement.
+ *
+ * <ul>
+ * <li>A fraction of operations (the sample rate) is traced. A traced operation records a span for
+ * each statement it executes (the SQL, the bound parameters and the time taken) plus the time spent
+ * waiting for a connection. The whole trace is logged at INFO when the operation ends.</li>
+ * <li>Independently of sampling, any statement that takes longer than the slow-query threshold is
+ * logged at WARNING to the {@value #SLOW_QUERY_LOGGER} logger, so it can be routed to its own
+ * file.</li>
+ * <li>Parameter values can be redacted, in which case only their count is logged.</li>
+ * <li>A {@link StatementListener}, if one is set, is told about every statement execution, traced
+ * or not, e.g. to keep per-statement metrics.</li>
+ * </ul>
+ *
+ * All settings can be changed while the application runs. Their starting values come from the
+ * system properties query.trace.sampleRate (0.0 to 1.0), query.trace.slowQueryMillis (0 turns the
+ * slow-query log off) and query.trace.redactParameters.
+ *
+ * A trace belongs to the thread that began it. Statements are attached to the current thread's
+ * trace.
+ *
+ * @author Promineo
+ *
+ */
+public final class QueryTracer {
+  /**
+   * The name of the logger slow statements are written to.
+   */
+  public static final String SLOW_QUERY_LOGGER = "provided.util.QueryTracer.slow";
+
+  private static final System.Logger TRACE_LOG = System.getLogger(QueryTracer.class.getName());
+  private static final System.Logger SLOW_LOG = System.getLogger(SLOW_QUERY_LOGGER);
+  private static final int MAX_SPANS_PER_TRACE = 256;
+  private static final int MAX_PARAMETER_LENGTH = 100;
+  private static final ThreadLocal<Trace> CURRENT = new ThreadLocal<>();
+  private static final Trace NOT_TRACED = new Trace(null, false, null);
+
+  private static volatile double sampleRate =
+      Double.parseDouble(System.getProperty("query.trace.sampleRate", "0"));
+  private static volatile long slowQueryNanos = TimeUnit.MILLISECONDS
+      .toNanos(Long.parseLong(System.getProperty("query.trace.slowQueryMillis", "0")));
+  private static volatile boolean redactParameters =
+      Boolean.getBoolean("query.trace.redactParameters");
+  private static volatile StatementListener statementListener;
+
+  private QueryTracer() {}
+
+  /**
+   * This begins tracing an operation on the current thread. Close the returned trace when the
+   * operation ends. If tracing is off, or the operation is not sampled, the trace records nothing.
+   *
+   * @param operation The operation name, such as a DAO method name
+   * @return The trace
+   */
+  public static Trace begin(String operation) {
+    if(sampleRate <= 0.0 && slowQueryNanos <= 0) {
+      return NOT_TRACED;
+    }
+
+    boolean sampled = sampleRate >= 1.0 || ThreadLocalRandom.current().nextDouble() < sampleRate;
+    Trace trace = new Trace(operation, sampled, CURRENT.get());
+    CURRENT.set(trace);
+    return trace;
+  }
+
+  /**
+   * This wraps a prepared statement so its executions are timed, if anything is listening. When
+   * tracing is off the statement is returned as is.
+   *
+   * @param stmt The statement
+   * @param sql The statement's SQL text
+   * @return The statement, or a timing wrapper around it
+   */
+  public static PreparedStatement trace(PreparedStatement stmt, String sql) {
+    Trace trace = CURRENT.get();
+
+    if(isIgnored(trace)) {
+      return stmt;
+    }
+
+    return (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+        new Class<?>[] {PreparedStatement.class}, new TracedStatement(stmt, sql));
+  }
+
+  /**
+   * This is the same as {@link #trace(PreparedStatement, String)} for a plain statement, whose SQL
+   * is only known when it is executed.
+   *
+   * @param stmt The statement
+   * @return The statement, or a timing wrapper around it
+   */
+  public static Statement trace(Statement stmt) {
+    Trace trace = CURRENT.get();
+
+    if(isIgnored(trace)) {
+      return stmt;
+    }
+
+    return (Statement)Proxy.newProxyInstance(Statement.class.getClassLoader(),
+        new Class<?>[] {Statement.class}, new TracedStatement(stmt, null));
+  }
+
+  /*
+   * Nothing would look at the statement's executions: no sampled trace, no slow-query log and no
+   * listener.
+   */
+  private static boolean isIgnored(Trace trace) {
+    return slowQueryNanos <= 0 && Objects.isNull(statementListener)
+        && (Objects.isNull(trace) || !trace.sampled);
+  }
+
+  /**
+   * This adds a span that is not a statement, such as waiting for a connection, to the current
+   * thread's trace.
+   *
+   * @param name What was timed
+   * @param nanos How long it took
+   */
+  public static void recordSpan(String name, long nanos) {
+    Trace trace = CURRENT.get();
+
+    if(Objects.nonNull(trace) && trace.sampled) {
+      trace.add(new Span(name, null, 0, nanos));
+    }
+  }
+
+  /**
+   * @return The fraction of operations that are traced, from 0.0 (none) to 1.0 (all)
+   */
+  public static double getSampleRate() {
+    return sampleRate;
+  }
+
+  /**
+   * @param rate The fraction of operations to trace, from 0.0 (none) to 1.0 (all)
+   */
+  public static void setSampleRate(double rate) {
+    if(rate < 0.0 || rate > 1.0) {
+      throw new IllegalArgumentException("The sample rate must be between 0.0 and 1.0, not " + rate);
+    }
+
+    sampleRate = rate;
+  }
+
+  /**
+   * @return The slow-query threshold in milliseconds, or 0 if the slow-query log is off
+   */
+  public static long getSlowQueryThresholdMillis() {
+    return TimeUnit.NANOSECONDS.toMillis(slowQueryNanos);
+  }
+
+  /**
+   * @param millis Statements taking at least this long are logged. 0 turns the slow-query log off.
+   */
+  public static void setSlowQueryThresholdMillis(long millis) {
+    if(millis < 0) {
+      throw new IllegalArgumentException("The slow-query threshold cannot be negative: " + millis);
+    }
+
+    slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  /**
+   * @return true if parameter values are left out of traces and the slow-query log
+   */
+  public static boolean isRedactParameters() {
+    return redactParameters;
+  }
+
+  /**
+   * @param redact true to leave parameter values out of traces and the slow-query log
+   */
+  public static void setRedactParameters(boolean redact) {
+    redactParameters = redact;
+  }
+
+  /**
+   * @return The listener told about every statement execution, or null if there is none
+   */
+  public static StatementListener getStatementListener() {
+    return statementListener;
+  }
+
+  /**
+   * @param listener The listener to tell about every statement execution, or null for none
+   */
+  public static void setStatementListener(StatementListener listener) {
+    statementListener = listener;
+  }
+
+  /**
+   * This is told about each execution of a statement wrapped by this tracer. It is called on the
+   * executing thread, so it must be quick.
+   */
+  @FunctionalInterface
+  public interface StatementListener {
+    /**
+     * @param sql The SQL text that was executed
+     * @param nanos How long the execution took
+     * @param rows The update count (summed for a batch), or 0 for a query
+     * @param failed true if the execution threw an exception
+     */
+    void executed(String sql, long nanos, long rows, boolean failed);
+  }
+
+  /**
+   * One traced operation.
+   */
+  public static final class Trace implements AutoCloseable {
+    private final String operation;
+    private final boolean sampled;
+    private final Trace parent;
+    private final long startNanos = System.nanoTime();
+    private final List<Span> spans = new ArrayList<>();
+    private int droppedSpans;
+
+    private Trace(String operation, boolean sampled, Trace parent) {
+      this.operation = operation;
+      this.sampled = sampled;
+      this.parent = parent;
+    }
+
+    private void add(Span span) {
+      if(spans.size() < MAX_SPANS_PER_TRACE) {
+        spans.add(span);
+      }
+      else {
+        droppedSpans++;
+      }
+    }
+
+    @Override
+    public void close() {
+      if(this == NOT_TRACED) {
+        return;
+      }
+
+      if(CURRENT.get() == this) {
+        if(Objects.isNull(parent)) {
+          CURRENT.remove();
+        }
+        else {
+          CURRENT.set(parent);
+        }
+      }
+
+      if(sampled) {
+        TRACE_LOG.log(Level.INFO, this::toString);
+      }
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder text = new StringBuilder("Trace of ").append(operation).append(" (")
+          .append(formatMillis(System.nanoTime() - startNanos)).append(")");
+
+      for(Span span : spans) {
+        text.append("\n  ").append(span);
+      }
+
+      if(droppedSpans > 0) {
+        text.append("\n  ... ").append(droppedSpans).append(" more statements");
+      }
+
+      return text.toString();
+    }
+  }
+
+  /**
+   * One timed step of a trace.
+   *
+   * @param name The SQL, or the name of a non-statement step
+   * @param parameters The bound parameters, or null
+   * @param batchSize The number of batched parameter sets, or 0 if the statement was not batched
+   * @param nanos How long it took
+   */
+  private record Span(String name, String parameters, int batchSize, long nanos) {
+    @Override
+    public String toString() {
+      return formatMillis(nanos) + "  " + name + (batchSize > 0 ? "  [batch of " + batchSize + "]" : "")
+          + (Objects.isNull(parameters) ? "" : "  " + parameters);
+    }
+  }
+
+  /**
+   * Times the executions of one statement and remembers its bound parameters. A plain statement
+   * has no SQL of its own; each execution's SQL argument is recorded instead.
+   */
+  private static class TracedStatement implements InvocationHandler {
+    private final Statement stmt;
+    private final String sql;
+    private final TreeMap<Integer, Object> parameters = new TreeMap<>();
+    private int batchSize;
+
+    private TracedStatement(Statement stmt, String sql) {
+      this.stmt = stmt;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+
+      if(name.startsWith("execute")) {
+        String executed = Objects.nonNull(args) && args.length > 0 && args[0] instanceof String text ? text : sql;
+        Object result = null;
+        boolean failed = true;
+        long start = System.nanoTime();
+
+        try {
+          result = method.invoke(stmt, args);
+          failed = false;
+          return result;
+        }
+        catch(InvocationTargetException e) {
+          throw e.getCause();
+        }
+        finally {
+          long nanos = System.nanoTime() - start;
+          record(executed, nanos);
+          StatementListener listener = statementListener;
+
+          if(Objects.nonNull(listener) && Objects.nonNull(executed)) {
+            listener.executed(executed, nanos, updateCount(result), failed);
+          }
+
+          batchSize = 0;
+        }
+      }
+
+      if(name.startsWith("set") && Objects.nonNull(args) && args.length >= 2
+          && args[0] instanceof Integer index) {
+        parameters.put(index, name.equals("setNull") ? null : args[1]);
+      }
+      else if(name.equals("addBatch") && Objects.isNull(args)) {
+        batchSize++;
+      }
+      else if(name.equals("clearParameters")) {
+        parameters.clear();
+      }
+      else if(name.equals("equals")) {
+        return proxy == args[0];
+      }
+      else if(name.equals("hashCode")) {
+        return System.identityHashCode(proxy);
+      }
+
+      try {
+        return method.invoke(stmt, args);
+      }
+      catch(InvocationTargetException e) {
+        throw e.getCause();
+      }
+    }
+
+    private void record(String executed, long nanos) {
+      Trace trace = CURRENT.get();
+      boolean slow = slowQueryNanos > 0 && nanos >= slowQueryNanos;
+
+      if(!slow && (Objects.isNull(trace) || !trace.sampled)) {
+        return;
+      }
+
+      Span span = new Span(executed, formatParameters(), batchSize, nanos);
+
+      if(Objects.nonNull(trace) && trace.sampled) {
+        trace.add(span);
+      }
+
+      if(slow) {
+        String operation = Objects.isNull(trace) ? "" : " in " + trace.operation;
+        SLOW_LOG.log(Level.WARNING, () -> "Slow statement" + operation + ": " + span);
+      }
+    }
+
+    /*
+     * The rows an execution changed, from what it returned. Batch entries that only report success
+     * (a negative count) are left out.
+     */
+    private static long updateCount(Object result) {
+      if(result instanceof Number count) {
+        return Math.max(0, count.longValue());
+      }
+
+      long rows = 0;
+
+      if(result instanceof int[] counts) {
+        for(int count : counts) {
+          rows += Math.max(0, count);
+        }
+      }
+      else if(result instanceof long[] counts) {
+        for(long count : counts) {
+          rows += Math.max(0, count);
+        }
+      }
+
+      return rows;
+    }
+
+    /*
+     * With batching only the last parameter set is still known; it stands in for the batch.
+     */
+    private String formatParameters() {
+      if(parameters.isEmpty()) {
+        return null;
+      }
+
+      if(redactParameters) {
+        return "(" + parameters.size() + " parameters)";
+      }
+
+      StringBuilder text = new StringBuilder("[");
+
+      for(Object value : parameters.values()) {
+        String shown = String.valueOf(value);
+
+        if(shown.length() > MAX_PARAMETER_LENGTH) {
+          shown = shown.substring(0, MAX_PARAMETER_LENGTH) + "...";
+        }
+
+        text.append(text.length() == 1 ? "" : ", ")
+            .append(value instanceof String ? "'" + shown + "'" : shown);
+      }
+
+      return text.append("]").toString();
+    }
+  }
+
+  private static String formatMillis(long nanos) {
+    return String.format("%.3fms", nanos / 1_000_000.0);
+  }
+}
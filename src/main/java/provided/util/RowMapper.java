@@ -0,0 +1,216 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import provided.util.DaoBase.DaoException;
+
+/**
+ * This maps rows of one result set to objects of one class. It replaces the per-row reflection that
+ * {@link DaoBase#extract(ResultSet, Class)} used to do:
+ * <ol>
+ * <li>The constructor and field setters for a class are looked up once per JVM and kept as method
+ * handles (see {@link #MAPPINGS}).</li>
+ * <li>The column index of every field is resolved once per result set from the
+ * {@link ResultSetMetaData}. Fields without a matching column are dropped from the mapper, so a
+ * missing column is found without throwing anything.</li>
+ * <li>{@link #map(ResultSet)} then just reads each bound column by index and sets the field.</li>
+ * </ol>
+ *
+ * Obtain a mapper with {@link DaoBase#mapper(ResultSet, Class)} after executing the query and use it
+ * for every row of that result set.
+ *
+ * @param <T> The type of object created from each row.
+ *
+ * @author Promineo
+ *
+ */
+public final class RowMapper<T> {
+  /**
+   * The class-level part of the mapping (constructor and setters) is computed once per class and
+   * cached here.
+   */
+  private static final ClassValue<Mapping> MAPPINGS = new ClassValue<>() {
+    @Override
+    protected Mapping computeValue(Class<?> type) {
+      return new Mapping(type);
+    }
+  };
+
+  private final Class<T> classType;
+  private final MethodHandle constructor;
+  private final int[] columnIndexes;
+  private final MethodHandle[] setters;
+  private final int[] conversions;
+
+  private RowMapper(Class<T> classType, Mapping mapping, ResultSetMetaData meta)
+      throws SQLException {
+    Map<String, Integer> columns = new HashMap<>();
+
+    for(int index = meta.getColumnCount(); index > 0; index--) {
+      /* Walk backwards so that the first column with a given name wins, as with getObject(name). */
+      columns.put(meta.getColumnLabel(index).toLowerCase(Locale.ROOT), index);
+    }
+
+    List<FieldBinding> bound = new ArrayList<>();
+
+    for(FieldBinding binding : mapping.bindings) {
+      if(columns.containsKey(binding.columnName)) {
+        bound.add(binding);
+      }
+    }
+
+    this.classType = classType;
+    this.constructor = mapping.constructor;
+    this.columnIndexes = new int[bound.size()];
+    this.setters = new MethodHandle[bound.size()];
+    this.conversions = new int[bound.size()];
+
+    for(int i = 0; i < bound.size(); i++) {
+      FieldBinding binding = bound.get(i);
+      columnIndexes[i] = columns.get(binding.columnName);
+      setters[i] = binding.setter;
+      conversions[i] = binding.conversion;
+    }
+  }
+
+  /**
+   * Creates a mapper for the given result set.
+   *
+   * @param <T> The type of object to create.
+   * @param rs The result set. Only its metadata is read here.
+   * @param classType The class to create. It must have a zero-argument constructor.
+   * @return The mapper.
+   * @throws SQLException Thrown if the result set metadata cannot be read.
+   */
+  static <T> RowMapper<T> forResultSet(ResultSet rs, Class<T> classType) throws SQLException {
+    return new RowMapper<>(classType, MAPPINGS.get(classType), rs.getMetaData());
+  }
+
+  /**
+   * Creates an object from the current row. The result set must be positioned on the correct row by
+   * the caller. As before, a field whose column is null keeps its initial value.
+   *
+   * @param rs The result set this mapper was created for.
+   * @return A populated object.
+   * @throws SQLException Thrown if a column cannot be read.
+   */
+  public T map(ResultSet rs) throws SQLException {
+    Object obj;
+
+    try {
+      obj = constructor.invokeExact();
+    }
+    catch(Throwable e) {
+      throw new DaoException("Unable to create object of type " + classType.getName(), e);
+    }
+
+    for(int i = 0; i < columnIndexes.length; i++) {
+      Object value = rs.getObject(columnIndexes[i]);
+
+      if(Objects.nonNull(value)) {
+        try {
+          setters[i].invokeExact(obj, convert(value, conversions[i]));
+        }
+        catch(Throwable e) {
+          throw new DaoException("Unable to set column " + columnIndexes[i] + " on "
+              + classType.getName() + " from a value of type " + value.getClass().getName(), e);
+        }
+      }
+    }
+
+    return classType.cast(obj);
+  }
+
+  private static Object convert(Object value, int conversion) {
+    switch(conversion) {
+      case FieldBinding.TO_LOCAL_TIME:
+        return value instanceof Time ? ((Time)value).toLocalTime() : value;
+
+      case FieldBinding.TO_LOCAL_DATE_TIME:
+        return value instanceof Timestamp ? ((Timestamp)value).toLocalDateTime() : value;
+
+      default:
+        return value;
+    }
+  }
+
+  /**
+   * The class-level half of a mapper: the constructor and one setter per instance field.
+   */
+  private static class Mapping {
+    private final MethodHandle constructor;
+    private final List<FieldBinding> bindings = new ArrayList<>();
+
+    private Mapping(Class<?> type) {
+      try {
+        MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+
+        constructor = lookup.findConstructor(type, MethodType.methodType(void.class))
+            .asType(MethodType.methodType(Object.class));
+
+        for(Field field : type.getDeclaredFields()) {
+          if(Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+            continue;
+          }
+
+          MethodHandle setter = lookup.unreflectSetter(field)
+              .asType(MethodType.methodType(void.class, Object.class, Object.class));
+
+          bindings.add(new FieldBinding(DaoBase.camelCaseToSnakeCase(field.getName()), setter,
+              field.getType()));
+        }
+      }
+      catch(ReflectiveOperationException e) {
+        throw new DaoException("Unable to build a row mapper for " + type.getName(), e);
+      }
+    }
+  }
+
+  /**
+   * One field of a mapped class.
+   */
+  private static class FieldBinding {
+    private static final int NONE = 0;
+    private static final int TO_LOCAL_TIME = 1;
+    private static final int TO_LOCAL_DATE_TIME = 2;
+
+    private final String columnName;
+    private final MethodHandle setter;
+    private final int conversion;
+
+    private FieldBinding(String columnName, MethodHandle setter, Class<?> fieldType) {
+      this.columnName = columnName;
+      this.setter = setter;
+
+      if(LocalTime.class.equals(fieldType)) {
+        this.conversion = TO_LOCAL_TIME;
+      }
+      else if(LocalDateTime.class.equals(fieldType)) {
+        this.conversion = TO_LOCAL_DATE_TIME;
+      }
+      else {
+        this.conversion = NONE;
+      }
+    }
+  }
+}
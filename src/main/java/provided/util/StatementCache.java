@@ -0,0 +1,245 @@
+/**
+ *
+ */
+package provided.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This caches prepared statements for one physical connection, keyed by their SQL text. Preparing
+ * a statement costs a parse (and, with server-side prepared statements, a round trip), so reusing
+ * the prepared statement on every call to the same DAO method saves that cost.
+ *
+ * The statements handed out are wrappers. Closing a wrapper (which try-with-resources does) does not
+ * close the real statement. Instead its parameters and batch are cleared, any fetch size, fetch
+ * direction, row limit or query timeout the user set is put back to the driver's defaults, and it
+ * goes back into the cache. If the same SQL is asked for while its statement is still open, a normal uncached statement
+ * is returned so the two callers don't share one.
+ *
+ * A cache belongs to exactly one connection and is used by whoever has borrowed that connection, so
+ * it is never used by two threads at once; the pool's hand-over of the connection publishes the
+ * cache to its next user. It takes no lock, so preparing a statement (a server round trip with
+ * server-side prepared statements) never pins a virtual thread. Only the statistics are read from
+ * other threads, and they are kept in adders.
+ *
+ * @author Promineo
+ *
+ */
+public class StatementCache {
+  private static final LongAdder TOTAL_HITS = new LongAdder();
+  private static final LongAdder TOTAL_MISSES = new LongAdder();
+  private static final LongAdder TOTAL_EVICTIONS = new LongAdder();
+
+  private final Connection conn;
+  private final int maxSize;
+  private final LinkedHashMap<String, CachedStatement> statements;
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder evictions = new LongAdder();
+  private volatile int size;
+
+  /**
+   * @param conn The physical connection the statements are prepared on
+   * @param maxSize The maximum number of statements to keep. The least recently used statement is
+   *        closed when this is exceeded.
+   */
+  public StatementCache(Connection conn, int maxSize) {
+    this.conn = conn;
+    this.maxSize = maxSize;
+    this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedStatement> eldest) {
+        if(size() > StatementCache.this.maxSize) {
+          evictions.increment();
+          TOTAL_EVICTIONS.increment();
+          eldest.getValue().evict();
+          return true;
+        }
+
+        return false;
+      }
+    };
+  }
+
+  /**
+   * This returns a prepared statement for the given SQL, reusing a cached one if possible.
+   *
+   * @param sql The SQL text
+   * @param autoGeneratedKeys Either {@link java.sql.Statement#RETURN_GENERATED_KEYS} or
+   *        {@link java.sql.Statement#NO_GENERATED_KEYS}
+   * @return A prepared statement. Close it when done, as usual.
+   * @throws SQLException Thrown if the statement cannot be prepared
+   */
+  public PreparedStatement prepare(String sql, int autoGeneratedKeys)
+      throws SQLException {
+    String key = autoGeneratedKeys + ":" + sql;
+    CachedStatement cached = statements.get(key);
+
+    if(Objects.nonNull(cached)) {
+      if(cached.inUse) {
+        /* Nested use of the same SQL on one connection. Don't share the statement. */
+        misses.increment();
+        TOTAL_MISSES.increment();
+        return conn.prepareStatement(sql, autoGeneratedKeys);
+      }
+
+      hits.increment();
+      TOTAL_HITS.increment();
+      cached.inUse = true;
+      return cached.proxy;
+    }
+
+    misses.increment();
+    TOTAL_MISSES.increment();
+
+    cached = new CachedStatement(conn.prepareStatement(sql, autoGeneratedKeys));
+    cached.inUse = true;
+    statements.put(key, cached);
+    size = statements.size();
+    return cached.proxy;
+  }
+
+  /**
+   * This closes every cached statement. It is called when the physical connection is discarded.
+   */
+  public void close() {
+    statements.values().forEach(CachedStatement::evict);
+    statements.clear();
+    size = 0;
+  }
+
+  /**
+   * @return The counters for this connection's cache
+   */
+  public StatementCacheStats getStats() {
+    return new StatementCacheStats(size, hits.sum(), misses.sum(), evictions.sum());
+  }
+
+  /**
+   * @return The counters summed over every statement cache in this JVM
+   */
+  public static StatementCacheStats getGlobalStats() {
+    return new StatementCacheStats(-1, TOTAL_HITS.sum(), TOTAL_MISSES.sum(),
+        TOTAL_EVICTIONS.sum());
+  }
+
+  /**
+   * One cached statement and the wrapper handed out for it.
+   */
+  private class CachedStatement implements InvocationHandler {
+    private final PreparedStatement stmt;
+    private final PreparedStatement proxy;
+    private final int fetchSize;
+    private final int fetchDirection;
+    private final int maxRows;
+    private final int queryTimeout;
+    private boolean inUse;
+    private boolean evicted;
+    private boolean settingsChanged;
+
+    private CachedStatement(PreparedStatement stmt) throws SQLException {
+      this.stmt = stmt;
+      this.proxy = (PreparedStatement)Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+          new Class<?>[] {PreparedStatement.class}, this);
+      this.fetchSize = stmt.getFetchSize();
+      this.fetchDirection = stmt.getFetchDirection();
+      this.maxRows = stmt.getMaxRows();
+      this.queryTimeout = stmt.getQueryTimeout();
+    }
+
+    /**
+     * Puts back the settings a user changed, so e.g. a streaming fetch size doesn't carry over to
+     * the next user of the statement.
+     */
+    private void restoreSettings() throws SQLException {
+      stmt.setFetchSize(fetchSize);
+      stmt.setFetchDirection(fetchDirection);
+      stmt.setMaxRows(maxRows);
+      stmt.setQueryTimeout(queryTimeout);
+      settingsChanged = false;
+    }
+
+    /**
+     * Removes the statement from service. If it is open right now it is closed when its user closes
+     * it.
+     */
+    private void evict() {
+      evicted = true;
+
+      if(!inUse) {
+        closeQuietly();
+      }
+    }
+
+    private void closeQuietly() {
+      try {
+        stmt.close();
+      }
+      catch(SQLException e) {
+        /* The statement is being discarded anyway. */
+      }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch(method.getName()) {
+        case "close":
+          if(inUse) {
+            inUse = false;
+
+            if(evicted) {
+              closeQuietly();
+            }
+            else {
+              stmt.clearParameters();
+              stmt.clearBatch();
+
+              if(settingsChanged) {
+                restoreSettings();
+              }
+            }
+          }
+          return null;
+
+        case "isClosed":
+          return !inUse || stmt.isClosed();
+
+        case "equals":
+          return proxy == args[0];
+
+        case "hashCode":
+          return System.identityHashCode(proxy);
+
+        case "setFetchSize", "setFetchDirection", "setMaxRows", "setLargeMaxRows", "setQueryTimeout":
+          settingsChanged = true;
+
+          try {
+            return method.invoke(stmt, args);
+          }
+          catch(InvocationTargetException e) {
+            throw e.getCause();
+          }
+
+        default:
+          try {
+            return method.invoke(stmt, args);
+          }
+          catch(InvocationTargetException e) {
+            throw e.getCause();
+          }
+      }
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/**
+ *
+ */
+package provided.util;
+
+/**
+ * A point-in-time snapshot of {@link StatementCache} counters.
+ *
+ * @param size The number of cached statements, or -1 for the JVM-wide totals
+ * @param hits The number of times a cached statement was reused
+ * @param misses The number of times a statement had to be prepared
+ * @param evictions The number of statements closed to make room for others
+ *
+ * @author Promineo
+ *
+ */
+public record StatementCacheStats(int size, long hits, long misses, long evictions) {
+
+  /**
+   * @return The fraction of requests that were served from the cache
+   */
+  public double hitRate() {
+    long requests = hits + misses;
+    return requests == 0 ? 0.0 : (double)hits / requests;
+  }
+
+  @Override
+  public String toString() {
+    return "size=" + size + ", hits=" + hits + ", misses=" + misses + ", hitRate="
+        + String.format("%.2f", hitRate()) + ", evictions=" + evictions;
+  }
+}
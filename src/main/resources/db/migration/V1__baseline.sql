@@ -0,0 +1,55 @@
+-- The schema as projects-schema.sql created it before migrations existed.  IF NOT EXISTS lets a database that was set up with
+-- that script adopt migrations without losing its data.
+CREATE TABLE IF NOT EXISTS project (
+	project_id INT NOT NULL AUTO_INCREMENT,
+	project_name VARCHAR(128) NOT NULL,
+	estimated_hours DECIMAL(7,2),
+	actual_hours DECIMAL(7,2),
+	difficulty INT,
+	notes TEXT,
+	PRIMARY KEY (project_id)
+);
+CREATE TABLE IF NOT EXISTS material (
+	material_id INT NOT NULL AUTO_INCREMENT,
+	project_id INT NOT NULL,
+	material_name VARCHAR(128) NOT NULL,
+	num_required INT,
+	cost DECIMAL(7,2),
+	PRIMARY KEY (material_id),
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+CREATE TABLE IF NOT EXISTS step (
+	step_id INT NOT NULL AUTO_INCREMENT,
+	project_id INT NOT NULL,
+	step_text TEXT NOT NULL,
+	step_order INT NOT NULL,
+	PRIMARY KEY (step_id),
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+CREATE TABLE IF NOT EXISTS category (
+	category_id INT NOT NULL AUTO_INCREMENT,
+	category_name VARCHAR(128) NOT NULL,
+	PRIMARY KEY (category_id)
+);
+CREATE TABLE IF NOT EXISTS project_category (
+	project_id INT NOT NULL,
+	category_id INT NOT NULL,
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE,
+	FOREIGN KEY (category_id) REFERENCES category (category_id),
+	UNIQUE KEY (project_id, category_id),
+	UNIQUE KEY (category_id, project_id)
+);
+CREATE TABLE IF NOT EXISTS project_cost_summary (
+	project_id INT NOT NULL,
+	material_count INT NOT NULL,
+	total_cost DECIMAL(14,2) NOT NULL,
+	PRIMARY KEY (project_id),
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+CREATE TABLE IF NOT EXISTS category_spend_summary (
+	category_id INT NOT NULL,
+	project_count INT NOT NULL,
+	total_cost DECIMAL(14,2) NOT NULL,
+	PRIMARY KEY (category_id),
+	FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE
+);
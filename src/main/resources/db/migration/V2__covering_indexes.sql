@@ -0,0 +1,14 @@
+-- Indexes for the DAO access paths that the primary and foreign keys don't serve.  QueryPlanVerifier checks that the
+-- queries use them.
+
+-- Project listings sorted by name (keyset pages seek on project_name, project_id).
+CREATE INDEX idx_project_name ON project (project_name, project_id);
+
+-- Estimate accuracy groups by difficulty and sums the hours: answered from the index alone.
+CREATE INDEX idx_project_difficulty_hours ON project (difficulty, estimated_hours, actual_hours);
+
+-- A project's materials, and the per-project cost roll-up answered from the index alone.
+CREATE INDEX idx_material_project_cost ON material (project_id, num_required, cost);
+
+-- A project's steps in order.
+CREATE INDEX idx_step_project_order ON step (project_id, step_order);
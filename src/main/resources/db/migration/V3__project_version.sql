@@ -0,0 +1,3 @@
+-- Row version for optimistic concurrency: every UPDATE of a project bumps it, and an edit made against an older version is
+-- rejected instead of overwriting someone else's change.
+ALTER TABLE project ADD COLUMN version INT NOT NULL DEFAULT 0;
@@ -0,0 +1,8 @@
+-- How far each checkpointed import has got.  ProjectImporter updates the row in the same transaction as the batch it covers,
+-- so a crash can never leave a committed batch that the checkpoint doesn't know about.
+CREATE TABLE IF NOT EXISTS import_checkpoint (
+	checkpoint_name VARCHAR(512) NOT NULL,
+	import_file VARCHAR(1024) NOT NULL,
+	records BIGINT NOT NULL,
+	PRIMARY KEY (checkpoint_name)
+);
@@ -0,0 +1,6 @@
+-- Application settings that every instance must agree on, one row per setting.  A missing row means the default.
+CREATE TABLE IF NOT EXISTS app_setting (
+	setting_name VARCHAR(64) NOT NULL,
+	setting_value VARCHAR(255) NOT NULL,
+	PRIMARY KEY (setting_name)
+);
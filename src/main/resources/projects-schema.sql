@@ -1,3 +1,10 @@
+-- Drops everything and re-creates the original (version 1) schema: use it to reset a scratch database.  The application
+-- brings the schema up to date on startup by applying the migrations in db/migration (see MigrationRunner).
+DROP TABLE IF EXISTS schema_version;
+DROP TABLE IF EXISTS app_setting;
+DROP TABLE IF EXISTS import_checkpoint;
+DROP TABLE IF EXISTS category_spend_summary;
+DROP TABLE IF EXISTS project_cost_summary;
 DROP TABLE IF EXISTS project_category;
 DROP TABLE IF EXISTS category;
 DROP TABLE IF EXISTS step;
@@ -42,4 +49,18 @@ CREATE TABLE project_category (
 	FOREIGN KEY (category_id) REFERENCES category (category_id),
 	UNIQUE KEY (project_id, category_id),
 	UNIQUE KEY (category_id, project_id)
-); 
\ No newline at end of file
+); 
+CREATE TABLE project_cost_summary (
+	project_id INT NOT NULL,
+	material_count INT NOT NULL,
+	total_cost DECIMAL(14,2) NOT NULL,
+	PRIMARY KEY (project_id),
+	FOREIGN KEY (project_id) REFERENCES project (project_id) ON DELETE CASCADE
+);
+CREATE TABLE category_spend_summary (
+	category_id INT NOT NULL,
+	project_count INT NOT NULL,
+	total_cost DECIMAL(14,2) NOT NULL,
+	PRIMARY KEY (category_id),
+	FOREIGN KEY (category_id) REFERENCES category (category_id) ON DELETE CASCADE
+);
@@ -0,0 +1,205 @@
+package projects.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import projects.exception.DbException;
+
+/*
+ * Runs the pool against an in-memory H2 database in MySQL mode, the same stand-in the benchmarks use, so the tests need no
+ * server.  Every test gets its own database, and the pool never grows on its own (minSize 0), so the counters only move
+ * because of what the test did.
+ */
+class ConnectionPoolTest {
+	private static final AtomicInteger DATABASES = new AtomicInteger();
+
+	private String url;
+	private ConnectionPool pool;
+
+	@BeforeEach
+	void createDatabase() {
+		url = "jdbc:h2:mem:pooltest" + DATABASES.incrementAndGet() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+	}
+
+	@AfterEach
+	void closePool() {
+		if(Objects.nonNull(pool)) {
+			pool.close();
+		} // if
+	}
+
+	@Test
+	void reusesReturnedConnection() throws SQLException {
+		pool = newPool(2, 1_000);
+		Connection first;
+		try(Connection conn = pool.getConnection()) {
+			first = conn.unwrap(Connection.class);
+		} // try
+		try(Connection conn = pool.getConnection()) {
+			assertSame(first, conn.unwrap(Connection.class), "The returned connection should be handed out again");
+		} // try
+
+		PoolStats stats = pool.getStats();
+		assertEquals(1, stats.created());
+		assertEquals(2, stats.borrowed());
+		assertEquals(1, stats.idle());
+		assertEquals(0, stats.active());
+	} // reusesReturnedConnection
+
+	@Test
+	void rollsBackUncommittedWorkOnReturn() throws SQLException {
+		pool = newPool(1, 1_000);
+		try(Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+			stmt.execute("CREATE TABLE widget (widget_id INT PRIMARY KEY)");
+		} // try
+		try(Connection conn = pool.getConnection(); Statement stmt = conn.createStatement()) {
+			conn.setAutoCommit(false);
+			stmt.executeUpdate("INSERT INTO widget VALUES (1)");
+		} // try
+
+		try(Connection conn = pool.getConnection(); Statement stmt = conn.createStatement();
+				ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM widget")) {
+			assertTrue(conn.getAutoCommit(), "Auto-commit should be back on");
+			assertTrue(rs.next());
+			assertEquals(0, rs.getInt(1), "The insert was never committed");
+		} // try
+		assertEquals(1, pool.getStats().created());
+	} // rollsBackUncommittedWorkOnReturn
+
+	@Test
+	void restoresIsolationOnReturn() throws SQLException {
+		pool = newPool(1, 1_000);
+		int original;
+		try(Connection conn = pool.getConnection()) {
+			original = conn.getTransactionIsolation();
+			conn.setTransactionIsolation(original == Connection.TRANSACTION_SERIALIZABLE
+					? Connection.TRANSACTION_READ_COMMITTED : Connection.TRANSACTION_SERIALIZABLE);
+		} // try
+		try(Connection conn = pool.getConnection()) {
+			assertEquals(original, conn.getTransactionIsolation());
+		} // try
+		assertEquals(0, pool.getStats().destroyed(), "A restored connection should be kept, not discarded");
+	} // restoresIsolationOnReturn
+
+	@Test
+	void closesStatementsLeftOpen() throws SQLException {
+		pool = newPool(1, 1_000);
+		Statement leftOpen;
+		try(Connection conn = pool.getConnection()) {
+			leftOpen = conn.createStatement();
+		} // try
+		assertTrue(leftOpen.isClosed());
+	} // closesStatementsLeftOpen
+
+	@Test
+	void rejectsUseAfterReturn() throws SQLException {
+		pool = newPool(1, 1_000);
+		Connection conn = pool.getConnection();
+		conn.close();
+		conn.close(); // A second close is a no-op, as on a real connection.
+
+		assertTrue(conn.isClosed());
+		assertThrows(SQLException.class, conn::createStatement);
+		assertEquals(1, pool.getStats().idle());
+	} // rejectsUseAfterReturn
+
+	@Test
+	void discardsConnectionWhoseSchemaChanged() throws SQLException {
+		pool = newPool(1, 1_000);
+		try(Connection conn = pool.getConnection()) {
+			conn.setSchema(conn.getSchema());
+		} // try
+
+		PoolStats stats = pool.getStats();
+		assertEquals(1, stats.destroyed());
+		assertEquals(0, stats.total());
+		assertEquals(0, stats.idle());
+	} // discardsConnectionWhoseSchemaChanged
+
+	@Test
+	void timesOutWhenExhausted() throws SQLException {
+		pool = newPool(1, 50);
+		try(Connection held = pool.getConnection()) {
+			assertThrows(DbException.class, pool::getConnection);
+		} // try
+
+		PoolStats stats = pool.getStats();
+		assertEquals(1, stats.timeouts());
+		assertEquals(1, stats.idle(), "The held connection should go back once it is returned");
+	} // timesOutWhenExhausted
+
+	@Test
+	void closesConnectionWhenSessionSnapshotFails() throws SQLException {
+		AtomicBoolean physicalClosed = new AtomicBoolean();
+		PoolConfig config = config(1, 1_000);
+		pool = new ConnectionPool(() -> failingCatalog(DriverManager.getConnection(url), physicalClosed), config);
+
+		assertThrows(DbException.class, pool::getConnection);
+		assertTrue(physicalClosed.get(), "The physical connection should be closed, not leaked");
+
+		PoolStats stats = pool.getStats();
+		assertEquals(0, stats.total(), "The reserved slot should be given back");
+		assertEquals(0, stats.created());
+	} // closesConnectionWhenSessionSnapshotFails
+
+	@Test
+	void refusesBorrowAfterClose() {
+		pool = newPool(1, 1_000);
+		pool.close();
+		assertThrows(DbException.class, pool::getConnection);
+	} // refusesBorrowAfterClose
+
+	private ConnectionPool newPool(int maxSize, long acquireTimeoutMillis) {
+		return new ConnectionPool(() -> DriverManager.getConnection(url), config(maxSize, acquireTimeoutMillis));
+	}
+
+	private static PoolConfig config(int maxSize, long acquireTimeoutMillis) {
+		PoolConfig config = new PoolConfig();
+		config.setMinSize(0);
+		config.setMaxSize(maxSize);
+		config.setAcquireTimeoutMillis(acquireTimeoutMillis);
+		return config;
+	} // config
+
+	/*
+	 * Wraps a real connection so getCatalog() fails, as it would if the server dropped the connection right after the handshake,
+	 * and records whether the pool closed it.
+	 */
+	private static Connection failingCatalog(Connection physical, AtomicBoolean closed) {
+		return (Connection)Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+				(proxy, method, args) -> {
+					switch(method.getName()) {
+					case "getCatalog":
+						throw new SQLException("Communications link failure", "08S01");
+					case "close":
+						closed.set(true);
+						break;
+					default:
+						break;
+					} // switch
+					try {
+						return method.invoke(physical, args);
+					} catch(InvocationTargetException e) {
+						throw e.getCause();
+					} // try-catch
+				});
+	} // failingCatalog
+
+} // class